@@ -101,6 +101,29 @@ public abstract class AbstractRecordWriter<T extends Record> implements Writer<T
 		this.outputGate.writeRecord(record);
 	}
 
+	/**
+	 * This method emits a batch of records to the corresponding output gate. The records are passed on exactly as if
+	 * {@link #emit(Record)} was called for each of them, but the per-record overhead of the gate is amortized across
+	 * the batch.
+	 * 
+	 * @param records
+	 *        the records to be emitted
+	 * @param numberOfRecords
+	 *        the number of records to emit, starting with the first element of the array
+	 * @throws IOException
+	 *         thrown on an error that may happen during the transfer of the records to a peer
+	 * @throws InterruptedException
+	 *         thrown if the thread is interrupted while waiting for the records to be transferred
+	 */
+	public void emit(final T[] records, final int numberOfRecords) throws IOException, InterruptedException {
+
+		if (numberOfRecords < 0 || numberOfRecords > records.length) {
+			throw new IllegalArgumentException("Number of records " + numberOfRecords + " is out of range");
+		}
+
+		this.outputGate.writeRecords(records, numberOfRecords);
+	}
+
 	/**
 	 * Returns the list of OutputChannels connected to this RecordWriter.
 	 * 
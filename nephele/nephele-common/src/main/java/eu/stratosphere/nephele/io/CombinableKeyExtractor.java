@@ -0,0 +1,46 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.io;
+
+import eu.stratosphere.nephele.types.Record;
+
+/**
+ * A combinable key extractor determines the key of a record for a partitioning in which the records of a key may be
+ * sent to more than one consumer. By implementing this interface, the producer declares that the consumers compute a
+ * combinable aggregate, such as a sum, a count, a minimum or a maximum, whose partial results for a key are merged by a
+ * subsequent step. Operators which need all records of a key at a single consumer, for example joins or reducers which
+ * cannot be combined, must partition with a {@link HashChannelSelector} and a plain {@link KeyExtractor} instead.
+ * <p>
+ * Only channel selectors which may split keys, like the {@link SkewAwareChannelSelector}, require this interface.
+ * 
+ * @param <T>
+ *        the type of record to extract the key from
+ */
+public interface CombinableKeyExtractor<T extends Record> extends KeyExtractor<T> {
+
+	/**
+	 * Returns the key of the given record. Channel selectors which split keys use the returned object to distinguish
+	 * keys whose hash codes collide, so its <code>equals</code> and <code>hashCode</code> methods must reflect the key.
+	 * Since the returned object may be retained, it must either be immutable or a copy which is not modified when the
+	 * record is reused. The method is only called for records whose key hash is suspected to belong to a hot key.
+	 * 
+	 * @param record
+	 *        the record to extract the key from
+	 * @return the key of the record
+	 */
+	Object getKey(T record);
+}
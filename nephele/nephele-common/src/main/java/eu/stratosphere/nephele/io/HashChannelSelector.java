@@ -0,0 +1,100 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.nephele.io;
+
+import eu.stratosphere.nephele.types.Record;
+
+/**
+ * This channel selector implements hash partitioning, i.e. all records with the same key are sent to the same output
+ * channel. The hash codes returned by the {@link KeyExtractor} are mixed with the finalization step of the MurmurHash3
+ * function before the channel is selected, so keys with poorly distributed hash codes, for example consecutive
+ * integers, are still spread evenly across the output channels.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ * @param <T>
+ *        the type of record which is sent through the attached output gate
+ */
+public class HashChannelSelector<T extends Record> implements ChannelSelector<T> {
+
+	/**
+	 * The key extractor to determine the hash code of a record's key.
+	 */
+	private final KeyExtractor<T> keyExtractor;
+
+	/**
+	 * Stores the index of the channel to send the next record to.
+	 */
+	private final int[] channel = new int[1];
+
+	/**
+	 * Constructs a new hash channel selector.
+	 * 
+	 * @param keyExtractor
+	 *        the key extractor to determine the hash code of a record's key
+	 */
+	public HashChannelSelector(final KeyExtractor<T> keyExtractor) {
+
+		if (keyExtractor == null) {
+			throw new IllegalArgumentException("Argument keyExtractor must not be null");
+		}
+
+		this.keyExtractor = keyExtractor;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int[] selectChannels(final T record, final int numberOfOutputChannels) {
+
+		this.channel[0] = selectChannel(mix(this.keyExtractor.getKeyHash(record)), numberOfOutputChannels);
+
+		return this.channel;
+	}
+
+	/**
+	 * Applies the finalization step of the MurmurHash3 function to the given hash code, so that every bit of the input
+	 * affects every bit of the output.
+	 * 
+	 * @param hash
+	 *        the hash code to mix
+	 * @return the mixed hash code
+	 */
+	static int mix(int hash) {
+
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+
+		return hash;
+	}
+
+	/**
+	 * Maps the given mixed hash code to a channel index.
+	 * 
+	 * @param mixedHash
+	 *        the mixed hash code
+	 * @param numberOfOutputChannels
+	 *        the total number of output channels
+	 * @return the index of the selected channel
+	 */
+	static int selectChannel(final int mixedHash, final int numberOfOutputChannels) {
+
+		return (mixedHash & Integer.MAX_VALUE) % numberOfOutputChannels;
+	}
+}
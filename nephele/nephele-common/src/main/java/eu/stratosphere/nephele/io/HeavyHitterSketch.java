@@ -0,0 +1,164 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.nephele.io;
+
+import java.util.Arrays;
+
+/**
+ * A heavy hitter sketch keeps track of the most frequent keys in a stream with a fixed amount of memory. It implements
+ * the Space-Saving algorithm: the sketch monitors at most <code>capacity</code> keys, and a key which is not monitored
+ * replaces the monitored key with the smallest count, inheriting that count as its error. Every key which occurs
+ * more than <code>totalCount / capacity</code> times is guaranteed to be monitored.
+ * <p>
+ * The keys are represented by their hash codes, so the sketch never allocates objects after its construction. An
+ * update scans the monitored keys once, so the capacity is expected to be small.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ */
+public final class HeavyHitterSketch {
+
+	/**
+	 * The hash codes of the monitored keys.
+	 */
+	private final int[] keys;
+
+	/**
+	 * The estimated number of occurrences of the monitored keys, which is an upper bound of the actual number.
+	 */
+	private final long[] counts;
+
+	/**
+	 * The maximum overestimation of the counts of the monitored keys.
+	 */
+	private final long[] errors;
+
+	/**
+	 * The number of monitored keys.
+	 */
+	private int size = 0;
+
+	/**
+	 * The total number of occurrences added to the sketch.
+	 */
+	private long totalCount = 0L;
+
+	/**
+	 * Constructs a new heavy hitter sketch.
+	 * 
+	 * @param capacity
+	 *        the maximum number of keys to monitor
+	 */
+	public HeavyHitterSketch(final int capacity) {
+
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1");
+		}
+
+		this.keys = new int[capacity];
+		this.counts = new long[capacity];
+		this.errors = new long[capacity];
+	}
+
+	/**
+	 * Adds an occurrence of the given key to the sketch.
+	 * 
+	 * @param keyHash
+	 *        the hash code of the key
+	 * @return the guaranteed number of occurrences of the key so far, which is a lower bound of the actual number
+	 */
+	public long add(final int keyHash) {
+
+		++this.totalCount;
+
+		// Look for the key and remember the slot with the smallest count on the way
+		int minSlot = 0;
+		for (int i = 0; i < this.size; ++i) {
+			if (this.keys[i] == keyHash) {
+				return ++this.counts[i] - this.errors[i];
+			}
+			if (this.counts[i] < this.counts[minSlot]) {
+				minSlot = i;
+			}
+		}
+
+		if (this.size < this.keys.length) {
+			final int slot = this.size++;
+			this.keys[slot] = keyHash;
+			this.counts[slot] = 1L;
+			this.errors[slot] = 0L;
+			return 1L;
+		}
+
+		// Replace the key with the smallest count
+		this.keys[minSlot] = keyHash;
+		this.errors[minSlot] = this.counts[minSlot];
+		++this.counts[minSlot];
+
+		return 1L;
+	}
+
+	/**
+	 * Returns the estimated number of occurrences of the given key.
+	 * 
+	 * @param keyHash
+	 *        the hash code of the key
+	 * @return the estimated number of occurrences of the key, which is an upper bound of the actual number, or
+	 *         <code>0</code> if the key is not monitored
+	 */
+	public long getEstimatedCount(final int keyHash) {
+
+		for (int i = 0; i < this.size; ++i) {
+			if (this.keys[i] == keyHash) {
+				return this.counts[i];
+			}
+		}
+
+		return 0L;
+	}
+
+	/**
+	 * Returns the total number of occurrences added to the sketch.
+	 * 
+	 * @return the total number of occurrences added to the sketch
+	 */
+	public long getTotalCount() {
+
+		return this.totalCount;
+	}
+
+	/**
+	 * Returns the hash codes of all keys which are guaranteed to have occurred at least the given number of times.
+	 * 
+	 * @param minimumCount
+	 *        the minimum number of occurrences
+	 * @return the hash codes of the frequent keys in ascending order
+	 */
+	public int[] getFrequentKeys(final long minimumCount) {
+
+		int numberOfFrequentKeys = 0;
+		final int[] frequentKeys = new int[this.size];
+		for (int i = 0; i < this.size; ++i) {
+			if (this.counts[i] - this.errors[i] >= minimumCount) {
+				frequentKeys[numberOfFrequentKeys++] = this.keys[i];
+			}
+		}
+
+		final int[] result = Arrays.copyOf(frequentKeys, numberOfFrequentKeys);
+		Arrays.sort(result);
+
+		return result;
+	}
+}
@@ -0,0 +1,106 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.nephele.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import eu.stratosphere.nephele.event.task.AbstractTaskEvent;
+
+/**
+ * This event announces the keys whose records have been spread across several output channels by a
+ * {@link SkewAwareChannelSelector}. It is the consumer-side hook for re-aggregating hot keys: the producer
+ * publishes the event on its output gate before closing it, and consumers subscribe to it on their input gate. Since
+ * the records of a hot key may have been processed by several consumers, a consumer must treat its results for these
+ * keys as partial and hand them to a subsequent aggregation step.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ */
+public final class HotKeysEvent extends AbstractTaskEvent {
+
+	/**
+	 * The hash codes of the hot keys in ascending order.
+	 */
+	private int[] keyHashes;
+
+	/**
+	 * Default constructor (should only be used for deserialization).
+	 */
+	public HotKeysEvent() {
+		this.keyHashes = new int[0];
+	}
+
+	/**
+	 * Constructs a new hot keys event.
+	 * 
+	 * @param keyHashes
+	 *        the hash codes of the hot keys
+	 */
+	public HotKeysEvent(final int[] keyHashes) {
+
+		this.keyHashes = keyHashes.clone();
+		Arrays.sort(this.keyHashes);
+	}
+
+	/**
+	 * Checks whether the key with the given hash code has been spread across several output channels. Since keys are
+	 * identified by their hash code, keys which collide with a hot key are reported as hot as well.
+	 * 
+	 * @param keyHash
+	 *        the hash code of the key, as returned by the {@link KeyExtractor} of the producer
+	 * @return <code>true</code> if the key is hot, <code>false</code> otherwise
+	 */
+	public boolean isHotKey(final int keyHash) {
+
+		return (Arrays.binarySearch(this.keyHashes, keyHash) >= 0);
+	}
+
+	/**
+	 * Returns the number of hot keys announced by this event.
+	 * 
+	 * @return the number of hot keys announced by this event
+	 */
+	public int getNumberOfHotKeys() {
+
+		return this.keyHashes.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final DataOutput out) throws IOException {
+
+		out.writeInt(this.keyHashes.length);
+		for (int i = 0; i < this.keyHashes.length; ++i) {
+			out.writeInt(this.keyHashes[i]);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void read(final DataInput in) throws IOException {
+
+		this.keyHashes = new int[in.readInt()];
+		for (int i = 0; i < this.keyHashes.length; ++i) {
+			this.keyHashes[i] = in.readInt();
+		}
+	}
+}
@@ -50,6 +50,22 @@ public interface InputGate<T extends Record> extends Gate<T> {
 
 	T readRecord(T target) throws IOException, InterruptedException;
 
+	/**
+	 * Reads a batch of records from the associated input channels. The operation blocks until the first record is
+	 * available, just like {@link #readRecord(Record)}, and then continues reading from the same channel as long as it
+	 * can provide records without blocking. The records are deserialized into the elements of the given array; an
+	 * element may be <code>null</code>, in which case a new record is created and stored in the array.
+	 * 
+	 * @param targets
+	 *        the records to deserialize the data into
+	 * @return the number of records read, <code>0</code> if all channels are already closed
+	 * @throws IOException
+	 *         thrown if an error occurred while reading the channels
+	 * @throws InterruptedException
+	 *         thrown if the thread is interrupted while waiting for the first record
+	 */
+	int readRecords(T[] targets) throws IOException, InterruptedException;
+
 	/**
 	 * Returns the number of input channels associated with this input gate.
 	 * 
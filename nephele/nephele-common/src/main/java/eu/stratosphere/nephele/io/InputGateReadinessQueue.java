@@ -0,0 +1,323 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.nephele.io;
+
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import eu.stratosphere.nephele.types.Record;
+
+/**
+ * The input gate readiness queue schedules the reads of a union reader across its input gates. Input gates which
+ * report available records are appended to a lock-free queue, and each gate taken from the queue is granted a turn of
+ * at most <code>weight * {@link #RECORDS_PER_WEIGHT}</code> records before it is put back at the end of the queue. This
+ * way all ready gates are served in a fair, round-robin order, while gates with a higher weight receive a
+ * proportionally larger share of the reads.
+ * <p>
+ * Gates may be reported from arbitrary threads. All other methods must only be called by the single thread consuming
+ * the records.
+ * 
+ * @param <T>
+ *        the type of record read from the input gates
+ */
+final class InputGateReadinessQueue<T extends Record> {
+
+	/**
+	 * The number of records read from a gate of weight 1 during one turn.
+	 */
+	static final int RECORDS_PER_WEIGHT = 16;
+
+	/**
+	 * The scheduling state of a single input gate.
+	 * 
+	 * @param <T>
+	 *        the type of record read from the input gate
+	 */
+	private static final class GateEntry<T extends Record> {
+
+		/**
+		 * The input gate.
+		 */
+		private final InputGate<T> inputGate;
+
+		/**
+		 * The maximum number of records read from the gate during one turn.
+		 */
+		private final int recordsPerTurn;
+
+		/**
+		 * Indicates whether the gate is currently contained in the readiness queue.
+		 */
+		private final AtomicBoolean queued = new AtomicBoolean(false);
+
+		/**
+		 * Indicates whether the gate has been closed.
+		 */
+		private boolean closed = false;
+
+		private GateEntry(final InputGate<T> inputGate, final int recordsPerTurn) {
+			this.inputGate = inputGate;
+			this.recordsPerTurn = recordsPerTurn;
+		}
+	}
+
+	/**
+	 * The scheduling state of the input gates, the map is not modified after construction.
+	 */
+	private final Map<InputGate<T>, GateEntry<T>> entries;
+
+	/**
+	 * The queue of input gates which have reported available records.
+	 */
+	private final ConcurrentLinkedQueue<GateEntry<T>> readyGates = new ConcurrentLinkedQueue<GateEntry<T>>();
+
+	/**
+	 * The thread waiting for an input gate to become ready or <code>null</code> if no thread is waiting.
+	 */
+	private volatile Thread waitingThread = null;
+
+	/**
+	 * The gate whose turn it currently is or <code>null</code> if a new gate must be taken from the queue.
+	 */
+	private GateEntry<T> currentGate = null;
+
+	/**
+	 * The number of records which may still be read from the current gate during its turn.
+	 */
+	private int remainingRecordsInTurn = 0;
+
+	/**
+	 * The number of input gates which have not been closed yet.
+	 */
+	private int numberOfOpenGates;
+
+	/**
+	 * Constructs a new input gate readiness queue.
+	 * 
+	 * @param inputGates
+	 *        the input gates to schedule
+	 * @param weights
+	 *        the weights of the input gates or <code>null</code> to weigh all gates equally
+	 */
+	InputGateReadinessQueue(final InputGate<T>[] inputGates, final int[] weights) {
+
+		if (weights != null && weights.length != inputGates.length) {
+			throw new IllegalArgumentException("Number of weights does not match the number of input gates");
+		}
+
+		this.entries = new IdentityHashMap<InputGate<T>, GateEntry<T>>(inputGates.length);
+		for (int i = 0; i < inputGates.length; ++i) {
+			final int weight = (weights == null) ? 1 : weights[i];
+			if (weight < 1) {
+				throw new IllegalArgumentException("Weight of input gate " + i + " must be at least 1");
+			}
+			this.entries.put(inputGates[i], new GateEntry<T>(inputGates[i], weight * RECORDS_PER_WEIGHT));
+		}
+
+		this.numberOfOpenGates = this.entries.size();
+	}
+
+	/**
+	 * Appends the given input gate to the readiness queue unless it is already queued. This method may be called from
+	 * arbitrary threads.
+	 * 
+	 * @param inputGate
+	 *        the input gate which has at least one record available
+	 */
+	void reportRecordAvailability(final InputGate<T> inputGate) {
+
+		final GateEntry<T> entry = this.entries.get(inputGate);
+		if (entry == null) {
+			throw new IllegalArgumentException(inputGate + " is not scheduled by this readiness queue");
+		}
+
+		enqueue(entry);
+	}
+
+	/**
+	 * Reads the next record from the input gate whose turn it is.
+	 * 
+	 * @param target
+	 *        the record to deserialize the data into or <code>null</code> to let the gate create a new record
+	 * @param mayBlock
+	 *        <code>true</code> to wait until a gate becomes ready, <code>false</code> to return <code>null</code>
+	 *        immediately if no gate is ready
+	 * @return the next record or <code>null</code> if all gates are closed or no gate is ready and blocking is not
+	 *         allowed
+	 * @throws IOException
+	 *         thrown if the input gate experienced an I/O error
+	 * @throws InterruptedException
+	 *         thrown if the thread is interrupted while waiting for a gate to become ready
+	 */
+	T readRecord(final T target, final boolean mayBlock) throws IOException, InterruptedException {
+
+		while (this.numberOfOpenGates > 0) {
+
+			if (this.currentGate == null) {
+				this.currentGate = mayBlock ? take() : poll();
+				if (this.currentGate == null) {
+					return null;
+				}
+				this.remainingRecordsInTurn = this.currentGate.recordsPerTurn;
+			}
+
+			final GateEntry<T> entry = this.currentGate;
+			if (entry.closed || !entry.inputGate.hasRecordAvailable()) {
+				// The gate will be queued again as soon as it reports new records
+				this.currentGate = null;
+				continue;
+			}
+
+			final T record = entry.inputGate.readRecord(target);
+			if (record == null) {
+				entry.closed = true;
+				--this.numberOfOpenGates;
+				this.currentGate = null;
+				continue;
+			}
+
+			if (--this.remainingRecordsInTurn == 0) {
+				// The turn is over, let the other ready gates go first
+				this.currentGate = null;
+				enqueue(entry);
+			}
+
+			return record;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Reads a batch of records from the input gates in their scheduling order. Only if no record has been read yet, the
+	 * method waits for a gate to become ready. Afterwards it reads as many further records as are available without
+	 * waiting, up to the length of the array.
+	 * 
+	 * @param targets
+	 *        the array to store the records in
+	 * @param offset
+	 *        the number of elements at the beginning of the array which are already occupied by records
+	 * @param reuseTargets
+	 *        <code>true</code> to deserialize the records into the elements of the array, <code>false</code> to let the
+	 *        gates create new records
+	 * @return the number of elements of the array occupied by records, including the first <code>offset</code> ones,
+	 *         <code>0</code> if no record was read and all gates are closed
+	 * @throws IOException
+	 *         thrown if an input gate experienced an I/O error
+	 * @throws InterruptedException
+	 *         thrown if the thread is interrupted while waiting for a gate to become ready
+	 */
+	int nextBatch(final T[] targets, final int offset, final boolean reuseTargets) throws IOException,
+			InterruptedException {
+
+		int numberOfRecords = offset;
+		while (numberOfRecords < targets.length) {
+
+			final T record = readRecord(reuseTargets ? targets[numberOfRecords] : null, numberOfRecords == 0);
+			if (record == null) {
+				break;
+			}
+
+			targets[numberOfRecords++] = record;
+		}
+
+		return numberOfRecords;
+	}
+
+	/**
+	 * Checks whether all input gates have been closed.
+	 * 
+	 * @return <code>true</code> if all input gates have been closed, <code>false</code> otherwise
+	 */
+	boolean isExhausted() {
+
+		return (this.numberOfOpenGates == 0);
+	}
+
+	/**
+	 * Appends the given gate to the readiness queue unless it is already queued and wakes up the waiting thread.
+	 * 
+	 * @param entry
+	 *        the gate to append
+	 */
+	private void enqueue(final GateEntry<T> entry) {
+
+		if (!entry.queued.compareAndSet(false, true)) {
+			return;
+		}
+
+		this.readyGates.add(entry);
+
+		final Thread waiting = this.waitingThread;
+		if (waiting != null) {
+			LockSupport.unpark(waiting);
+		}
+	}
+
+	/**
+	 * Takes the next gate from the readiness queue without blocking.
+	 * 
+	 * @return the next ready gate or <code>null</code> if no gate is ready
+	 */
+	private GateEntry<T> poll() {
+
+		final GateEntry<T> entry = this.readyGates.poll();
+		if (entry != null) {
+			// From now on, new reports for this gate must queue it again
+			entry.queued.set(false);
+		}
+
+		return entry;
+	}
+
+	/**
+	 * Takes the next gate from the readiness queue, waiting until a gate becomes ready if necessary.
+	 * 
+	 * @return the next ready gate
+	 * @throws InterruptedException
+	 *         thrown if the thread is interrupted while waiting
+	 */
+	private GateEntry<T> take() throws InterruptedException {
+
+		while (true) {
+
+			GateEntry<T> entry = poll();
+			if (entry != null) {
+				return entry;
+			}
+
+			// Announce the wait before checking the queue again, so no report can slip through unnoticed
+			this.waitingThread = Thread.currentThread();
+			try {
+				entry = poll();
+				if (entry != null) {
+					return entry;
+				}
+
+				LockSupport.park(this);
+			} finally {
+				this.waitingThread = null;
+			}
+
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+		}
+	}
+}
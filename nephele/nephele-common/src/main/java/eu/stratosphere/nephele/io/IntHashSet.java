@@ -0,0 +1,173 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.io;
+
+/**
+ * A set of primitive integers based on open addressing with linear probing. Unlike a set of boxed integers, lookups
+ * never allocate objects, so the set can be queried for every record on the hot path. The value <code>0</code> marks
+ * a free slot in the table and is therefore tracked separately.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ */
+final class IntHashSet {
+
+	/**
+	 * The initial number of slots of the table, must be a power of two.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * The slots of the table, <code>0</code> marks a free slot.
+	 */
+	private int[] table = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The number of non-zero values stored in the table.
+	 */
+	private int numberOfTableEntries = 0;
+
+	/**
+	 * Stores whether the value <code>0</code> is contained in the set.
+	 */
+	private boolean containsZero = false;
+
+	/**
+	 * Adds the given value to the set.
+	 * 
+	 * @param value
+	 *        the value to add
+	 * @return <code>true</code> if the value has been added, <code>false</code> if the set already contained it
+	 */
+	boolean add(final int value) {
+
+		if (value == 0) {
+			if (this.containsZero) {
+				return false;
+			}
+			this.containsZero = true;
+			return true;
+		}
+
+		int slot = findSlot(this.table, value);
+		if (this.table[slot] == value) {
+			return false;
+		}
+
+		// Keep the load factor at or below one half
+		if (2 * (this.numberOfTableEntries + 1) > this.table.length) {
+			grow();
+			slot = findSlot(this.table, value);
+		}
+
+		this.table[slot] = value;
+		++this.numberOfTableEntries;
+
+		return true;
+	}
+
+	/**
+	 * Checks whether the given value is contained in the set.
+	 * 
+	 * @param value
+	 *        the value to check
+	 * @return <code>true</code> if the set contains the value, <code>false</code> otherwise
+	 */
+	boolean contains(final int value) {
+
+		if (value == 0) {
+			return this.containsZero;
+		}
+
+		return (this.table[findSlot(this.table, value)] == value);
+	}
+
+	/**
+	 * Checks whether the set is empty.
+	 * 
+	 * @return <code>true</code> if the set is empty, <code>false</code> otherwise
+	 */
+	boolean isEmpty() {
+
+		return (this.numberOfTableEntries == 0 && !this.containsZero);
+	}
+
+	/**
+	 * Returns the number of values in the set.
+	 * 
+	 * @return the number of values in the set
+	 */
+	int size() {
+
+		return this.containsZero ? this.numberOfTableEntries + 1 : this.numberOfTableEntries;
+	}
+
+	/**
+	 * Returns the values of the set in no particular order.
+	 * 
+	 * @return the values of the set
+	 */
+	int[] toArray() {
+
+		final int[] values = new int[size()];
+		int i = 0;
+		if (this.containsZero) {
+			values[i++] = 0;
+		}
+		for (final int value : this.table) {
+			if (value != 0) {
+				values[i++] = value;
+			}
+		}
+
+		return values;
+	}
+
+	/**
+	 * Doubles the number of slots of the table and reinserts all values.
+	 */
+	private void grow() {
+
+		final int[] oldTable = this.table;
+		this.table = new int[oldTable.length << 1];
+		for (final int value : oldTable) {
+			if (value != 0) {
+				this.table[findSlot(this.table, value)] = value;
+			}
+		}
+	}
+
+	/**
+	 * Returns the slot which either holds the given value or is the free slot the value would be stored in.
+	 * 
+	 * @param table
+	 *        the table to search
+	 * @param value
+	 *        the non-zero value to search for
+	 * @return the slot holding the value or the free slot for the value
+	 */
+	private static int findSlot(final int[] table, final int value) {
+
+		final int mask = table.length - 1;
+		int slot = HashChannelSelector.mix(value) & mask;
+		while (table[slot] != 0 && table[slot] != value) {
+			slot = (slot + 1) & mask;
+		}
+
+		return slot;
+	}
+}
@@ -0,0 +1,37 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.nephele.io;
+
+import eu.stratosphere.nephele.types.Record;
+
+/**
+ * A key extractor determines the key of a record for the purpose of partitioning. Instead of returning the key itself,
+ * which would require boxing primitive keys, the key extractor returns a hash code of the key. Implementations must
+ * return the same hash code for equal keys and are expected not to allocate any objects.
+ * 
+ * @param <T>
+ *        the type of record to extract the key from
+ */
+public interface KeyExtractor<T extends Record> {
+
+	/**
+	 * Returns a hash code of the key of the given record.
+	 * 
+	 * @param record
+	 *        the record to extract the key from
+	 * @return the hash code of the record's key
+	 */
+	int getKeyHash(T record);
+}
@@ -33,6 +33,21 @@ public interface MutableReader<T extends Record> {
 	 * @throws InterruptedException
 	 */
 	boolean next(final T target) throws IOException, InterruptedException;
+
+	/**
+	 * Reads a batch of records into the given target records. The method waits until at least one record is available
+	 * and then reads as many further records as are available without waiting, up to the number of targets. Reading a
+	 * batch is equivalent to calling {@link #next(Record)} for each of the returned records.
+	 * 
+	 * @param targets
+	 *        the records to deserialize the data into
+	 * @return the number of records read, <code>0</code> if the input is exhausted
+	 * @throws IOException
+	 *         thrown if an error occurs while reading the input
+	 * @throws InterruptedException
+	 *         thrown if the thread is interrupted while waiting for records
+	 */
+	int nextBatch(final T[] targets) throws IOException, InterruptedException;
 	
 	/**
 	 * Subscribes the listener object to receive events of the given type.
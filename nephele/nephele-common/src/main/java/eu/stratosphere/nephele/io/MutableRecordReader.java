@@ -129,4 +129,12 @@ public class MutableRecordReader<T extends Record> extends AbstractRecordReader<
 		final T record = this.inputGate.readRecord(target);
 		return record != null;
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int nextBatch(final T[] targets) throws IOException, InterruptedException {
+		return this.inputGate.readRecords(targets);
+	}
 }
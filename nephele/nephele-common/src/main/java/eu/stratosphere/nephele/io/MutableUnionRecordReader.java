@@ -16,7 +16,6 @@
 package eu.stratosphere.nephele.io;
 
 import java.io.IOException;
-import java.util.ArrayDeque;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -24,30 +23,50 @@ import eu.stratosphere.nephele.event.task.AbstractTaskEvent;
 import eu.stratosphere.nephele.event.task.EventListener;
 import eu.stratosphere.nephele.types.Record;
 
+/**
+ * A mutable union record reader reads the records of several input gates as a single stream. The input gates are
+ * served in a fair, round-robin order as they report available records, so a gate which continuously receives records
+ * cannot starve the others. Optionally, the gates can be weighted to receive a proportionally larger share of the
+ * reads.
+ * <p>
+ * This class is not thread-safe, except for {@link #reportRecordAvailability(InputGate)}.
+ * 
+ * @param <T>
+ *        the type of record read from the input gates
+ */
 public final class MutableUnionRecordReader<T extends Record> implements RecordAvailabilityListener<T>, MutableReader<T> {
 
 	/**
-	 * The set of unclosed input gates.
+	 * The set of input gates.
 	 */
 	private final Set<InputGate<T>> inputGates;
 
 	/**
-	 * The next input gate to read a record from.
+	 * The queue scheduling the reads across the input gates.
 	 */
-	private InputGate<T> nextInputGateToReadFrom = null;
+	private final InputGateReadinessQueue<T> readinessQueue;
 
 	/**
-	 * Queue with indices of channels that store at least one available record.
+	 * Constructs a new mutable union record reader.
+	 * 
+	 * @param recordReaders
+	 *        the individual mutable record readers whose input is used to construct the union
 	 */
-	private final ArrayDeque<InputGate<T>> availableInputGates = new ArrayDeque<InputGate<T>>();
+	public MutableUnionRecordReader(final MutableRecordReader<T>[] recordReaders) {
+		this(recordReaders, null);
+	}
 
 	/**
-	 * Constructs a new mutable union record reader.
+	 * Constructs a new mutable union record reader with weighted input gates.
 	 * 
 	 * @param recordReaders
 	 *        the individual mutable record readers whose input is used to construct the union
+	 * @param weights
+	 *        the weights of the individual record readers, a reader with weight <code>n</code> receives <code>n</code>
+	 *        times as many reads as a reader of weight 1 while both have records available, or <code>null</code> to
+	 *        weigh all readers equally
 	 */
-	public MutableUnionRecordReader(final MutableRecordReader<T>[] recordReaders) {
+	public MutableUnionRecordReader(final MutableRecordReader<T>[] recordReaders, final int[] weights) {
 
 		if (recordReaders == null) {
 			throw new IllegalArgumentException("Provided argument recordReaders is null");
@@ -58,9 +77,15 @@ public final class MutableUnionRecordReader<T extends Record> implements RecordA
 				"The mutable union record reader must at least be initialized with two individual mutable record readers");
 		}
 
+		@SuppressWarnings("unchecked")
+		final InputGate<T>[] gates = new InputGate[recordReaders.length];
+		for (int i = 0; i < recordReaders.length; ++i) {
+			gates[i] = recordReaders[i].getInputGate();
+		}
+
+		this.readinessQueue = new InputGateReadinessQueue<T>(gates, weights);
 		this.inputGates = new HashSet<InputGate<T>>(recordReaders.length);
-		for (final MutableRecordReader<T> rr : recordReaders) {
-			final InputGate<T> inputGate = rr.getInputGate();
+		for (final InputGate<T> inputGate : gates) {
 			inputGate.registerRecordAvailabilityListener(this);
 			this.inputGates.add(inputGate);
 		}
@@ -69,37 +94,16 @@ public final class MutableUnionRecordReader<T extends Record> implements RecordA
 	@Override
 	public final boolean next(final T target) throws IOException, InterruptedException {
 
-		while (true) {
-
-			if (this.inputGates.isEmpty()) {
-				return false;
-			}
-
-			if (this.nextInputGateToReadFrom == null) {
-
-				synchronized (this.availableInputGates) {
-
-					while (this.availableInputGates.isEmpty()) {
-						this.availableInputGates.wait();
-					}
-
-					this.nextInputGateToReadFrom = this.availableInputGates.pop();
-				}
-			}
+		return (this.readinessQueue.readRecord(target, true) != null);
+	}
 
-			if (this.nextInputGateToReadFrom.hasRecordAvailable()) {
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int nextBatch(final T[] targets) throws IOException, InterruptedException {
 
-				final T record = this.nextInputGateToReadFrom.readRecord(target);
-				if (record == null) { // Gate is closed
-					this.inputGates.remove(this.nextInputGateToReadFrom);
-					this.nextInputGateToReadFrom = null;
-				} else {
-					return true;
-				}
-			} else {
-				this.nextInputGateToReadFrom = null;
-			}
-		}
+		return this.readinessQueue.nextBatch(targets, 0, true);
 	}
 
 	/**
@@ -108,10 +112,7 @@ public final class MutableUnionRecordReader<T extends Record> implements RecordA
 	@Override
 	public void reportRecordAvailability(final InputGate<T> inputGate) {
 
-		synchronized (this.availableInputGates) {
-			this.availableInputGates.add(inputGate);
-			this.availableInputGates.notify();
-		}
+		this.readinessQueue.reportRecordAvailability(inputGate);
 	}
 
 	/* (non-Javadoc)
@@ -54,6 +54,22 @@ public interface OutputGate<T extends Record> extends Gate<T> {
 	 */
 	void writeRecord(T record) throws IOException, InterruptedException;
 
+	/**
+	 * Writes a batch of records to the associated output channels. The result is the same as calling
+	 * {@link #writeRecord(Record)} for each record in order, but the per-call overhead of the gate is only paid once
+	 * per batch.
+	 * 
+	 * @param records
+	 *        the records to be written
+	 * @param numberOfRecords
+	 *        the number of records to write, starting with the first element of the array
+	 * @throws IOException
+	 *         thrown if any error occurs during channel I/O
+	 * @throws InterruptedException
+	 *         thrown if the thread is interrupted while waiting for the channels
+	 */
+	void writeRecords(T[] records, int numberOfRecords) throws IOException, InterruptedException;
+
 	/**
 	 * Returns all the OutputChannels connected to this gate
 	 * 
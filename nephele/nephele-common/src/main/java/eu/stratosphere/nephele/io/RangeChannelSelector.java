@@ -0,0 +1,167 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.nephele.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import eu.stratosphere.nephele.types.Record;
+
+/**
+ * This channel selector implements range partitioning. The key space is divided into consecutive ranges by a sorted
+ * list of split points, and each record is sent to the output channel responsible for the range its key falls into.
+ * The split points are usually determined from a sample of the data with
+ * {@link #computeSplitPoints(List, Comparator, int)}.
+ * <p>
+ * If the number of output channels differs from the number of ranges, the ranges are mapped to the output channels
+ * proportionally, so the order of the keys across the channels is preserved.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ * @param <T>
+ *        the type of record which is sent through the attached output gate
+ */
+public class RangeChannelSelector<T extends Record> implements ChannelSelector<T> {
+
+	/**
+	 * The sorted split points, the i-th split point is the smallest key of the (i+1)-th range.
+	 */
+	private final Object[] splitPoints;
+
+	/**
+	 * The comparator to compare the keys of the records.
+	 */
+	private final Comparator<? super T> comparator;
+
+	/**
+	 * Stores the index of the channel to send the next record to.
+	 */
+	private final int[] channel = new int[1];
+
+	/**
+	 * Constructs a new range channel selector.
+	 * 
+	 * @param splitPoints
+	 *        the split points in ascending order, records whose key is smaller than the first split point are sent to
+	 *        the first range
+	 * @param comparator
+	 *        the comparator to compare the keys of the records
+	 */
+	public RangeChannelSelector(final List<T> splitPoints, final Comparator<? super T> comparator) {
+
+		if (splitPoints == null) {
+			throw new IllegalArgumentException("Argument splitPoints must not be null");
+		}
+
+		if (comparator == null) {
+			throw new IllegalArgumentException("Argument comparator must not be null");
+		}
+
+		for (int i = 1; i < splitPoints.size(); ++i) {
+			if (comparator.compare(splitPoints.get(i - 1), splitPoints.get(i)) > 0) {
+				throw new IllegalArgumentException("Split points are not in ascending order");
+			}
+		}
+
+		this.splitPoints = splitPoints.toArray();
+		this.comparator = comparator;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int[] selectChannels(final T record, final int numberOfOutputChannels) {
+
+		final int numberOfRanges = this.splitPoints.length + 1;
+		final int range = findRange(record);
+
+		if (numberOfRanges == numberOfOutputChannels) {
+			this.channel[0] = range;
+		} else {
+			this.channel[0] = (int) (((long) range * numberOfOutputChannels) / numberOfRanges);
+		}
+
+		return this.channel;
+	}
+
+	/**
+	 * Determines the range the key of the given record falls into by a binary search over the split points.
+	 * 
+	 * @param record
+	 *        the record to determine the range for
+	 * @return the index of the range
+	 */
+	@SuppressWarnings("unchecked")
+	private int findRange(final T record) {
+
+		int low = 0;
+		int high = this.splitPoints.length;
+
+		// Find the first split point which is larger than the record's key
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (this.comparator.compare((T) this.splitPoints[mid], record) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Computes the split points to divide the key space into the given number of ranges from a sample of the records.
+	 * Each range receives approximately the same number of sampled records.
+	 * 
+	 * @param sample
+	 *        the sample of the records, the list is not modified
+	 * @param comparator
+	 *        the comparator to compare the keys of the records
+	 * @param numberOfRanges
+	 *        the number of ranges to divide the key space into
+	 * @return the split points in ascending order, at most <code>numberOfRanges - 1</code>
+	 * @param <T>
+	 *        the type of the records
+	 */
+	public static <T extends Record> List<T> computeSplitPoints(final List<T> sample,
+			final Comparator<? super T> comparator, final int numberOfRanges) {
+
+		if (numberOfRanges < 1) {
+			throw new IllegalArgumentException("Number of ranges must be at least 1");
+		}
+
+		final List<T> sortedSample = new ArrayList<T>(sample);
+		Collections.sort(sortedSample, comparator);
+
+		final List<T> splitPoints = new ArrayList<T>(numberOfRanges - 1);
+		if (sortedSample.isEmpty()) {
+			return splitPoints;
+		}
+
+		for (int i = 1; i < numberOfRanges; ++i) {
+			final T candidate = sortedSample.get((int) (((long) i * sortedSample.size()) / numberOfRanges));
+			// Skip duplicate split points, they would result in empty ranges
+			if (splitPoints.isEmpty() || comparator.compare(splitPoints.get(splitPoints.size() - 1), candidate) < 0) {
+				splitPoints.add(candidate);
+			}
+		}
+
+		return splitPoints;
+	}
+}
@@ -0,0 +1,287 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.io;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import eu.stratosphere.nephele.types.Record;
+
+/**
+ * This channel selector implements hash partitioning which splits hot keys. The frequencies of the keys are tracked
+ * with a {@link HeavyHitterSketch} over their hash codes. As long as a key is rare, its records are sent to the channel
+ * determined by hash partitioning like the {@link HashChannelSelector} does. Once a key accounts for a given fraction
+ * of all records, its subsequent records are spread across several consecutive channels, and each record is sent to
+ * the candidate channel which has received the fewest records from this selector so far. A single dominant key
+ * therefore no longer turns one consumer into the straggler of the stage.
+ * <p>
+ * Since the sketch only sees hash codes, a key is only split after its real key, as returned by
+ * {@link CombinableKeyExtractor#getKey(Record)}, has been confirmed to be hot. Rare keys which collide with the hash
+ * code of a hot key keep being sent to their hash channel. A key stays split once it has been split.
+ * <p>
+ * Since the records of a split key are processed by several consumers, this selector is only safe for consumers which
+ * compute combinable aggregates whose partial results are merged by a subsequent step. The selector therefore
+ * requires a {@link CombinableKeyExtractor}, with which the producer declares this property. Plain partitioning, which
+ * must send all records of a key to the same consumer, must use the {@link HashChannelSelector}. The keys split so far
+ * are returned by {@link #createHotKeysEvent()}, which the producer is expected to publish on its output gate before
+ * closing it.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ * @param <T>
+ *        the type of record which is sent through the attached output gate
+ */
+public class SkewAwareChannelSelector<T extends Record> implements ChannelSelector<T> {
+
+	/**
+	 * The default number of keys monitored by the heavy hitter sketch.
+	 */
+	public static final int DEFAULT_SKETCH_CAPACITY = 32;
+
+	/**
+	 * The default fraction of all records a key must account for to be considered hot.
+	 */
+	public static final double DEFAULT_HOT_KEY_THRESHOLD = 0.05;
+
+	/**
+	 * The default number of channels the records of a hot key are spread across.
+	 */
+	public static final int DEFAULT_SPLIT_FACTOR = 4;
+
+	/**
+	 * The number of records to observe before any key is considered hot.
+	 */
+	private static final long MINIMUM_NUMBER_OF_RECORDS = 1000L;
+
+	/**
+	 * The number of records a real key must have been counted for before it is confirmed to be hot.
+	 */
+	private static final long MINIMUM_NUMBER_OF_CONFIRMATIONS = 100L;
+
+	/**
+	 * The key extractor to determine the hash code and the real key of a record's key.
+	 */
+	private final CombinableKeyExtractor<T> keyExtractor;
+
+	/**
+	 * The sketch to track the frequencies of the keys' hash codes.
+	 */
+	private final HeavyHitterSketch sketch;
+
+	/**
+	 * The fraction of all records a key must account for to be considered hot.
+	 */
+	private final double hotKeyThreshold;
+
+	/**
+	 * The number of channels the records of a hot key are spread across.
+	 */
+	private final int splitFactor;
+
+	/**
+	 * Stores the index of the channel to send the next record to.
+	 */
+	private final int[] channel = new int[1];
+
+	/**
+	 * The number of records sent to each output channel.
+	 */
+	private long[] load = new long[0];
+
+	/**
+	 * The hash codes which the sketch has found to be hot. Only the records with these hash codes are checked by their
+	 * real key, so the key objects of all other records are never extracted.
+	 */
+	private final IntHashSet hotKeyHashes = new IntHashSet();
+
+	/**
+	 * The real keys with a hot hash code which have not been confirmed to be hot yet. For each key, the number of its
+	 * records and the total number of records at the time the key was first counted are stored.
+	 */
+	private final Map<Object, long[]> candidateKeys = new HashMap<Object, long[]>();
+
+	/**
+	 * The real keys which have been split so far.
+	 */
+	private final Set<Object> splitKeys = new HashSet<Object>();
+
+	/**
+	 * The hash codes of the keys which have been split so far.
+	 */
+	private final IntHashSet splitKeyHashes = new IntHashSet();
+
+	/**
+	 * Constructs a new skew-aware channel selector with the default parameters.
+	 * 
+	 * @param keyExtractor
+	 *        the key extractor to determine the hash code and the real key of a record's key, which also declares that
+	 *        the consumers merge the partial results of split keys
+	 */
+	public SkewAwareChannelSelector(final CombinableKeyExtractor<T> keyExtractor) {
+		this(keyExtractor, DEFAULT_SKETCH_CAPACITY, DEFAULT_HOT_KEY_THRESHOLD, DEFAULT_SPLIT_FACTOR);
+	}
+
+	/**
+	 * Constructs a new skew-aware channel selector.
+	 * 
+	 * @param keyExtractor
+	 *        the key extractor to determine the hash code and the real key of a record's key, which also declares that
+	 *        the consumers merge the partial results of split keys
+	 * @param sketchCapacity
+	 *        the number of keys monitored by the heavy hitter sketch
+	 * @param hotKeyThreshold
+	 *        the fraction of all records a key must account for to be considered hot
+	 * @param splitFactor
+	 *        the number of channels the records of a hot key are spread across
+	 */
+	public SkewAwareChannelSelector(final CombinableKeyExtractor<T> keyExtractor, final int sketchCapacity,
+			final double hotKeyThreshold, final int splitFactor) {
+
+		if (keyExtractor == null) {
+			throw new IllegalArgumentException("Argument keyExtractor must not be null");
+		}
+
+		if (hotKeyThreshold <= 0.0 || hotKeyThreshold > 1.0) {
+			throw new IllegalArgumentException("Hot key threshold must be in (0, 1]");
+		}
+
+		if (splitFactor < 1) {
+			throw new IllegalArgumentException("Split factor must be at least 1");
+		}
+
+		this.keyExtractor = keyExtractor;
+		this.sketch = new HeavyHitterSketch(sketchCapacity);
+		this.hotKeyThreshold = hotKeyThreshold;
+		this.splitFactor = splitFactor;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int[] selectChannels(final T record, final int numberOfOutputChannels) {
+
+		if (this.load.length != numberOfOutputChannels) {
+			// The number of output channels changed, start counting from scratch
+			this.load = new long[numberOfOutputChannels];
+		}
+
+		final int keyHash = this.keyExtractor.getKeyHash(record);
+		final long count = this.sketch.add(keyHash);
+		final int hashChannel = HashChannelSelector.selectChannel(HashChannelSelector.mix(keyHash),
+			numberOfOutputChannels);
+
+		final long totalCount = this.sketch.getTotalCount();
+		if (totalCount >= MINIMUM_NUMBER_OF_RECORDS && count >= this.hotKeyThreshold * totalCount) {
+			this.hotKeyHashes.add(keyHash);
+		}
+
+		int selected = hashChannel;
+		if (!this.hotKeyHashes.isEmpty() && this.hotKeyHashes.contains(keyHash)
+			&& isConfirmedHotKey(this.keyExtractor.getKey(record), keyHash, totalCount)) {
+
+			// Send the record to the least loaded of the consecutive channels following its hash channel
+			final int numberOfTargets = Math.min(this.splitFactor, numberOfOutputChannels);
+			for (int i = 1; i < numberOfTargets; ++i) {
+				final int candidate = (hashChannel + i) % numberOfOutputChannels;
+				if (this.load[candidate] < this.load[selected]) {
+					selected = candidate;
+				}
+			}
+		}
+
+		++this.load[selected];
+		this.channel[0] = selected;
+
+		return this.channel;
+	}
+
+	/**
+	 * Checks whether the given real key, whose hash code is hot, is hot itself. The key is counted exactly until it
+	 * accounts for the hot key threshold of all records observed since its first occurrence. From then on, the key is
+	 * split.
+	 * 
+	 * @param key
+	 *        the real key of the current record
+	 * @param keyHash
+	 *        the hash code of the key
+	 * @param totalCount
+	 *        the total number of records observed so far, including the current record
+	 * @return <code>true</code> if the key is confirmed to be hot, <code>false</code> otherwise
+	 */
+	private boolean isConfirmedHotKey(final Object key, final int keyHash, final long totalCount) {
+
+		if (this.splitKeys.contains(key)) {
+			return true;
+		}
+
+		long[] candidate = this.candidateKeys.get(key);
+		if (candidate == null) {
+			candidate = new long[] { 0L, totalCount - 1L };
+			this.candidateKeys.put(key, candidate);
+		}
+
+		final long keyCount = ++candidate[0];
+		if (keyCount < MINIMUM_NUMBER_OF_CONFIRMATIONS
+			|| keyCount < this.hotKeyThreshold * (totalCount - candidate[1])) {
+			return false;
+		}
+
+		this.candidateKeys.remove(key);
+		this.splitKeys.add(key);
+		this.splitKeyHashes.add(keyHash);
+
+		return true;
+	}
+
+	/**
+	 * Checks whether the key of the given record has been split so far.
+	 * 
+	 * @param record
+	 *        the record whose key shall be checked
+	 * @return <code>true</code> if the key has been split, <code>false</code> otherwise
+	 */
+	public boolean isSplit(final T record) {
+
+		if (!this.splitKeyHashes.contains(this.keyExtractor.getKeyHash(record))) {
+			return false;
+		}
+
+		return this.splitKeys.contains(this.keyExtractor.getKey(record));
+	}
+
+	/**
+	 * Creates an event announcing all keys which have been split so far to the consumers.
+	 * 
+	 * @return an event announcing all keys which have been split so far
+	 */
+	public HotKeysEvent createHotKeysEvent() {
+
+		return new HotKeysEvent(this.splitKeyHashes.toArray());
+	}
+
+	/**
+	 * Returns the heavy hitter sketch tracking the frequencies of the keys' hash codes.
+	 * 
+	 * @return the heavy hitter sketch tracking the frequencies of the keys' hash codes
+	 */
+	public HeavyHitterSketch getSketch() {
+
+		return this.sketch;
+	}
+}
@@ -16,31 +16,54 @@
 package eu.stratosphere.nephele.io;
 
 import java.io.IOException;
-import java.util.ArrayDeque;
-import java.util.HashSet;
 import java.util.NoSuchElementException;
-import java.util.Set;
 
 import eu.stratosphere.nephele.types.Record;
 
+/**
+ * A union record reader reads the records of several input gates as a single stream. The input gates are served in a
+ * fair, round-robin order as they report available records, so a gate which continuously receives records cannot
+ * starve the others. Optionally, the gates can be weighted to receive a proportionally larger share of the reads.
+ * <p>
+ * This class is not thread-safe, except for {@link #reportRecordAvailability(InputGate)}.
+ * 
+ * @param <T>
+ *        the type of record read from the input gates
+ */
 public final class UnionRecordReader<T extends Record> implements Reader<T>, RecordAvailabilityListener<T> {
 
-	private final Set<InputGate<T>> inputGates;
-
-	private InputGate<T> nextInputGateToReadFrom = null;
+	/**
+	 * The queue scheduling the reads across the input gates.
+	 */
+	private final InputGateReadinessQueue<T> readinessQueue;
 
 	private IOException ioException = null;
 
 	private InterruptedException interruptedExecption = null;
 
-	/**
-	 * Queue with indices of channels that store at least one available record.
-	 */
-	private final ArrayDeque<InputGate<T>> availableInputGates = new ArrayDeque<InputGate<T>>();
-
 	private T nextRecord = null;
 
+	/**
+	 * Constructs a new union record reader.
+	 * 
+	 * @param recordReaders
+	 *        the individual record readers whose input is used to construct the union
+	 */
 	public UnionRecordReader(final RecordReader<T>[] recordReaders) {
+		this(recordReaders, null);
+	}
+
+	/**
+	 * Constructs a new union record reader with weighted input gates.
+	 * 
+	 * @param recordReaders
+	 *        the individual record readers whose input is used to construct the union
+	 * @param weights
+	 *        the weights of the individual record readers, a reader with weight <code>n</code> receives <code>n</code>
+	 *        times as many reads as a reader of weight 1 while both have records available, or <code>null</code> to
+	 *        weigh all readers equally
+	 */
+	public UnionRecordReader(final RecordReader<T>[] recordReaders, final int[] weights) {
 
 		if (recordReaders == null) {
 			throw new IllegalArgumentException("Provided argument recordReaders is null");
@@ -51,11 +74,15 @@ public final class UnionRecordReader<T extends Record> implements Reader<T>, Rec
 				"The union record reader must at least be initialized with two individual record readers");
 		}
 
-		this.inputGates = new HashSet<InputGate<T>>(recordReaders.length);
-		for (final RecordReader<T> rr : recordReaders) {
-			final InputGate<T> inputGate = rr.getInputGate();
+		@SuppressWarnings("unchecked")
+		final InputGate<T>[] gates = new InputGate[recordReaders.length];
+		for (int i = 0; i < recordReaders.length; ++i) {
+			gates[i] = recordReaders[i].getInputGate();
+		}
+
+		this.readinessQueue = new InputGateReadinessQueue<T>(gates, weights);
+		for (final InputGate<T> inputGate : gates) {
 			inputGate.registerRecordAvailabilityListener(this);
-			this.inputGates.add(inputGate);
 		}
 	}
 
@@ -92,7 +119,7 @@ public final class UnionRecordReader<T extends Record> implements Reader<T>, Rec
 	@Override
 	public T next() throws IOException, InterruptedException {
 
-		if (this.nextRecord == null && this.inputGates.isEmpty()) {
+		if (this.nextRecord == null && this.readinessQueue.isExhausted()) {
 			throw new NoSuchElementException();
 		}
 
@@ -115,48 +142,51 @@ public final class UnionRecordReader<T extends Record> implements Reader<T>, Rec
 	}
 
 	/**
-	 * Reads the next record from one of the underlying input gates.
+	 * Reads a batch of records into the given array. The method waits until at least one record is available and then
+	 * reads as many further records as are available without waiting, up to the length of the array.
 	 * 
-	 * @return the next record from the underlying input gates or <code>null</code> if all underlying input gates are
-	 *         closed.
+	 * @param records
+	 *        the array to store the records in
+	 * @return the number of records read, <code>0</code> if all input gates are closed
 	 * @throws IOException
-	 *         thrown if one of the underlying input gates experienced an IOException
+	 *         thrown if one of the input gates experienced an I/O error
 	 * @throws InterruptedException
-	 *         thrown if one of the underlying input gates experienced an InterruptedException
+	 *         thrown if the thread is interrupted while waiting for records
 	 */
-	private T readNextRecord() throws IOException, InterruptedException {
-
-		while (true) {
+	public int nextBatch(final T[] records) throws IOException, InterruptedException {
 
-			if (this.inputGates.isEmpty()) {
-				return null;
-			}
+		if (this.ioException != null) {
+			throw this.ioException;
+		}
 
-			if (this.nextInputGateToReadFrom == null) {
+		if (this.interruptedExecption != null) {
+			throw this.interruptedExecption;
+		}
 
-				synchronized (this.availableInputGates) {
+		int numberOfRecords = 0;
 
-					while (this.availableInputGates.isEmpty()) {
-						this.availableInputGates.wait();
-					}
+		// Hand out a record fetched by a previous call to hasNext first
+		if (this.nextRecord != null && records.length > 0) {
+			records[numberOfRecords++] = this.nextRecord;
+			this.nextRecord = null;
+		}
 
-					this.nextInputGateToReadFrom = this.availableInputGates.pop();
-				}
-			}
+		return this.readinessQueue.nextBatch(records, numberOfRecords, false);
+	}
 
-			if (this.nextInputGateToReadFrom.hasRecordAvailable()) {
+	/**
+	 * Reads the next record from one of the underlying input gates.
+	 * 
+	 * @return the next record from the underlying input gates or <code>null</code> if all underlying input gates are
+	 *         closed.
+	 * @throws IOException
+	 *         thrown if one of the underlying input gates experienced an IOException
+	 * @throws InterruptedException
+	 *         thrown if one of the underlying input gates experienced an InterruptedException
+	 */
+	private T readNextRecord() throws IOException, InterruptedException {
 
-				final T record = this.nextInputGateToReadFrom.readRecord(null);
-				if (record == null) { // Gate is closed
-					this.inputGates.remove(this.nextInputGateToReadFrom);
-					this.nextInputGateToReadFrom = null;
-				} else {
-					return record;
-				}
-			} else {
-				this.nextInputGateToReadFrom = null;
-			}
-		}
+		return this.readinessQueue.readRecord(null, true);
 	}
 
 	/**
@@ -165,10 +195,6 @@ public final class UnionRecordReader<T extends Record> implements Reader<T>, Rec
 	@Override
 	public void reportRecordAvailability(final InputGate<T> inputGate) {
 
-		synchronized (this.availableInputGates) {
-			this.availableInputGates.add(inputGate);
-			this.availableInputGates.notify();
-
-		}
+		this.readinessQueue.reportRecordAvailability(inputGate);
 	}
 }
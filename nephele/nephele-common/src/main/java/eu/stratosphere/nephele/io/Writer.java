@@ -31,5 +31,7 @@ import eu.stratosphere.nephele.types.Record;
 public interface Writer<T extends Record> {
 	void emit(T record) throws IOException, InterruptedException;
 
+	void emit(T[] records, int numberOfRecords) throws IOException, InterruptedException;
+
 	List<AbstractOutputChannel<T>> getOutputChannels();
 }
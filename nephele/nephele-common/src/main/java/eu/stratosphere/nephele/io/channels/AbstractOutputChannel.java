@@ -74,6 +74,27 @@ public abstract class AbstractOutputChannel<T extends Record> extends AbstractCh
 	 */
 	public abstract void writeRecord(T record) throws IOException, InterruptedException;
 
+	/**
+	 * Writes the first <code>numberOfRecords</code> records of the given array to the channel. The result is the same
+	 * as writing the records one by one through {@link #writeRecord(Record)}, which is what this default implementation
+	 * does. Subclasses may override the method to perform per-record checks only once per batch.
+	 * 
+	 * @param records
+	 *        the records to be written to the channel
+	 * @param numberOfRecords
+	 *        the number of records to write, starting with the first element of the array
+	 * @throws IOException
+	 *         thrown if an error occurred while transmitting the records
+	 * @throws InterruptedException
+	 *         thrown if the thread is interrupted while waiting for the records to be written
+	 */
+	public void writeRecords(final T[] records, final int numberOfRecords) throws IOException, InterruptedException {
+
+		for (int i = 0; i < numberOfRecords; ++i) {
+			writeRecord(records[i]);
+		}
+	}
+
 	/**
 	 * Requests the output channel to close. After calling this method no more records can be written
 	 * to the channel. The channel is finally closed when all remaining data that may exist in internal buffers
@@ -20,6 +20,8 @@ import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+
 
 /**
  * This class represents the general buffer abstraction that is used by Nephele
@@ -176,4 +178,21 @@ public abstract class Buffer implements ReadableByteChannel, WritableByteChannel
 	 */
 	public abstract int position();
 
+	/**
+	 * Sets the read/write position for relative operations.
+	 * 
+	 * @param position
+	 *        the new read/write position
+	 */
+	public abstract void position(int position);
+
+	/**
+	 * Returns the memory segment backing this buffer. The buffer's read/write position refers to positions within
+	 * this segment.
+	 * 
+	 * @return the memory segment backing this buffer or <code>null</code> if the buffer is not backed by a memory
+	 *         segment
+	 */
+	public abstract MemorySegment getMemorySegment();
+
 }
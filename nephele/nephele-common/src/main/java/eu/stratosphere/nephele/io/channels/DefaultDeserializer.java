@@ -26,10 +26,13 @@ import java.nio.channels.ReadableByteChannel;
 import eu.stratosphere.nephele.io.IOReadableWritable;
 import eu.stratosphere.nephele.io.RecordDeserializer;
 import eu.stratosphere.nephele.services.memorymanager.DataInputView;
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
 
 /**
- * A class for deserializing a portion of binary data into records of type <code>T</code>. The internal
- * buffer grows dynamically to the size that is required for deserialization.
+ * A class for deserializing a portion of binary data into records of type <code>T</code>. If the data is read from a
+ * {@link Buffer} backed by a {@link MemorySegment}, records which are entirely contained in the buffer are deserialized
+ * directly from the buffer's memory segment. Only records spanning several buffers are copied to an internal buffer,
+ * which grows dynamically to the size that is required for deserialization.
  * 
  * @author warneke
  * @param <T>
@@ -54,10 +57,15 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 	private final ByteBuffer lengthBuf;
 
 	/**
-	 * Temporary buffer.
+	 * Temporary buffer to reconstruct records spanning several buffers.
 	 */
 	private ByteBuffer tempBuffer;
 
+	/**
+	 * Memory segment view of the temporary buffer.
+	 */
+	private MemorySegment tempSegment;
+
 	/**
 	 * The type of the record to be deserialized.
 	 */
@@ -104,8 +112,9 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 		this.tempBuffer = ByteBuffer.allocate(128);
 		this.tempBuffer.order(ByteOrder.BIG_ENDIAN);
 
+		this.tempSegment = new MemorySegment(this.tempBuffer.array());
+
 		this.deserializationWrapper = new DataInputWrapper();
-		this.deserializationWrapper.setArray(this.tempBuffer.array());
 	}
 
 	// --------------------------------------------------------------------------------------------
@@ -117,6 +126,24 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 	 */
 	@Override
 	public T readData(T target, final ReadableByteChannel readableByteChannel) throws IOException {
+
+		// if no record is pending, try to deserialize the next record directly from the buffer's memory segment
+		if (this.recordLength < 0 && this.lengthBuf.position() == 0 && readableByteChannel instanceof Buffer) {
+
+			final Buffer buffer = (Buffer) readableByteChannel;
+			final MemorySegment segment = buffer.getMemorySegment();
+			final int remaining = buffer.remaining();
+
+			if (segment != null && remaining >= SIZEOFINT) {
+				final int start = buffer.position();
+				final int len = segment.getIntBigEndian(start);
+				if (len >= 0 && len <= remaining - SIZEOFINT) {
+					buffer.position(start + SIZEOFINT + len);
+					return deserialize(target, segment, start + SIZEOFINT, len);
+				}
+			}
+		}
+
 		// check whether the length has already been de-serialized
 		final int len;
 		if (this.recordLength < 0) {
@@ -139,7 +166,7 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 			if (this.tempBuffer.capacity() < len) {
 				this.tempBuffer = ByteBuffer.allocate(len);
 				this.tempBuffer.order(ByteOrder.BIG_ENDIAN);
-				this.deserializationWrapper.setArray(this.tempBuffer.array());
+				this.tempSegment = new MemorySegment(this.tempBuffer.array());
 			}
 
 			// Important: limit the number of bytes that can be read into the buffer
@@ -161,7 +188,27 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 			this.recordLength = -1;
 		}
 
-		this.deserializationWrapper.reset(len);
+		return deserialize(target, this.tempSegment, 0, len);
+	}
+
+	/**
+	 * Deserializes a record from the given region of a memory segment.
+	 * 
+	 * @param target
+	 *        the record to deserialize the data into or <code>null</code> to instantiate a new record
+	 * @param segment
+	 *        the memory segment containing the serialized record
+	 * @param offset
+	 *        the offset of the serialized record within the memory segment
+	 * @param len
+	 *        the length of the serialized record in bytes
+	 * @return the deserialized record
+	 * @throws IOException
+	 *         thrown if an error occurs while deserializing the record
+	 */
+	private T deserialize(T target, final MemorySegment segment, final int offset, final int len) throws IOException {
+
+		this.deserializationWrapper.reset(segment, offset, offset + len);
 
 		if (target == null) {
 			target = instantiateTarget();
@@ -219,255 +266,8 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 
 	// --------------------------------------------------------------------------------------------
 
-	// private static final class DataInputWrapper implements DataInputView
-	// {
-	// private ByteBuffer source;
-	//
-	// private byte[] utfByteBuffer; // reusable byte buffer for utf-8 decoding
-	// private char[] utfCharBuffer; // reusable char buffer for utf-8 decoding
-	//
-	//
-	// void set(ByteBuffer source) {
-	// this.source = source;
-	// }
-	//
-	//
-	// /* (non-Javadoc)
-	// * @see java.io.DataInput#readFully(byte[])
-	// */
-	// @Override
-	// public void readFully(byte[] b) {
-	// this.source.get(b);
-	// }
-	//
-	// /* (non-Javadoc)
-	// * @see java.io.DataInput#readFully(byte[], int, int)
-	// */
-	// @Override
-	// public void readFully(byte[] b, int off, int len) {
-	// this.source.get(b, off, len);
-	// }
-	//
-	// /* (non-Javadoc)
-	// * @see java.io.DataInput#skipBytes(int)
-	// */
-	// @Override
-	// public int skipBytes(int n) {
-	// int newPos = this.source.position() + n;
-	// if (newPos > this.source.limit()) {
-	// newPos = this.source.limit();
-	// n = newPos - this.source.position();
-	// }
-	// this.source.position(newPos);
-	// return n;
-	// }
-	//
-	// /* (non-Javadoc)
-	// * @see java.io.DataInput#readBoolean()
-	// */
-	// @Override
-	// public boolean readBoolean() {
-	// return this.source.get() != 0;
-	// }
-	//
-	// /* (non-Javadoc)
-	// * @see java.io.DataInput#readByte()
-	// */
-	// @Override
-	// public byte readByte() {
-	// return this.source.get();
-	// }
-	//
-	// /* (non-Javadoc)
-	// * @see java.io.DataInput#readUnsignedByte()
-	// */
-	// @Override
-	// public int readUnsignedByte() {
-	// return this.source.get() & 0xff;
-	// }
-	//
-	// /* (non-Javadoc)
-	// * @see java.io.DataInput#readShort()
-	// */
-	// @Override
-	// public short readShort() {
-	// return this.source.getShort();
-	// }
-	//
-	// /* (non-Javadoc)
-	// * @see java.io.DataInput#readUnsignedShort()
-	// */
-	// @Override
-	// public int readUnsignedShort() {
-	// return this.source.getShort() & 0xffff;
-	// }
-	//
-	// /* (non-Javadoc)
-	// * @see java.io.DataInput#readChar()
-	// */
-	// @Override
-	// public char readChar() {
-	// return this.source.getChar();
-	// }
-	//
-	// /* (non-Javadoc)
-	// * @see java.io.DataInput#readInt()
-	// */
-	// @Override
-	// public int readInt() {
-	// return this.source.getInt();
-	// }
-	//
-	// /* (non-Javadoc)
-	// * @see java.io.DataInput#readLong()
-	// */
-	// @Override
-	// public long readLong() {
-	// return this.source.getLong();
-	// }
-	//
-	// /* (non-Javadoc)
-	// * @see java.io.DataInput#readFloat()
-	// */
-	// @Override
-	// public float readFloat() {
-	// return Float.intBitsToFloat(this.source.getInt());
-	// }
-	//
-	// /* (non-Javadoc)
-	// * @see java.io.DataInput#readDouble()
-	// */
-	// @Override
-	// public double readDouble() {
-	// return Double.longBitsToDouble(this.source.getLong());
-	// }
-	//
-	// /* (non-Javadoc)
-	// * @see java.io.DataInput#readLine()
-	// */
-	// @Override
-	// public String readLine()
-	// {
-	// if (this.source.hasRemaining()) {
-	// // read until a newline is found
-	// StringBuilder bld = new StringBuilder();
-	// char curr;
-	// while (this.source.hasRemaining() && (curr = (char) readUnsignedByte()) != '\n') {
-	// bld.append(curr);
-	// }
-	// // trim a trailing carriage return
-	// int len = bld.length();
-	// if (len > 0 && bld.charAt(len - 1) == '\r') {
-	// bld.setLength(len - 1);
-	// }
-	// String s = bld.toString();
-	// bld.setLength(0);
-	// return s;
-	// } else {
-	// return null;
-	// }
-	// }
-	//
-	// /* (non-Javadoc)
-	// * @see java.io.DataInput#readUTF()
-	// */
-	// @Override
-	// public String readUTF() throws IOException
-	// {
-	// final int utflen = readUnsignedShort();
-	//
-	// final byte[] bytearr;
-	// final char[] chararr;
-	//
-	// if (this.utfByteBuffer == null || this.utfByteBuffer.length < utflen) {
-	// bytearr = new byte[utflen];
-	// this.utfByteBuffer = bytearr;
-	// } else {
-	// bytearr = this.utfByteBuffer;
-	// }
-	// if (this.utfCharBuffer == null || this.utfCharBuffer.length < utflen) {
-	// chararr = new char[utflen];
-	// this.utfCharBuffer = chararr;
-	// } else {
-	// chararr = this.utfCharBuffer;
-	// }
-	//
-	// int c, char2, char3;
-	// int count = 0;
-	// int chararr_count = 0;
-	//
-	// readFully(bytearr, 0, utflen);
-	//
-	// while (count < utflen) {
-	// c = (int) bytearr[count] & 0xff;
-	// if (c > 127)
-	// break;
-	// count++;
-	// chararr[chararr_count++] = (char) c;
-	// }
-	//
-	// while (count < utflen) {
-	// c = (int) bytearr[count] & 0xff;
-	// switch (c >> 4) {
-	// case 0:
-	// case 1:
-	// case 2:
-	// case 3:
-	// case 4:
-	// case 5:
-	// case 6:
-	// case 7:
-	// /* 0xxxxxxx */
-	// count++;
-	// chararr[chararr_count++] = (char) c;
-	// break;
-	// case 12:
-	// case 13:
-	// /* 110x xxxx 10xx xxxx */
-	// count += 2;
-	// if (count > utflen)
-	// throw new UTFDataFormatException("malformed input: partial character at end");
-	// char2 = (int) bytearr[count - 1];
-	// if ((char2 & 0xC0) != 0x80)
-	// throw new UTFDataFormatException("malformed input around byte " + count);
-	// chararr[chararr_count++] = (char) (((c & 0x1F) << 6) | (char2 & 0x3F));
-	// break;
-	// case 14:
-	// /* 1110 xxxx 10xx xxxx 10xx xxxx */
-	// count += 3;
-	// if (count > utflen)
-	// throw new UTFDataFormatException("malformed input: partial character at end");
-	// char2 = (int) bytearr[count - 2];
-	// char3 = (int) bytearr[count - 1];
-	// if (((char2 & 0xC0) != 0x80) || ((char3 & 0xC0) != 0x80))
-	// throw new UTFDataFormatException("malformed input around byte " + (count - 1));
-	// chararr[chararr_count++] = (char) (((c & 0x0F) << 12) | ((char2 & 0x3F) << 6) | ((char3 & 0x3F) << 0));
-	// break;
-	// default:
-	// /* 10xx xxxx, 1111 xxxx */
-	// throw new UTFDataFormatException("malformed input around byte " + count);
-	// }
-	// }
-	// // The number of chars produced may be less than utflen
-	// return new String(chararr, 0, chararr_count);
-	// }
-	//
-	//
-	// /* (non-Javadoc)
-	// * @see eu.stratosphere.nephele.services.memorymanager.DataInputView#skipBytesToRead(int)
-	// */
-	// @Override
-	// public void skipBytesToRead(int numBytes) throws IOException {
-	// if (this.source.remaining() < numBytes) {
-	// throw new EOFException();
-	// } else {
-	// this.source.position(this.source.position() + numBytes);
-	// }
-	// }
-	// }
-
 	private static final class DataInputWrapper implements DataInputView {
-		private byte[] source;
+		private MemorySegment source;
 
 		private int position;
 
@@ -475,12 +275,9 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 
 		private char[] utfCharBuffer; // reusable char buffer for utf-8 decoding
 
-		void setArray(byte[] source) {
+		void reset(MemorySegment source, int position, int limit) {
 			this.source = source;
-		}
-
-		void reset(int limit) {
-			this.position = 0;
+			this.position = position;
 			this.limit = limit;
 		}
 
@@ -500,7 +297,7 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 		@Override
 		public void readFully(byte[] b, int off, int len) throws EOFException {
 			if (this.position <= this.limit - len) {
-				System.arraycopy(this.source, this.position, b, off, len);
+				this.source.get(this.position, b, off, len);
 				this.position += len;
 			} else {
 				throw new EOFException();
@@ -538,7 +335,7 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 		@Override
 		public byte readByte() throws EOFException {
 			if (this.position < this.limit) {
-				return this.source[this.position++];
+				return this.source.get(this.position++);
 			} else {
 				throw new EOFException();
 			}
@@ -561,8 +358,8 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 		public short readShort() throws EOFException {
 			if (this.position < this.limit - 1) {
 				short num = (short) (
-						((this.source[this.position + 0] & 0xff) << 8) |
-						((this.source[this.position + 1] & 0xff)));
+						((this.source.get(this.position + 0) & 0xff) << 8) |
+						((this.source.get(this.position + 1) & 0xff)));
 				this.position += 2;
 				return num;
 			} else {
@@ -587,8 +384,8 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 		public char readChar() throws EOFException {
 			if (this.position < this.limit - 1) {
 				char c = (char) (
-						((this.source[this.position + 0] & 0xff) << 8) |
-						((this.source[this.position + 1] & 0xff)));
+						((this.source.get(this.position + 0) & 0xff) << 8) |
+						((this.source.get(this.position + 1) & 0xff)));
 				this.position += 2;
 				return c;
 			} else {
@@ -603,10 +400,7 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 		@Override
 		public int readInt() throws EOFException {
 			if (this.position < this.limit - 3) {
-				final int num = ((this.source[this.position + 0] & 0xff) << 24) |
-								((this.source[this.position + 1] & 0xff) << 16) |
-								((this.source[this.position + 2] & 0xff) << 8) |
-								((this.source[this.position + 3] & 0xff));
+				final int num = this.source.getIntBigEndian(this.position);
 				this.position += 4;
 				return num;
 			} else {
@@ -621,14 +415,7 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 		@Override
 		public long readLong() throws EOFException {
 			if (this.position < this.limit - 7) {
-				final long num = (((long) this.source[this.position + 0] & 0xff) << 56) |
-									(((long) this.source[this.position + 1] & 0xff) << 48) |
-									(((long) this.source[this.position + 2] & 0xff) << 40) |
-									(((long) this.source[this.position + 3] & 0xff) << 32) |
-									(((long) this.source[this.position + 4] & 0xff) << 24) |
-									(((long) this.source[this.position + 5] & 0xff) << 16) |
-									(((long) this.source[this.position + 6] & 0xff) << 8) |
-									(((long) this.source[this.position + 7] & 0xff) << 0);
+				final long num = this.source.getLongBigEndian(this.position);
 				this.position += 8;
 				return num;
 			} else {
@@ -664,7 +451,7 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 				// read until a newline is found
 				StringBuilder bld = new StringBuilder();
 				char curr;
-				while (this.position < this.limit && (curr = (char) (this.source[this.position++] & 0xff)) != '\n') {
+				while (this.position < this.limit && (curr = (char) (this.source.get(this.position++) & 0xff)) != '\n') {
 					bld.append(curr);
 				}
 				// trim a trailing carriage return
@@ -693,7 +480,7 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 				throw new EOFException();
 			}
 
-			final byte[] bytearr = this.source;
+			final MemorySegment bytearr = this.source;
 			final char[] chararr;
 			if (this.utfCharBuffer == null || this.utfCharBuffer.length < utflen) {
 				chararr = new char[utflen];
@@ -707,7 +494,7 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 			int chararr_count = 0;
 
 			while (count < utfLimit) {
-				c = (int) bytearr[count] & 0xff;
+				c = (int) bytearr.get(count) & 0xff;
 				if (c > 127)
 					break;
 				count++;
@@ -715,7 +502,7 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 			}
 
 			while (count < utfLimit) {
-				c = (int) bytearr[count] & 0xff;
+				c = (int) bytearr.get(count) & 0xff;
 				switch (c >> 4) {
 				case 0:
 				case 1:
@@ -735,7 +522,7 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 					count += 2;
 					if (count > utfLimit)
 						throw new UTFDataFormatException("Malformed input: partial character at end");
-					char2 = (int) bytearr[count - 1];
+					char2 = (int) bytearr.get(count - 1);
 					if ((char2 & 0xC0) != 0x80)
 						throw new UTFDataFormatException("Malformed input around byte " + count);
 					chararr[chararr_count++] = (char) (((c & 0x1F) << 6) | (char2 & 0x3F));
@@ -745,8 +532,8 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 					count += 3;
 					if (count > utfLimit)
 						throw new UTFDataFormatException("Malformed input: partial character at end");
-					char2 = (int) bytearr[count - 2];
-					char3 = (int) bytearr[count - 1];
+					char2 = (int) bytearr.get(count - 2);
+					char3 = (int) bytearr.get(count - 1);
 					if (((char2 & 0xC0) != 0x80) || ((char3 & 0xC0) != 0x80))
 						throw new UTFDataFormatException("Malformed input around byte " + (count - 1));
 					chararr[chararr_count++] = (char) (((c & 0x0F) << 12) | ((char2 & 0x3F) << 6) | ((char3 & 0x3F) << 0));
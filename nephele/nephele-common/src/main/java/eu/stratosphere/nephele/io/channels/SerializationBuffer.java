@@ -21,6 +21,7 @@ import java.nio.channels.WritableByteChannel;
 
 import eu.stratosphere.nephele.io.DataOutputBuffer;
 import eu.stratosphere.nephele.io.IOReadableWritable;
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
 
 /**
  * A class for serializing a record to its binary representation.
@@ -39,6 +40,11 @@ public class SerializationBuffer<T extends IOReadableWritable> {
 
 	private int bytesReadFromBuffer = 0;
 
+	/**
+	 * The view used to serialize records directly into the memory segment of the target buffer, created on demand.
+	 */
+	private SpillingSegmentOutputView segmentOutputView = null;
+
 	/**
 	 * Translates an integer into an array of bytes.
 	 * 
@@ -136,6 +142,66 @@ public class SerializationBuffer<T extends IOReadableWritable> {
 		integerToByteBuffer(this.serializationBuffer.getLength(), this.lengthBuf);
 	}
 
+	/**
+	 * Serializes the given record directly into the memory segment of the given buffer, avoiding the intermediate copy
+	 * of {@link #serialize(IOReadableWritable)}. The record is framed with its length exactly as by
+	 * {@link #serialize(IOReadableWritable)}. If the record does not fit into the remaining space of the buffer, the
+	 * buffer is filled completely and the rest of the record is kept in this serialization buffer, to be written with
+	 * {@link #read(WritableByteChannel)} to the following buffers. If the buffer is not backed by a memory segment, the
+	 * record is serialized with {@link #serialize(IOReadableWritable)}.
+	 * 
+	 * @param record
+	 *        the record to serialize
+	 * @param targetBuffer
+	 *        the buffer to serialize the record to
+	 * @throws IOException
+	 *         thrown if an error occurs while serializing the record
+	 */
+	public void serialize(final T record, final Buffer targetBuffer) throws IOException {
+
+		final MemorySegment segment = targetBuffer.getMemorySegment();
+		if (segment == null || targetBuffer.remaining() <= SIZEOFINT) {
+			serialize(record);
+			return;
+		}
+
+		// Check if there is data left in the buffer
+		if (dataLeftFromPreviousSerialization()) {
+			throw new IOException("Cannot write new data, " + leftInSerializationBuffer()
+				+ " bytes still left from previous call");
+		}
+
+		// The view writes up to the limit of the buffer, which is its position plus the remaining bytes
+		final int start = targetBuffer.position();
+		final int limit = start + targetBuffer.remaining();
+		if (this.segmentOutputView == null || this.segmentOutputView.getSegmentSize() != limit) {
+			this.segmentOutputView = new SpillingSegmentOutputView(limit);
+		}
+
+		final SpillingSegmentOutputView view = this.segmentOutputView;
+		view.reset(segment, start + SIZEOFINT);
+
+		try {
+			record.write(view);
+
+			if (!view.hasSpilled()) {
+				final int end = view.getCurrentPositionInSegment();
+				segment.putIntBigEndian(start, end - start - SIZEOFINT);
+				targetBuffer.position(end);
+			} else {
+				// Keep the spilled part of the record for the following buffers, the length is already written
+				final int spilledBytes = view.copySpilledData(this.serializationBuffer);
+				segment.putIntBigEndian(start, limit - start - SIZEOFINT + spilledBytes);
+				targetBuffer.position(limit);
+			}
+
+			// The length has been written along with the record, so only the serialization buffer must be read
+			this.lengthBuf.position(this.lengthBuf.limit());
+		} finally {
+			view.release();
+		}
+	}
+
 	public void clear() {
 		this.bytesReadFromBuffer = 0;
 		this.lengthBuf.clear();
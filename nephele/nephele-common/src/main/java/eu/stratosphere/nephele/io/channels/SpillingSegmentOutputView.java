@@ -0,0 +1,121 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.io.channels;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import eu.stratosphere.nephele.services.memorymanager.AbstractPagedOutputView;
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+
+/**
+ * A paged output view which writes to the memory segment of a {@link Buffer} and spills to private heap segments once
+ * the buffer's segment is full. The spilled data can afterwards be copied to an arbitrary {@link DataOutput}.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ */
+final class SpillingSegmentOutputView extends AbstractPagedOutputView {
+
+	/**
+	 * The segments to spill to, allocated on demand and reused for subsequent records.
+	 */
+	private final ArrayList<MemorySegment> spillSegments = new ArrayList<MemorySegment>();
+
+	/**
+	 * The number of spill segments used since the last call to {@link #reset(MemorySegment, int)}.
+	 */
+	private int numberOfUsedSpillSegments = 0;
+
+	/**
+	 * Constructs a new spilling segment output view.
+	 * 
+	 * @param segmentSize
+	 *        the number of bytes to write to each memory segment
+	 */
+	SpillingSegmentOutputView(final int segmentSize) {
+		super(segmentSize, 0);
+	}
+
+	/**
+	 * Directs the view to the given segment and position.
+	 * 
+	 * @param segment
+	 *        the memory segment to write the next bytes to
+	 * @param position
+	 *        the position within the segment to write the next bytes to
+	 */
+	void reset(final MemorySegment segment, final int position) {
+
+		this.numberOfUsedSpillSegments = 0;
+		seekOutput(segment, position);
+	}
+
+	/**
+	 * Releases the reference to the segment the view currently writes to.
+	 */
+	void release() {
+
+		clear();
+	}
+
+	/**
+	 * Checks whether the data written since the last call to {@link #reset(MemorySegment, int)} exceeded the initial
+	 * segment.
+	 * 
+	 * @return <code>true</code> if data has been spilled, <code>false</code> otherwise
+	 */
+	boolean hasSpilled() {
+
+		return (this.numberOfUsedSpillSegments > 0);
+	}
+
+	/**
+	 * Copies the spilled data to the given output.
+	 * 
+	 * @param out
+	 *        the output to copy the spilled data to
+	 * @return the number of bytes copied
+	 * @throws IOException
+	 *         thrown if an error occurs while writing to the output
+	 */
+	int copySpilledData(final DataOutput out) throws IOException {
+
+		int numberOfBytes = 0;
+		for (int i = 0; i < this.numberOfUsedSpillSegments; ++i) {
+			final int length = (i == this.numberOfUsedSpillSegments - 1) ? getCurrentPositionInSegment()
+				: this.segmentSize;
+			this.spillSegments.get(i).get(out, 0, length);
+			numberOfBytes += length;
+		}
+
+		return numberOfBytes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected MemorySegment nextSegment(final MemorySegment current, final int positionInCurrent) {
+
+		if (this.numberOfUsedSpillSegments == this.spillSegments.size()) {
+			this.spillSegments.add(new MemorySegment(new byte[this.segmentSize]));
+		}
+
+		return this.spillSegments.get(this.numberOfUsedSpillSegments++);
+	}
+}
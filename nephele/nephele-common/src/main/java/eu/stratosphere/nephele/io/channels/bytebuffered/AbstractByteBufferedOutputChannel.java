@@ -58,6 +58,11 @@ public abstract class AbstractByteBufferedOutputChannel<T extends Record> extend
 	 */
 	private long amountOfDataTransmitted = 0L;
 
+	/**
+	 * Stores the number of records written to this output channel since its instantiation.
+	 */
+	private long numberOfRecordsTransmitted = 0L;
+
 	/**
 	 * Determines when to release the {@link #dataBuffer}. bufferSizeLimit=0 is
 	 * equivalent to auto-flushing after each record whereas the initial value
@@ -176,7 +181,54 @@ public abstract class AbstractByteBufferedOutputChannel<T extends Record> extend
 					"Serialization buffer is expected to be empty!");
 		}
 
-		this.serializationBuffer.serialize(record);
+		serializeRecord(record);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeRecords(final T[] records, final int numberOfRecords) throws IOException, InterruptedException {
+
+		if (numberOfRecords == 0) {
+			return;
+		}
+
+		// Get a write buffer from the broker
+		if (this.dataBuffer == null) {
+			requestWriteBufferFromBroker();
+		}
+
+		if (this.closeRequested) {
+			throw new IOException("Channel is aready requested to be closed");
+		}
+
+		if (this.serializationBuffer.dataLeftFromPreviousSerialization()) {
+			throw new IOException(
+					"Serialization buffer is expected to be empty!");
+		}
+
+		// Serializing a record always leaves a write buffer and an empty serialization buffer behind
+		for (int i = 0; i < numberOfRecords; ++i) {
+			serializeRecord(records[i]);
+		}
+	}
+
+	/**
+	 * Serializes the given record into the current write buffer and passes on all write buffers filled in the
+	 * process. The method expects a write buffer to be present and the serialization buffer to be empty.
+	 * 
+	 * @param record
+	 *        the record to serialize
+	 * @throws IOException
+	 *         thrown if an I/O error occurs while serializing the record or passing on a write buffer
+	 * @throws InterruptedException
+	 *         thrown if the thread is interrupted while waiting for a new write buffer
+	 */
+	private void serializeRecord(final T record) throws IOException, InterruptedException {
+
+		this.serializationBuffer.serialize(record, this.dataBuffer);
+		++this.numberOfRecordsTransmitted;
 
 		while (this.serializationBuffer.dataLeftFromPreviousSerialization()) {
 			this.serializationBuffer.read(this.dataBuffer);
@@ -284,6 +336,16 @@ public abstract class AbstractByteBufferedOutputChannel<T extends Record> extend
 		return this.amountOfDataTransmitted;
 	}
 
+	/**
+	 * Returns the number of records written to this output channel since its instantiation.
+	 * 
+	 * @return the number of records written to this output channel
+	 */
+	public long getNumberOfRecordsTransmitted() {
+
+		return this.numberOfRecordsTransmitted;
+	}
+
 	/**
 	 * Limits the size of the buffer this channel will write its records to
 	 * before passing them on to the framework.
@@ -0,0 +1,39 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.io.compression;
+
+/**
+ * An enumeration for declaring the level of compression applied to the data of a channel while it is transported over
+ * the network. The compression level has no effect on in-memory channels.
+ * 
+ */
+public enum CompressionLevel {
+
+	/**
+	 * Enumeration type for uncompressed transport.
+	 */
+	NO_COMPRESSION,
+
+	/**
+	 * Enumeration type for a fast compression codec which trades compression ratio for CPU time.
+	 */
+	LIGHT_COMPRESSION,
+
+	/**
+	 * Enumeration type for a dense compression codec which trades CPU time for compression ratio.
+	 */
+	HEAVY_COMPRESSION
+}
@@ -17,6 +17,7 @@ package eu.stratosphere.nephele.jobgraph;
 
 import eu.stratosphere.nephele.io.DistributionPattern;
 import eu.stratosphere.nephele.io.channels.ChannelType;
+import eu.stratosphere.nephele.io.compression.CompressionLevel;
 
 /**
  * Objects of this class represent edges in the user's job graph.
@@ -31,6 +32,11 @@ public class JobEdge {
 	 */
 	private final ChannelType channelType;
 
+	/**
+	 * The compression level to be used for the resulting channel.
+	 */
+	private final CompressionLevel compressionLevel;
+
 	/**
 	 * The vertex connected to this edge.
 	 */
@@ -57,11 +63,15 @@ public class JobEdge {
 	 *        the compression level the corresponding channel should have at runtime
 	 * @param indexOfInputGate
 	 *        index of the consuming task's input gate that this edge connects to
+	 * @param distributionPattern
+	 *        the distribution pattern that should be used for this edge
 	 */
 	public JobEdge(final AbstractJobVertex connectedVertex, final ChannelType channelType,
-			final int indexOfInputGate, final DistributionPattern distributionPattern) {
+			final CompressionLevel compressionLevel, final int indexOfInputGate,
+			final DistributionPattern distributionPattern) {
 		this.connectedVertex = connectedVertex;
 		this.channelType = channelType;
+		this.compressionLevel = compressionLevel;
 		this.indexOfInputGate = indexOfInputGate;
 		this.distributionPattern = distributionPattern;
 	}
@@ -75,6 +85,15 @@ public class JobEdge {
 		return this.channelType;
 	}
 
+	/**
+	 * Returns the compression level assigned to this edge.
+	 * 
+	 * @return the compression level assigned to this edge or <code>null</code> if the level has not been specified
+	 */
+	public CompressionLevel getCompressionLevel() {
+		return this.compressionLevel;
+	}
+
 	/**
 	 * Returns the vertex this edge is connected to.
 	 * 
@@ -58,6 +58,11 @@ public abstract class BlockChannelAccess<R extends IORequest, C extends Collecti
 	 */
 	protected final C returnBuffers;
 	
+	/**
+	 * The codec used to encode and decode the blocks, or <code>null</code> if the blocks are stored raw.
+	 */
+	protected final BlockCodec codec;
+	
 	/**
 	 * Flag marking this channel as closed;
 	 */
@@ -80,6 +85,25 @@ public abstract class BlockChannelAccess<R extends IORequest, C extends Collecti
 	protected BlockChannelAccess(Channel.ID channelID, RequestQueue<R> requestQueue,
 			C returnQueue, boolean writeEnabled)
 	throws IOException
+	{
+		this(channelID, requestQueue, returnQueue, writeEnabled, null);
+	}
+	
+	/**
+	 * Creates a new channel access to the path indicated by the given ID, which encodes its blocks with the given
+	 * codec.
+	 * 
+	 * @param channelID The id describing the path of the file that the channel accessed.
+	 * @param requestQueue The queue that this channel hands its IO requests to.
+	 * @param returnQueue The queue to which the segments are added after their buffer was written.
+	 * @param writeEnabled Flag describing whether the channel should be opened in read/write mode, rather
+	 *                     than in read-only mode.
+	 * @param codec The codec to encode and decode the blocks with, or <code>null</code> to store them raw.
+	 * @throws IOException Thrown, if the channel could no be opened.
+	 */
+	protected BlockChannelAccess(Channel.ID channelID, RequestQueue<R> requestQueue,
+			C returnQueue, boolean writeEnabled, BlockCodec codec)
+	throws IOException
 	{
 		super(channelID, requestQueue, writeEnabled);
 		
@@ -88,6 +112,7 @@ public abstract class BlockChannelAccess<R extends IORequest, C extends Collecti
 		}
 		
 		this.returnBuffers = returnQueue;
+		this.codec = codec;
 	}
 	
 	// --------------------------------------------------------------------------------------------
@@ -114,7 +139,7 @@ public abstract class BlockChannelAccess<R extends IORequest, C extends Collecti
 	/**
 	 * Closes the reader and waits until all pending asynchronous requests are
 	 * handled. Even if an exception interrupts the closing, the underlying <tt>FileChannel</tt> is
-	 * closed.
+	 * closed and the resources of the block codec are released.
 	 * 
 	 * @throws IOException Thrown, if an I/O exception occurred while waiting for the buffers, or if
 	 *                     the closing was interrupted.
@@ -145,6 +170,11 @@ public abstract class BlockChannelAccess<R extends IORequest, C extends Collecti
 				}
 			}
 			finally {
+				// release the codec's native compression resources
+				if (this.codec != null) {
+					this.codec.close();
+				}
+				
 				// close the file
 				if (this.fileChannel.isOpen()) {
 					this.fileChannel.close();
@@ -222,8 +252,12 @@ final class SegmentReadRequest implements ReadRequest
 		final FileChannel c = this.channel.fileChannel;
 		if (c.size() - c.position() > 0) {
 			try {
-				final ByteBuffer wrapper = this.segment.wrap(0, this.segment.size());
-				this.channel.fileChannel.read(wrapper);
+				if (this.channel.codec != null) {
+					this.channel.codec.readBlock(this.segment, c);
+				} else {
+					final ByteBuffer wrapper = this.segment.wrap(0, this.segment.size());
+					this.channel.fileChannel.read(wrapper);
+				}
 			} catch (NullPointerException npex) {
 				// the memory has been cleared asynchronouosly through task failing or canceling
 				// ignore the request, since the result cannot be read
@@ -265,7 +299,11 @@ final class SegmentWriteRequest implements WriteRequest
 	public void write() throws IOException
 	{
 		try {
-			this.channel.fileChannel.write(this.segment.wrap(0, this.segment.size()));
+			if (this.channel.codec != null) {
+				this.channel.codec.writeBlock(this.segment, this.channel.fileChannel);
+			} else {
+				this.channel.fileChannel.write(this.segment.wrap(0, this.segment.size()));
+			}
 		} catch (NullPointerException npex) {
 			// the memory has been cleared asynchronouosly through task failing or canceling
 			// ignore the request, since there is nothing to write.
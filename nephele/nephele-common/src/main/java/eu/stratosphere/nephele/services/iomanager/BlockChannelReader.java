@@ -53,7 +53,24 @@ public class BlockChannelReader extends BlockChannelAccess<ReadRequest, LinkedBl
 			LinkedBlockingQueue<MemorySegment> returnSegments, int numRequestsToBundle)
 	throws IOException
 	{
-		super(channelID, requestQueue, returnSegments, false);
+		this(channelID, requestQueue, returnSegments, numRequestsToBundle, null);
+	}
+	
+	/**
+	 * Creates a new block channel reader for the given channel, which decodes the blocks with the given codec.
+	 *  
+	 * @param channelID The ID of the channel to read.
+	 * @param requestQueue The request queue of the asynchronous reader thread, to which the I/O requests
+	 *                     are added.
+	 * @param returnSegments The return queue, to which the full Memory Segments are added.
+	 * @param codec The codec to decode the blocks with, or <code>null</code> if the blocks are stored raw.
+	 * @throws IOException Thrown, if the underlying file channel could not be opened.
+	 */
+	protected BlockChannelReader(Channel.ID channelID, RequestQueue<ReadRequest> requestQueue,
+			LinkedBlockingQueue<MemorySegment> returnSegments, int numRequestsToBundle, BlockCodec codec)
+	throws IOException
+	{
+		super(channelID, requestQueue, returnSegments, false, codec);
 	}	
 
 	/**
@@ -53,7 +53,24 @@ public class BlockChannelWriter extends BlockChannelAccess<WriteRequest, LinkedB
 			LinkedBlockingQueue<MemorySegment> returnSegments, int numRequestsToBundle)
 	throws IOException
 	{
-		super(channelID, requestQueue, returnSegments, true);
+		this(channelID, requestQueue, returnSegments, numRequestsToBundle, null);
+	}
+
+	/**
+	 * Creates a new block channel writer for the given channel, which encodes the blocks with the given codec.
+	 *  
+	 * @param channelID The ID of the channel to write to.
+	 * @param requestQueue The request queue of the asynchronous writer thread, to which the I/O requests
+	 *                     are added.
+	 * @param returnSegments The return queue, to which the processed Memory Segments are added.
+	 * @param codec The codec to encode the blocks with, or <code>null</code> to write them raw.
+	 * @throws IOException Thrown, if the underlying file channel could not be opened exclusively.
+	 */
+	protected BlockChannelWriter(Channel.ID channelID, RequestQueue<WriteRequest> requestQueue,
+			LinkedBlockingQueue<MemorySegment> returnSegments, int numRequestsToBundle, BlockCodec codec)
+	throws IOException
+	{
+		super(channelID, requestQueue, returnSegments, true, codec);
 	}
 
 	/**
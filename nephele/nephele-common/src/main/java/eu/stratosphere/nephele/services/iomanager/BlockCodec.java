@@ -0,0 +1,404 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.services.iomanager;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import eu.stratosphere.nephele.io.compression.CompressionLevel;
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+
+/**
+ * Encodes the blocks of a block channel with an optional compression and an optional checksum. Each encoded block is
+ * preceded by a header recording the number of stored bytes, the flags describing the encoding and the CRC32
+ * checksum of the stored bytes. Blocks are only stored compressed if the compression reduces their size, and a block
+ * always decodes to a full memory segment, so the readers and writers of the channel keep their block semantics.
+ * <p>
+ * Both compression levels use the deflate algorithm, {@link CompressionLevel#LIGHT_COMPRESSION} with the fastest and
+ * {@link CompressionLevel#HEAVY_COMPRESSION} with the densest setting.
+ * <p>
+ * The blocks of a channel are encoded and decoded by the I/O thread serving the channel. The codec's native
+ * compression resources are released by {@link #close()}, which the channel calls when it is closed. The codec
+ * synchronizes on itself, so closing it from another thread while a request is still being served is safe.
+ * 
+ */
+final class BlockCodec {
+
+	/**
+	 * The length of the header preceding each encoded block.
+	 */
+	static final int HEADER_LENGTH = 12;
+
+	/**
+	 * The flag marking a block as stored compressed.
+	 */
+	private static final int FLAG_COMPRESSED = 0x1;
+
+	/**
+	 * The flag marking a block as carrying a checksum.
+	 */
+	private static final int FLAG_CHECKSUM = 0x2;
+
+	/**
+	 * The compression level to apply to written blocks.
+	 */
+	private final CompressionLevel compressionLevel;
+
+	/**
+	 * Stores whether checksums are computed for written blocks.
+	 */
+	private final boolean checksums;
+
+	/**
+	 * The buffer holding the header of the current block.
+	 */
+	private final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+
+	/**
+	 * The checksum used to compute and verify the blocks' checksums.
+	 */
+	private final CRC32 crc = new CRC32();
+
+	/**
+	 * The deflater used to compress blocks, created on first use.
+	 */
+	private Deflater deflater = null;
+
+	/**
+	 * The inflater used to decompress blocks, created on first use.
+	 */
+	private Inflater inflater = null;
+
+	/**
+	 * The array holding the compressed data of the current block.
+	 */
+	private byte[] compressedData = new byte[0];
+
+	/**
+	 * The array holding a heap copy of the current block, only used for segments which are not backed by an
+	 * accessible array.
+	 */
+	private byte[] blockCopy = new byte[0];
+
+	/**
+	 * Stores whether the codec has been closed.
+	 */
+	private boolean closed = false;
+
+	/**
+	 * Constructs a new block codec.
+	 * 
+	 * @param compressionLevel
+	 *        the compression level to apply to written blocks
+	 * @param checksums
+	 *        <code>true</code> to compute a checksum for each written block, <code>false</code> otherwise
+	 */
+	BlockCodec(final CompressionLevel compressionLevel, final boolean checksums) {
+
+		if (compressionLevel == null) {
+			throw new NullPointerException();
+		}
+
+		this.compressionLevel = compressionLevel;
+		this.checksums = checksums;
+	}
+
+	/**
+	 * Encodes the given segment and writes it to the given file channel.
+	 * 
+	 * @param segment
+	 *        the segment to write
+	 * @param fileChannel
+	 *        the file channel to write to
+	 * @throws IOException
+	 *         thrown if an error occurs while writing to the file channel
+	 */
+	synchronized void writeBlock(final MemorySegment segment, final FileChannel fileChannel) throws IOException {
+
+		checkOpen();
+
+		final int size = segment.size();
+		final ByteBuffer block = arrayView(segment, true);
+		final byte[] data = block.array();
+		final int offset = block.arrayOffset() + block.position();
+
+		final int compressedSize = compress(data, offset, size);
+
+		int flags = 0;
+		final ByteBuffer stored;
+		if (compressedSize < 0) {
+			stored = segment.wrap(0, size);
+		} else {
+			flags |= FLAG_COMPRESSED;
+			stored = ByteBuffer.wrap(this.compressedData, 0, compressedSize);
+		}
+
+		int checksum = 0;
+		if (this.checksums) {
+			flags |= FLAG_CHECKSUM;
+			this.crc.reset();
+			if (compressedSize < 0) {
+				this.crc.update(data, offset, size);
+			} else {
+				this.crc.update(this.compressedData, 0, compressedSize);
+			}
+			checksum = (int) this.crc.getValue();
+		}
+
+		this.header.clear();
+		this.header.putInt(stored.remaining());
+		this.header.putInt(flags);
+		this.header.putInt(checksum);
+		this.header.flip();
+
+		writeFully(this.header, fileChannel);
+		writeFully(stored, fileChannel);
+	}
+
+	/**
+	 * Reads the next block from the given file channel and decodes it into the given segment. If the file channel has
+	 * no more data, the segment is left untouched.
+	 * 
+	 * @param segment
+	 *        the segment to read the block into
+	 * @param fileChannel
+	 *        the file channel to read from
+	 * @throws IOException
+	 *         thrown if an error occurs while reading from the file channel or the block is corrupt
+	 */
+	synchronized void readBlock(final MemorySegment segment, final FileChannel fileChannel) throws IOException {
+
+		checkOpen();
+
+		if (fileChannel.size() - fileChannel.position() <= 0) {
+			return;
+		}
+
+		this.header.clear();
+		readFully(this.header, fileChannel);
+		this.header.flip();
+
+		final int storedSize = this.header.getInt();
+		final int flags = this.header.getInt();
+		final int checksum = this.header.getInt();
+
+		final int size = segment.size();
+		final boolean compressed = (flags & FLAG_COMPRESSED) != 0;
+
+		if (storedSize < 0 || storedSize > size || (!compressed && storedSize != size)) {
+			throw new IOException("Corrupt block header: " + storedSize + " stored bytes for a block of " + size
+				+ " bytes.");
+		}
+
+		if (compressed) {
+			if (this.compressedData.length < storedSize) {
+				this.compressedData = new byte[size];
+			}
+			readFully(ByteBuffer.wrap(this.compressedData, 0, storedSize), fileChannel);
+		} else {
+			readFully(segment.wrap(0, size), fileChannel);
+		}
+
+		if ((flags & FLAG_CHECKSUM) != 0) {
+			this.crc.reset();
+			if (compressed) {
+				this.crc.update(this.compressedData, 0, storedSize);
+			} else {
+				final ByteBuffer block = arrayView(segment, true);
+				this.crc.update(block.array(), block.arrayOffset() + block.position(), size);
+			}
+			if ((int) this.crc.getValue() != checksum) {
+				throw new IOException("Checksum mismatch in block of " + storedSize + " bytes.");
+			}
+		}
+
+		if (compressed) {
+			final ByteBuffer block = arrayView(segment, false);
+			decompress(storedSize, block.array(), block.arrayOffset() + block.position(), size);
+			if (block.array() == this.blockCopy) {
+				segment.put(0, this.blockCopy, 0, size);
+			}
+		}
+	}
+
+	/**
+	 * Closes the codec and releases the native resources of its deflater and inflater. Blocks can no longer be
+	 * encoded or decoded afterwards. Closing an already closed codec has no effect.
+	 */
+	synchronized void close() {
+
+		if (this.closed) {
+			return;
+		}
+
+		this.closed = true;
+
+		if (this.deflater != null) {
+			this.deflater.end();
+			this.deflater = null;
+		}
+
+		if (this.inflater != null) {
+			this.inflater.end();
+			this.inflater = null;
+		}
+
+		this.compressedData = new byte[0];
+		this.blockCopy = new byte[0];
+	}
+
+	/**
+	 * Checks whether the codec has been closed.
+	 * 
+	 * @return <code>true</code> if the codec has been closed, <code>false</code> otherwise
+	 */
+	synchronized boolean isClosed() {
+
+		return this.closed;
+	}
+
+	/**
+	 * Throws an exception if the codec has already been closed.
+	 * 
+	 * @throws IOException
+	 *         thrown if the codec has been closed
+	 */
+	private void checkOpen() throws IOException {
+
+		if (this.closed) {
+			throw new IOException("Block codec has already been closed.");
+		}
+	}
+
+	/**
+	 * Compresses the given data into the array of compressed data.
+	 * 
+	 * @return the size of the compressed data in bytes or <code>-1</code> if the data is not to be compressed or
+	 *         compression does not pay off
+	 */
+	/**
+	 * Returns a view of the given segment's memory which is backed by an array, as required by the deflater, the
+	 * inflater and the checksum. If the segment's memory is not accessible as an array, the view is backed by the
+	 * codec's heap copy of the block instead.
+	 * 
+	 * @param segment
+	 *        the segment to return the view for
+	 * @param copyData
+	 *        <code>true</code> if the segment's data must be copied to the heap copy, <code>false</code> if the view is
+	 *        only written to
+	 * @return the view of the segment's memory, which must be used before the segment is wrapped again
+	 */
+	private ByteBuffer arrayView(final MemorySegment segment, final boolean copyData) {
+
+		final int size = segment.size();
+		final ByteBuffer wrapped = segment.wrap(0, size);
+		if (wrapped.hasArray()) {
+			return wrapped;
+		}
+
+		if (this.blockCopy.length < size) {
+			this.blockCopy = new byte[size];
+		}
+		if (copyData) {
+			segment.get(0, this.blockCopy, 0, size);
+		}
+
+		return ByteBuffer.wrap(this.blockCopy, 0, size);
+	}
+
+	private int compress(final byte[] data, final int offset, final int size) {
+
+		if (this.compressionLevel == CompressionLevel.NO_COMPRESSION) {
+			return -1;
+		}
+
+		if (this.deflater == null) {
+			this.deflater = new Deflater(this.compressionLevel == CompressionLevel.HEAVY_COMPRESSION
+				? Deflater.BEST_COMPRESSION : Deflater.BEST_SPEED, true);
+		}
+
+		if (this.compressedData.length < size) {
+			this.compressedData = new byte[size];
+		}
+
+		this.deflater.reset();
+		this.deflater.setInput(data, offset, size);
+		this.deflater.finish();
+
+		// Stop as soon as the compressed data would be at least as large as the original data
+		int compressedSize = 0;
+		while (!this.deflater.finished()) {
+			if (compressedSize == size) {
+				return -1;
+			}
+			compressedSize += this.deflater.deflate(this.compressedData, compressedSize, size - compressedSize);
+		}
+
+		return compressedSize < size ? compressedSize : -1;
+	}
+
+	private void decompress(final int compressedSize, final byte[] data, final int offset, final int size)
+			throws IOException {
+
+		if (this.inflater == null) {
+			this.inflater = new Inflater(true);
+		}
+
+		this.inflater.reset();
+		this.inflater.setInput(this.compressedData, 0, compressedSize);
+
+		try {
+			int decompressedSize = 0;
+			while (decompressedSize < size && !this.inflater.finished()) {
+				final int n = this.inflater.inflate(data, offset + decompressedSize, size - decompressedSize);
+				if (n == 0 && (this.inflater.needsInput() || this.inflater.needsDictionary())) {
+					break;
+				}
+				decompressedSize += n;
+			}
+
+			if (decompressedSize != size) {
+				throw new IOException("Corrupt compressed block: decompressed " + decompressedSize + " of " + size
+					+ " bytes.");
+			}
+		} catch (DataFormatException dfe) {
+			throw new IOException("Corrupt compressed block: " + dfe.getMessage(), dfe);
+		}
+	}
+
+	private static void writeFully(final ByteBuffer buffer, final FileChannel fileChannel) throws IOException {
+
+		while (buffer.hasRemaining()) {
+			fileChannel.write(buffer);
+		}
+	}
+
+	private static void readFully(final ByteBuffer buffer, final FileChannel fileChannel) throws IOException {
+
+		while (buffer.hasRemaining()) {
+			if (fileChannel.read(buffer) < 0) {
+				throw new EOFException("Unexpected end of channel while reading a block.");
+			}
+		}
+	}
+}
@@ -34,7 +34,14 @@ public class BulkBlockChannelReader extends BlockChannelAccess<ReadRequest, Arra
 			List<MemorySegment> sourceSegments, int numBlocks)
 	throws IOException
 	{
-		super(channelID, requestQueue, new ArrayList<MemorySegment>(numBlocks), false);
+		this(channelID, requestQueue, sourceSegments, numBlocks, null);
+	}
+	
+	protected BulkBlockChannelReader(Channel.ID channelID, RequestQueue<ReadRequest> requestQueue, 
+			List<MemorySegment> sourceSegments, int numBlocks, BlockCodec codec)
+	throws IOException
+	{
+		super(channelID, requestQueue, new ArrayList<MemorySegment>(numBlocks), false, codec);
 		
 		// sanity check
 		if (sourceSegments.size() < numBlocks) {
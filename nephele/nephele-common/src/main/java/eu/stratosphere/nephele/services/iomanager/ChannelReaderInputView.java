@@ -29,6 +29,13 @@ import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
  * A {@link DataInputView} that is backed by a {@link BlockChannelReader}, making it effectively a data input
  * stream. The view reads it data in blocks from the underlying channel. The view can only read data that
  * has been written by a {@link ChannelWriterOutputView}, due to block formatting.
+ * <p>
+ * The view reads ahead adaptively: it starts with a read request for every memory segment. Whenever a whole
+ * read-ahead window of blocks has been found completed before the consumer asked for them, the read-ahead is halved,
+ * down to a small minimum, and whenever the view has to wait for a block, it is doubled again, up to the number of
+ * its memory segments. A consumer that is slower than the disk therefore keeps only few requests in flight, leaving
+ * the device to other channels, while a fast consumer keeps the full read-ahead. The time spent waiting for blocks
+ * is reported by {@link #getStallTime()}.
  *
  * @author Stephan Ewen (stephan.ewen@tu-berlin.de)
  */
@@ -36,8 +43,25 @@ public class ChannelReaderInputView extends AbstractPagedInputView
 {
 	protected final BlockChannelReader reader;		// the block reader that reads memory segments
 	
+	/**
+	 * The minimal number of read requests the view keeps in flight for a slow consumer.
+	 */
+	public static final int MINIMUM_READ_AHEAD = 2;
+	
 	protected int numRequestsRemaining;				// the number of block requests remaining
 	
+	private final ArrayList<MemorySegment> heldBack;	// segments kept back because the read-ahead is reached
+	
+	private int readAhead;							// the maximal number of outstanding read requests
+	
+	private int numOutstanding;						// the number of read requests not yet consumed
+	
+	private int numIdleFetches;						// the number of consecutive fetches that found all requests served
+	
+	private int numStalls;							// the number of times the view waited for a block
+	
+	private long stallTimeNanos;					// the time the view spent waiting for blocks
+	
 	private final int numSegments;					// the number of memory segment the view works with
 	
 	private final ArrayList<MemorySegment> freeMem;	// memory gathered once the work is done
@@ -134,6 +158,8 @@ public class ChannelReaderInputView extends AbstractPagedInputView
 		this.numRequestsRemaining = numBlocks;
 		this.numSegments = memory.size();
 		this.freeMem = new ArrayList<MemorySegment>(this.numSegments);
+		this.heldBack = new ArrayList<MemorySegment>(this.numSegments);
+		this.readAhead = this.numSegments;
 		
 		for (int i = 0; i < memory.size(); i++) {
 			sendReadRequest(memory.get(i));
@@ -144,6 +170,34 @@ public class ChannelReaderInputView extends AbstractPagedInputView
 		}
 	}
 	
+	/**
+	 * Gets the current maximal number of outstanding read requests of this view.
+	 * 
+	 * @return The current maximal number of outstanding read requests.
+	 */
+	public int getReadAhead() {
+		return this.readAhead;
+	}
+	
+	/**
+	 * Gets the number of times this view had to wait for a block that was not yet read, not counting the first block.
+	 * 
+	 * @return The number of times this view waited for a block.
+	 */
+	public int getNumberOfStalls() {
+		return this.numStalls;
+	}
+	
+	/**
+	 * Gets the time this view spent waiting for blocks that were not yet read, not counting the first block. A high
+	 * stall time for a sequential scan indicates that the view should be given more memory segments.
+	 * 
+	 * @return The time spent waiting for blocks in milliseconds.
+	 */
+	public long getStallTime() {
+		return this.stallTimeNanos / 1000000L;
+	}
+	
 	public void waitForFirstBlock() throws IOException
 	{
 		if (getCurrentSegment() == null) {
@@ -174,6 +228,8 @@ public class ChannelReaderInputView extends AbstractPagedInputView
 		if (current != null) {
 			list.add(current);
 		}
+		list.addAll(this.heldBack);
+		this.heldBack.clear();
 		clear();
 
 		// close the writer and gather all segments
@@ -224,7 +280,7 @@ public class ChannelReaderInputView extends AbstractPagedInputView
 		}
 		
 		// get the next segment
-		final MemorySegment seg = this.reader.getNextReturnedSegment();
+		final MemorySegment seg = getNextReturnedSegment();
 		
 		// check the header
 		if (seg.getShort(0) != ChannelWriterOutputView.HEADER_MAGIC_NUMBER) {
@@ -250,22 +306,68 @@ public class ChannelReaderInputView extends AbstractPagedInputView
 	}
 	
 	/**
-	 * Sends a new read requests, if further requests remain. Otherwise, this method adds the segment
-	 * directly to the readers return queue.
+	 * Sends a new read requests, if further requests remain and the read-ahead is not yet reached. If the
+	 * read-ahead is reached, the segment is kept back until the read-ahead grows or an outstanding block is
+	 * consumed. If no further requests remain, this method adds the segment directly to the collected free memory.
 	 * 
 	 * @param seg The segment to use for the read request.
 	 * @throws IOException Thrown, if the reader is in error.
 	 */
 	protected void sendReadRequest(MemorySegment seg) throws IOException
 	{
-		if (this.numRequestsRemaining != 0) {
+		if (this.numRequestsRemaining == 0) {
+			// directly add it to the end of the return queue
+			this.freeMem.add(seg);
+		} else if (this.numOutstanding >= this.readAhead) {
+			this.heldBack.add(seg);
+		} else {
 			this.reader.readBlock(seg);
+			this.numOutstanding++;
 			if (this.numRequestsRemaining != -1) {
 				this.numRequestsRemaining--;
 			}
+		}
+	}
+	
+	/**
+	 * Gets the next segment returned by the reader. If the segment has not been read yet, the time spent waiting
+	 * for it is accounted as stall time and the read-ahead is doubled, up to the number of memory segments. If all
+	 * outstanding requests have already been served for a whole read-ahead window, the consumer is slower than the
+	 * disk and the read-ahead is halved, down to {@link #MINIMUM_READ_AHEAD}. Afterwards, segments that were kept
+	 * back are sent as new read requests, as far as the read-ahead permits.
+	 * 
+	 * @return The next segment returned by the reader.
+	 * @throws IOException Thrown, if the reader is in error.
+	 */
+	protected MemorySegment getNextReturnedSegment() throws IOException
+	{
+		final MemorySegment seg;
+		if (this.reader.getReturnQueue().isEmpty() && getCurrentSegment() != null) {
+			final long start = System.nanoTime();
+			seg = this.reader.getNextReturnedSegment();
+			this.stallTimeNanos += System.nanoTime() - start;
+			this.numStalls++;
+			this.numIdleFetches = 0;
+			this.readAhead = Math.min(this.readAhead * 2, this.numSegments);
+		} else {
+			seg = this.reader.getNextReturnedSegment();
+		}
+		this.numOutstanding--;
+		
+		if (this.numOutstanding > 0 && this.reader.getReturnQueue().size() >= this.numOutstanding) {
+			// all other requests are served as well, so the disk is ahead of the consumer
+			if (++this.numIdleFetches >= this.readAhead) {
+				this.numIdleFetches = 0;
+				this.readAhead = Math.max(this.readAhead / 2, Math.min(MINIMUM_READ_AHEAD, this.numSegments));
+			}
 		} else {
-			// directly add it to the end of the return queue
-			this.freeMem.add(seg);
+			this.numIdleFetches = 0;
+		}
+		
+		while (!this.heldBack.isEmpty() && this.numOutstanding < this.readAhead && this.numRequestsRemaining != 0) {
+			sendReadRequest(this.heldBack.remove(this.heldBack.size() - 1));
 		}
+		
+		return seg;
 	}
 }
@@ -28,6 +28,10 @@ import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
  * A {@link DataOutputView} that is backed by a {@link BlockChannelWriter}, making it effectively a data output
  * stream. The view writes it data in blocks to the underlying channel, adding a minimal header to each block.
  * The data can be re-read by a {@link ChannelReaderInputView}, if it uses the same block size.
+ * <p>
+ * The view writes behind: full blocks are handed to the writer and the view continues in the next free memory
+ * segment, so at most as many blocks as the view has memory segments are in flight. If all segments are in flight,
+ * the view waits for the writer; the time spent waiting is reported by {@link #getStallTime()}.
  *
  * @author Stephan Ewen (stephan.ewen@tu-berlin.de)
  */
@@ -68,6 +72,10 @@ public final class ChannelWriterOutputView extends AbstractPagedOutputView
 	
 	private final int numSegments;					// the number of memory segments used by this view
 	
+	private int numStalls;							// the number of times the view waited for a free segment
+	
+	private long stallTimeNanos;					// the time the view spent waiting for free segments
+	
 	// --------------------------------------------------------------------------------------------
 	
 	/**
@@ -192,6 +200,27 @@ public final class ChannelWriterOutputView extends AbstractPagedOutputView
 		return (this.blockCount - 1) * getSegmentSize() + getCurrentPositionInSegment();
 	}
 
+	/**
+	 * Gets the number of times this view had to wait for the writer to return a written block.
+	 * 
+	 * @return The number of times this view waited for a free segment.
+	 */
+	public int getNumberOfStalls()
+	{
+		return this.numStalls;
+	}
+	
+	/**
+	 * Gets the time this view spent waiting for the writer to return written blocks. A high stall time
+	 * indicates that the view should be given more memory segments.
+	 * 
+	 * @return The time spent waiting for free segments in milliseconds.
+	 */
+	public long getStallTime()
+	{
+		return this.stallTimeNanos / 1000000L;
+	}
+
 	// --------------------------------------------------------------------------------------------
 	//                                      Page Management
 	// --------------------------------------------------------------------------------------------
@@ -202,7 +231,15 @@ public final class ChannelWriterOutputView extends AbstractPagedOutputView
 			writeSegment(current, posInSegment, false);
 		}
 		
-		final MemorySegment next = this.writer.getNextReturnedSegment();
+		final MemorySegment next;
+		if (current != null && this.writer.getReturnQueue().isEmpty()) {
+			final long start = System.nanoTime();
+			next = this.writer.getNextReturnedSegment();
+			this.stallTimeNanos += System.nanoTime() - start;
+			this.numStalls++;
+		} else {
+			next = this.writer.getNextReturnedSegment();
+		}
 		this.blockCount++;
 		return next;
 	}
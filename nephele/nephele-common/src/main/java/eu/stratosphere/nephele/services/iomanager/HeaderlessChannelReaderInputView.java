@@ -88,7 +88,7 @@ public class HeaderlessChannelReaderInputView extends ChannelReaderInputView
 		
 		// get the next segment
 		this.numBlocksRemaining--;
-		return this.reader.getNextReturnedSegment();
+		return getNextReturnedSegment();
 	}
 	
 	/* (non-Javadoc)
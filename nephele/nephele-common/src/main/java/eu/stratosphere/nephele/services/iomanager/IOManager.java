@@ -24,6 +24,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import eu.stratosphere.nephele.io.compression.CompressionLevel;
 import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
 
 /**
@@ -39,6 +40,11 @@ public final class IOManager implements UncaughtExceptionHandler
 	 */
 	private static final Log LOG = LogFactory.getLog(IOManager.class);
 
+	/**
+	 * The default number of reader and writer threads per temp path.
+	 */
+	public static final int DEFAULT_NUMBER_OF_THREADS_PER_PATH = 1;
+
 	/**
 	 * The default temp paths for anonymous Channels.
 	 */
@@ -50,20 +56,41 @@ public final class IOManager implements UncaughtExceptionHandler
 	private final Random random;
 
 	/**
-	 * The writer thread used for asynchronous block oriented channel writing.
+	 * The writer threads used for asynchronous block oriented channel writing. The threads of the i-th path are
+	 * stored at the indices <code>i * threadsPerPath</code> to <code>(i + 1) * threadsPerPath - 1</code>.
 	 */
 	private final WriterThread[] writers;
 
 	/**
-	 * The reader threads used for asynchronous block oriented channel reading.
+	 * The reader threads used for asynchronous block oriented channel reading, laid out like the writer threads.
 	 */
 	private final ReaderThread[] readers;
+
+	/**
+	 * The number of reader and writer threads serving each path.
+	 */
+	private final int threadsPerPath;
+	
+	/**
+	 * The compression level applied to the blocks of the channels.
+	 */
+	private final CompressionLevel blockCompression;
+
+	/**
+	 * Stores whether the blocks of the channels carry checksums.
+	 */
+	private final boolean blockChecksums;
 	
 	/**
 	 * The number of the next path to use.
 	 */
 	private volatile int nextPath;
 
+	/**
+	 * The offset of the next worker thread to assign a channel reader or writer to, within the threads of its path.
+	 */
+	private volatile int nextThread;
+
 	/**
 	 * A boolean flag indicating whether the close() has already been invoked.
 	 */
@@ -99,12 +126,63 @@ public final class IOManager implements UncaughtExceptionHandler
 	 */
 	public IOManager(String[] paths)
 	{
+		this(paths, DEFAULT_NUMBER_OF_THREADS_PER_PATH);
+	}
+
+	/**
+	 * Constructs a new IOManager which serves each path with the given number of reader and writer threads. Each
+	 * channel reader or writer is bound to one of the threads of its channel's path, so that the requests of a channel
+	 * are still carried out in order, while the requests of different channels on the same path are carried out
+	 * concurrently. That keeps several requests in flight per device, which pays off on devices that serve concurrent
+	 * requests in parallel, such as SSDs and RAID arrays.
+	 * 
+	 * @param paths
+	 *        the basic directory path for files underlying anonymous
+	 *        channels.
+	 * @param threadsPerPath
+	 *        the number of reader and writer threads to serve each path with
+	 */
+	public IOManager(String[] paths, int threadsPerPath)
+	{
+		this(paths, threadsPerPath, CompressionLevel.NO_COMPRESSION, false);
+	}
+
+	/**
+	 * Constructs a new IOManager which serves each path with the given number of reader and writer threads and
+	 * encodes the blocks of all channels with the given compression level and optional checksums. The encoding is
+	 * transparent to the users of the block channel readers and writers, but the channels can only be read by the
+	 * I/O manager that has written them, or one with the same settings.
+	 * 
+	 * @param paths
+	 *        the basic directory path for files underlying anonymous
+	 *        channels.
+	 * @param threadsPerPath
+	 *        the number of reader and writer threads to serve each path with
+	 * @param blockCompression
+	 *        the compression level to apply to the blocks of the channels
+	 * @param blockChecksums
+	 *        <code>true</code> to store a checksum with each block and verify it when the block is read,
+	 *        <code>false</code> otherwise
+	 */
+	public IOManager(String[] paths, int threadsPerPath, CompressionLevel blockCompression, boolean blockChecksums)
+	{
+		if (threadsPerPath < 1) {
+			throw new IllegalArgumentException("The number of threads per path must be at least 1.");
+		}
+		if (blockCompression == null) {
+			throw new NullPointerException();
+		}
+
 		this.paths = paths;
 		this.random = new Random();
+		this.threadsPerPath = threadsPerPath;
+		this.blockCompression = blockCompression;
+		this.blockChecksums = blockChecksums;
 		this.nextPath = 0;
+		this.nextThread = 0;
 		
-		// start a write worker thread for each directory
-		this.writers = new WriterThread[paths.length];
+		// start the write worker threads for each directory
+		this.writers = new WriterThread[paths.length * threadsPerPath];
 		for (int i = 0; i < this.writers.length; i++) {
 			final WriterThread t = new WriterThread();
 			this.writers[i] = t;
@@ -114,8 +192,8 @@ public final class IOManager implements UncaughtExceptionHandler
 			t.start();
 		}
 
-		// start a reader worker thread for each directory
-		this.readers = new ReaderThread[paths.length];
+		// start the reader worker threads for each directory
+		this.readers = new ReaderThread[paths.length * threadsPerPath];
 		for (int i = 0; i < this.readers.length; i++) {
 			final ReaderThread t = new ReaderThread();
 			this.readers[i] = t;
@@ -139,7 +217,7 @@ public final class IOManager implements UncaughtExceptionHandler
 			// close writing and reading threads with best effort and log problems
 			
 			// --------------------------------- writer shutdown ----------------------------------			
-			for (int i = 0; i < this.readers.length; i++) {
+			for (int i = 0; i < this.writers.length; i++) {
 				try {
 					this.writers[i].shutdown();
 				}
@@ -160,7 +238,7 @@ public final class IOManager implements UncaughtExceptionHandler
 			
 			// ------------------------ wait until shutdown is complete ---------------------------
 			try {
-				for (int i = 0; i < this.readers.length; i++) {
+				for (int i = 0; i < this.writers.length; i++) {
 					this.writers[i].join();
 				}
 				for (int i = 0; i < this.readers.length; i++) {
@@ -186,7 +264,7 @@ public final class IOManager implements UncaughtExceptionHandler
 		
 		boolean writersShutDown = true;
 		for (int i = 0; i < this.writers.length; i++) {
-			readersShutDown &= this.writers[i].getState() == Thread.State.TERMINATED;
+			writersShutDown &= this.writers[i].getState() == Thread.State.TERMINATED;
 		}
 		
 		return this.isClosed && writersShutDown && readersShutDown;
@@ -252,7 +330,7 @@ public final class IOManager implements UncaughtExceptionHandler
 			throw new IllegalStateException("I/O-Manger is closed.");
 		}
 		
-		return new BlockChannelWriter(channelID, this.writers[channelID.getThreadNum()].requestQueue, returnQueue, 1);
+		return new BlockChannelWriter(channelID, getWriterQueue(channelID), returnQueue, 1, createCodec());
 	}
 	
 	/**
@@ -282,7 +360,7 @@ public final class IOManager implements UncaughtExceptionHandler
 			throw new IllegalStateException("I/O-Manger is closed.");
 		}
 		
-		return new BlockChannelWriter(channelID, this.writers[channelID.getThreadNum()].requestQueue, returnQueue, numRequestsToCombine);
+		return new BlockChannelWriter(channelID, getWriterQueue(channelID), returnQueue, numRequestsToCombine, createCodec());
 	}
 	
 	/**
@@ -300,7 +378,7 @@ public final class IOManager implements UncaughtExceptionHandler
 			throw new IllegalStateException("I/O-Manger is closed.");
 		}
 		
-		return new BlockChannelWriter(channelID, this.writers[channelID.getThreadNum()].requestQueue, new LinkedBlockingQueue<MemorySegment>(), 1);
+		return new BlockChannelWriter(channelID, getWriterQueue(channelID), new LinkedBlockingQueue<MemorySegment>(), 1, createCodec());
 	}
 	
 	/**
@@ -327,7 +405,7 @@ public final class IOManager implements UncaughtExceptionHandler
 			throw new IllegalStateException("I/O-Manger is closed.");
 		}
 		
-		return new BlockChannelWriter(channelID, this.writers[channelID.getThreadNum()].requestQueue, new LinkedBlockingQueue<MemorySegment>(), numRequestsToCombine);
+		return new BlockChannelWriter(channelID, getWriterQueue(channelID), new LinkedBlockingQueue<MemorySegment>(), numRequestsToCombine, createCodec());
 	}
 	
 	/**
@@ -348,7 +426,7 @@ public final class IOManager implements UncaughtExceptionHandler
 			throw new IllegalStateException("I/O-Manger is closed.");
 		}
 		
-		return new BlockChannelReader(channelID, this.readers[channelID.getThreadNum()].requestQueue, returnQueue, 1);
+		return new BlockChannelReader(channelID, getReaderQueue(channelID), returnQueue, 1, createCodec());
 	}
 	
 	/**
@@ -378,7 +456,7 @@ public final class IOManager implements UncaughtExceptionHandler
 			throw new IllegalStateException("I/O-Manger is closed.");
 		}
 		
-		return new BlockChannelReader(channelID, this.readers[channelID.getThreadNum()].requestQueue, returnQueue, numRequestsToCombine);
+		return new BlockChannelReader(channelID, getReaderQueue(channelID), returnQueue, numRequestsToCombine, createCodec());
 	}
 	
 	/**
@@ -397,7 +475,7 @@ public final class IOManager implements UncaughtExceptionHandler
 			throw new IllegalStateException("I/O-Manger is closed.");
 		}
 		
-		return new BlockChannelReader(channelID, this.readers[channelID.getThreadNum()].requestQueue, new LinkedBlockingQueue<MemorySegment>(), 1);
+		return new BlockChannelReader(channelID, getReaderQueue(channelID), new LinkedBlockingQueue<MemorySegment>(), 1, createCodec());
 	}
 	
 	/**
@@ -425,8 +503,8 @@ public final class IOManager implements UncaughtExceptionHandler
 			throw new IllegalStateException("I/O-Manger is closed.");
 		}
 		
-		return new BlockChannelReader(channelID, this.readers[channelID.getThreadNum()].requestQueue, 
-			new LinkedBlockingQueue<MemorySegment>(), numRequestsToCombine);
+		return new BlockChannelReader(channelID, getReaderQueue(channelID), 
+			new LinkedBlockingQueue<MemorySegment>(), numRequestsToCombine, createCodec());
 	}
 	
 	/**
@@ -452,7 +530,33 @@ public final class IOManager implements UncaughtExceptionHandler
 			throw new IllegalStateException("I/O-Manger is closed.");
 		}
 		
-		return new BulkBlockChannelReader(channelID, this.readers[channelID.getThreadNum()].requestQueue, targetSegments, numBlocks);
+		return new BulkBlockChannelReader(channelID, getReaderQueue(channelID), targetSegments, numBlocks, createCodec());
+	}
+	
+	/**
+	 * Creates a reader that memory-maps all blocks of the given channel and exposes them as read-only buffers.
+	 * Mapping is only possible for channels whose blocks are stored raw, that is, if this I/O manager neither
+	 * compresses blocks nor stores checksums with them.
+	 * <p>
+	 * If a channel is read once, a {@link BulkBlockChannelReader} should be used. If it is read repeatedly, mapping
+	 * avoids holding the blocks in memory segments.
+	 * 
+	 * @param channelID The descriptor for the channel to map.
+	 * @param blockSize The size of the blocks in the channel.
+	 * @return A reader that maps the given channel.
+	 * @throws IOException Thrown, if the channel could not be mapped.
+	 */
+	public MappedBulkBlockChannelReader createMappedBulkBlockChannelReader(Channel.ID channelID, int blockSize)
+	throws IOException
+	{
+		if (this.isClosed) {
+			throw new IllegalStateException("I/O-Manger is closed.");
+		}
+		if (this.blockCompression != CompressionLevel.NO_COMPRESSION || this.blockChecksums) {
+			throw new IllegalStateException("Channels with encoded blocks cannot be memory-mapped.");
+		}
+		
+		return new MappedBulkBlockChannelReader(channelID, blockSize);
 	}
 	
 	// ========================================================================
@@ -466,6 +570,61 @@ public final class IOManager implements UncaughtExceptionHandler
 		this.nextPath = newNext >= this.paths.length ? 0 : newNext;
 		return next;
 	}
+
+	/**
+	 * Returns the number of reader and writer threads serving each path.
+	 * 
+	 * @return the number of reader and writer threads serving each path
+	 */
+	public int getNumberOfThreadsPerPath()
+	{
+		return this.threadsPerPath;
+	}
+
+	/**
+	 * Returns the index of the worker thread a new channel reader or writer of the given channel is bound to. The
+	 * channel readers and writers of a path are assigned to the path's threads in a round-robin fashion.
+	 * 
+	 * @param channelID the channel to be read or written
+	 * @return the index of the worker thread to bind the channel reader or writer to
+	 */
+	private final int getNextThreadNum(Channel.ID channelID)
+	{
+		final int pathOffset = channelID.getThreadNum() * this.threadsPerPath;
+		if (this.threadsPerPath == 1) {
+			return pathOffset;
+		}
+
+		final int next = this.nextThread;
+		final int newNext = next + 1;
+		this.nextThread = newNext >= this.threadsPerPath ? 0 : newNext;
+		return pathOffset + next;
+	}
+
+	/**
+	 * Creates the codec for a new channel reader or writer, according to the configured block compression and
+	 * checksums.
+	 * 
+	 * @return the codec for a new channel reader or writer, or <code>null</code> if the blocks are stored raw
+	 */
+	private final BlockCodec createCodec()
+	{
+		if (this.blockCompression == CompressionLevel.NO_COMPRESSION && !this.blockChecksums) {
+			return null;
+		}
+
+		return new BlockCodec(this.blockCompression, this.blockChecksums);
+	}
+
+	private final RequestQueue<WriteRequest> getWriterQueue(Channel.ID channelID)
+	{
+		return this.writers[getNextThreadNum(channelID)].requestQueue;
+	}
+
+	private final RequestQueue<ReadRequest> getReaderQueue(Channel.ID channelID)
+	{
+		return this.readers[getNextThreadNum(channelID)].requestQueue;
+	}
 	
 	
 	// ========================================================================
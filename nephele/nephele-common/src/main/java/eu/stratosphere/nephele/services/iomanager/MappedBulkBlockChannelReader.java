@@ -0,0 +1,258 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.services.iomanager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+
+/**
+ * A reader that memory-maps all blocks of a channel, as an alternative to the {@link BulkBlockChannelReader} for
+ * channels that are read repeatedly, for example spilled partitions that are probed several times. The mapped file
+ * occupies neither heap memory nor memory segments of the memory manager while the reader is open, and no I/O thread
+ * is involved in reading it. A block is copied directly from the mapping into a memory segment with
+ * {@link #readBlock(int, MemorySegment)}.
+ * <p>
+ * The mapping is released immediately when the reader is closed. Since any access to a released mapping crashes the
+ * JVM, buffers on the mapping are never handed out of this class.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ */
+public class MappedBulkBlockChannelReader
+{
+	/**
+	 * The ID of the underlying channel.
+	 */
+	private final Channel.ID id;
+	
+	/**
+	 * The size of the blocks in the channel.
+	 */
+	private final int blockSize;
+	
+	/**
+	 * The number of blocks in the channel.
+	 */
+	private final int numBlocks;
+	
+	/**
+	 * The number of blocks per mapped region. Each region can be at most two GiBytes in size.
+	 */
+	private final int blocksPerRegion;
+	
+	/**
+	 * The mapped regions of the channel file.
+	 */
+	private MappedByteBuffer[] regions;
+	
+	/**
+	 * Creates a new reader that maps all blocks of the given channel.
+	 * 
+	 * @param channelID The ID of the channel to read.
+	 * @param blockSize The size of the blocks in the channel.
+	 * @throws IOException Thrown, if the channel could not be mapped, or if its size is not a multiple of the
+	 *                     block size.
+	 */
+	protected MappedBulkBlockChannelReader(Channel.ID channelID, int blockSize)
+	throws IOException
+	{
+		if (channelID == null) {
+			throw new NullPointerException();
+		}
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("The block size must be positive.");
+		}
+		
+		this.id = channelID;
+		this.blockSize = blockSize;
+		this.blocksPerRegion = Integer.MAX_VALUE / blockSize;
+		
+		final RandomAccessFile file;
+		try {
+			file = new RandomAccessFile(channelID.getPath(), "r");
+		}
+		catch (IOException e) {
+			throw new IOException("Channel to path '" + channelID.getPath() + "' could not be opened.", e);
+		}
+		
+		// the mapping stays valid after the file channel has been closed
+		final FileChannel fileChannel = file.getChannel();
+		try {
+			final long size = fileChannel.size();
+			if (size % blockSize != 0) {
+				throw new IOException("The size of channel '" + channelID.getPath() + "' is not a multiple of the "
+					+ "block size " + blockSize + ".");
+			}
+			if (size / blockSize > Integer.MAX_VALUE) {
+				throw new IOException("Channel '" + channelID.getPath() + "' has too many blocks to be mapped.");
+			}
+			this.numBlocks = (int) (size / blockSize);
+			
+			final int numRegions = (this.numBlocks + this.blocksPerRegion - 1) / this.blocksPerRegion;
+			this.regions = new MappedByteBuffer[numRegions];
+			for (int i = 0; i < numRegions; i++) {
+				final long position = (long) i * this.blocksPerRegion * blockSize;
+				final long length = Math.min((long) this.blocksPerRegion * blockSize, size - position);
+				this.regions[i] = fileChannel.map(FileChannel.MapMode.READ_ONLY, position, length);
+			}
+		}
+		finally {
+			fileChannel.close();
+		}
+	}
+	
+	// --------------------------------------------------------------------------------------------
+	
+	/**
+	 * Gets the channel ID of this reader.
+	 * 
+	 * @return This reader's channel ID.
+	 */
+	public final Channel.ID getChannelID()
+	{
+		return this.id;
+	}
+	
+	/**
+	 * Gets the number of blocks in the channel.
+	 * 
+	 * @return The number of blocks in the channel.
+	 */
+	public int getNumberOfBlocks()
+	{
+		return this.numBlocks;
+	}
+	
+	/**
+	 * Gets the size of the blocks in the channel.
+	 * 
+	 * @return The size of the blocks in the channel.
+	 */
+	public int getBlockSize()
+	{
+		return this.blockSize;
+	}
+	
+	/**
+	 * Checks, whether this reader has been closed.
+	 * 
+	 * @return True, if the reader has been closed, false otherwise.
+	 */
+	public boolean isClosed()
+	{
+		return this.regions == null;
+	}
+	
+	/**
+	 * Copies the block with the given index from the mapping into the given memory segment.
+	 * 
+	 * @param index The index of the block.
+	 * @param target The segment to copy the block into. It must be at least as large as the blocks.
+	 * @throws IllegalStateException Thrown, if the reader has been closed.
+	 */
+	public void readBlock(int index, MemorySegment target)
+	{
+		if (target.size() < this.blockSize) {
+			throw new IllegalArgumentException("The target segment is smaller than the blocks.");
+		}
+		
+		target.wrap(0, this.blockSize).put(mappedBlock(index));
+	}
+	
+	/**
+	 * Gets a buffer on the mapped block with the given index. The buffer's position is zero and its limit is the
+	 * block size. The buffer must not escape this class, as it becomes invalid once the reader is closed.
+	 * 
+	 * @param index The index of the block.
+	 * @return A buffer on the block.
+	 */
+	private ByteBuffer mappedBlock(int index)
+	{
+		if (this.regions == null) {
+			throw new IllegalStateException("The reader has been closed.");
+		}
+		if (index < 0 || index >= this.numBlocks) {
+			throw new IndexOutOfBoundsException("Block " + index + " of " + this.numBlocks);
+		}
+		
+		final ByteBuffer block = this.regions[index / this.blocksPerRegion].duplicate();
+		final int offset = (index % this.blocksPerRegion) * this.blockSize;
+		block.limit(offset + this.blockSize);
+		block.position(offset);
+		return block;
+	}
+	
+	/**
+	 * Closes the reader and releases the mapping of the channel file.
+	 */
+	public void close()
+	{
+		if (this.regions == null) {
+			return;
+		}
+		
+		final MappedByteBuffer[] mapped = this.regions;
+		this.regions = null;
+		for (int i = 0; i < mapped.length; i++) {
+			unmap(mapped[i]);
+		}
+	}
+	
+	/**
+	 * Closes the reader, releasing the mapping, and deletes the channel file.
+	 */
+	public void closeAndDelete()
+	{
+		close();
+		
+		// make a best effort to delete the file. Don't report exceptions.
+		try {
+			File f = new File(this.id.getPath());
+			if (f.exists()) {
+				f.delete();
+			}
+		} catch (Throwable t) {}
+	}
+	
+	/**
+	 * Releases the given mapping immediately, rather than when the buffer is garbage collected. Without the explicit
+	 * release, the file of a deleted channel would occupy disk space until then. This relies on the cleaner of the
+	 * JVM's direct buffers; if it is not accessible, the mapping is released by the garbage collector.
+	 * 
+	 * @param buffer The mapping to release.
+	 */
+	private static void unmap(MappedByteBuffer buffer)
+	{
+		try {
+			final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			final Object cleaner = cleanerMethod.invoke(buffer);
+			if (cleaner != null) {
+				final Method cleanMethod = cleaner.getClass().getMethod("clean");
+				cleanMethod.setAccessible(true);
+				cleanMethod.invoke(cleaner);
+			}
+		} catch (Throwable t) {}
+	}
+}
@@ -42,6 +42,36 @@ public interface MemoryManager
 	
 	void allocatePages(AbstractInvokable owner, List<MemorySegment> target, long numBytes) throws MemoryAllocationException;
 	
+	/**
+	 * Allocates the given number of pages for the given owner, waiting for pages to be released if not enough pages
+	 * are available. While waiting, other owners holding more than their fair share of the memory are asked through
+	 * their registered {@link MemoryReclaimer} to release pages.
+	 * 
+	 * @param owner The owner to allocate the pages for.
+	 * @param target The list to add the allocated pages to.
+	 * @param numPages The number of pages to allocate.
+	 * @param timeout The maximum time to wait for the pages in milliseconds.
+	 * @throws MemoryAllocationException Thrown, if the pages could not be allocated within the timeout, or if the
+	 *                                   allocation exceeds a quota of the owner.
+	 */
+	void allocatePages(AbstractInvokable owner, List<MemorySegment> target, int numPages, long timeout)
+	throws MemoryAllocationException;
+	
+	/**
+	 * Registers a reclaimer which the memory manager can ask to release pages held by the given owner.
+	 * 
+	 * @param owner The owner whose pages the reclaimer releases.
+	 * @param reclaimer The reclaimer to register.
+	 */
+	void registerMemoryReclaimer(AbstractInvokable owner, MemoryReclaimer reclaimer);
+	
+	/**
+	 * Unregisters the reclaimer of the given owner. Releasing all pages of an owner unregisters its reclaimer as well.
+	 * 
+	 * @param owner The owner whose reclaimer is to be unregistered.
+	 */
+	void unregisterMemoryReclaimer(AbstractInvokable owner);
+	
 	/**
 	 * Tries to release the memory for the specified segment. If the <code>segment</code> has already been released or
 	 * is <code>null</code>, the request is simply ignored. If the segment is not from the expected
@@ -95,6 +125,35 @@ public interface MemoryManager
 	 * @return The given value, rounded down to a multiple of the page size.
 	 */
 	long roundDownToPageSizeMultiple(long numBytes);
+	
+	/**
+	 * Gets the total number of pages handled by the memory manager.
+	 * 
+	 * @return The total number of pages handled by the memory manager.
+	 */
+	int getTotalNumberOfPages();
+	
+	/**
+	 * Gets the number of pages currently allocated.
+	 * 
+	 * @return The number of pages currently allocated.
+	 */
+	int getNumberOfAllocatedPages();
+	
+	/**
+	 * Gets the number of successful allocation calls since the memory manager has been created.
+	 * 
+	 * @return The number of successful allocation calls.
+	 */
+	long getNumberOfAllocations();
+	
+	/**
+	 * Gets the accumulated time the successful allocation calls took since the memory manager has been created,
+	 * including the time spent waiting for pages to be released.
+	 * 
+	 * @return The accumulated allocation time in nanoseconds.
+	 */
+	long getAccumulatedAllocationTime();
 
 	// --------------------------------------------------------------------------------------------
 	
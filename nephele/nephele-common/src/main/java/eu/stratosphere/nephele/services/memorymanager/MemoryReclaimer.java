@@ -0,0 +1,38 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.services.memorymanager;
+
+/**
+ * A memory reclaimer is registered with the {@link MemoryManager} by a memory consumer which is able to give memory
+ * back on request, for example by spilling data to disk. If an allocation cannot be served because the memory is held
+ * by other consumers, the memory manager asks those consumers which hold more than their fair share to release pages.
+ * <p>
+ * The request is issued from the thread of the allocating task and must not block. Implementations are expected to
+ * note the request and spill and release the pages from their own thread soon after. Releasing fewer pages than
+ * requested, or none, is allowed.
+ * 
+ */
+public interface MemoryReclaimer {
+
+	/**
+	 * Asks the memory consumer to release the given number of pages.
+	 * 
+	 * @param numPages
+	 *        the number of pages the consumer is asked to release
+	 */
+	void reclaimMemory(int numPages);
+}
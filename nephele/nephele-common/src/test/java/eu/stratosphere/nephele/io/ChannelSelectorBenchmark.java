@@ -0,0 +1,148 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.nephele.io;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import eu.stratosphere.nephele.types.IntegerRecord;
+import eu.stratosphere.nephele.types.Record;
+import eu.stratosphere.nephele.types.StringRecord;
+
+/**
+ * Measures the channel selection throughput of the {@link DefaultChannelSelector}, the {@link HashChannelSelector},
+ * the {@link RangeChannelSelector} and the {@link SkewAwareChannelSelector} over {@link IntegerRecord} and
+ * {@link StringRecord} keys.
+ *
+ */
+public class ChannelSelectorBenchmark {
+
+	private static final int NUMBER_OF_OUTPUT_CHANNELS = 32;
+
+	private static final int NUMBER_OF_KEYS = 4096;
+
+	private static final int NUMBER_OF_SELECTIONS = 50000000;
+
+	private static final int ROUNDS = 3;
+
+	public static void main(final String[] args) {
+
+		final IntegerRecord[] integerRecords = new IntegerRecord[NUMBER_OF_KEYS];
+		final StringRecord[] stringRecords = new StringRecord[NUMBER_OF_KEYS];
+		for (int i = 0; i < NUMBER_OF_KEYS; ++i) {
+			integerRecords[i] = new IntegerRecord(i * 31);
+			stringRecords[i] = new StringRecord("key-" + (i * 31));
+		}
+
+		final CombinableKeyExtractor<IntegerRecord> integerKeyExtractor = new CombinableKeyExtractor<IntegerRecord>() {
+
+			@Override
+			public int getKeyHash(final IntegerRecord record) {
+				return record.getValue();
+			}
+
+			@Override
+			public Object getKey(final IntegerRecord record) {
+				return Integer.valueOf(record.getValue());
+			}
+		};
+
+		final CombinableKeyExtractor<StringRecord> stringKeyExtractor = new CombinableKeyExtractor<StringRecord>() {
+
+			@Override
+			public int getKeyHash(final StringRecord record) {
+				return record.hashCode();
+			}
+
+			@Override
+			public Object getKey(final StringRecord record) {
+				return record.toString();
+			}
+		};
+
+		final Comparator<IntegerRecord> integerComparator = new Comparator<IntegerRecord>() {
+
+			@Override
+			public int compare(final IntegerRecord o1, final IntegerRecord o2) {
+				return (o1.getValue() < o2.getValue()) ? -1 : ((o1.getValue() == o2.getValue()) ? 0 : 1);
+			}
+		};
+
+		final Comparator<StringRecord> stringComparator = new Comparator<StringRecord>() {
+
+			@Override
+			public int compare(final StringRecord o1, final StringRecord o2) {
+				final byte[] b1 = o1.getBytes();
+				final byte[] b2 = o2.getBytes();
+				final int len = Math.min(o1.getLength(), o2.getLength());
+				for (int i = 0; i < len; ++i) {
+					final int diff = (b1[i] & 0xff) - (b2[i] & 0xff);
+					if (diff != 0) {
+						return diff;
+					}
+				}
+				return o1.getLength() - o2.getLength();
+			}
+		};
+
+		for (int round = 0; round < ROUNDS; ++round) {
+
+			run("Default, IntegerRecord", new DefaultChannelSelector<IntegerRecord>(), integerRecords, round);
+			run("Hash, IntegerRecord", new HashChannelSelector<IntegerRecord>(integerKeyExtractor), integerRecords,
+				round);
+			run("Range, IntegerRecord", new RangeChannelSelector<IntegerRecord>(sampleSplitPoints(integerRecords,
+				integerComparator), integerComparator), integerRecords, round);
+			run("Skew-aware, IntegerRecord", new SkewAwareChannelSelector<IntegerRecord>(integerKeyExtractor),
+				integerRecords, round);
+
+			run("Default, StringRecord", new DefaultChannelSelector<StringRecord>(), stringRecords, round);
+			run("Hash, StringRecord", new HashChannelSelector<StringRecord>(stringKeyExtractor), stringRecords, round);
+			run("Range, StringRecord", new RangeChannelSelector<StringRecord>(sampleSplitPoints(stringRecords,
+				stringComparator), stringComparator), stringRecords, round);
+			run("Skew-aware, StringRecord", new SkewAwareChannelSelector<StringRecord>(stringKeyExtractor),
+				stringRecords, round);
+		}
+	}
+
+	private static <T extends Record> List<T> sampleSplitPoints(final T[] records, final Comparator<T> comparator) {
+
+		final List<T> sample = new ArrayList<T>();
+		for (int i = 0; i < records.length; i += 8) {
+			sample.add(records[i]);
+		}
+
+		return RangeChannelSelector.computeSplitPoints(sample, comparator, NUMBER_OF_OUTPUT_CHANNELS);
+	}
+
+	private static <T extends Record> void run(final String name, final ChannelSelector<T> selector,
+			final T[] records, final int round) {
+
+		final int mask = records.length - 1;
+		long checksum = 0L;
+
+		final long start = System.currentTimeMillis();
+
+		for (int i = 0; i < NUMBER_OF_SELECTIONS; ++i) {
+			checksum += selector.selectChannels(records[i & mask], NUMBER_OF_OUTPUT_CHANNELS)[0];
+		}
+
+		final long elapsed = System.currentTimeMillis() - start;
+
+		System.out.println(String.format("Round %d, %s: %,d selections in %,d msecs (%,d selections/sec, checksum %d).",
+			round, name, NUMBER_OF_SELECTIONS, elapsed, (NUMBER_OF_SELECTIONS * 1000L) / Math.max(elapsed, 1L),
+			checksum));
+	}
+}
@@ -0,0 +1,48 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * This class checks the functionality of the {@link HeavyHitterSketch} class.
+ * 
+ */
+public class HeavyHitterSketchTest {
+
+	/**
+	 * Checks that the sketch finds a frequent key among many rare ones.
+	 */
+	@Test
+	public void testHeavyHitterSketch() {
+
+		final HeavyHitterSketch sketch = new HeavyHitterSketch(16);
+
+		for (int i = 0; i < 100000; ++i) {
+			sketch.add((i % 5 == 0) ? 42 : i);
+		}
+
+		assertEquals(100000L, sketch.getTotalCount());
+		assertTrue(sketch.getEstimatedCount(42) >= 20000L);
+
+		final int[] frequentKeys = sketch.getFrequentKeys(10000L);
+		assertEquals(1, frequentKeys.length);
+		assertEquals(42, frequentKeys[0]);
+	}
+}
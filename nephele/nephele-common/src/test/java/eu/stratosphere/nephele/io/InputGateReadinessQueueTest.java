@@ -0,0 +1,227 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.nephele.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import eu.stratosphere.nephele.types.IntegerRecord;
+
+/**
+ * This class checks the scheduling of input gates by the {@link InputGateReadinessQueue}.
+ * 
+ */
+public class InputGateReadinessQueueTest {
+
+	/**
+	 * A source of records backing a mocked input gate.
+	 */
+	private static final class RecordSource {
+
+		private final Queue<IntegerRecord> records = new ArrayDeque<IntegerRecord>();
+
+		private volatile boolean closed = false;
+
+		private synchronized boolean hasRecordAvailable() {
+			return this.closed || !this.records.isEmpty();
+		}
+
+		private synchronized IntegerRecord readRecord() {
+			return this.records.poll();
+		}
+
+		private synchronized void add(final int value) {
+			this.records.add(new IntegerRecord(value));
+		}
+	}
+
+	/**
+	 * Checks that gates which are continuously ready are served in turns rather than drained one after another.
+	 */
+	@Test
+	public void testFairScheduling() throws Exception {
+
+		final RecordSource[] sources = createSources(3, 1000);
+		final InputGate<IntegerRecord>[] gates = createGates(sources);
+		final InputGateReadinessQueue<IntegerRecord> queue = new InputGateReadinessQueue<IntegerRecord>(gates, null);
+		for (final InputGate<IntegerRecord> gate : gates) {
+			queue.reportRecordAvailability(gate);
+		}
+
+		final int[] counts = new int[sources.length];
+		for (int i = 0; i < 3 * 10 * InputGateReadinessQueue.RECORDS_PER_WEIGHT; ++i) {
+			++counts[queue.readRecord(null, false).getValue()];
+		}
+
+		for (final int count : counts) {
+			assertEquals(10 * InputGateReadinessQueue.RECORDS_PER_WEIGHT, count);
+		}
+	}
+
+	/**
+	 * Checks that gates with a higher weight receive a proportionally larger share of the reads.
+	 */
+	@Test
+	public void testWeightedScheduling() throws Exception {
+
+		final RecordSource[] sources = createSources(2, 1000);
+		final InputGate<IntegerRecord>[] gates = createGates(sources);
+		final InputGateReadinessQueue<IntegerRecord> queue = new InputGateReadinessQueue<IntegerRecord>(gates,
+			new int[] { 3, 1 });
+		for (final InputGate<IntegerRecord> gate : gates) {
+			queue.reportRecordAvailability(gate);
+		}
+
+		final int[] counts = new int[sources.length];
+		for (int i = 0; i < 4 * 5 * InputGateReadinessQueue.RECORDS_PER_WEIGHT; ++i) {
+			++counts[queue.readRecord(null, false).getValue()];
+		}
+
+		assertEquals(3 * 5 * InputGateReadinessQueue.RECORDS_PER_WEIGHT, counts[0]);
+		assertEquals(5 * InputGateReadinessQueue.RECORDS_PER_WEIGHT, counts[1]);
+	}
+
+	/**
+	 * Checks that a blocked reader is woken up by a report from another thread and that the queue is exhausted once all
+	 * gates are closed.
+	 */
+	@Test
+	public void testWaitingAndClosing() throws Exception {
+
+		final RecordSource[] sources = createSources(2, 0);
+		final InputGate<IntegerRecord>[] gates = createGates(sources);
+		final InputGateReadinessQueue<IntegerRecord> queue = new InputGateReadinessQueue<IntegerRecord>(gates, null);
+
+		assertNull(queue.readRecord(null, false));
+
+		final Thread reporter = new Thread() {
+
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+					fail(e.getMessage());
+				}
+				sources[1].add(1);
+				queue.reportRecordAvailability(gates[1]);
+				sources[0].closed = true;
+				queue.reportRecordAvailability(gates[0]);
+				sources[1].closed = true;
+				queue.reportRecordAvailability(gates[1]);
+			}
+		};
+		reporter.start();
+
+		assertEquals(1, queue.readRecord(null, true).getValue());
+		assertNull(queue.readRecord(null, true));
+		assertTrue(queue.isExhausted());
+
+		reporter.join();
+	}
+
+	/**
+	 * Checks that a batch waits for the first record only, then drains all ready gates without waiting and keeps the
+	 * records already stored in the array.
+	 */
+	@Test
+	public void testBatchReading() throws Exception {
+
+		final RecordSource[] sources = createSources(2, 20);
+		final InputGate<IntegerRecord>[] gates = createGates(sources);
+		final InputGateReadinessQueue<IntegerRecord> queue = new InputGateReadinessQueue<IntegerRecord>(gates, null);
+		for (final InputGate<IntegerRecord> gate : gates) {
+			queue.reportRecordAvailability(gate);
+		}
+
+		// A batch ends as soon as no gate is ready, even though the gates are still open
+		final IntegerRecord[] targets = new IntegerRecord[64];
+		assertEquals(40, queue.nextBatch(targets, 0, false));
+		final int[] counts = new int[sources.length];
+		for (int i = 0; i < 40; ++i) {
+			++counts[targets[i].getValue()];
+		}
+		assertEquals(20, counts[0]);
+		assertEquals(20, counts[1]);
+
+		// A batch which already holds records must not wait for further ones
+		final IntegerRecord previous = new IntegerRecord(-1);
+		targets[0] = previous;
+		assertEquals(1, queue.nextBatch(targets, 1, false));
+		assertEquals(previous, targets[0]);
+
+		sources[0].add(0);
+		sources[0].closed = true;
+		queue.reportRecordAvailability(gates[0]);
+		sources[1].closed = true;
+		queue.reportRecordAvailability(gates[1]);
+
+		assertEquals(1, queue.nextBatch(targets, 0, true));
+		assertEquals(0, targets[0].getValue());
+		assertEquals(0, queue.nextBatch(targets, 0, true));
+		assertTrue(queue.isExhausted());
+	}
+
+	private static RecordSource[] createSources(final int numberOfSources, final int numberOfRecords) {
+
+		final RecordSource[] sources = new RecordSource[numberOfSources];
+		for (int i = 0; i < numberOfSources; ++i) {
+			sources[i] = new RecordSource();
+			for (int j = 0; j < numberOfRecords; ++j) {
+				sources[i].add(i);
+			}
+		}
+
+		return sources;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static InputGate<IntegerRecord>[] createGates(final RecordSource[] sources) throws Exception {
+
+		final InputGate<IntegerRecord>[] gates = new InputGate[sources.length];
+		for (int i = 0; i < sources.length; ++i) {
+			final RecordSource source = sources[i];
+			gates[i] = mock(InputGate.class);
+			when(gates[i].hasRecordAvailable()).thenAnswer(new Answer<Boolean>() {
+
+				@Override
+				public Boolean answer(final InvocationOnMock invocation) {
+					return Boolean.valueOf(source.hasRecordAvailable());
+				}
+			});
+			when(gates[i].readRecord(any(IntegerRecord.class))).thenAnswer(new Answer<IntegerRecord>() {
+
+				@Override
+				public IntegerRecord answer(final InvocationOnMock invocation) {
+					return source.readRecord();
+				}
+			});
+		}
+
+		return gates;
+	}
+}
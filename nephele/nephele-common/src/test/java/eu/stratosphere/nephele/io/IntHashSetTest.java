@@ -0,0 +1,70 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * This class checks the functionality of the {@link IntHashSet} class.
+ * 
+ */
+public class IntHashSetTest {
+
+	/**
+	 * Checks that the set behaves like a set of boxed integers, including the value <code>0</code> and growing the
+	 * table.
+	 */
+	@Test
+	public void testIntHashSet() {
+
+		final IntHashSet set = new IntHashSet();
+		final Set<Integer> reference = new HashSet<Integer>();
+		assertTrue(set.isEmpty());
+		assertFalse(set.contains(0));
+
+		final Random random = new Random(42L);
+		for (int i = 0; i < 10000; ++i) {
+			final int value = (i % 10 == 0) ? 0 : random.nextInt(2000) - 1000;
+			assertEquals(reference.add(Integer.valueOf(value)), set.add(value));
+		}
+
+		assertFalse(set.isEmpty());
+		assertEquals(reference.size(), set.size());
+		for (int value = -1500; value <= 1500; ++value) {
+			assertEquals(reference.contains(Integer.valueOf(value)), set.contains(value));
+		}
+
+		final int[] values = set.toArray();
+		assertEquals(reference.size(), values.length);
+		Arrays.sort(values);
+		for (int i = 0; i < values.length; ++i) {
+			assertTrue(reference.contains(Integer.valueOf(values[i])));
+			if (i > 0) {
+				assertTrue(values[i - 1] < values[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,286 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.nephele.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.types.IntegerRecord;
+import eu.stratosphere.nephele.util.CommonTestUtils;
+
+/**
+ * This class checks the functionality of the {@link HashChannelSelector}, the {@link RangeChannelSelector} and the
+ * {@link SkewAwareChannelSelector} class.
+ * 
+ */
+public class PartitioningChannelSelectorTest {
+
+	private static final int NUMBER_OF_OUTPUT_CHANNELS = 8;
+
+	private static final int NUMBER_OF_RECORDS = 80000;
+
+	private static final CombinableKeyExtractor<IntegerRecord> KEY_EXTRACTOR = new CombinableKeyExtractor<IntegerRecord>() {
+
+		@Override
+		public int getKeyHash(final IntegerRecord record) {
+			return record.getValue();
+		}
+
+		@Override
+		public Object getKey(final IntegerRecord record) {
+			return Integer.valueOf(record.getValue());
+		}
+	};
+
+	private static final Comparator<IntegerRecord> COMPARATOR = new Comparator<IntegerRecord>() {
+
+		@Override
+		public int compare(final IntegerRecord o1, final IntegerRecord o2) {
+			return (o1.getValue() < o2.getValue()) ? -1 : ((o1.getValue() == o2.getValue()) ? 0 : 1);
+		}
+	};
+
+	/**
+	 * Checks that the hash channel selector sends equal keys to the same channel and spreads consecutive keys evenly.
+	 */
+	@Test
+	public void testHashPartitioning() {
+
+		final HashChannelSelector<IntegerRecord> selector = new HashChannelSelector<IntegerRecord>(KEY_EXTRACTOR);
+		final IntegerRecord record = new IntegerRecord();
+		final int[] counts = new int[NUMBER_OF_OUTPUT_CHANNELS];
+
+		for (int i = 0; i < NUMBER_OF_RECORDS; ++i) {
+			record.setValue(i);
+			final int[] selectedChannels = selector.selectChannels(record, NUMBER_OF_OUTPUT_CHANNELS);
+			assertEquals(1, selectedChannels.length);
+			++counts[selectedChannels[0]];
+			assertEquals(selectedChannels[0], selector.selectChannels(record, NUMBER_OF_OUTPUT_CHANNELS)[0]);
+		}
+
+		assertBalanced(counts, 0.05);
+	}
+
+	/**
+	 * Checks that the range channel selector preserves the order of the keys across the channels and that the split
+	 * points computed from a sample balance the channels.
+	 */
+	@Test
+	public void testRangePartitioning() {
+
+		final List<IntegerRecord> sample = new ArrayList<IntegerRecord>();
+		for (int i = 0; i < 1000; ++i) {
+			sample.add(new IntegerRecord((i * 7919) % 1000 * (NUMBER_OF_RECORDS / 1000)));
+		}
+
+		final List<IntegerRecord> splitPoints = RangeChannelSelector.computeSplitPoints(sample, COMPARATOR,
+			NUMBER_OF_OUTPUT_CHANNELS);
+		assertEquals(NUMBER_OF_OUTPUT_CHANNELS - 1, splitPoints.size());
+
+		final RangeChannelSelector<IntegerRecord> selector = new RangeChannelSelector<IntegerRecord>(splitPoints,
+			COMPARATOR);
+		final IntegerRecord record = new IntegerRecord();
+		final int[] counts = new int[NUMBER_OF_OUTPUT_CHANNELS];
+		int previousChannel = 0;
+
+		for (int i = 0; i < NUMBER_OF_RECORDS; ++i) {
+			record.setValue(i);
+			final int channel = selector.selectChannels(record, NUMBER_OF_OUTPUT_CHANNELS)[0];
+			assertTrue(channel >= previousChannel);
+			previousChannel = channel;
+			++counts[channel];
+		}
+
+		assertBalanced(counts, 0.01);
+
+		// With fewer channels than ranges, the order must still be preserved
+		previousChannel = 0;
+		for (int i = 0; i < NUMBER_OF_RECORDS; i += 100) {
+			record.setValue(i);
+			final int channel = selector.selectChannels(record, 3)[0];
+			assertTrue(channel >= previousChannel && channel < 3);
+			previousChannel = channel;
+		}
+		assertEquals(2, previousChannel);
+	}
+
+	/**
+	 * Checks that the skew-aware channel selector spreads a dominant key across several channels while rare keys stay
+	 * on their hash channel, and that the split key is announced to the consumers.
+	 */
+	@Test
+	public void testSkewAwarePartitioning() {
+
+		final SkewAwareChannelSelector<IntegerRecord> selector = new SkewAwareChannelSelector<IntegerRecord>(
+			KEY_EXTRACTOR);
+		final HashChannelSelector<IntegerRecord> hashSelector = new HashChannelSelector<IntegerRecord>(KEY_EXTRACTOR);
+		final IntegerRecord record = new IntegerRecord();
+		final Set<Integer> hotKeyChannels = new HashSet<Integer>();
+		final int[] counts = new int[NUMBER_OF_OUTPUT_CHANNELS];
+
+		for (int i = 0; i < NUMBER_OF_RECORDS; ++i) {
+			// Half of the records carry the same key
+			final int key = (i % 2 == 0) ? -1 : i % 1000;
+			record.setValue(key);
+			final int channel = selector.selectChannels(record, NUMBER_OF_OUTPUT_CHANNELS)[0];
+			++counts[channel];
+			if (key == -1) {
+				hotKeyChannels.add(Integer.valueOf(channel));
+			} else {
+				assertEquals(hashSelector.selectChannels(record, NUMBER_OF_OUTPUT_CHANNELS)[0], channel);
+			}
+		}
+
+		assertEquals(SkewAwareChannelSelector.DEFAULT_SPLIT_FACTOR, hotKeyChannels.size());
+
+		// Plain hash partitioning would send at least half of the records to a single channel
+		int max = 0;
+		for (final int count : counts) {
+			max = Math.max(max, count);
+		}
+		assertTrue(max < NUMBER_OF_RECORDS / 2);
+
+		record.setValue(-1);
+		assertTrue(selector.isSplit(record));
+		record.setValue(17);
+		assertFalse(selector.isSplit(record));
+
+		try {
+			final HotKeysEvent event = CommonTestUtils.createCopy(selector.createHotKeysEvent());
+			assertEquals(1, event.getNumberOfHotKeys());
+			assertTrue(event.isHotKey(-1));
+			assertFalse(event.isHotKey(17));
+		} catch (IOException ioe) {
+			fail(ioe.getMessage());
+		}
+	}
+
+	/**
+	 * Checks that the skew-aware channel selector only splits a key after its real key has been confirmed to be hot,
+	 * so a rare key whose hash code collides with the hash code of a hot key stays on its hash channel.
+	 */
+	@Test
+	public void testSkewAwareHashCollision() {
+
+		// Keys which are equal modulo 1000 share the same hash code
+		final CombinableKeyExtractor<IntegerRecord> keyExtractor = new CombinableKeyExtractor<IntegerRecord>() {
+
+			@Override
+			public int getKeyHash(final IntegerRecord record) {
+				return record.getValue() % 1000;
+			}
+
+			@Override
+			public Object getKey(final IntegerRecord record) {
+				return Integer.valueOf(record.getValue());
+			}
+		};
+
+		final SkewAwareChannelSelector<IntegerRecord> selector = new SkewAwareChannelSelector<IntegerRecord>(
+			keyExtractor);
+		final HashChannelSelector<IntegerRecord> hashSelector = new HashChannelSelector<IntegerRecord>(keyExtractor);
+		final IntegerRecord record = new IntegerRecord();
+		final Set<Integer> hotKeyChannels = new HashSet<Integer>();
+
+		for (int i = 0; i < NUMBER_OF_RECORDS; ++i) {
+			final int key;
+			if (i % 2 == 0) {
+				key = 5;
+			} else if (i % 1000 == 1) {
+				key = 1005;
+			} else {
+				key = 10 + i % 900;
+			}
+			record.setValue(key);
+			final int channel = selector.selectChannels(record, NUMBER_OF_OUTPUT_CHANNELS)[0];
+			if (key == 5) {
+				hotKeyChannels.add(Integer.valueOf(channel));
+			} else {
+				assertEquals(hashSelector.selectChannels(record, NUMBER_OF_OUTPUT_CHANNELS)[0], channel);
+			}
+		}
+
+		assertEquals(SkewAwareChannelSelector.DEFAULT_SPLIT_FACTOR, hotKeyChannels.size());
+
+		record.setValue(5);
+		assertTrue(selector.isSplit(record));
+		record.setValue(1005);
+		assertFalse(selector.isSplit(record));
+	}
+
+	/**
+	 * Checks that the partial results which the consumers of a skew-aware partitioning compute for a combinable
+	 * aggregate, here the number of records per key, add up to the result of an unsplit partitioning once they are
+	 * merged.
+	 */
+	@Test
+	public void testSkewAwarePartialResultsMerge() {
+
+		final SkewAwareChannelSelector<IntegerRecord> selector = new SkewAwareChannelSelector<IntegerRecord>(
+			KEY_EXTRACTOR);
+		final IntegerRecord record = new IntegerRecord();
+
+		final List<Map<Integer, Integer>> partialCounts = new ArrayList<Map<Integer, Integer>>();
+		for (int i = 0; i < NUMBER_OF_OUTPUT_CHANNELS; ++i) {
+			partialCounts.add(new HashMap<Integer, Integer>());
+		}
+		final Map<Integer, Integer> expectedCounts = new HashMap<Integer, Integer>();
+
+		for (int i = 0; i < NUMBER_OF_RECORDS; ++i) {
+			final int key = (i % 2 == 0) ? -1 : i % 1000;
+			record.setValue(key);
+			final int channel = selector.selectChannels(record, NUMBER_OF_OUTPUT_CHANNELS)[0];
+			increment(partialCounts.get(channel), key, 1);
+			increment(expectedCounts, key, 1);
+		}
+
+		// The subsequent step merges the partial results of all consumers
+		final Map<Integer, Integer> mergedCounts = new HashMap<Integer, Integer>();
+		for (final Map<Integer, Integer> partial : partialCounts) {
+			for (final Map.Entry<Integer, Integer> entry : partial.entrySet()) {
+				increment(mergedCounts, entry.getKey().intValue(), entry.getValue().intValue());
+			}
+		}
+
+		assertEquals(expectedCounts, mergedCounts);
+	}
+
+	private static void increment(final Map<Integer, Integer> counts, final int key, final int delta) {
+
+		final Integer count = counts.get(Integer.valueOf(key));
+		counts.put(Integer.valueOf(key), Integer.valueOf((count == null) ? delta : count.intValue() + delta));
+	}
+
+	private static void assertBalanced(final int[] counts, final double tolerance) {
+
+		final double expected = (double) NUMBER_OF_RECORDS / counts.length;
+		for (final int count : counts) {
+			assertTrue(Math.abs(count - expected) <= expected * tolerance);
+		}
+	}
+}
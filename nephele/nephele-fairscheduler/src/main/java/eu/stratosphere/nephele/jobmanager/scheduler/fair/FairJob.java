@@ -0,0 +1,224 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.jobmanager.scheduler.fair;
+
+import eu.stratosphere.nephele.executiongraph.ExecutionGraph;
+import eu.stratosphere.nephele.executiongraph.ExecutionStage;
+
+/**
+ * A fair job stores the scheduling state of a job managed by the {@link FairScheduler}, i.e. its pool, user and
+ * priority, the number of slices it currently holds and the execution stage it waits to receive instances for.
+ * <p>
+ * This class is not thread-safe, the {@link FairScheduler} protects all mutable state with its own lock.
+ */
+final class FairJob {
+
+	/**
+	 * The execution graph of the job.
+	 */
+	private final ExecutionGraph executionGraph;
+
+	/**
+	 * The name of the pool the job belongs to.
+	 */
+	private final String pool;
+
+	/**
+	 * The weight of the job's pool.
+	 */
+	private final int poolWeight;
+
+	/**
+	 * The name of the user who submitted the job.
+	 */
+	private final String user;
+
+	/**
+	 * The maximum number of slices the jobs of the user may hold at a time or <code>-1</code> if unlimited.
+	 */
+	private final int userQuota;
+
+	/**
+	 * The priority of the job, higher values are served first within the same share.
+	 */
+	private final int priority;
+
+	/**
+	 * The sequence number of the job's submission.
+	 */
+	private final long sequenceNumber;
+
+	/**
+	 * The number of slices the job currently holds.
+	 */
+	private int numberOfSlices = 0;
+
+	/**
+	 * The execution stage the job waits to receive instances for or <code>null</code> if the job is not waiting.
+	 */
+	private ExecutionStage pendingStage = null;
+
+	/**
+	 * Indicates whether the pending stage is a subsequent stage of a job which has already been running.
+	 */
+	private boolean continuation = false;
+
+	/**
+	 * Constructs a new fair job.
+	 * 
+	 * @param executionGraph
+	 *        the execution graph of the job
+	 * @param pool
+	 *        the name of the pool the job belongs to
+	 * @param poolWeight
+	 *        the weight of the job's pool
+	 * @param user
+	 *        the name of the user who submitted the job
+	 * @param userQuota
+	 *        the maximum number of slices the jobs of the user may hold at a time or <code>-1</code> if unlimited
+	 * @param priority
+	 *        the priority of the job
+	 * @param sequenceNumber
+	 *        the sequence number of the job's submission
+	 */
+	FairJob(final ExecutionGraph executionGraph, final String pool, final int poolWeight, final String user,
+			final int userQuota, final int priority, final long sequenceNumber) {
+
+		this.executionGraph = executionGraph;
+		this.pool = pool;
+		this.poolWeight = Math.max(1, poolWeight);
+		this.user = user;
+		this.userQuota = userQuota;
+		this.priority = priority;
+		this.sequenceNumber = sequenceNumber;
+	}
+
+	/**
+	 * Returns the execution graph of the job.
+	 * 
+	 * @return the execution graph of the job
+	 */
+	ExecutionGraph getExecutionGraph() {
+		return this.executionGraph;
+	}
+
+	/**
+	 * Returns the name of the pool the job belongs to.
+	 * 
+	 * @return the name of the pool the job belongs to
+	 */
+	String getPool() {
+		return this.pool;
+	}
+
+	/**
+	 * Returns the weight of the job's pool.
+	 * 
+	 * @return the weight of the job's pool
+	 */
+	int getPoolWeight() {
+		return this.poolWeight;
+	}
+
+	/**
+	 * Returns the name of the user who submitted the job.
+	 * 
+	 * @return the name of the user who submitted the job
+	 */
+	String getUser() {
+		return this.user;
+	}
+
+	/**
+	 * Returns the maximum number of slices the jobs of the user may hold at a time.
+	 * 
+	 * @return the maximum number of slices the jobs of the user may hold at a time or <code>-1</code> if unlimited
+	 */
+	int getUserQuota() {
+		return this.userQuota;
+	}
+
+	/**
+	 * Returns the priority of the job.
+	 * 
+	 * @return the priority of the job
+	 */
+	int getPriority() {
+		return this.priority;
+	}
+
+	/**
+	 * Returns the sequence number of the job's submission.
+	 * 
+	 * @return the sequence number of the job's submission
+	 */
+	long getSequenceNumber() {
+		return this.sequenceNumber;
+	}
+
+	/**
+	 * Returns the number of slices the job currently holds.
+	 * 
+	 * @return the number of slices the job currently holds
+	 */
+	int getNumberOfSlices() {
+		return this.numberOfSlices;
+	}
+
+	/**
+	 * Changes the number of slices the job holds by the given amount.
+	 * 
+	 * @param delta
+	 *        the number of slices the job has received (positive) or returned (negative)
+	 */
+	void changeNumberOfSlices(final int delta) {
+		this.numberOfSlices = Math.max(0, this.numberOfSlices + delta);
+	}
+
+	/**
+	 * Returns the execution stage the job waits to receive instances for.
+	 * 
+	 * @return the execution stage the job waits to receive instances for or <code>null</code> if the job is not
+	 *         waiting
+	 */
+	ExecutionStage getPendingStage() {
+		return this.pendingStage;
+	}
+
+	/**
+	 * Checks whether the pending stage is a subsequent stage of a job which has already been running.
+	 * 
+	 * @return <code>true</code> if the pending stage is a subsequent stage, <code>false</code> otherwise
+	 */
+	boolean isContinuation() {
+		return this.continuation;
+	}
+
+	/**
+	 * Sets the execution stage the job waits to receive instances for.
+	 * 
+	 * @param pendingStage
+	 *        the execution stage the job waits to receive instances for or <code>null</code> if the job no longer
+	 *        waits
+	 * @param continuation
+	 *        <code>true</code> if the stage is a subsequent stage of a job which has already been running
+	 */
+	void setPendingStage(final ExecutionStage pendingStage, final boolean continuation) {
+		this.pendingStage = pendingStage;
+		this.continuation = continuation;
+	}
+}
@@ -0,0 +1,494 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.jobmanager.scheduler.fair;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import eu.stratosphere.nephele.configuration.Configuration;
+import eu.stratosphere.nephele.configuration.GlobalConfiguration;
+import eu.stratosphere.nephele.execution.ExecutionState;
+import eu.stratosphere.nephele.executiongraph.ExecutionGraph;
+import eu.stratosphere.nephele.executiongraph.ExecutionGraphIterator;
+import eu.stratosphere.nephele.executiongraph.ExecutionStage;
+import eu.stratosphere.nephele.executiongraph.ExecutionStageListener;
+import eu.stratosphere.nephele.executiongraph.ExecutionVertex;
+import eu.stratosphere.nephele.executiongraph.InternalJobStatus;
+import eu.stratosphere.nephele.executiongraph.JobStatusListener;
+import eu.stratosphere.nephele.instance.InstanceException;
+import eu.stratosphere.nephele.instance.InstanceManager;
+import eu.stratosphere.nephele.instance.InstanceRequestMap;
+import eu.stratosphere.nephele.instance.InstanceType;
+import eu.stratosphere.nephele.instance.InstanceTypeDescription;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.jobmanager.DeploymentManager;
+import eu.stratosphere.nephele.jobmanager.scheduler.AbstractScheduler;
+import eu.stratosphere.nephele.jobmanager.scheduler.SchedulingException;
+
+/**
+ * The fair scheduler shares the slices, i.e. the instances handed out by the instance manager, among several jobs at
+ * a time. Every job belongs to a pool and a user, both taken from the job configuration. Whenever slices become
+ * available, the execution stages waiting for instances are served in the order of their pool's share, i.e. the
+ * number of slices the pool holds divided by the pool's weight, then by the priority of the job and finally by
+ * submission order. The jobs of a user may hold at most the user's quota of slices at a time. A stage which cannot be
+ * served because not enough slices are free blocks all stages behind it, so large stages are not starved by small
+ * ones.
+ * <p>
+ * Slices are reclaimed at {@link ExecutionStage} boundaries only. Without preemption, the next stage of a running job
+ * is served before any waiting job. With preemption enabled, the next stage of a running job competes for the slices
+ * like every other waiting stage and the job's outstanding requests of the previous stage are canceled, so jobs of
+ * pools with a smaller share or with a higher priority overtake it.
+ * <p>
+ * This class is thread-safe.
+ */
+public class FairScheduler extends AbstractScheduler implements JobStatusListener, ExecutionStageListener {
+
+	/**
+	 * The name of the pool jobs are assigned to unless the job configuration says otherwise.
+	 */
+	private static final String DEFAULT_POOL = "default";
+
+	/**
+	 * The name of the user jobs are assigned to unless the job configuration says otherwise.
+	 */
+	private static final String DEFAULT_USER = "default";
+
+	/**
+	 * The default weight of a pool.
+	 */
+	private static final int DEFAULT_POOL_WEIGHT = 1;
+
+	/**
+	 * The default quota of a user, <code>-1</code> means unlimited.
+	 */
+	private static final int DEFAULT_USER_QUOTA = -1;
+
+	/**
+	 * The default priority of a job.
+	 */
+	private static final int DEFAULT_PRIORITY = 0;
+
+	/**
+	 * Whether stages of running jobs are preempted by default.
+	 */
+	private static final boolean DEFAULT_PREEMPTION = false;
+
+	/**
+	 * The jobs managed by this scheduler, in submission order. The map also serves as the lock for the mutable state
+	 * of the jobs.
+	 */
+	private final Map<JobID, FairJob> jobs = new LinkedHashMap<JobID, FairJob>();
+
+	/**
+	 * The executor running the scheduling passes one after another.
+	 */
+	private final ExecutorService schedulingService = Executors.newSingleThreadExecutor();
+
+	/**
+	 * The policy determining the order in which waiting stages are served.
+	 */
+	private final FairSharePolicy policy;
+
+	/**
+	 * The sequence number of the next job to be submitted. Protected by the lock of <code>jobs</code>.
+	 */
+	private long nextSequenceNumber = 0L;
+
+	/**
+	 * Constructs a new fair scheduler.
+	 * 
+	 * @param deploymentManager
+	 *        the deployment manager assigned to this scheduler
+	 * @param instanceManager
+	 *        the instance manager to be used with this scheduler
+	 */
+	public FairScheduler(final DeploymentManager deploymentManager, final InstanceManager instanceManager) {
+		super(deploymentManager, new SliceAccountant(instanceManager));
+
+		((SliceAccountant) getInstanceManager()).setScheduler(this);
+
+		this.policy = new FairSharePolicy(GlobalConfiguration.getBoolean("jobmanager.scheduler.fair.preemption",
+			DEFAULT_PREEMPTION));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void schedulJob(final ExecutionGraph executionGraph) throws SchedulingException {
+
+		// Get Map of all available Instance types
+		final Map<InstanceType, InstanceTypeDescription> availableInstances = getInstanceManager()
+				.getMapOfAvailableInstanceTypes();
+
+		final Iterator<ExecutionStage> stageIt = executionGraph.iterator();
+		while (stageIt.hasNext()) {
+
+			final InstanceRequestMap instanceRequestMap = new InstanceRequestMap();
+			final ExecutionStage stage = stageIt.next();
+			stage.collectRequiredInstanceTypes(instanceRequestMap, ExecutionState.CREATED);
+
+			// Iterator over required Instances
+			final Iterator<Map.Entry<InstanceType, Integer>> it = instanceRequestMap.getMinimumIterator();
+			while (it.hasNext()) {
+
+				final Map.Entry<InstanceType, Integer> entry = it.next();
+
+				final InstanceTypeDescription descr = availableInstances.get(entry.getKey());
+				if (descr == null) {
+					throw new SchedulingException("Unable to schedule job: No instance of type " + entry.getKey()
+							+ " available");
+				}
+
+				if (descr.getMaximumNumberOfAvailableInstances() != -1
+						&& descr.getMaximumNumberOfAvailableInstances() < entry.getValue().intValue()) {
+					throw new SchedulingException("Unable to schedule job: " + entry.getValue().intValue()
+							+ " instances of type " + entry.getKey() + " required, but only "
+							+ descr.getMaximumNumberOfAvailableInstances() + " are available");
+				}
+			}
+		}
+
+		final Configuration jobConfiguration = executionGraph.getJobConfiguration();
+		final String pool = jobConfiguration.getString("job.scheduler.pool", DEFAULT_POOL);
+		final String user = jobConfiguration.getString("job.scheduler.user", DEFAULT_USER);
+		final int priority = jobConfiguration.getInteger("job.scheduler.priority", DEFAULT_PRIORITY);
+		final int poolWeight = GlobalConfiguration.getInteger("jobmanager.scheduler.fair.pool." + pool + ".weight",
+			DEFAULT_POOL_WEIGHT);
+		final int userQuota = GlobalConfiguration.getInteger("jobmanager.scheduler.fair.user." + user + ".quota",
+			GlobalConfiguration.getInteger("jobmanager.scheduler.fair.userquota", DEFAULT_USER_QUOTA));
+
+		// Subscribe to job status notifications
+		executionGraph.registerJobStatusListener(this);
+
+		// Register execution listener for each vertex
+		final ExecutionGraphIterator it2 = new ExecutionGraphIterator(executionGraph, true);
+		while (it2.hasNext()) {
+
+			final ExecutionVertex vertex = it2.next();
+			vertex.registerExecutionListener(new FairExecutionListener(this, vertex));
+		}
+
+		// Register the scheduler as an execution stage listener
+		executionGraph.registerExecutionStageListener(this);
+
+		// Add the job with its first stage waiting for instances
+		synchronized (this.jobs) {
+
+			final FairJob job = new FairJob(executionGraph, pool, poolWeight, user, userQuota, priority,
+				this.nextSequenceNumber++);
+			job.setPendingStage(executionGraph.getCurrentExecutionStage(), false);
+			this.jobs.put(executionGraph.getJobID(), job);
+		}
+
+		LOG.info("Job " + executionGraph.getJobID() + " of user " + user + " added to pool " + pool
+			+ " with priority " + priority);
+
+		triggerScheduling();
+	}
+
+	/**
+	 * Triggers a scheduling pass which serves the waiting stages in the order of the fair share policy.
+	 * 
+	 * @return the future of the scheduling pass or <code>null</code> if the scheduler has been shut down
+	 */
+	Future<?> triggerScheduling() {
+
+		try {
+			return this.schedulingService.submit(new Runnable() {
+
+				/**
+				 * {@inheritDoc}
+				 */
+				@Override
+				public void run() {
+					schedule();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// The scheduler has been shut down
+			return null;
+		}
+	}
+
+	/**
+	 * Serves the waiting stages in the order of the fair share policy until the instance request of a stage cannot be
+	 * fulfilled. Stages of users who have exhausted their quota are skipped.
+	 */
+	private void schedule() {
+
+		final List<FairJob> waitingJobs;
+		synchronized (this.jobs) {
+			waitingJobs = this.policy.getWaitingJobsInOrder(this.jobs.values());
+		}
+
+		for (final FairJob job : waitingJobs) {
+
+			final ExecutionStage stage;
+			final boolean continuation;
+			final int numberOfSlices;
+
+			synchronized (this.jobs) {
+
+				// The job may have left the scheduler in the meantime
+				if (!this.jobs.containsKey(job.getExecutionGraph().getJobID()) || job.getPendingStage() == null) {
+					continue;
+				}
+
+				stage = job.getPendingStage();
+				continuation = job.isContinuation();
+				numberOfSlices = getMinimumNumberOfSlices(stage);
+
+				if (!this.policy.isWithinQuota(job, this.jobs.values(), numberOfSlices)) {
+					LOG.info("Job " + job.getExecutionGraph().getJobID() + " exceeds the quota of user "
+						+ job.getUser());
+					continue;
+				}
+			}
+
+			try {
+				requestInstances(stage);
+			} catch (InstanceException e) {
+				// Wait until enough slices have been returned, the stages behind this one must wait as well
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("Job " + job.getExecutionGraph().getJobID() + " waits for slices: " + e.getMessage());
+				}
+				return;
+			}
+
+			synchronized (this.jobs) {
+				if (job.getPendingStage() == stage) {
+					job.setPendingStage(null, false);
+				}
+			}
+
+			// Vertices of the new stage may run on instances the job already holds
+			if (continuation) {
+				deployAssignedInputVertices(stage.getExecutionGraph());
+			}
+		}
+	}
+
+	/**
+	 * Returns the minimum number of slices the given stage requires to start.
+	 * 
+	 * @param executionStage
+	 *        the execution stage
+	 * @return the minimum number of slices the stage requires
+	 */
+	private static int getMinimumNumberOfSlices(final ExecutionStage executionStage) {
+
+		final InstanceRequestMap instanceRequestMap = new InstanceRequestMap();
+		synchronized (executionStage) {
+			executionStage.collectRequiredInstanceTypes(instanceRequestMap, ExecutionState.CREATED);
+		}
+
+		int numberOfSlices = 0;
+		final Iterator<Map.Entry<InstanceType, Integer>> it = instanceRequestMap.getMinimumIterator();
+		while (it.hasNext()) {
+			numberOfSlices += it.next().getValue().intValue();
+		}
+
+		return numberOfSlices;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void adjustInstanceRequest(final ExecutionGraph executionGraph,
+			final InstanceRequestMap instanceRequestMap) {
+
+		int remainingQuota;
+		synchronized (this.jobs) {
+
+			final FairJob job = this.jobs.get(executionGraph.getJobID());
+			if (job == null) {
+				return;
+			}
+
+			remainingQuota = this.policy.getRemainingQuota(job, this.jobs.values());
+		}
+
+		if (remainingQuota == Integer.MAX_VALUE) {
+			return;
+		}
+
+		// Never request more than the quota allows, but at least what is required to start the stage
+		final Iterator<Map.Entry<InstanceType, Integer>> it = instanceRequestMap.getMinimumIterator();
+		while (it.hasNext()) {
+
+			final Map.Entry<InstanceType, Integer> entry = it.next();
+			final InstanceType instanceType = entry.getKey();
+			final int minimum = entry.getValue().intValue();
+			final int maximum = Math.max(minimum, Math.min(remainingQuota,
+				instanceRequestMap.getMaximumNumberOfInstances(instanceType)));
+
+			instanceRequestMap.setMaximumNumberOfInstances(instanceType, maximum);
+			remainingQuota = Math.max(0, remainingQuota - maximum);
+		}
+	}
+
+	/**
+	 * Changes the number of slices the job with the given ID holds by the given delta. If slices have been returned,
+	 * a new scheduling pass is triggered.
+	 * 
+	 * @param jobID
+	 *        the ID of the job
+	 * @param delta
+	 *        the number of slices the job has received, negative if it has returned slices
+	 */
+	void slicesChanged(final JobID jobID, final int delta) {
+
+		synchronized (this.jobs) {
+
+			final FairJob job = this.jobs.get(jobID);
+			if (job != null) {
+				job.changeNumberOfSlices(delta);
+			}
+		}
+
+		if (delta < 0) {
+			triggerScheduling();
+		}
+	}
+
+	/**
+	 * Removes the job represented by the given {@link ExecutionGraph} from the scheduler.
+	 * 
+	 * @param executionGraphToRemove
+	 *        the job to be removed
+	 */
+	void removeJobFromSchedule(final ExecutionGraph executionGraphToRemove) {
+
+		final FairJob removedJob;
+		synchronized (this.jobs) {
+			removedJob = this.jobs.remove(executionGraphToRemove.getJobID());
+		}
+
+		if (removedJob == null) {
+			LOG.error("Cannot find job " + executionGraphToRemove.getJobName() + " ("
+				+ executionGraphToRemove.getJobID() + ") to remove");
+			return;
+		}
+
+		// The share of the job's pool has shrunk
+		triggerScheduling();
+	}
+
+	/**
+	 * Checks whether the job with the given ID is currently waiting for slices.
+	 * 
+	 * @param jobID
+	 *        the ID of the job
+	 * @return <code>true</code> if the job is waiting for slices, <code>false</code> otherwise
+	 */
+	boolean isWaiting(final JobID jobID) {
+
+		synchronized (this.jobs) {
+
+			final FairJob job = this.jobs.get(jobID);
+			return (job != null && job.getPendingStage() != null);
+		}
+	}
+
+	/**
+	 * Returns the number of slices the job with the given ID currently holds.
+	 * 
+	 * @param jobID
+	 *        the ID of the job
+	 * @return the number of slices the job currently holds
+	 */
+	int getNumberOfSlices(final JobID jobID) {
+
+		synchronized (this.jobs) {
+
+			final FairJob job = this.jobs.get(jobID);
+			return (job == null) ? 0 : job.getNumberOfSlices();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ExecutionGraph getExecutionGraphByID(final JobID jobID) {
+
+		synchronized (this.jobs) {
+
+			final FairJob job = this.jobs.get(jobID);
+			return (job == null) ? null : job.getExecutionGraph();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void shutdown() {
+
+		synchronized (this.jobs) {
+			this.jobs.clear();
+		}
+
+		this.schedulingService.shutdown();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void jobStatusHasChanged(final ExecutionGraph executionGraph, final InternalJobStatus newJobStatus,
+			final String optionalMessage) {
+
+		if (newJobStatus == InternalJobStatus.FAILED || newJobStatus == InternalJobStatus.FINISHED
+			|| newJobStatus == InternalJobStatus.CANCELED) {
+			removeJobFromSchedule(executionGraph);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void nextExecutionStageEntered(final JobID jobID, final ExecutionStage executionStage) {
+
+		synchronized (this.jobs) {
+
+			final FairJob job = this.jobs.get(jobID);
+			if (job == null) {
+				LOG.error("Cannot find job " + jobID + " to enter the next execution stage");
+				return;
+			}
+
+			job.setPendingStage(executionStage, true);
+		}
+
+		// The instances still requested for the previous stage go back to the waiting jobs
+		if (this.policy.isPreemptive()) {
+			getInstanceManager().cancelPendingRequests(jobID);
+		}
+
+		triggerScheduling();
+	}
+}
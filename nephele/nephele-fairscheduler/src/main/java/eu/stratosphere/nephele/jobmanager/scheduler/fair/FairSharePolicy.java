@@ -0,0 +1,170 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.jobmanager.scheduler.fair;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The fair share policy decides in which order the waiting jobs of the {@link FairScheduler} are served and whether a
+ * job is allowed to request further slices with respect to the quota of its user.
+ * <p>
+ * Waiting jobs are ordered by the number of slices held by their pool divided by the pool's weight, so the pool which
+ * is furthest below its share is served first. Within the same share, jobs with a higher priority precede jobs with a
+ * lower priority, and finally jobs are served in submission order. Unless the policy is preemptive, subsequent stages
+ * of jobs which are already running precede all new jobs, so a running job never has to give up its slices. A
+ * preemptive policy orders subsequent stages like new jobs, so the slices a job returns at the end of a stage are
+ * reclaimed for jobs which are further below their share or have a higher priority.
+ * <p>
+ * This class is thread-safe.
+ */
+final class FairSharePolicy {
+
+	/**
+	 * Indicates whether subsequent stages of running jobs compete with new jobs for slices.
+	 */
+	private final boolean preemptive;
+
+	/**
+	 * Constructs a new fair share policy.
+	 * 
+	 * @param preemptive
+	 *        <code>true</code> if subsequent stages of running jobs shall compete with new jobs for slices
+	 */
+	FairSharePolicy(final boolean preemptive) {
+		this.preemptive = preemptive;
+	}
+
+	/**
+	 * Checks whether subsequent stages of running jobs compete with new jobs for slices.
+	 * 
+	 * @return <code>true</code> if the policy is preemptive, <code>false</code> otherwise
+	 */
+	boolean isPreemptive() {
+		return this.preemptive;
+	}
+
+	/**
+	 * Returns the jobs with a pending stage in the order they shall be served.
+	 * 
+	 * @param jobs
+	 *        all jobs currently managed by the scheduler
+	 * @return the jobs with a pending stage in the order they shall be served
+	 */
+	List<FairJob> getWaitingJobsInOrder(final Collection<FairJob> jobs) {
+
+		final Map<String, Integer> slicesOfPools = new HashMap<String, Integer>();
+		final List<FairJob> waitingJobs = new ArrayList<FairJob>();
+
+		for (final FairJob job : jobs) {
+
+			final Integer slices = slicesOfPools.get(job.getPool());
+			slicesOfPools.put(job.getPool(), Integer.valueOf(job.getNumberOfSlices()
+				+ ((slices == null) ? 0 : slices.intValue())));
+
+			if (job.getPendingStage() != null) {
+				waitingJobs.add(job);
+			}
+		}
+
+		Collections.sort(waitingJobs, new Comparator<FairJob>() {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public int compare(final FairJob o1, final FairJob o2) {
+
+				if (!preemptive && o1.isContinuation() != o2.isContinuation()) {
+					return o1.isContinuation() ? -1 : 1;
+				}
+
+				final double share1 = (double) slicesOfPools.get(o1.getPool()).intValue() / o1.getPoolWeight();
+				final double share2 = (double) slicesOfPools.get(o2.getPool()).intValue() / o2.getPoolWeight();
+				if (share1 != share2) {
+					return (share1 < share2) ? -1 : 1;
+				}
+
+				if (o1.getPriority() != o2.getPriority()) {
+					return (o1.getPriority() > o2.getPriority()) ? -1 : 1;
+				}
+
+				if (o1.getSequenceNumber() != o2.getSequenceNumber()) {
+					return (o1.getSequenceNumber() < o2.getSequenceNumber()) ? -1 : 1;
+				}
+
+				return 0;
+			}
+		});
+
+		return waitingJobs;
+	}
+
+	/**
+	 * Returns the number of slices the given job may still request with respect to the quota of its user.
+	 * 
+	 * @param job
+	 *        the job to check
+	 * @param jobs
+	 *        all jobs currently managed by the scheduler
+	 * @return the number of slices the job may still request or {@link Integer#MAX_VALUE} if the user has no quota
+	 */
+	int getRemainingQuota(final FairJob job, final Collection<FairJob> jobs) {
+
+		if (job.getUserQuota() < 0) {
+			return Integer.MAX_VALUE;
+		}
+
+		int slicesOfUser = 0;
+		for (final FairJob otherJob : jobs) {
+			if (otherJob.getUser().equals(job.getUser())) {
+				slicesOfUser += otherJob.getNumberOfSlices();
+			}
+		}
+
+		return Math.max(0, job.getUserQuota() - slicesOfUser);
+	}
+
+	/**
+	 * Checks whether the given job may request the given number of slices with respect to the quota of its user. A
+	 * user who currently holds no slices at all may always request slices, so jobs which require more slices than the
+	 * quota still make progress.
+	 * 
+	 * @param job
+	 *        the job to check
+	 * @param jobs
+	 *        all jobs currently managed by the scheduler
+	 * @param numberOfSlices
+	 *        the number of slices the job requires
+	 * @return <code>true</code> if the job may request the slices, <code>false</code> otherwise
+	 */
+	boolean isWithinQuota(final FairJob job, final Collection<FairJob> jobs, final int numberOfSlices) {
+
+		if (job.getUserQuota() < 0) {
+			return true;
+		}
+
+		final int remainingQuota = getRemainingQuota(job, jobs);
+
+		return (remainingQuota >= numberOfSlices || remainingQuota == job.getUserQuota());
+	}
+}
@@ -0,0 +1,232 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.jobmanager.scheduler.fair;
+
+import java.util.List;
+import java.util.Map;
+
+import eu.stratosphere.nephele.configuration.Configuration;
+import eu.stratosphere.nephele.instance.AbstractInstance;
+import eu.stratosphere.nephele.instance.AllocatedResource;
+import eu.stratosphere.nephele.instance.HardwareDescription;
+import eu.stratosphere.nephele.instance.InstanceConnectionInfo;
+import eu.stratosphere.nephele.instance.InstanceException;
+import eu.stratosphere.nephele.instance.InstanceListener;
+import eu.stratosphere.nephele.instance.InstanceManager;
+import eu.stratosphere.nephele.instance.InstanceRequestMap;
+import eu.stratosphere.nephele.instance.InstanceType;
+import eu.stratosphere.nephele.instance.InstanceTypeDescription;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.topology.NetworkTopology;
+
+/**
+ * The slice accountant sits between the {@link FairScheduler} and the actual {@link InstanceManager}. It forwards all
+ * calls to the instance manager and reports every slice a job receives, returns or loses to the scheduler, so the
+ * scheduler always knows how many slices each job holds.
+ * <p>
+ * This class is thread-safe.
+ */
+final class SliceAccountant implements InstanceManager, InstanceListener {
+
+	/**
+	 * The instance manager all calls are forwarded to.
+	 */
+	private final InstanceManager instanceManager;
+
+	/**
+	 * The scheduler to report the slices to.
+	 */
+	private volatile FairScheduler scheduler = null;
+
+	/**
+	 * The listener the notifications of the instance manager are forwarded to.
+	 */
+	private volatile InstanceListener instanceListener = null;
+
+	/**
+	 * Constructs a new slice accountant.
+	 * 
+	 * @param instanceManager
+	 *        the instance manager to forward all calls to
+	 */
+	SliceAccountant(final InstanceManager instanceManager) {
+		this.instanceManager = instanceManager;
+	}
+
+	/**
+	 * Sets the scheduler to report the slices to.
+	 * 
+	 * @param scheduler
+	 *        the scheduler to report the slices to
+	 */
+	void setScheduler(final FairScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void resourcesAllocated(final JobID jobID, final List<AllocatedResource> allocatedResources) {
+
+		final FairScheduler fs = this.scheduler;
+		if (fs != null && allocatedResources != null) {
+			fs.slicesChanged(jobID, allocatedResources.size());
+		}
+
+		final InstanceListener il = this.instanceListener;
+		if (il != null) {
+			il.resourcesAllocated(jobID, allocatedResources);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void allocatedResourcesDied(final JobID jobID, final List<AllocatedResource> allocatedResources) {
+
+		final FairScheduler fs = this.scheduler;
+		if (fs != null && allocatedResources != null) {
+			fs.slicesChanged(jobID, -allocatedResources.size());
+		}
+
+		final InstanceListener il = this.instanceListener;
+		if (il != null) {
+			il.allocatedResourcesDied(jobID, allocatedResources);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void requestInstance(final JobID jobID, final Configuration conf,
+			final InstanceRequestMap instanceRequestMap, final List<String> splitAffinityList) throws InstanceException {
+
+		this.instanceManager.requestInstance(jobID, conf, instanceRequestMap, splitAffinityList);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void releaseAllocatedResource(final JobID jobID, final Configuration conf,
+			final AllocatedResource allocatedResource) throws InstanceException {
+
+		this.instanceManager.releaseAllocatedResource(jobID, conf, allocatedResource);
+
+		final FairScheduler fs = this.scheduler;
+		if (fs != null) {
+			fs.slicesChanged(jobID, -1);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public InstanceType getSuitableInstanceType(final int minNumComputeUnits, final int minNumCPUCores,
+			final int minMemorySize, final int minDiskCapacity, final int maxPricePerHour) {
+
+		return this.instanceManager.getSuitableInstanceType(minNumComputeUnits, minNumCPUCores, minMemorySize,
+			minDiskCapacity, maxPricePerHour);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void reportHeartBeat(final InstanceConnectionInfo instanceConnectionInfo,
+			final HardwareDescription hardwareDescription) {
+
+		this.instanceManager.reportHeartBeat(instanceConnectionInfo, hardwareDescription);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public InstanceType getInstanceTypeByName(final String instanceTypeName) {
+
+		return this.instanceManager.getInstanceTypeByName(instanceTypeName);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public InstanceType getDefaultInstanceType() {
+
+		return this.instanceManager.getDefaultInstanceType();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NetworkTopology getNetworkTopology(final JobID jobID) {
+
+		return this.instanceManager.getNetworkTopology(jobID);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setInstanceListener(final InstanceListener instanceListener) {
+
+		this.instanceListener = instanceListener;
+		this.instanceManager.setInstanceListener(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<InstanceType, InstanceTypeDescription> getMapOfAvailableInstanceTypes() {
+
+		return this.instanceManager.getMapOfAvailableInstanceTypes();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public AbstractInstance getInstanceByName(final String name) {
+
+		return this.instanceManager.getInstanceByName(name);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void cancelPendingRequests(final JobID jobID) {
+
+		this.instanceManager.cancelPendingRequests(jobID);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void shutdown() {
+
+		this.instanceManager.shutdown();
+	}
+}
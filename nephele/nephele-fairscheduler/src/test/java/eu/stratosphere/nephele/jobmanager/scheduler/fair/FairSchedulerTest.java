@@ -0,0 +1,575 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.jobmanager.scheduler.fair;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.configuration.Configuration;
+import eu.stratosphere.nephele.configuration.GlobalConfiguration;
+import eu.stratosphere.nephele.execution.ExecutionState;
+import eu.stratosphere.nephele.execution.librarycache.LibraryCacheManager;
+import eu.stratosphere.nephele.executiongraph.ExecutionGraph;
+import eu.stratosphere.nephele.executiongraph.ExecutionVertex;
+import eu.stratosphere.nephele.executiongraph.GraphConversionException;
+import eu.stratosphere.nephele.instance.InstanceException;
+import eu.stratosphere.nephele.instance.InstanceManager;
+import eu.stratosphere.nephele.io.RecordReader;
+import eu.stratosphere.nephele.io.RecordWriter;
+import eu.stratosphere.nephele.io.channels.ChannelType;
+import eu.stratosphere.nephele.jobgraph.JobGraph;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.jobgraph.JobGraphDefinitionException;
+import eu.stratosphere.nephele.jobgraph.JobInputVertex;
+import eu.stratosphere.nephele.jobgraph.JobOutputVertex;
+import eu.stratosphere.nephele.jobmanager.scheduler.SchedulingException;
+import eu.stratosphere.nephele.jobmanager.scheduler.TestCluster;
+import eu.stratosphere.nephele.template.AbstractGenericInputTask;
+import eu.stratosphere.nephele.template.AbstractOutputTask;
+import eu.stratosphere.nephele.types.StringRecord;
+import eu.stratosphere.nephele.util.StringUtils;
+
+/**
+ * This class checks the functionality of the {@link FairScheduler} class by simulating several jobs on a pool of
+ * fake instances.
+ */
+public class FairSchedulerTest {
+
+	/**
+	 * The maximum time to wait for the scheduler to account slices in milliseconds.
+	 */
+	private static final long SLICE_TIMEOUT = 10000L;
+
+	/**
+	 * Test input task.
+	 */
+	public static final class InputTask extends AbstractGenericInputTask {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void registerInputOutput() {
+			new RecordWriter<StringRecord>(this, StringRecord.class);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void invoke() throws Exception {
+			// Nothing to do here
+		}
+	}
+
+	/**
+	 * Test output task.
+	 */
+	public static final class OutputTask extends AbstractOutputTask {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void registerInputOutput() {
+			new RecordReader<StringRecord>(this, StringRecord.class);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void invoke() throws Exception {
+			// Nothing to do here
+		}
+	}
+
+	/**
+	 * Constructs a sample execution graph consisting of pipelines of two vertices connected by an in-memory channel,
+	 * so every pipeline occupies exactly one instance.
+	 * 
+	 * @param numberOfPipelines
+	 *        the number of pipelines of the job
+	 * @param pool
+	 *        the pool the job belongs to
+	 * @param user
+	 *        the user who submits the job
+	 * @param instanceManager
+	 *        the instance manager that shall be used during the creation of the execution graph
+	 * @return a sample execution graph
+	 */
+	private ExecutionGraph createExecutionGraph(final int numberOfPipelines, final String pool, final String user,
+			final InstanceManager instanceManager) {
+
+		final JobGraph jobGraph = new JobGraph("Job Graph");
+		jobGraph.getJobConfiguration().setString("job.scheduler.pool", pool);
+		jobGraph.getJobConfiguration().setString("job.scheduler.user", user);
+
+		for (int i = 0; i < numberOfPipelines; ++i) {
+
+			final JobInputVertex inputVertex = new JobInputVertex("Input " + i, jobGraph);
+			inputVertex.setInputClass(InputTask.class);
+			inputVertex.setNumberOfSubtasks(1);
+
+			final JobOutputVertex outputVertex = new JobOutputVertex("Output " + i, jobGraph);
+			outputVertex.setOutputClass(OutputTask.class);
+			outputVertex.setNumberOfSubtasks(1);
+
+			try {
+				inputVertex.connectTo(outputVertex, ChannelType.INMEMORY);
+			} catch (JobGraphDefinitionException e) {
+				fail(StringUtils.stringifyException(e));
+			}
+		}
+
+		try {
+			LibraryCacheManager.register(jobGraph.getJobID(), new String[0]);
+			return new ExecutionGraph(jobGraph, instanceManager);
+
+		} catch (GraphConversionException e) {
+			fail(StringUtils.stringifyException(e));
+		} catch (IOException e) {
+			fail(StringUtils.stringifyException(e));
+		}
+
+		return null;
+	}
+
+	/**
+	 * Constructs a sample execution graph consisting of a single input vertex connected to the given number of output
+	 * vertices by network channels. The job requires one instance to start and can use one more instance per output
+	 * vertex.
+	 * 
+	 * @param numberOfReceivers
+	 *        the number of output vertices of the job
+	 * @param pool
+	 *        the pool the job belongs to
+	 * @param user
+	 *        the user who submits the job
+	 * @param instanceManager
+	 *        the instance manager that shall be used during the creation of the execution graph
+	 * @return a sample execution graph
+	 */
+	private ExecutionGraph createNetworkExecutionGraph(final int numberOfReceivers, final String pool,
+			final String user, final InstanceManager instanceManager) {
+
+		final JobGraph jobGraph = new JobGraph("Network Job Graph");
+		jobGraph.getJobConfiguration().setString("job.scheduler.pool", pool);
+		jobGraph.getJobConfiguration().setString("job.scheduler.user", user);
+
+		final JobInputVertex inputVertex = new JobInputVertex("Input", jobGraph);
+		inputVertex.setInputClass(InputTask.class);
+		inputVertex.setNumberOfSubtasks(1);
+
+		final JobOutputVertex outputVertex = new JobOutputVertex("Output", jobGraph);
+		outputVertex.setOutputClass(OutputTask.class);
+		outputVertex.setNumberOfSubtasks(numberOfReceivers);
+
+		try {
+			inputVertex.connectTo(outputVertex, ChannelType.NETWORK);
+			LibraryCacheManager.register(jobGraph.getJobID(), new String[0]);
+			return new ExecutionGraph(jobGraph, instanceManager);
+
+		} catch (JobGraphDefinitionException e) {
+			fail(StringUtils.stringifyException(e));
+		} catch (GraphConversionException e) {
+			fail(StringUtils.stringifyException(e));
+		} catch (IOException e) {
+			fail(StringUtils.stringifyException(e));
+		}
+
+		return null;
+	}
+
+	/**
+	 * Simulates the life cycle of the given vertices up to the state <code>FINISHED</code>.
+	 * 
+	 * @param vertices
+	 *        the vertices to finish
+	 */
+	private static void finishVertices(final List<ExecutionVertex> vertices) {
+
+		for (final ExecutionVertex vertex : vertices) {
+			vertex.updateExecutionState(ExecutionState.STARTING);
+			vertex.updateExecutionState(ExecutionState.RUNNING);
+			vertex.updateExecutionState(ExecutionState.FINISHING);
+			vertex.updateExecutionState(ExecutionState.FINISHED);
+		}
+	}
+
+	/**
+	 * Waits until all scheduling passes triggered so far have been completed.
+	 * 
+	 * @param scheduler
+	 *        the scheduler to wait for
+	 */
+	private static void waitForSchedulingPass(final FairScheduler scheduler) {
+
+		try {
+			scheduler.triggerScheduling().get();
+		} catch (InterruptedException e) {
+			fail(StringUtils.stringifyException(e));
+		} catch (ExecutionException e) {
+			fail(StringUtils.stringifyException(e));
+		}
+	}
+
+	/**
+	 * Waits until the scheduler has accounted the given number of slices to the given job or the timeout expired.
+	 * 
+	 * @param scheduler
+	 *        the scheduler to wait for
+	 * @param jobID
+	 *        the ID of the job
+	 * @param numberOfSlices
+	 *        the number of slices to wait for
+	 */
+	private static void waitForSlices(final FairScheduler scheduler, final JobID jobID, final int numberOfSlices) {
+
+		final long deadline = System.currentTimeMillis() + SLICE_TIMEOUT;
+		while (scheduler.getNumberOfSlices(jobID) != numberOfSlices && System.currentTimeMillis() < deadline) {
+			try {
+				Thread.sleep(10L);
+			} catch (InterruptedException e) {
+				fail(StringUtils.stringifyException(e));
+			}
+		}
+
+		assertEquals(numberOfSlices, scheduler.getNumberOfSlices(jobID));
+	}
+
+	/**
+	 * Unregisters the given jobs from the library cache manager.
+	 * 
+	 * @param executionGraphs
+	 *        the jobs to unregister
+	 */
+	private static void unregister(final ExecutionGraph... executionGraphs) {
+
+		for (final ExecutionGraph executionGraph : executionGraphs) {
+			try {
+				LibraryCacheManager.unregister(executionGraph.getJobID());
+			} catch (IOException ioe) {
+				// Ignore exception here
+			}
+		}
+	}
+
+	/**
+	 * Checks that a job of a pool without any slices overtakes a waiting job of a pool which already holds slices and
+	 * that the waiting job is served as soon as enough slices have been returned.
+	 */
+	@Test
+	public void testPoolsShareSlices() {
+
+		final TestCluster cluster = new TestCluster(8);
+		final FairScheduler scheduler = new FairScheduler(cluster, cluster);
+
+		final ExecutionGraph batchGraph = createExecutionGraph(4, "batch", "alice", cluster);
+		final ExecutionGraph largeBatchGraph = createExecutionGraph(6, "batch", "alice", cluster);
+		final ExecutionGraph interactiveGraph = createExecutionGraph(4, "interactive", "bob", cluster);
+
+		try {
+			try {
+				scheduler.schedulJob(batchGraph);
+				final List<ExecutionVertex> batchVertices = cluster.waitForDeployment(batchGraph.getJobID(), 8);
+				assertEquals(8, batchVertices.size());
+				waitForSchedulingPass(scheduler);
+				assertEquals(4, scheduler.getNumberOfSlices(batchGraph.getJobID()));
+
+				// The large job does not fit and blocks the queue until the interactive job is submitted
+				scheduler.schedulJob(largeBatchGraph);
+				waitForSchedulingPass(scheduler);
+				assertTrue(scheduler.isWaiting(largeBatchGraph.getJobID()));
+
+				scheduler.schedulJob(interactiveGraph);
+				final List<ExecutionVertex> interactiveVertices = cluster.waitForDeployment(interactiveGraph.getJobID(),
+					8);
+				assertEquals(8, interactiveVertices.size());
+				assertTrue(scheduler.isWaiting(largeBatchGraph.getJobID()));
+				assertEquals(0, cluster.getDeployedVertices(largeBatchGraph.getJobID()).size());
+
+				// Four free slices are not enough for the large job
+				finishVertices(interactiveVertices);
+				waitForSchedulingPass(scheduler);
+				assertTrue(scheduler.isWaiting(largeBatchGraph.getJobID()));
+				assertEquals(null, scheduler.getExecutionGraphByID(interactiveGraph.getJobID()));
+
+				finishVertices(batchVertices);
+				final List<ExecutionVertex> largeBatchVertices = cluster.waitForDeployment(largeBatchGraph.getJobID(),
+					12);
+				assertEquals(12, largeBatchVertices.size());
+				assertFalse(scheduler.isWaiting(largeBatchGraph.getJobID()));
+
+				finishVertices(largeBatchVertices);
+				assertEquals(14, cluster.getNumberOfReturnedSlices());
+
+			} catch (SchedulingException e) {
+				fail(StringUtils.stringifyException(e));
+			}
+		} finally {
+			scheduler.shutdown();
+			unregister(batchGraph, largeBatchGraph, interactiveGraph);
+		}
+	}
+
+	/**
+	 * Checks that the jobs of a user never hold more slices than the user's quota, although free slices are
+	 * available.
+	 */
+	@Test
+	public void testUserQuota() {
+
+		final Configuration conf = new Configuration();
+		conf.setInteger("jobmanager.scheduler.fair.user.quotauser.quota", 2);
+		GlobalConfiguration.includeConfiguration(conf);
+
+		final TestCluster cluster = new TestCluster(8);
+		final FairScheduler scheduler = new FairScheduler(cluster, cluster);
+
+		final ExecutionGraph firstGraph = createExecutionGraph(2, "default", "quotauser", cluster);
+		final ExecutionGraph secondGraph = createExecutionGraph(2, "default", "quotauser", cluster);
+
+		try {
+			try {
+				scheduler.schedulJob(firstGraph);
+				final List<ExecutionVertex> firstVertices = cluster.waitForDeployment(firstGraph.getJobID(), 4);
+				assertEquals(4, firstVertices.size());
+				waitForSchedulingPass(scheduler);
+				assertEquals(2, scheduler.getNumberOfSlices(firstGraph.getJobID()));
+
+				scheduler.schedulJob(secondGraph);
+				waitForSchedulingPass(scheduler);
+				assertTrue(scheduler.isWaiting(secondGraph.getJobID()));
+				assertEquals(0, cluster.getDeployedVertices(secondGraph.getJobID()).size());
+
+				finishVertices(firstVertices);
+				final List<ExecutionVertex> secondVertices = cluster.waitForDeployment(secondGraph.getJobID(), 4);
+				assertEquals(4, secondVertices.size());
+				assertFalse(scheduler.isWaiting(secondGraph.getJobID()));
+
+				finishVertices(secondVertices);
+				assertEquals(4, cluster.getNumberOfReturnedSlices());
+
+			} catch (SchedulingException e) {
+				fail(StringUtils.stringifyException(e));
+			}
+		} finally {
+			scheduler.shutdown();
+			unregister(firstGraph, secondGraph);
+		}
+	}
+
+	/**
+	 * Checks that a slice returned by a running job serves the job's outstanding request of the previous stage if
+	 * stages are not preempted.
+	 */
+	@Test
+	public void testStageBoundaryWithoutPreemption() {
+
+		final TestCluster cluster = new TestCluster(2);
+		final FairScheduler scheduler = new FairScheduler(cluster, cluster);
+
+		final ExecutionGraph runningGraph = createNetworkExecutionGraph(2, "batch", "alice", cluster);
+		final ExecutionGraph waitingGraph = createExecutionGraph(1, "interactive", "bob", cluster);
+
+		try {
+			enterStageWithOutstandingRequest(scheduler, cluster, runningGraph, waitingGraph);
+
+			// The outstanding request survives the stage boundary and receives the returned slice
+			assertEquals(0, cluster.getNumberOfCancelCalls());
+			assertEquals(1, cluster.getNumberOfPendingSlices(runningGraph.getJobID()));
+
+			returnSlice(scheduler, cluster, runningGraph);
+			waitForSchedulingPass(scheduler);
+
+			assertEquals(0, cluster.getNumberOfPendingSlices(runningGraph.getJobID()));
+			assertEquals(2, cluster.getNumberOfAllocatedSlices(runningGraph.getJobID()));
+			assertEquals(0, cluster.getNumberOfAllocatedSlices(waitingGraph.getJobID()));
+			assertTrue(scheduler.isWaiting(waitingGraph.getJobID()));
+
+		} catch (SchedulingException e) {
+			fail(StringUtils.stringifyException(e));
+		} finally {
+			scheduler.shutdown();
+			unregister(runningGraph, waitingGraph);
+		}
+	}
+
+	/**
+	 * Checks that with preemption enabled, the outstanding request of a running job is canceled at the job's next
+	 * stage boundary, so a returned slice goes to a waiting job of a pool with a smaller share.
+	 */
+	@Test
+	public void testPreemptionAtStageBoundary() {
+
+		final Configuration conf = new Configuration();
+		conf.setBoolean("jobmanager.scheduler.fair.preemption", true);
+		GlobalConfiguration.includeConfiguration(conf);
+
+		final TestCluster cluster = new TestCluster(2);
+		final FairScheduler scheduler = new FairScheduler(cluster, cluster);
+
+		// Make sure the other tests run without preemption
+		conf.setBoolean("jobmanager.scheduler.fair.preemption", false);
+		GlobalConfiguration.includeConfiguration(conf);
+
+		final ExecutionGraph runningGraph = createNetworkExecutionGraph(2, "batch", "alice", cluster);
+		final ExecutionGraph waitingGraph = createExecutionGraph(1, "interactive", "bob", cluster);
+
+		try {
+			enterStageWithOutstandingRequest(scheduler, cluster, runningGraph, waitingGraph);
+
+			assertEquals(1, cluster.getNumberOfCancelCalls());
+			assertEquals(0, cluster.getNumberOfPendingSlices(runningGraph.getJobID()));
+
+			// The returned slice is free again and the waiting job overtakes the running one
+			returnSlice(scheduler, cluster, runningGraph);
+
+			final List<ExecutionVertex> waitingVertices = cluster.waitForDeployment(waitingGraph.getJobID(), 2);
+			assertEquals(2, waitingVertices.size());
+			assertFalse(scheduler.isWaiting(waitingGraph.getJobID()));
+			assertEquals(1, cluster.getNumberOfAllocatedSlices(runningGraph.getJobID()));
+			assertEquals(1, cluster.getNumberOfAllocatedSlices(waitingGraph.getJobID()));
+
+		} catch (SchedulingException e) {
+			fail(StringUtils.stringifyException(e));
+		} finally {
+			scheduler.shutdown();
+			unregister(runningGraph, waitingGraph);
+		}
+	}
+
+	/**
+	 * Schedules the given running job, which receives all slices of the cluster but still waits for one more, then
+	 * schedules the given waiting job and lets the running job enter its next stage.
+	 * 
+	 * @param scheduler
+	 *        the scheduler
+	 * @param cluster
+	 *        the cluster of the scheduler
+	 * @param runningGraph
+	 *        the job which holds the slices
+	 * @param waitingGraph
+	 *        the job which waits for a slice
+	 * @throws SchedulingException
+	 *         thrown if one of the jobs cannot be scheduled
+	 */
+	private static void enterStageWithOutstandingRequest(final FairScheduler scheduler, final TestCluster cluster,
+			final ExecutionGraph runningGraph, final ExecutionGraph waitingGraph) throws SchedulingException {
+
+		scheduler.schedulJob(runningGraph);
+		waitForSchedulingPass(scheduler);
+		assertEquals(2, cluster.getNumberOfAllocatedSlices(runningGraph.getJobID()));
+		assertEquals(1, cluster.getNumberOfPendingSlices(runningGraph.getJobID()));
+		waitForSlices(scheduler, runningGraph.getJobID(), 2);
+
+		scheduler.schedulJob(waitingGraph);
+		waitForSchedulingPass(scheduler);
+		assertTrue(scheduler.isWaiting(waitingGraph.getJobID()));
+
+		scheduler.nextExecutionStageEntered(runningGraph.getJobID(), runningGraph.getCurrentExecutionStage());
+		waitForSchedulingPass(scheduler);
+	}
+
+	/**
+	 * Lets the given job return one of its slices through the scheduler.
+	 * 
+	 * @param scheduler
+	 *        the scheduler
+	 * @param cluster
+	 *        the cluster of the scheduler
+	 * @param executionGraph
+	 *        the job which returns the slice
+	 */
+	private static void returnSlice(final FairScheduler scheduler, final TestCluster cluster,
+			final ExecutionGraph executionGraph) {
+
+		try {
+			scheduler.getInstanceManager().releaseAllocatedResource(executionGraph.getJobID(),
+				executionGraph.getJobConfiguration(), cluster.getAllocatedResources(executionGraph.getJobID()).get(0));
+		} catch (InstanceException e) {
+			fail(StringUtils.stringifyException(e));
+		}
+
+		assertEquals(1, cluster.getNumberOfReturnedSlices());
+	}
+
+	/**
+	 * Checks that the quota of a user covers the slices of all the user's jobs, limits the instance requests of later
+	 * jobs of the user and does not hold back the jobs of other users.
+	 */
+	@Test
+	public void testUserQuotaAcrossJobs() {
+
+		final Configuration conf = new Configuration();
+		conf.setInteger("jobmanager.scheduler.fair.user.sharer.quota", 3);
+		GlobalConfiguration.includeConfiguration(conf);
+
+		final TestCluster cluster = new TestCluster(8);
+		final FairScheduler scheduler = new FairScheduler(cluster, cluster);
+
+		final ExecutionGraph firstGraph = createExecutionGraph(2, "default", "sharer", cluster);
+		final ExecutionGraph networkGraph = createNetworkExecutionGraph(3, "default", "sharer", cluster);
+		final ExecutionGraph thirdGraph = createExecutionGraph(1, "default", "sharer", cluster);
+		final ExecutionGraph otherGraph = createExecutionGraph(1, "default", "other", cluster);
+
+		try {
+			try {
+				scheduler.schedulJob(firstGraph);
+				final List<ExecutionVertex> firstVertices = cluster.waitForDeployment(firstGraph.getJobID(), 4);
+				assertEquals(4, firstVertices.size());
+				waitForSlices(scheduler, firstGraph.getJobID(), 2);
+
+				// The second job could use four slices, but the quota leaves only one
+				scheduler.schedulJob(networkGraph);
+				waitForSchedulingPass(scheduler);
+				assertEquals(1, cluster.getNumberOfAllocatedSlices(networkGraph.getJobID()));
+				assertEquals(0, cluster.getNumberOfPendingSlices(networkGraph.getJobID()));
+				waitForSlices(scheduler, networkGraph.getJobID(), 1);
+
+				// The quota is exhausted, but the job of the other user is served anyway
+				scheduler.schedulJob(thirdGraph);
+				scheduler.schedulJob(otherGraph);
+				assertEquals(2, cluster.waitForDeployment(otherGraph.getJobID(), 2).size());
+				assertTrue(scheduler.isWaiting(thirdGraph.getJobID()));
+				assertEquals(0, cluster.getDeployedVertices(thirdGraph.getJobID()).size());
+				assertEquals(4, cluster.getNumberOfFreeSlices());
+
+				// Slices returned by one job of the user are available to the user's other jobs
+				finishVertices(firstVertices);
+				assertEquals(2, cluster.waitForDeployment(thirdGraph.getJobID(), 2).size());
+				assertFalse(scheduler.isWaiting(thirdGraph.getJobID()));
+				assertEquals(1, cluster.getNumberOfAllocatedSlices(thirdGraph.getJobID()));
+
+			} catch (SchedulingException e) {
+				fail(StringUtils.stringifyException(e));
+			}
+		} finally {
+			scheduler.shutdown();
+			unregister(firstGraph, networkGraph, thirdGraph, otherGraph);
+		}
+	}
+}
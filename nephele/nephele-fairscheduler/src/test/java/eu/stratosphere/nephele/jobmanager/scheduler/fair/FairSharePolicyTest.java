@@ -0,0 +1,159 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.jobmanager.scheduler.fair;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.executiongraph.ExecutionStage;
+
+/**
+ * This class contains tests for the order and the quotas computed by the {@link FairSharePolicy}.
+ */
+public class FairSharePolicyTest {
+
+	/**
+	 * The sequence number of the next job created by {@link #createJob(String, int, String, int, int, int)}.
+	 */
+	private long nextSequenceNumber = 0L;
+
+	/**
+	 * Creates a new job which holds the given number of slices.
+	 * 
+	 * @param pool
+	 *        the pool of the job
+	 * @param poolWeight
+	 *        the weight of the job's pool
+	 * @param user
+	 *        the user of the job
+	 * @param userQuota
+	 *        the quota of the job's user
+	 * @param priority
+	 *        the priority of the job
+	 * @param numberOfSlices
+	 *        the number of slices the job holds
+	 * @return the new job
+	 */
+	private FairJob createJob(final String pool, final int poolWeight, final String user, final int userQuota,
+			final int priority, final int numberOfSlices) {
+
+		final FairJob job = new FairJob(null, pool, poolWeight, user, userQuota, priority, this.nextSequenceNumber++);
+		job.changeNumberOfSlices(numberOfSlices);
+
+		return job;
+	}
+
+	/**
+	 * Checks that waiting jobs are ordered by the share of their pool, then by priority and finally by submission
+	 * order, and that jobs without a pending stage are not returned.
+	 */
+	@Test
+	public void testOrderOfWaitingJobs() {
+
+		final List<FairJob> jobs = new ArrayList<FairJob>();
+
+		// Pool "a" holds 6 slices with weight 3, pool "b" holds 4 slices with weight 1
+		final FairJob runningA = createJob("a", 3, "user", -1, 0, 6);
+		final FairJob runningB = createJob("b", 1, "user", -1, 0, 4);
+		final FairJob waitingB = createJob("b", 1, "user", -1, 0, 0);
+		final FairJob waitingA = createJob("a", 3, "user", -1, 0, 0);
+		final FairJob waitingAHighPriority = createJob("a", 3, "user", -1, 5, 0);
+		final FairJob waitingC = createJob("c", 1, "user", -1, 0, 0);
+
+		waitingB.setPendingStage(new ExecutionStage(null, 0), false);
+		waitingA.setPendingStage(new ExecutionStage(null, 0), false);
+		waitingAHighPriority.setPendingStage(new ExecutionStage(null, 0), false);
+		waitingC.setPendingStage(new ExecutionStage(null, 0), false);
+
+		jobs.add(runningA);
+		jobs.add(runningB);
+		jobs.add(waitingB);
+		jobs.add(waitingA);
+		jobs.add(waitingAHighPriority);
+		jobs.add(waitingC);
+
+		final List<FairJob> order = new FairSharePolicy(false).getWaitingJobsInOrder(jobs);
+		assertEquals(4, order.size());
+		assertEquals(waitingC, order.get(0));
+		assertEquals(waitingAHighPriority, order.get(1));
+		assertEquals(waitingA, order.get(2));
+		assertEquals(waitingB, order.get(3));
+	}
+
+	/**
+	 * Checks that subsequent stages of running jobs precede new jobs unless the policy is preemptive.
+	 */
+	@Test
+	public void testPreemption() {
+
+		final List<FairJob> jobs = new ArrayList<FairJob>();
+
+		final FairJob running = createJob("batch", 1, "user", -1, 0, 8);
+		final FairJob waiting = createJob("interactive", 1, "user", -1, 0, 0);
+
+		running.setPendingStage(new ExecutionStage(null, 1), true);
+		waiting.setPendingStage(new ExecutionStage(null, 0), false);
+
+		jobs.add(running);
+		jobs.add(waiting);
+
+		List<FairJob> order = new FairSharePolicy(false).getWaitingJobsInOrder(jobs);
+		assertEquals(running, order.get(0));
+		assertEquals(waiting, order.get(1));
+
+		order = new FairSharePolicy(true).getWaitingJobsInOrder(jobs);
+		assertEquals(waiting, order.get(0));
+		assertEquals(running, order.get(1));
+	}
+
+	/**
+	 * Checks the computation of the remaining quota of a user.
+	 */
+	@Test
+	public void testUserQuota() {
+
+		final FairSharePolicy policy = new FairSharePolicy(false);
+		final List<FairJob> jobs = new ArrayList<FairJob>();
+
+		final FairJob first = createJob("default", 1, "alice", 4, 0, 3);
+		final FairJob second = createJob("default", 1, "alice", 4, 0, 0);
+		final FairJob other = createJob("default", 1, "bob", 2, 0, 0);
+		final FairJob unlimited = createJob("default", 1, "carol", -1, 0, 100);
+
+		jobs.add(first);
+		jobs.add(second);
+		jobs.add(other);
+		jobs.add(unlimited);
+
+		assertEquals(1, policy.getRemainingQuota(second, jobs));
+		assertTrue(policy.isWithinQuota(second, jobs, 1));
+		assertFalse(policy.isWithinQuota(second, jobs, 2));
+
+		// A user without any slices may exceed the quota to make progress
+		assertEquals(2, policy.getRemainingQuota(other, jobs));
+		assertTrue(policy.isWithinQuota(other, jobs, 5));
+
+		assertEquals(Integer.MAX_VALUE, policy.getRemainingQuota(unlimited, jobs));
+		assertTrue(policy.isWithinQuota(unlimited, jobs, 1000));
+	}
+}
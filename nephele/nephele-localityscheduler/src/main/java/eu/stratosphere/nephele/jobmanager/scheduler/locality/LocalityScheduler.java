@@ -0,0 +1,718 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.jobmanager.scheduler.locality;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import eu.stratosphere.nephele.configuration.GlobalConfiguration;
+import eu.stratosphere.nephele.execution.ExecutionState;
+import eu.stratosphere.nephele.executiongraph.ExecutionGraph;
+import eu.stratosphere.nephele.executiongraph.ExecutionGraphIterator;
+import eu.stratosphere.nephele.executiongraph.ExecutionGroupVertex;
+import eu.stratosphere.nephele.executiongraph.ExecutionGroupVertexIterator;
+import eu.stratosphere.nephele.executiongraph.ExecutionStage;
+import eu.stratosphere.nephele.executiongraph.ExecutionStageListener;
+import eu.stratosphere.nephele.executiongraph.ExecutionVertex;
+import eu.stratosphere.nephele.executiongraph.InternalJobStatus;
+import eu.stratosphere.nephele.executiongraph.JobStatusListener;
+import eu.stratosphere.nephele.instance.AbstractInstance;
+import eu.stratosphere.nephele.instance.AllocatedResource;
+import eu.stratosphere.nephele.instance.DummyInstance;
+import eu.stratosphere.nephele.instance.InstanceException;
+import eu.stratosphere.nephele.instance.InstanceManager;
+import eu.stratosphere.nephele.instance.InstanceRequestMap;
+import eu.stratosphere.nephele.instance.InstanceType;
+import eu.stratosphere.nephele.instance.InstanceTypeDescription;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.jobmanager.DeploymentManager;
+import eu.stratosphere.nephele.jobmanager.scheduler.AbstractScheduler;
+import eu.stratosphere.nephele.jobmanager.scheduler.SchedulingException;
+import eu.stratosphere.nephele.profiling.ProfilingListener;
+import eu.stratosphere.nephele.profiling.types.ProfilingEvent;
+import eu.stratosphere.nephele.profiling.types.SingleInstanceProfilingEvent;
+import eu.stratosphere.nephele.util.StringUtils;
+
+/**
+ * The locality scheduler runs several jobs at a time and places their vertices with respect to the locality of their
+ * input splits, the network topology and the load of the instances.
+ * <p>
+ * Up to a configurable number of jobs are admitted at once. While more than one job is admitted, each job requests at
+ * most its fair share of every instance type, i.e. the number of instances of that type divided by the number of
+ * admitted jobs, but at least the minimum number of instances it requires to start. The remaining demand is deferred
+ * and requested as soon as another job leaves the scheduler. Jobs which cannot be admitted, either because the
+ * maximum number of jobs is reached or because their minimum request cannot be fulfilled while other jobs are
+ * running, wait in a queue and are admitted in submission order. Likewise, if the instance request of a later
+ * execution stage cannot be fulfilled while other jobs are running, the stage waits until instances are returned.
+ * <p>
+ * Whenever an instance is allocated for a job, the scheduler rates every set of scheduled vertices of the current
+ * stage which could be moved to it with a {@link PlacementScorer} and picks the best one. The load of the instances is
+ * taken from the profiling data of the jobs, so it is only considered for jobs which run with profiling enabled.
+ * <p>
+ * This class is thread-safe.
+ */
+public class LocalityScheduler extends AbstractScheduler implements JobStatusListener, ExecutionStageListener,
+		ProfilingListener {
+
+	/**
+	 * The default maximum number of jobs admitted at the same time.
+	 */
+	private static final int DEFAULT_MAXIMUM_NUMBER_OF_JOBS = 4;
+
+	/**
+	 * The default weight of the input split locality.
+	 */
+	private static final int DEFAULT_LOCALITY_WEIGHT = 100;
+
+	/**
+	 * The default weight of the network proximity to connected vertices.
+	 */
+	private static final int DEFAULT_NETWORK_WEIGHT = 50;
+
+	/**
+	 * The default weight of the load penalty.
+	 */
+	private static final int DEFAULT_LOAD_WEIGHT = 25;
+
+	/**
+	 * The maximum number of placement candidates rated per group vertex for a newly allocated instance.
+	 */
+	private static final int MAXIMUM_NUMBER_OF_CANDIDATES_PER_GROUP = 8;
+
+	/**
+	 * The jobs currently admitted for execution.
+	 */
+	private final List<ExecutionGraph> admittedJobs = new ArrayList<ExecutionGraph>();
+
+	/**
+	 * The jobs waiting to be admitted, in submission order. Protected by the lock of <code>admittedJobs</code>.
+	 */
+	private final Deque<ExecutionGraph> waitingJobs = new ArrayDeque<ExecutionGraph>();
+
+	/**
+	 * The number of instances per type each admitted job has not requested yet because of its fair share. Protected
+	 * by the lock of <code>admittedJobs</code>.
+	 */
+	private final Map<JobID, Map<InstanceType, Integer>> deferredRequests = new HashMap<JobID, Map<InstanceType, Integer>>();
+
+	/**
+	 * The execution stages of admitted jobs whose instance request could not be fulfilled yet, in the order they were
+	 * entered. Protected by the lock of <code>admittedJobs</code>.
+	 */
+	private final Map<JobID, ExecutionStage> waitingStages = new LinkedHashMap<JobID, ExecutionStage>();
+
+	/**
+	 * The maximum number of jobs admitted at the same time.
+	 */
+	private final int maximumNumberOfJobs;
+
+	/**
+	 * The scorer to rate the placement of vertices on instances.
+	 */
+	private final PlacementScorer placementScorer;
+
+	/**
+	 * Constructs a new locality scheduler.
+	 * 
+	 * @param deploymentManager
+	 *        the deployment manager assigned to this scheduler
+	 * @param instanceManager
+	 *        the instance manager to be used with this scheduler
+	 */
+	public LocalityScheduler(final DeploymentManager deploymentManager, final InstanceManager instanceManager) {
+		super(deploymentManager, instanceManager);
+
+		this.maximumNumberOfJobs = Math.max(1, GlobalConfiguration.getInteger("jobmanager.scheduler.locality.maxjobs",
+			DEFAULT_MAXIMUM_NUMBER_OF_JOBS));
+
+		this.placementScorer = new PlacementScorer(GlobalConfiguration.getInteger(
+			"jobmanager.scheduler.locality.localityweight", DEFAULT_LOCALITY_WEIGHT), GlobalConfiguration.getInteger(
+			"jobmanager.scheduler.locality.networkweight", DEFAULT_NETWORK_WEIGHT), GlobalConfiguration.getInteger(
+			"jobmanager.scheduler.locality.loadweight", DEFAULT_LOAD_WEIGHT));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void schedulJob(final ExecutionGraph executionGraph) throws SchedulingException {
+
+		// Get Map of all available Instance types
+		final Map<InstanceType, InstanceTypeDescription> availableInstances = getInstanceManager()
+				.getMapOfAvailableInstanceTypes();
+
+		final Iterator<ExecutionStage> stageIt = executionGraph.iterator();
+		while (stageIt.hasNext()) {
+
+			final InstanceRequestMap instanceRequestMap = new InstanceRequestMap();
+			final ExecutionStage stage = stageIt.next();
+			stage.collectRequiredInstanceTypes(instanceRequestMap, ExecutionState.CREATED);
+
+			// Iterator over required Instances
+			final Iterator<Map.Entry<InstanceType, Integer>> it = instanceRequestMap.getMinimumIterator();
+			while (it.hasNext()) {
+
+				final Map.Entry<InstanceType, Integer> entry = it.next();
+
+				final InstanceTypeDescription descr = availableInstances.get(entry.getKey());
+				if (descr == null) {
+					throw new SchedulingException("Unable to schedule job: No instance of type " + entry.getKey()
+							+ " available");
+				}
+
+				if (descr.getMaximumNumberOfAvailableInstances() != -1
+						&& descr.getMaximumNumberOfAvailableInstances() < entry.getValue().intValue()) {
+					throw new SchedulingException("Unable to schedule job: " + entry.getValue().intValue()
+							+ " instances of type " + entry.getKey() + " required, but only "
+							+ descr.getMaximumNumberOfAvailableInstances() + " are available");
+				}
+			}
+		}
+
+		// Subscribe to job status notifications
+		executionGraph.registerJobStatusListener(this);
+
+		// Register execution listener for each vertex
+		final ExecutionGraphIterator it2 = new ExecutionGraphIterator(executionGraph, true);
+		while (it2.hasNext()) {
+
+			final ExecutionVertex vertex = it2.next();
+			vertex.registerExecutionListener(new LocalityExecutionListener(this, vertex));
+		}
+
+		// Register the scheduler as an execution stage listener
+		executionGraph.registerExecutionStageListener(this);
+
+		// Jobs submitted earlier have precedence, so only admit the job right away if nobody is waiting
+		synchronized (this.admittedJobs) {
+
+			if (!this.waitingJobs.isEmpty() || this.admittedJobs.size() >= this.maximumNumberOfJobs) {
+				this.waitingJobs.add(executionGraph);
+				LOG.info("Job " + executionGraph.getJobID() + " is waiting to be admitted");
+				return;
+			}
+
+			// Add job to the admitted jobs (important to add job before requesting instances)
+			this.admittedJobs.add(executionGraph);
+		}
+
+		// Request resources for the first stage of the job
+		try {
+			requestInstances(executionGraph.getCurrentExecutionStage());
+		} catch (InstanceException e) {
+
+			synchronized (this.admittedJobs) {
+
+				this.admittedJobs.remove(executionGraph);
+				this.deferredRequests.remove(executionGraph.getJobID());
+
+				// The request may be fulfilled once the other jobs have returned their instances
+				if (!this.admittedJobs.isEmpty()) {
+					this.waitingJobs.addFirst(executionGraph);
+					LOG.info("Job " + executionGraph.getJobID() + " is waiting for instances to become available");
+					return;
+				}
+			}
+
+			final String exceptionMessage = StringUtils.stringifyException(e);
+			LOG.error(exceptionMessage);
+			throw new SchedulingException(exceptionMessage);
+		}
+	}
+
+	/**
+	 * Removes the job represented by the given {@link ExecutionGraph} from the scheduler and admits waiting jobs if
+	 * possible.
+	 * 
+	 * @param executionGraphToRemove
+	 *        the job to be removed
+	 */
+	void removeJobFromSchedule(final ExecutionGraph executionGraphToRemove) {
+
+		boolean removedFromAdmittedJobs = false;
+		boolean removedFromWaitingJobs = false;
+
+		synchronized (this.admittedJobs) {
+
+			removedFromAdmittedJobs = this.admittedJobs.remove(executionGraphToRemove);
+			removedFromWaitingJobs = this.waitingJobs.remove(executionGraphToRemove);
+			this.deferredRequests.remove(executionGraphToRemove.getJobID());
+			this.waitingStages.remove(executionGraphToRemove.getJobID());
+		}
+
+		if (!removedFromAdmittedJobs && !removedFromWaitingJobs) {
+			LOG.error("Cannot find job " + executionGraphToRemove.getJobName() + " ("
+				+ executionGraphToRemove.getJobID() + ") to remove");
+			return;
+		}
+
+		// The fair share of the remaining jobs has grown, stages of running jobs go first
+		if (removedFromAdmittedJobs) {
+			requestWaitingStages();
+			requestDeferredInstances();
+			admitWaitingJobs();
+		}
+	}
+
+	/**
+	 * Admits waiting jobs in submission order until either the maximum number of jobs is reached or the instance
+	 * request of the next job cannot be fulfilled.
+	 */
+	private void admitWaitingJobs() {
+
+		while (true) {
+
+			final ExecutionGraph executionGraph;
+			synchronized (this.admittedJobs) {
+
+				if (this.waitingJobs.isEmpty() || this.admittedJobs.size() >= this.maximumNumberOfJobs) {
+					return;
+				}
+
+				executionGraph = this.waitingJobs.poll();
+				this.admittedJobs.add(executionGraph);
+			}
+
+			LOG.info("Admitting job " + executionGraph.getJobID());
+
+			try {
+				requestInstances(executionGraph.getCurrentExecutionStage());
+			} catch (InstanceException e) {
+
+				synchronized (this.admittedJobs) {
+
+					this.admittedJobs.remove(executionGraph);
+					this.deferredRequests.remove(executionGraph.getJobID());
+
+					if (!this.admittedJobs.isEmpty()) {
+						this.waitingJobs.addFirst(executionGraph);
+						return;
+					}
+				}
+
+				// Even an idle cluster cannot run the job
+				final String exceptionMessage = StringUtils.stringifyException(e);
+				LOG.error(exceptionMessage);
+				executionGraph.updateJobStatus(InternalJobStatus.FAILING, exceptionMessage);
+				executionGraph.updateJobStatus(InternalJobStatus.FAILED, null);
+			}
+		}
+	}
+
+	/**
+	 * Requests the instances for the given execution stage. If the request cannot be fulfilled while other jobs are
+	 * running, the stage waits until these jobs return instances. If not even an otherwise idle cluster can fulfill
+	 * the request, the job fails.
+	 * 
+	 * @param executionStage
+	 *        the execution stage to request the instances for
+	 * @return <code>true</code> if the instances have been requested, <code>false</code> if the stage is waiting or
+	 *         the job has failed
+	 */
+	private boolean requestStageInstances(final ExecutionStage executionStage) {
+
+		final ExecutionGraph executionGraph = executionStage.getExecutionGraph();
+
+		try {
+			requestInstances(executionStage);
+			return true;
+		} catch (InstanceException e) {
+
+			synchronized (this.admittedJobs) {
+
+				if (this.admittedJobs.contains(executionGraph) && this.admittedJobs.size() > 1) {
+					this.waitingStages.put(executionGraph.getJobID(), executionStage);
+					LOG.info("Stage " + executionStage.getStageNumber() + " of job " + executionGraph.getJobID()
+						+ " is waiting for instances to become available");
+					return false;
+				}
+			}
+
+			final String exceptionMessage = StringUtils.stringifyException(e);
+			LOG.error(exceptionMessage);
+			executionGraph.updateJobStatus(InternalJobStatus.FAILING, exceptionMessage);
+			executionGraph.updateJobStatus(InternalJobStatus.FAILED, null);
+
+			return false;
+		}
+	}
+
+	/**
+	 * Requests the instances for the waiting execution stages again and deploys the stages whose request can now be
+	 * fulfilled.
+	 */
+	private void requestWaitingStages() {
+
+		final List<ExecutionStage> stages;
+		synchronized (this.admittedJobs) {
+
+			if (this.waitingStages.isEmpty()) {
+				return;
+			}
+
+			stages = new ArrayList<ExecutionStage>(this.waitingStages.values());
+			this.waitingStages.clear();
+		}
+
+		for (final ExecutionStage executionStage : stages) {
+
+			LOG.info("Requesting instances for waiting stage " + executionStage.getStageNumber() + " of job "
+				+ executionStage.getExecutionGraph().getJobID());
+
+			if (requestStageInstances(executionStage)) {
+				deployAssignedInputVertices(executionStage.getExecutionGraph());
+			}
+		}
+	}
+
+	/**
+	 * Requests the deferred instances of the admitted jobs according to their current fair share.
+	 */
+	private void requestDeferredInstances() {
+
+		final Map<InstanceType, InstanceTypeDescription> availableInstances = getInstanceManager()
+			.getMapOfAvailableInstanceTypes();
+		final Map<ExecutionGraph, InstanceRequestMap> requests = new HashMap<ExecutionGraph, InstanceRequestMap>();
+
+		synchronized (this.admittedJobs) {
+
+			final int numberOfJobs = this.admittedJobs.size();
+			for (final ExecutionGraph executionGraph : this.admittedJobs) {
+
+				final Map<InstanceType, Integer> deferred = this.deferredRequests.get(executionGraph.getJobID());
+				if (deferred == null) {
+					continue;
+				}
+
+				final InstanceRequestMap instanceRequestMap = new InstanceRequestMap();
+				final Iterator<Map.Entry<InstanceType, Integer>> it = deferred.entrySet().iterator();
+				while (it.hasNext()) {
+
+					final Map.Entry<InstanceType, Integer> entry = it.next();
+					final int remaining = entry.getValue().intValue();
+					int numberOfInstances = remaining;
+					if (numberOfJobs > 1) {
+						numberOfInstances = Math.min(remaining, getFairShare(availableInstances.get(entry.getKey()),
+							numberOfJobs));
+					}
+
+					instanceRequestMap.setMinimumNumberOfInstances(entry.getKey(), 0);
+					instanceRequestMap.setMaximumNumberOfInstances(entry.getKey(), numberOfInstances);
+
+					if (numberOfInstances == remaining) {
+						it.remove();
+					} else {
+						entry.setValue(Integer.valueOf(remaining - numberOfInstances));
+					}
+				}
+
+				if (deferred.isEmpty()) {
+					this.deferredRequests.remove(executionGraph.getJobID());
+				}
+
+				requests.put(executionGraph, instanceRequestMap);
+			}
+		}
+
+		final Iterator<Map.Entry<ExecutionGraph, InstanceRequestMap>> it = requests.entrySet().iterator();
+		while (it.hasNext()) {
+
+			final Map.Entry<ExecutionGraph, InstanceRequestMap> entry = it.next();
+			final ExecutionGraph executionGraph = entry.getKey();
+			try {
+				getInstanceManager().requestInstance(executionGraph.getJobID(), executionGraph.getJobConfiguration(),
+					entry.getValue(), null);
+			} catch (InstanceException e) {
+				LOG.error(StringUtils.stringifyException(e));
+			}
+		}
+	}
+
+	/**
+	 * Returns the fair share of a single job of the given instance type.
+	 * 
+	 * @param instanceTypeDescription
+	 *        the description of the instance type, possibly <code>null</code>
+	 * @param numberOfJobs
+	 *        the number of jobs sharing the instances
+	 * @return the number of instances each job is entitled to or {@link Integer#MAX_VALUE} if the number of instances
+	 *         is unknown or unlimited
+	 */
+	private static int getFairShare(final InstanceTypeDescription instanceTypeDescription, final int numberOfJobs) {
+
+		if (instanceTypeDescription == null || instanceTypeDescription.getMaximumNumberOfAvailableInstances() == -1) {
+			return Integer.MAX_VALUE;
+		}
+
+		return Math.max(1, instanceTypeDescription.getMaximumNumberOfAvailableInstances() / numberOfJobs);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void adjustInstanceRequest(final ExecutionGraph executionGraph,
+			final InstanceRequestMap instanceRequestMap) {
+
+		final int numberOfJobs;
+		synchronized (this.admittedJobs) {
+			numberOfJobs = this.admittedJobs.size();
+			// Deferred instances of a previous stage are no longer required
+			this.deferredRequests.remove(executionGraph.getJobID());
+		}
+
+		if (numberOfJobs <= 1) {
+			return;
+		}
+
+		final Map<InstanceType, InstanceTypeDescription> availableInstances = getInstanceManager()
+			.getMapOfAvailableInstanceTypes();
+		final Map<InstanceType, Integer> deferred = new HashMap<InstanceType, Integer>();
+
+		final Iterator<Map.Entry<InstanceType, Integer>> it = instanceRequestMap.getMaximumIterator();
+		while (it.hasNext()) {
+
+			final Map.Entry<InstanceType, Integer> entry = it.next();
+			final int maximum = entry.getValue().intValue();
+			final int limit = Math.max(instanceRequestMap.getMinimumNumberOfInstances(entry.getKey()), getFairShare(
+				availableInstances.get(entry.getKey()), numberOfJobs));
+			if (maximum > limit) {
+				deferred.put(entry.getKey(), Integer.valueOf(maximum - limit));
+			}
+		}
+
+		if (deferred.isEmpty()) {
+			return;
+		}
+
+		final Iterator<Map.Entry<InstanceType, Integer>> it2 = deferred.entrySet().iterator();
+		while (it2.hasNext()) {
+
+			final Map.Entry<InstanceType, Integer> entry = it2.next();
+			final InstanceType instanceType = entry.getKey();
+			instanceRequestMap.setMaximumNumberOfInstances(instanceType,
+				instanceRequestMap.getMaximumNumberOfInstances(instanceType) - entry.getValue().intValue());
+		}
+
+		synchronized (this.admittedJobs) {
+			this.deferredRequests.put(executionGraph.getJobID(), deferred);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected AllocatedResource selectResourceToBeReplaced(final ExecutionGraph executionGraph,
+			final ExecutionStage executionStage, final AllocatedResource allocatedResource) {
+
+		final AbstractInstance instance = allocatedResource.getInstance();
+
+		// Collect the candidate resources, a resource may be shared by several vertices connected in memory
+		final Set<AllocatedResource> candidates = new LinkedHashSet<AllocatedResource>();
+		final Iterator<ExecutionGroupVertex> groupIterator = new ExecutionGroupVertexIterator(executionGraph, true,
+			executionStage.getStageNumber());
+		while (groupIterator.hasNext()) {
+
+			final ExecutionGroupVertex groupVertex = groupIterator.next();
+			int numberOfCandidates = 0;
+			for (int i = 0; i < groupVertex.getCurrentNumberOfGroupMembers(); ++i) {
+
+				final ExecutionVertex vertex = groupVertex.getGroupMember(i);
+				if (vertex.getExecutionState() != ExecutionState.SCHEDULED) {
+					continue;
+				}
+
+				final AllocatedResource resource = vertex.getAllocatedResource();
+				if (resource == null || !(resource.getInstance() instanceof DummyInstance)
+					|| !resource.getInstanceType().equals(allocatedResource.getInstanceType())) {
+					continue;
+				}
+
+				if (candidates.add(resource) && ++numberOfCandidates == MAXIMUM_NUMBER_OF_CANDIDATES_PER_GROUP) {
+					break;
+				}
+			}
+		}
+
+		AllocatedResource bestCandidate = null;
+		double bestScore = Double.NEGATIVE_INFINITY;
+		for (final AllocatedResource candidate : candidates) {
+
+			final List<ExecutionVertex> vertices = new ArrayList<ExecutionVertex>();
+			final Iterator<ExecutionVertex> it = candidate.assignedVertices();
+			while (it.hasNext()) {
+				vertices.add(it.next());
+			}
+
+			final double score = this.placementScorer.score(instance, vertices);
+			if (score > bestScore) {
+				bestScore = score;
+				bestCandidate = candidate;
+			}
+		}
+
+		if (bestCandidate != null && LOG.isDebugEnabled()) {
+			LOG.debug("Placing vertices of resource " + bestCandidate.getAllocationID() + " on instance " + instance
+				+ " with score " + bestScore);
+		}
+
+		return bestCandidate;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ExecutionGraph getExecutionGraphByID(final JobID jobID) {
+
+		synchronized (this.admittedJobs) {
+
+			for (final ExecutionGraph executionGraph : this.admittedJobs) {
+				if (executionGraph.getJobID().equals(jobID)) {
+					return executionGraph;
+				}
+			}
+
+			for (final ExecutionGraph executionGraph : this.waitingJobs) {
+				if (executionGraph.getJobID().equals(jobID)) {
+					return executionGraph;
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Checks whether the job with the given ID is currently waiting to be admitted.
+	 * 
+	 * @param jobID
+	 *        the ID of the job
+	 * @return <code>true</code> if the job is waiting to be admitted, <code>false</code> otherwise
+	 */
+	boolean isWaiting(final JobID jobID) {
+
+		synchronized (this.admittedJobs) {
+
+			for (final ExecutionGraph executionGraph : this.waitingJobs) {
+				if (executionGraph.getJobID().equals(jobID)) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Checks whether an execution stage of the job with the given ID is currently waiting for instances.
+	 * 
+	 * @param jobID
+	 *        the ID of the job
+	 * @return <code>true</code> if a stage of the job is waiting for instances, <code>false</code> otherwise
+	 */
+	boolean isStageWaiting(final JobID jobID) {
+
+		synchronized (this.admittedJobs) {
+			return this.waitingStages.containsKey(jobID);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void shutdown() {
+
+		synchronized (this.admittedJobs) {
+			this.admittedJobs.clear();
+			this.waitingJobs.clear();
+			this.deferredRequests.clear();
+			this.waitingStages.clear();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void jobStatusHasChanged(final ExecutionGraph executionGraph, final InternalJobStatus newJobStatus,
+			final String optionalMessage) {
+
+		if (newJobStatus == InternalJobStatus.FAILED || newJobStatus == InternalJobStatus.FINISHED
+			|| newJobStatus == InternalJobStatus.CANCELED) {
+			removeJobFromSchedule(executionGraph);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void nextExecutionStageEntered(final JobID jobID, final ExecutionStage executionStage) {
+
+		// Request new instances if necessary and deploy the assigned vertices
+		if (requestStageInstances(executionStage)) {
+			deployAssignedInputVertices(executionStage.getExecutionGraph());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void checkAndReleaseAllocatedResource(final ExecutionGraph executionGraph,
+			final AllocatedResource allocatedResource) {
+
+		super.checkAndReleaseAllocatedResource(executionGraph, allocatedResource);
+
+		// The resource may have been returned, so the waiting stages have another chance
+		requestWaitingStages();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void processProfilingEvents(final ProfilingEvent profilingEvent) {
+
+		if (profilingEvent instanceof SingleInstanceProfilingEvent) {
+
+			final SingleInstanceProfilingEvent instanceEvent = (SingleInstanceProfilingEvent) profilingEvent;
+			this.placementScorer.updateLoad(instanceEvent.getInstanceName(), instanceEvent.getIdleCPU(),
+				instanceEvent.getTotalMemory(), instanceEvent.getFreeMemory());
+		}
+	}
+
+	/**
+	 * Returns the scorer used to rate the placement of vertices on instances.
+	 * 
+	 * @return the scorer used to rate the placement of vertices on instances
+	 */
+	PlacementScorer getPlacementScorer() {
+
+		return this.placementScorer;
+	}
+}
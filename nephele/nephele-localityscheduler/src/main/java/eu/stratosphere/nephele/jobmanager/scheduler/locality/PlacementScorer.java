@@ -0,0 +1,279 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.jobmanager.scheduler.locality;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import eu.stratosphere.nephele.executiongraph.ExecutionEdge;
+import eu.stratosphere.nephele.executiongraph.ExecutionGate;
+import eu.stratosphere.nephele.executiongraph.ExecutionGroupVertex;
+import eu.stratosphere.nephele.executiongraph.ExecutionVertex;
+import eu.stratosphere.nephele.fs.FileInputSplit;
+import eu.stratosphere.nephele.instance.AbstractInstance;
+import eu.stratosphere.nephele.instance.AllocatedResource;
+import eu.stratosphere.nephele.instance.DummyInstance;
+import eu.stratosphere.nephele.template.InputSplit;
+import eu.stratosphere.nephele.template.LocatableInputSplit;
+import eu.stratosphere.nephele.topology.NetworkNode;
+
+/**
+ * The placement scorer rates how well a set of execution vertices fits on a particular instance. The score is a
+ * weighted sum of three components: the locality of the vertices' input splits with respect to the instance, the
+ * network proximity of the instance to the instances the vertices' communication partners already run on and the
+ * current load of the instance as reported by the profiling component. Higher scores indicate a better placement.
+ * <p>
+ * This class is thread-safe.
+ */
+final class PlacementScorer {
+
+	/**
+	 * The weight of the input split locality.
+	 */
+	private final int localityWeight;
+
+	/**
+	 * The weight of the network proximity to connected vertices.
+	 */
+	private final int networkWeight;
+
+	/**
+	 * The weight of the load penalty.
+	 */
+	private final int loadWeight;
+
+	/**
+	 * The most recent load of each instance, stored as a value between 0 and 1 and indexed by the instance name.
+	 */
+	private final Map<String, Float> loadOfInstances = new ConcurrentHashMap<String, Float>();
+
+	/**
+	 * Constructs a new placement scorer.
+	 * 
+	 * @param localityWeight
+	 *        the weight of the input split locality
+	 * @param networkWeight
+	 *        the weight of the network proximity to connected vertices
+	 * @param loadWeight
+	 *        the weight of the load penalty
+	 */
+	PlacementScorer(final int localityWeight, final int networkWeight, final int loadWeight) {
+
+		this.localityWeight = localityWeight;
+		this.networkWeight = networkWeight;
+		this.loadWeight = loadWeight;
+	}
+
+	/**
+	 * Records the current load of the instance with the given name. The load is the mean of the CPU and the memory
+	 * utilization of the instance.
+	 * 
+	 * @param instanceName
+	 *        the name of the instance
+	 * @param idleCPU
+	 *        the percentage of time the instance's CPU has been idle
+	 * @param totalMemory
+	 *        the total amount of memory of the instance in bytes
+	 * @param freeMemory
+	 *        the amount of free memory of the instance in bytes
+	 */
+	void updateLoad(final String instanceName, final int idleCPU, final long totalMemory, final long freeMemory) {
+
+		final float cpuUtilization = Math.min(1.0f, Math.max(0.0f, (100 - idleCPU) / 100.0f));
+		float memoryUtilization = 0.0f;
+		if (totalMemory > 0L) {
+			memoryUtilization = Math.min(1.0f, Math.max(0.0f, (float) (totalMemory - freeMemory) / totalMemory));
+		}
+
+		this.loadOfInstances.put(instanceName, Float.valueOf((cpuUtilization + memoryUtilization) / 2.0f));
+	}
+
+	/**
+	 * Returns the most recent load of the instance with the given name.
+	 * 
+	 * @param instanceName
+	 *        the name of the instance
+	 * @return the load of the instance as a value between 0 and 1 or <code>0</code> if no load has been reported for
+	 *         the instance yet
+	 */
+	float getLoad(final String instanceName) {
+
+		final Float load = this.loadOfInstances.get(instanceName);
+		if (load == null) {
+			return 0.0f;
+		}
+
+		return load.floatValue();
+	}
+
+	/**
+	 * Rates the placement of the given execution vertices on the given instance.
+	 * 
+	 * @param instance
+	 *        the instance to rate the placement for
+	 * @param vertices
+	 *        the vertices to be placed on the instance together
+	 * @return the score of the placement, higher scores indicate a better placement
+	 */
+	double score(final AbstractInstance instance, final List<ExecutionVertex> vertices) {
+
+		if (vertices.isEmpty()) {
+			return 0.0;
+		}
+
+		final Map<ExecutionGroupVertex, Double> localityOfGroups = new HashMap<ExecutionGroupVertex, Double>();
+		double locality = 0.0;
+		double proximity = 0.0;
+		int numberOfPlacedPartners = 0;
+
+		for (final ExecutionVertex vertex : vertices) {
+
+			// The input splits are assigned lazily at runtime, so the locality is a property of the whole group
+			final ExecutionGroupVertex groupVertex = vertex.getGroupVertex();
+			Double groupLocality = localityOfGroups.get(groupVertex);
+			if (groupLocality == null) {
+				groupLocality = Double.valueOf(getSplitLocality(instance, groupVertex.getInputSplits()));
+				localityOfGroups.put(groupVertex, groupLocality);
+			}
+			locality += groupLocality.doubleValue();
+
+			for (int i = 0; i < vertex.getNumberOfInputGates(); ++i) {
+				final ExecutionGate inputGate = vertex.getInputGate(i);
+				for (int j = 0; j < inputGate.getNumberOfEdges(); ++j) {
+					final ExecutionEdge edge = inputGate.getEdge(j);
+					final AbstractInstance partner = getPlacedInstance(edge.getOutputGate().getVertex());
+					if (partner != null) {
+						proximity += getProximity(instance, partner);
+						++numberOfPlacedPartners;
+					}
+				}
+			}
+
+			for (int i = 0; i < vertex.getNumberOfOutputGates(); ++i) {
+				final ExecutionGate outputGate = vertex.getOutputGate(i);
+				for (int j = 0; j < outputGate.getNumberOfEdges(); ++j) {
+					final ExecutionEdge edge = outputGate.getEdge(j);
+					final AbstractInstance partner = getPlacedInstance(edge.getInputGate().getVertex());
+					if (partner != null) {
+						proximity += getProximity(instance, partner);
+						++numberOfPlacedPartners;
+					}
+				}
+			}
+		}
+
+		locality /= vertices.size();
+		if (numberOfPlacedPartners > 0) {
+			proximity /= numberOfPlacedPartners;
+		}
+
+		// The more vertices are placed on a loaded instance, the more they suffer from the load
+		final double load = getLoad(instance.getName()) * vertices.size();
+
+		return this.localityWeight * locality + this.networkWeight * proximity - this.loadWeight * load;
+	}
+
+	/**
+	 * Computes the locality of the given input splits with respect to the given network node. Each split contributes
+	 * <code>1 / (1 + d)</code>, where <code>d</code> is the minimum network distance between the node and one of the
+	 * split's hosts.
+	 * 
+	 * @param networkNode
+	 *        the network node to compute the locality for
+	 * @param inputSplits
+	 *        the input splits, possibly <code>null</code>
+	 * @return the average locality of the input splits as a value between 0 and 1 or <code>0</code> if there are no
+	 *         input splits
+	 */
+	static double getSplitLocality(final NetworkNode networkNode, final InputSplit[] inputSplits) {
+
+		if (inputSplits == null || inputSplits.length == 0) {
+			return 0.0;
+		}
+
+		double locality = 0.0;
+		for (final InputSplit inputSplit : inputSplits) {
+
+			String[] hostNames = null;
+			if (inputSplit instanceof FileInputSplit) {
+				hostNames = ((FileInputSplit) inputSplit).getHostNames();
+			} else if (inputSplit instanceof LocatableInputSplit) {
+				hostNames = ((LocatableInputSplit) inputSplit).getHostnames();
+			}
+
+			if (hostNames == null) {
+				continue;
+			}
+
+			int minDistance = Integer.MAX_VALUE;
+			for (final String hostName : hostNames) {
+				minDistance = Math.min(minDistance, networkNode.getDistance(hostName));
+			}
+
+			if (minDistance != Integer.MAX_VALUE) {
+				locality += 1.0 / (1.0 + minDistance);
+			}
+		}
+
+		return locality / inputSplits.length;
+	}
+
+	/**
+	 * Computes the network proximity between two network nodes as <code>1 / (1 + d)</code>, where <code>d</code> is
+	 * the distance between the nodes in the network topology.
+	 * 
+	 * @param first
+	 *        the first network node
+	 * @param second
+	 *        the second network node
+	 * @return the proximity of the two nodes as a value between 0 and 1
+	 */
+	static double getProximity(final NetworkNode first, final NetworkNode second) {
+
+		final int distance = first.getDistance(second);
+		if (distance == Integer.MAX_VALUE) {
+			return 0.0;
+		}
+
+		return 1.0 / (1.0 + distance);
+	}
+
+	/**
+	 * Returns the instance the given vertex has been placed on.
+	 * 
+	 * @param vertex
+	 *        the vertex to return the instance for
+	 * @return the instance the vertex has been placed on or <code>null</code> if the vertex has not been placed on a
+	 *         real instance yet
+	 */
+	private static AbstractInstance getPlacedInstance(final ExecutionVertex vertex) {
+
+		final AllocatedResource allocatedResource = vertex.getAllocatedResource();
+		if (allocatedResource == null) {
+			return null;
+		}
+
+		final AbstractInstance instance = allocatedResource.getInstance();
+		if (instance instanceof DummyInstance) {
+			return null;
+		}
+
+		return instance;
+	}
+}
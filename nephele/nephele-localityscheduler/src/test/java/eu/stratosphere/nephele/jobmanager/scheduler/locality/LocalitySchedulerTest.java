@@ -0,0 +1,441 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.jobmanager.scheduler.locality;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.execution.ExecutionState;
+import eu.stratosphere.nephele.execution.librarycache.LibraryCacheManager;
+import eu.stratosphere.nephele.executiongraph.ExecutionGraph;
+import eu.stratosphere.nephele.executiongraph.ExecutionStage;
+import eu.stratosphere.nephele.executiongraph.ExecutionVertex;
+import eu.stratosphere.nephele.executiongraph.GraphConversionException;
+import eu.stratosphere.nephele.executiongraph.InternalJobStatus;
+import eu.stratosphere.nephele.instance.InstanceException;
+import eu.stratosphere.nephele.instance.InstanceManager;
+import eu.stratosphere.nephele.io.RecordReader;
+import eu.stratosphere.nephele.io.RecordWriter;
+import eu.stratosphere.nephele.io.channels.ChannelType;
+import eu.stratosphere.nephele.jobgraph.JobGraph;
+import eu.stratosphere.nephele.jobgraph.JobGraphDefinitionException;
+import eu.stratosphere.nephele.jobgraph.JobInputVertex;
+import eu.stratosphere.nephele.jobgraph.JobOutputVertex;
+import eu.stratosphere.nephele.jobmanager.scheduler.SchedulingException;
+import eu.stratosphere.nephele.jobmanager.scheduler.TestCluster;
+import eu.stratosphere.nephele.template.AbstractInputTask;
+import eu.stratosphere.nephele.template.AbstractOutputTask;
+import eu.stratosphere.nephele.template.LocatableInputSplit;
+import eu.stratosphere.nephele.types.StringRecord;
+import eu.stratosphere.nephele.util.StringUtils;
+
+/**
+ * This class checks the functionality of the {@link LocalityScheduler} class.
+ */
+public class LocalitySchedulerTest {
+
+	/**
+	 * Test input task whose input splits are stored on <code>host0</code>.
+	 */
+	public static class InputTask extends AbstractInputTask<LocatableInputSplit> {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void registerInputOutput() {
+			new RecordWriter<StringRecord>(this, StringRecord.class);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void invoke() throws Exception {
+			// Nothing to do here
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public LocatableInputSplit[] computeInputSplits(final int requestedMinNumber) throws Exception {
+
+			final LocatableInputSplit[] splits = new LocatableInputSplit[requestedMinNumber];
+			for (int i = 0; i < requestedMinNumber; ++i) {
+				splits[i] = new LocatableInputSplit(i, new String[] { getHostName() });
+			}
+
+			return splits;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Class<LocatableInputSplit> getInputSplitType() {
+			return LocatableInputSplit.class;
+		}
+
+		/**
+		 * Returns the name of the host the input splits of this task are stored on.
+		 * 
+		 * @return the name of the host the input splits of this task are stored on
+		 */
+		protected String getHostName() {
+			return "host0";
+		}
+	}
+
+	/**
+	 * Test input task whose input splits are stored on <code>host1</code>.
+	 */
+	public static final class RemoteInputTask extends InputTask {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected String getHostName() {
+			return "host1";
+		}
+	}
+
+	/**
+	 * Test output task.
+	 */
+	public static final class OutputTask extends AbstractOutputTask {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void registerInputOutput() {
+			new RecordReader<StringRecord>(this, StringRecord.class);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void invoke() throws Exception {
+			// Nothing to do here
+		}
+	}
+
+	/**
+	 * Locality scheduler whose instance requests fail until a given number of instances has been returned to the
+	 * cluster, as if the instances were occupied by other users.
+	 */
+	private static final class OccupiedLocalityScheduler extends LocalityScheduler {
+
+		/**
+		 * The cluster used by the scheduler.
+		 */
+		private final TestCluster cluster;
+
+		/**
+		 * The number of returned instances required for instance requests to succeed.
+		 */
+		private volatile int requiredNumberOfReleaseCalls = 0;
+
+		/**
+		 * The number of instance requests so far.
+		 */
+		private volatile int numberOfRequests = 0;
+
+		/**
+		 * Constructs a new occupied locality scheduler.
+		 * 
+		 * @param cluster
+		 *        the cluster serving as both the deployment manager and the instance manager of the scheduler
+		 */
+		private OccupiedLocalityScheduler(final TestCluster cluster) {
+			super(cluster, cluster);
+
+			this.cluster = cluster;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected void requestInstances(final ExecutionStage executionStage) throws InstanceException {
+
+			++this.numberOfRequests;
+			if (this.cluster.getNumberOfReturnedSlices() < this.requiredNumberOfReleaseCalls) {
+				throw new InstanceException("Instances are occupied");
+			}
+
+			super.requestInstances(executionStage);
+		}
+
+		/**
+		 * Lets the following instance requests fail until the given number of further instances has been returned.
+		 * 
+		 * @param numberOfReleaseCalls
+		 *        the number of instances which must be returned before requests succeed again
+		 */
+		private void occupy(final int numberOfReleaseCalls) {
+
+			this.requiredNumberOfReleaseCalls = this.cluster.getNumberOfReturnedSlices()
+				+ numberOfReleaseCalls;
+		}
+	}
+
+	/**
+	 * Constructs a sample execution graph consisting of pipelines of two vertices connected by an in-memory channel.
+	 * 
+	 * @param inputClasses
+	 *        the classes of the input tasks, one pipeline is created for each class
+	 * @param instanceManager
+	 *        the instance manager that shall be used during the creation of the execution graph
+	 * @return a sample execution graph
+	 */
+	private ExecutionGraph createExecutionGraph(final Class<?>[] inputClasses, final InstanceManager instanceManager) {
+
+		final JobGraph jobGraph = new JobGraph("Job Graph");
+
+		for (int i = 0; i < inputClasses.length; ++i) {
+
+			final JobInputVertex inputVertex = new JobInputVertex("Input " + i, jobGraph);
+			inputVertex.setInputClass(inputClasses[i].asSubclass(InputTask.class));
+			inputVertex.setNumberOfSubtasks(1);
+
+			final JobOutputVertex outputVertex = new JobOutputVertex("Output " + i, jobGraph);
+			outputVertex.setOutputClass(OutputTask.class);
+			outputVertex.setNumberOfSubtasks(1);
+
+			try {
+				inputVertex.connectTo(outputVertex, ChannelType.INMEMORY);
+			} catch (JobGraphDefinitionException e) {
+				fail(StringUtils.stringifyException(e));
+			}
+		}
+
+		try {
+			LibraryCacheManager.register(jobGraph.getJobID(), new String[0]);
+			return new ExecutionGraph(jobGraph, instanceManager);
+
+		} catch (GraphConversionException e) {
+			fail(StringUtils.stringifyException(e));
+		} catch (IOException e) {
+			fail(StringUtils.stringifyException(e));
+		}
+
+		return null;
+	}
+
+	/**
+	 * Simulates the life cycle of the given vertices up to the state <code>FINISHED</code>.
+	 * 
+	 * @param vertices
+	 *        the vertices to finish
+	 */
+	private static void finishVertices(final List<ExecutionVertex> vertices) {
+
+		for (final ExecutionVertex vertex : vertices) {
+			vertex.updateExecutionState(ExecutionState.STARTING);
+			vertex.updateExecutionState(ExecutionState.RUNNING);
+			vertex.updateExecutionState(ExecutionState.FINISHING);
+			vertex.updateExecutionState(ExecutionState.FINISHED);
+		}
+	}
+
+	/**
+	 * Unregisters the given jobs from the library cache manager.
+	 * 
+	 * @param executionGraphs
+	 *        the jobs to unregister
+	 */
+	private static void unregister(final ExecutionGraph... executionGraphs) {
+
+		for (final ExecutionGraph executionGraph : executionGraphs) {
+			try {
+				LibraryCacheManager.unregister(executionGraph.getJobID());
+			} catch (IOException ioe) {
+				// Ignore exception here
+			}
+		}
+	}
+
+	/**
+	 * Checks that the vertices of a pipeline are placed on the instance which stores the pipeline's input splits,
+	 * although the cluster hands out the instances in a different order.
+	 */
+	@Test
+	public void testPlacementByInputSplitLocality() {
+
+		final TestCluster cluster = new TestCluster(2);
+		final LocalityScheduler scheduler = new LocalityScheduler(cluster, cluster);
+
+		// The cluster hands out host1 first, which the default placement would assign to the first pipeline
+		final ExecutionGraph executionGraph = createExecutionGraph(new Class<?>[] { RemoteInputTask.class,
+			InputTask.class }, cluster);
+
+		try {
+			try {
+				scheduler.schedulJob(executionGraph);
+			} catch (SchedulingException e) {
+				fail(StringUtils.stringifyException(e));
+			}
+
+			final List<ExecutionVertex> deployedVertices = cluster.waitForDeployment(executionGraph.getJobID(), 4);
+			assertEquals(4, deployedVertices.size());
+
+			for (final ExecutionVertex vertex : deployedVertices) {
+
+				final String instanceName = vertex.getAllocatedResource().getInstance().getName();
+				if (vertex.getName().endsWith("0")) {
+					// First pipeline reads from host1
+					assertEquals("host1", instanceName);
+				} else {
+					assertEquals("host0", instanceName);
+				}
+			}
+		} finally {
+			unregister(executionGraph);
+		}
+	}
+
+	/**
+	 * Checks that a job whose instances are occupied by another job waits for admission instead of being rejected
+	 * and is admitted as soon as the other job has finished.
+	 */
+	@Test
+	public void testAdmissionOfWaitingJob() {
+
+		final TestCluster cluster = new TestCluster(1);
+		final LocalityScheduler scheduler = new LocalityScheduler(cluster, cluster);
+
+		final ExecutionGraph firstGraph = createExecutionGraph(new Class<?>[] { InputTask.class }, cluster);
+		final ExecutionGraph secondGraph = createExecutionGraph(new Class<?>[] { InputTask.class }, cluster);
+
+		try {
+			try {
+				scheduler.schedulJob(firstGraph);
+				scheduler.schedulJob(secondGraph);
+			} catch (SchedulingException e) {
+				fail(StringUtils.stringifyException(e));
+			}
+
+			final List<ExecutionVertex> firstVertices = cluster.waitForDeployment(firstGraph.getJobID(), 2);
+			assertEquals(2, firstVertices.size());
+
+			assertFalse(scheduler.isWaiting(firstGraph.getJobID()));
+			assertTrue(scheduler.isWaiting(secondGraph.getJobID()));
+			assertEquals(secondGraph, scheduler.getExecutionGraphByID(secondGraph.getJobID()));
+			assertEquals(0, cluster.getDeployedVertices(secondGraph.getJobID()).size());
+
+			// Finishing the first job returns the instance and admits the second job
+			finishVertices(firstVertices);
+			assertEquals(1, cluster.getNumberOfReturnedSlices());
+
+			final List<ExecutionVertex> secondVertices = cluster.waitForDeployment(secondGraph.getJobID(), 2);
+			assertEquals(2, secondVertices.size());
+			assertFalse(scheduler.isWaiting(secondGraph.getJobID()));
+			assertEquals(null, scheduler.getExecutionGraphByID(firstGraph.getJobID()));
+
+			finishVertices(secondVertices);
+			assertEquals(2, cluster.getNumberOfReturnedSlices());
+		} finally {
+			unregister(firstGraph, secondGraph);
+		}
+	}
+
+	/**
+	 * Checks that an execution stage whose instance request fails while another job is running waits for instances
+	 * instead of being dropped and is requested again once the other job has returned its instance.
+	 */
+	@Test
+	public void testWaitingStageIsRequestedAgain() {
+
+		final TestCluster cluster = new TestCluster(2);
+		final OccupiedLocalityScheduler scheduler = new OccupiedLocalityScheduler(cluster);
+
+		final ExecutionGraph firstGraph = createExecutionGraph(new Class<?>[] { InputTask.class }, cluster);
+		final ExecutionGraph secondGraph = createExecutionGraph(new Class<?>[] { InputTask.class }, cluster);
+
+		try {
+			try {
+				scheduler.schedulJob(firstGraph);
+				scheduler.schedulJob(secondGraph);
+			} catch (SchedulingException e) {
+				fail(StringUtils.stringifyException(e));
+			}
+
+			final List<ExecutionVertex> firstVertices = cluster.waitForDeployment(firstGraph.getJobID(), 2);
+			assertEquals(2, firstVertices.size());
+			assertEquals(2, cluster.waitForDeployment(secondGraph.getJobID(), 2).size());
+
+			// The second job enters a stage whose instances are occupied
+			scheduler.occupy(1);
+			scheduler.nextExecutionStageEntered(secondGraph.getJobID(), secondGraph.getCurrentExecutionStage());
+			assertTrue(scheduler.isStageWaiting(secondGraph.getJobID()));
+			assertEquals(3, scheduler.numberOfRequests);
+
+			// Finishing the first job returns its instance, so the stage is requested again
+			finishVertices(firstVertices);
+			assertEquals(1, cluster.getNumberOfReturnedSlices());
+			assertFalse(scheduler.isStageWaiting(secondGraph.getJobID()));
+			assertTrue(scheduler.numberOfRequests > 3);
+			assertFalse(secondGraph.getJobStatus() == InternalJobStatus.FAILED);
+			assertEquals(secondGraph, scheduler.getExecutionGraphByID(secondGraph.getJobID()));
+		} finally {
+			unregister(firstGraph, secondGraph);
+		}
+	}
+
+	/**
+	 * Checks that a job fails if the instance request of an execution stage fails although no other job is running.
+	 */
+	@Test
+	public void testFailureOfStageWithoutOtherJobs() {
+
+		final TestCluster cluster = new TestCluster(1);
+		final OccupiedLocalityScheduler scheduler = new OccupiedLocalityScheduler(cluster);
+
+		final ExecutionGraph executionGraph = createExecutionGraph(new Class<?>[] { InputTask.class }, cluster);
+
+		try {
+			try {
+				scheduler.schedulJob(executionGraph);
+			} catch (SchedulingException e) {
+				fail(StringUtils.stringifyException(e));
+			}
+
+			assertEquals(2, cluster.waitForDeployment(executionGraph.getJobID(), 2).size());
+
+			scheduler.occupy(Integer.MAX_VALUE / 2);
+			scheduler.nextExecutionStageEntered(executionGraph.getJobID(), executionGraph.getCurrentExecutionStage());
+
+			assertFalse(scheduler.isStageWaiting(executionGraph.getJobID()));
+			assertEquals(InternalJobStatus.FAILED, executionGraph.getJobStatus());
+			assertNull(scheduler.getExecutionGraphByID(executionGraph.getJobID()));
+		} finally {
+			unregister(executionGraph);
+		}
+	}
+}
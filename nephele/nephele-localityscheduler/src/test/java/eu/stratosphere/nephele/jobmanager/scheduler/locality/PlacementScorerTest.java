@@ -0,0 +1,134 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.jobmanager.scheduler.locality;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.fs.FileInputSplit;
+import eu.stratosphere.nephele.fs.Path;
+import eu.stratosphere.nephele.template.GenericInputSplit;
+import eu.stratosphere.nephele.template.InputSplit;
+import eu.stratosphere.nephele.template.LocatableInputSplit;
+import eu.stratosphere.nephele.topology.NetworkNode;
+import eu.stratosphere.nephele.topology.NetworkTopology;
+
+/**
+ * This class contains tests for the components of the score computed by the {@link PlacementScorer}.
+ */
+public class PlacementScorerTest {
+
+	/**
+	 * The tolerated deviation when comparing scores.
+	 */
+	private static final double DELTA = 0.000001;
+
+	/**
+	 * Test implementation of {@link NetworkNode}.
+	 */
+	private static final class TestNode extends NetworkNode {
+
+		/**
+		 * Constructs a new test node.
+		 * 
+		 * @param name
+		 *        the name of the node
+		 * @param parentNode
+		 *        the parent node in the network topology
+		 * @param networkTopology
+		 *        the network topology
+		 */
+		public TestNode(final String name, final NetworkNode parentNode, final NetworkTopology networkTopology) {
+			super(name, parentNode, networkTopology);
+		}
+	}
+
+	/**
+	 * The network topology used during the tests. Hosts <code>host1</code> and <code>host2</code> are connected to
+	 * <code>rack1</code>, <code>host3</code> is connected to <code>rack2</code>.
+	 */
+	private final NetworkTopology networkTopology = new NetworkTopology();
+
+	private final NetworkNode rack1 = new TestNode("rack1", this.networkTopology.getRootNode(), this.networkTopology);
+
+	private final NetworkNode rack2 = new TestNode("rack2", this.networkTopology.getRootNode(), this.networkTopology);
+
+	private final NetworkNode host1 = new TestNode("host1", this.rack1, this.networkTopology);
+
+	private final NetworkNode host2 = new TestNode("host2", this.rack1, this.networkTopology);
+
+	private final NetworkNode host3 = new TestNode("host3", this.rack2, this.networkTopology);
+
+	/**
+	 * Checks the locality of input splits with respect to a network node.
+	 */
+	@Test
+	public void testSplitLocality() {
+
+		assertEquals(0.0, PlacementScorer.getSplitLocality(this.host1, null), DELTA);
+		assertEquals(0.0, PlacementScorer.getSplitLocality(this.host1, new InputSplit[0]), DELTA);
+
+		final InputSplit[] splits = new InputSplit[] {
+			new FileInputSplit(0, new Path("file:///tmp/a"), 0L, 1L, new String[] { "host1", "host3" }),
+			new LocatableInputSplit(1, new String[] { "host2" }),
+			new LocatableInputSplit(2, new String[] { "unknown" }),
+			new GenericInputSplit(3) };
+
+		// host1 is local to the first split and two hops away from the second one
+		assertEquals((1.0 + 1.0 / 3.0) / 4.0, PlacementScorer.getSplitLocality(this.host1, splits), DELTA);
+		// host3 is local to the first split and four hops away from the second one
+		assertEquals((1.0 + 1.0 / 5.0) / 4.0, PlacementScorer.getSplitLocality(this.host3, splits), DELTA);
+	}
+
+	/**
+	 * Checks the network proximity of two network nodes.
+	 */
+	@Test
+	public void testProximity() {
+
+		assertEquals(1.0, PlacementScorer.getProximity(this.host1, this.host1), DELTA);
+		assertEquals(1.0 / 3.0, PlacementScorer.getProximity(this.host1, this.host2), DELTA);
+		assertEquals(1.0 / 5.0, PlacementScorer.getProximity(this.host1, this.host3), DELTA);
+
+		final NetworkTopology otherTopology = new NetworkTopology();
+		final NetworkNode otherHost = new TestNode("host4", otherTopology.getRootNode(), otherTopology);
+		assertEquals(0.0, PlacementScorer.getProximity(this.host1, otherHost), DELTA);
+	}
+
+	/**
+	 * Checks the bookkeeping of the instance load.
+	 */
+	@Test
+	public void testLoad() {
+
+		final PlacementScorer scorer = new PlacementScorer(1, 1, 1);
+
+		assertEquals(0.0f, scorer.getLoad("host1"), DELTA);
+
+		// 60% CPU and 20% memory utilization
+		scorer.updateLoad("host1", 40, 1000L, 800L);
+		assertEquals(0.4f, scorer.getLoad("host1"), DELTA);
+
+		// Values out of range are capped
+		scorer.updateLoad("host1", -10, 1000L, -1000L);
+		assertEquals(1.0f, scorer.getLoad("host1"), DELTA);
+
+		scorer.updateLoad("host2", 100, 0L, 0L);
+		assertEquals(0.0f, scorer.getLoad("host2"), DELTA);
+	}
+}
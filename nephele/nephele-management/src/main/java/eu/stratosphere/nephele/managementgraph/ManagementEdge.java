@@ -62,6 +62,16 @@ public final class ManagementEdge extends ManagementAttachment {
 	 */
 	private final ManagementEdgeID targetEdgeID;
 
+	/**
+	 * The number of bytes transmitted through the channel this edge refers to or <code>-1</code> if unknown.
+	 */
+	private long amountOfDataTransmitted = -1L;
+
+	/**
+	 * The number of records transmitted through the channel this edge refers to or <code>-1</code> if unknown.
+	 */
+	private long numberOfRecordsTransmitted = -1L;
+
 	/**
 	 * Constructs a new edge object.
 	 * 
@@ -160,4 +170,44 @@ public final class ManagementEdge extends ManagementAttachment {
 	public ManagementEdgeID getTargetEdgeID() {
 		return targetEdgeID;
 	}
+
+	/**
+	 * Returns the number of bytes transmitted through the channel this edge refers to. The number is reported when the
+	 * task at the source of the edge has reached a final execution state.
+	 * 
+	 * @return the number of bytes transmitted through the channel or <code>-1</code> if the number is not known yet
+	 */
+	public long getAmountOfDataTransmitted() {
+		return this.amountOfDataTransmitted;
+	}
+
+	/**
+	 * Sets the number of bytes transmitted through the channel this edge refers to.
+	 * 
+	 * @param amountOfDataTransmitted
+	 *        the number of bytes transmitted through the channel
+	 */
+	public void setAmountOfDataTransmitted(final long amountOfDataTransmitted) {
+		this.amountOfDataTransmitted = amountOfDataTransmitted;
+	}
+
+	/**
+	 * Returns the number of records transmitted through the channel this edge refers to. Comparing this number across
+	 * the edges of an output gate reveals skew in the partitioning of the data.
+	 * 
+	 * @return the number of records transmitted through the channel or <code>-1</code> if the number is not known yet
+	 */
+	public long getNumberOfRecordsTransmitted() {
+		return this.numberOfRecordsTransmitted;
+	}
+
+	/**
+	 * Sets the number of records transmitted through the channel this edge refers to.
+	 * 
+	 * @param numberOfRecordsTransmitted
+	 *        the number of records transmitted through the channel
+	 */
+	public void setNumberOfRecordsTransmitted(final long numberOfRecordsTransmitted) {
+		this.numberOfRecordsTransmitted = numberOfRecordsTransmitted;
+	}
 }
@@ -481,8 +481,10 @@ public final class ManagementGraph extends ManagementAttachment implements IORea
 					final int targetIndex = in.readInt();
 
 					final ChannelType channelType = EnumUtils.readEnum(in, ChannelType.class);
-					new ManagementEdge(sourceEdgeID, targetEdgeID, sourceGate, sourceIndex, targetGate, targetIndex,
-						channelType);
+					final ManagementEdge edge = new ManagementEdge(sourceEdgeID, targetEdgeID, sourceGate, sourceIndex,
+						targetGate, targetIndex, channelType);
+					edge.setAmountOfDataTransmitted(in.readLong());
+					edge.setNumberOfRecordsTransmitted(in.readLong());
 				}
 
 			}
@@ -558,6 +560,8 @@ public final class ManagementGraph extends ManagementAttachment implements IORea
 					out.writeInt(edge.getTargetIndex());
 
 					EnumUtils.writeEnum(out, edge.getChannelType());
+					out.writeLong(edge.getAmountOfDataTransmitted());
+					out.writeLong(edge.getNumberOfRecordsTransmitted());
 				}
 			}
 		}
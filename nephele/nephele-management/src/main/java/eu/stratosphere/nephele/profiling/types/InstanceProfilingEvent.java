@@ -102,6 +102,21 @@ public abstract class InstanceProfilingEvent extends ProfilingEvent {
 	 */
 	private long transmittedBytes;
 
+	/**
+	 * The total amount of memory managed by the instance's memory manager in bytes.
+	 */
+	private long totalManagedMemory;
+
+	/**
+	 * The amount of managed memory allocated at the end of the profiling interval in bytes.
+	 */
+	private long allocatedManagedMemory;
+
+	/**
+	 * The average latency of the managed memory allocations during the profiling interval in microseconds.
+	 */
+	private long memoryAllocationLatency;
+
 	/**
 	 * Constructs a new instance profiling event.
 	 * 
@@ -133,6 +148,12 @@ public abstract class InstanceProfilingEvent extends ProfilingEvent {
 	 *        the number of bytes received via network during the profiling interval
 	 * @param transmittedBytes
 	 *        the number of bytes transmitted via network during the profiling interval
+	 * @param totalManagedMemory
+	 *        the total amount of memory managed by the instance's memory manager in bytes
+	 * @param allocatedManagedMemory
+	 *        the amount of managed memory allocated at the end of the profiling interval in bytes
+	 * @param memoryAllocationLatency
+	 *        the average latency of the managed memory allocations during the profiling interval in microseconds
 	 * @param jobID
 	 *        the ID of this job this profiling event belongs to
 	 * @param timestamp
@@ -143,7 +164,8 @@ public abstract class InstanceProfilingEvent extends ProfilingEvent {
 	public InstanceProfilingEvent(final int profilingInterval, final int ioWaitCPU, final int idleCPU,
 			final int userCPU, final int systemCPU, final int hardIrqCPU, final int softIrqCPU, final long totalMemory,
 			final long freeMemory, final long bufferedMemory, final long cachedMemory, final long cachedSwapMemory,
-			final long receivedBytes, final long transmittedBytes, final JobID jobID, final long timestamp,
+			final long receivedBytes, final long transmittedBytes, final long totalManagedMemory,
+			final long allocatedManagedMemory, final long memoryAllocationLatency, final JobID jobID, final long timestamp,
 			final long profilingTimestamp) {
 
 		super(jobID, timestamp, profilingTimestamp);
@@ -165,6 +187,10 @@ public abstract class InstanceProfilingEvent extends ProfilingEvent {
 
 		this.receivedBytes = receivedBytes;
 		this.transmittedBytes = transmittedBytes;
+
+		this.totalManagedMemory = totalManagedMemory;
+		this.allocatedManagedMemory = allocatedManagedMemory;
+		this.memoryAllocationLatency = memoryAllocationLatency;
 	}
 
 	/**
@@ -302,6 +328,33 @@ public abstract class InstanceProfilingEvent extends ProfilingEvent {
 		return this.transmittedBytes;
 	}
 
+	/**
+	 * Returns the total amount of memory managed by the instance's memory manager.
+	 * 
+	 * @return the total amount of managed memory in bytes
+	 */
+	public final long getTotalManagedMemory() {
+		return this.totalManagedMemory;
+	}
+
+	/**
+	 * Returns the amount of managed memory allocated at the end of the profiling interval.
+	 * 
+	 * @return the amount of allocated managed memory in bytes
+	 */
+	public final long getAllocatedManagedMemory() {
+		return this.allocatedManagedMemory;
+	}
+
+	/**
+	 * Returns the average latency of the managed memory allocations during the profiling interval.
+	 * 
+	 * @return the average latency of the managed memory allocations in microseconds
+	 */
+	public final long getMemoryAllocationLatency() {
+		return this.memoryAllocationLatency;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -326,6 +379,10 @@ public abstract class InstanceProfilingEvent extends ProfilingEvent {
 
 		this.receivedBytes = in.readLong();
 		this.transmittedBytes = in.readLong();
+
+		this.totalManagedMemory = in.readLong();
+		this.allocatedManagedMemory = in.readLong();
+		this.memoryAllocationLatency = in.readLong();
 	}
 
 	/**
@@ -352,6 +409,10 @@ public abstract class InstanceProfilingEvent extends ProfilingEvent {
 
 		out.writeLong(receivedBytes);
 		out.writeLong(transmittedBytes);
+
+		out.writeLong(this.totalManagedMemory);
+		out.writeLong(this.allocatedManagedMemory);
+		out.writeLong(this.memoryAllocationLatency);
 	}
 
 	/**
@@ -425,6 +486,18 @@ public abstract class InstanceProfilingEvent extends ProfilingEvent {
 			return false;
 		}
 
+		if (this.totalManagedMemory != instanceProfilingEvent.getTotalManagedMemory()) {
+			return false;
+		}
+
+		if (this.allocatedManagedMemory != instanceProfilingEvent.getAllocatedManagedMemory()) {
+			return false;
+		}
+
+		if (this.memoryAllocationLatency != instanceProfilingEvent.getMemoryAllocationLatency()) {
+			return false;
+		}
+
 		return true;
 	}
 
@@ -438,6 +511,7 @@ public abstract class InstanceProfilingEvent extends ProfilingEvent {
 		hashCode += (this.profilingInterval + this.ioWaitCPU + this.idleCPU + this.userCPU + this.systemCPU
 			+ this.hardIrqCPU + this.softIrqCPU);
 		hashCode += (this.totalMemory + this.freeMemory + this.bufferedMemory + this.cachedMemory + this.cachedSwapMemory);
+		hashCode += (this.totalManagedMemory + this.allocatedManagedMemory);
 		hashCode -= Integer.MAX_VALUE;
 
 		return (int) (hashCode % Integer.MAX_VALUE);
@@ -62,6 +62,12 @@ public final class SingleInstanceProfilingEvent extends InstanceProfilingEvent {
 	 *        the number of bytes received via network during the profiling interval
 	 * @param transmittedBytes
 	 *        the number of bytes transmitted via network during the profiling interval
+	 * @param totalManagedMemory
+	 *        the total amount of memory managed by the instance's memory manager in bytes
+	 * @param allocatedManagedMemory
+	 *        the amount of managed memory allocated at the end of the profiling interval in bytes
+	 * @param memoryAllocationLatency
+	 *        the average latency of the managed memory allocations during the profiling interval in microseconds
 	 * @param jobID
 	 *        the ID of this job this profiling event belongs to
 	 * @param timestamp
@@ -74,11 +80,12 @@ public final class SingleInstanceProfilingEvent extends InstanceProfilingEvent {
 	public SingleInstanceProfilingEvent(final int profilingInterval, final int ioWaitCPU, final int idleCPU,
 			final int userCPU, final int systemCPU, final int hardIrqCPU, final int softIrqCPU, final long totalMemory,
 			final long freeMemory, final long bufferedMemory, final long cachedMemory, final long cachedSwapMemory,
-			final long receivedBytes, final long transmittedBytes, final JobID jobID, final long timestamp,
+			final long receivedBytes, final long transmittedBytes, final long totalManagedMemory,
+			final long allocatedManagedMemory, final long memoryAllocationLatency, final JobID jobID, final long timestamp,
 			final long profilingTimestamp, final String instanceName) {
 		super(profilingInterval, ioWaitCPU, idleCPU, userCPU, systemCPU, hardIrqCPU, softIrqCPU, totalMemory,
-			freeMemory, bufferedMemory, cachedMemory, cachedSwapMemory, receivedBytes, transmittedBytes, jobID,
-			timestamp, profilingTimestamp);
+			freeMemory, bufferedMemory, cachedMemory, cachedSwapMemory, receivedBytes, transmittedBytes, totalManagedMemory,
+			allocatedManagedMemory, memoryAllocationLatency, jobID, timestamp, profilingTimestamp);
 
 		this.instanceName = instanceName;
 	}
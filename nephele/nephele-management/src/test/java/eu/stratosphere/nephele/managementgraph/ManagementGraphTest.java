@@ -215,6 +215,8 @@ public class ManagementGraphTest {
 		assertEquals(origEdge.getChannelType(), copyEdge.getChannelType());
 		assertEquals(origEdge.getSourceIndex(), copyEdge.getSourceIndex());
 		assertEquals(origEdge.getTargetIndex(), copyEdge.getTargetIndex());
+		assertEquals(origEdge.getAmountOfDataTransmitted(), copyEdge.getAmountOfDataTransmitted());
+		assertEquals(origEdge.getNumberOfRecordsTransmitted(), copyEdge.getNumberOfRecordsTransmitted());
 	}
 
 	/**
@@ -281,8 +283,10 @@ public class ManagementGraphTest {
 		new ManagementGroupEdge(groupVertex3, 0, groupVertex4, 0, ChannelType.INMEMORY);
 
 		// Edges
-		new ManagementEdge(new ManagementEdgeID(), new ManagementEdgeID(), outputGate1_1, 0, inputGate2_1, 0,
-			ChannelType.NETWORK);
+		final ManagementEdge edge1_2 = new ManagementEdge(new ManagementEdgeID(), new ManagementEdgeID(),
+			outputGate1_1, 0, inputGate2_1, 0, ChannelType.NETWORK);
+		edge1_2.setAmountOfDataTransmitted(4096L);
+		edge1_2.setNumberOfRecordsTransmitted(128L);
 		new ManagementEdge(new ManagementEdgeID(), new ManagementEdgeID(), outputGate1_1, 1, inputGate2_2, 0,
 			ChannelType.NETWORK);
 		new ManagementEdge(new ManagementEdgeID(), new ManagementEdgeID(), outputGate2_1, 0, inputGate3_1, 0,
@@ -59,6 +59,12 @@ public class ProfilingTypesTest {
 
 	private static final long TRANSMITTED_BYTES = 100007L;
 
+	private static final long TOTAL_MANAGED_MEMORY = 100010L;
+
+	private static final long ALLOCATED_MANAGED_MEMORY = 100011L;
+
+	private static final long MEMORY_ALLOCATION_LATENCY = 100012L;
+
 	private static final long TIMESTAMP = 100008L;
 
 	private static final long PROFILING_TIMESTAMP = 100009L;
@@ -87,7 +93,8 @@ public class ProfilingTypesTest {
 
 		final InstanceSummaryProfilingEvent orig = new InstanceSummaryProfilingEvent(PROFILING_INTERVAL, IOWAIT_CPU,
 			IDLE_CPU, USER_CPU, SYSTEM_CPU, HARD_IRQ_CPU, SOFT_IRQ_CPU, TOTAL_MEMORY, FREE_MEMORY, BUFFERED_MEMORY,
-			CACHED_MEMORY, CACHED_SWAP_MEMORY, RECEIVED_BYTES, TRANSMITTED_BYTES, new JobID(), TIMESTAMP,
+			CACHED_MEMORY, CACHED_SWAP_MEMORY, RECEIVED_BYTES, TRANSMITTED_BYTES, TOTAL_MANAGED_MEMORY,
+			ALLOCATED_MANAGED_MEMORY, MEMORY_ALLOCATION_LATENCY, new JobID(), TIMESTAMP,
 			PROFILING_TIMESTAMP);
 
 		final InstanceSummaryProfilingEvent copy = (InstanceSummaryProfilingEvent) ManagementTestUtils.createCopy(orig);
@@ -106,6 +113,9 @@ public class ProfilingTypesTest {
 		assertEquals(orig.getCachedSwapMemory(), copy.getCachedSwapMemory());
 		assertEquals(orig.getReceivedBytes(), copy.getReceivedBytes());
 		assertEquals(orig.getTransmittedBytes(), copy.getTransmittedBytes());
+		assertEquals(orig.getTotalManagedMemory(), copy.getTotalManagedMemory());
+		assertEquals(orig.getAllocatedManagedMemory(), copy.getAllocatedManagedMemory());
+		assertEquals(orig.getMemoryAllocationLatency(), copy.getMemoryAllocationLatency());
 		assertEquals(orig.getJobID(), copy.getJobID());
 		assertEquals(orig.getTimestamp(), copy.getTimestamp());
 		assertEquals(orig.getProfilingTimestamp(), copy.getProfilingTimestamp());
@@ -121,7 +131,8 @@ public class ProfilingTypesTest {
 
 		final SingleInstanceProfilingEvent orig = new SingleInstanceProfilingEvent(PROFILING_INTERVAL, IOWAIT_CPU,
 			IDLE_CPU, USER_CPU, SYSTEM_CPU, HARD_IRQ_CPU, SOFT_IRQ_CPU, TOTAL_MEMORY, FREE_MEMORY, BUFFERED_MEMORY,
-			CACHED_MEMORY, CACHED_SWAP_MEMORY, RECEIVED_BYTES, TRANSMITTED_BYTES, new JobID(), TIMESTAMP,
+			CACHED_MEMORY, CACHED_SWAP_MEMORY, RECEIVED_BYTES, TRANSMITTED_BYTES, TOTAL_MANAGED_MEMORY,
+			ALLOCATED_MANAGED_MEMORY, MEMORY_ALLOCATION_LATENCY, new JobID(), TIMESTAMP,
 			PROFILING_TIMESTAMP, INSTANCE_NAME);
 
 		final SingleInstanceProfilingEvent copy = (SingleInstanceProfilingEvent) ManagementTestUtils.createCopy(orig);
@@ -140,6 +151,9 @@ public class ProfilingTypesTest {
 		assertEquals(orig.getCachedSwapMemory(), copy.getCachedSwapMemory());
 		assertEquals(orig.getReceivedBytes(), copy.getReceivedBytes());
 		assertEquals(orig.getTransmittedBytes(), copy.getTransmittedBytes());
+		assertEquals(orig.getTotalManagedMemory(), copy.getTotalManagedMemory());
+		assertEquals(orig.getAllocatedManagedMemory(), copy.getAllocatedManagedMemory());
+		assertEquals(orig.getMemoryAllocationLatency(), copy.getMemoryAllocationLatency());
 		assertEquals(orig.getJobID(), copy.getJobID());
 		assertEquals(orig.getTimestamp(), copy.getTimestamp());
 		assertEquals(orig.getProfilingTimestamp(), copy.getProfilingTimestamp());
@@ -24,6 +24,7 @@ import java.util.regex.Pattern;
 import eu.stratosphere.nephele.instance.InstanceConnectionInfo;
 import eu.stratosphere.nephele.profiling.ProfilingException;
 import eu.stratosphere.nephele.profiling.impl.types.InternalInstanceProfilingData;
+import eu.stratosphere.nephele.services.memorymanager.MemoryManager;
 import eu.stratosphere.nephele.util.StringUtils;
 
 public class InstanceProfiler {
@@ -72,6 +73,13 @@ public class InstanceProfiler {
 
 	private long firstTimestamp;
 
+	// Managed memory related variables
+	private volatile MemoryManager memoryManager = null;
+
+	private long lastNumberOfAllocations = 0;
+
+	private long lastAllocationTime = 0;
+
 	public InstanceProfiler(InstanceConnectionInfo instanceConnectionInfo)
 																			throws ProfilingException {
 
@@ -81,6 +89,16 @@ public class InstanceProfiler {
 		generateProfilingData(this.firstTimestamp);
 	}
 
+	/**
+	 * Sets the memory manager whose utilization and allocation latency shall be included in the profiling data.
+	 * 
+	 * @param memoryManager
+	 *        the memory manager of the task manager
+	 */
+	void setMemoryManager(final MemoryManager memoryManager) {
+		this.memoryManager = memoryManager;
+	}
+
 	InternalInstanceProfilingData generateProfilingData(long timestamp) throws ProfilingException {
 
 		final long profilingInterval = timestamp - lastTimestamp;
@@ -91,6 +109,7 @@ public class InstanceProfiler {
 		updateCPUUtilization(profilingData);
 		updateMemoryUtilization(profilingData);
 		updateNetworkUtilization(profilingData);
+		updateManagedMemoryUtilization(profilingData);
 
 		// Update timestamp
 		this.lastTimestamp = timestamp;
@@ -159,6 +178,34 @@ public class InstanceProfiler {
 
 	}
 
+	private void updateManagedMemoryUtilization(InternalInstanceProfilingData profilingData) {
+
+		final MemoryManager memoryManager = this.memoryManager;
+		if (memoryManager == null) {
+			return;
+		}
+
+		final long pageSize = memoryManager.getPageSize();
+		profilingData.setTotalManagedMemory(memoryManager.getTotalNumberOfPages() * pageSize);
+		profilingData.setAllocatedManagedMemory(memoryManager.getNumberOfAllocatedPages() * pageSize);
+
+		final long numberOfAllocations = memoryManager.getNumberOfAllocations();
+		final long allocationTime = memoryManager.getAccumulatedAllocationTime();
+		final long deltaAllocations = numberOfAllocations - this.lastNumberOfAllocations;
+		final long deltaAllocationTime = allocationTime - this.lastAllocationTime;
+
+		// Average latency of the allocations during the profiling interval in microseconds
+		if (deltaAllocations > 0) {
+			profilingData.setMemoryAllocationLatency(deltaAllocationTime / (deltaAllocations * 1000L));
+		} else {
+			profilingData.setMemoryAllocationLatency(0);
+		}
+
+		// Store values for next call
+		this.lastNumberOfAllocations = numberOfAllocations;
+		this.lastAllocationTime = allocationTime;
+	}
+
 	private long extractMemoryValue(String line) throws ProfilingException {
 
 		final Matcher matcher = MEMORY_PATTERN.matcher(line);
@@ -165,7 +165,8 @@ public class JobManagerProfilerImpl implements JobManagerProfiler, ProfilerImplP
 					profilingData.getSoftIrqCPU(), profilingData.getTotalMemory(), profilingData.getFreeMemory(),
 					profilingData.getBufferedMemory(), profilingData.getCachedMemory(), profilingData
 						.getCachedSwapMemory(), profilingData.getReceivedBytes(), profilingData.getTransmittedBytes(),
-					jobID, timestamp, timestamp - jobProfilingData.getProfilingStart(), profilingData
+					profilingData.getTotalManagedMemory(), profilingData.getAllocatedManagedMemory(), profilingData
+						.getMemoryAllocationLatency(), jobID, timestamp, timestamp - jobProfilingData.getProfilingStart(), profilingData
 						.getInstanceConnectionInfo().toString());
 
 				synchronized (this.registeredListeners) {
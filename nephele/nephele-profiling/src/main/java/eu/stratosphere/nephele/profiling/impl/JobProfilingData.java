@@ -127,6 +127,10 @@ public class JobProfilingData {
 		long receivedBytesSum = 0;
 		long transmittedBytesSum = 0;
 
+		long totalManagedMemorySum = 0;
+		long allocatedManagedMemorySum = 0;
+		long memoryAllocationLatencySum = 0;
+
 		// Sum up the individual values
 		while (instanceIterator.hasNext()) {
 
@@ -147,6 +151,9 @@ public class JobProfilingData {
 			bufferedMemorySum += profilingData.getBufferedMemory();
 			cachedMemorySum += profilingData.getCachedMemory();
 			cachedSwapMemorySum += profilingData.getCachedSwapMemory();
+			totalManagedMemorySum += profilingData.getTotalManagedMemory();
+			allocatedManagedMemorySum += profilingData.getAllocatedManagedMemory();
+			memoryAllocationLatencySum += profilingData.getMemoryAllocationLatency();
 		}
 
 		final InstanceSummaryProfilingEvent instanceSummary = new InstanceSummaryProfilingEvent(profilingIntervalSum
@@ -155,7 +162,9 @@ public class JobProfilingData {
 			/ numberOfInstances, totalMemorySum / (long) numberOfInstances, freeMemorySum / (long) numberOfInstances,
 			bufferedMemorySum / (long) numberOfInstances, cachedMemorySum / (long) numberOfInstances,
 			cachedSwapMemorySum / (long) numberOfInstances, receivedBytesSum / (long) numberOfInstances,
-			transmittedBytesSum / (long) numberOfInstances, this.executionGraph.getJobID(), timestamp,
+			transmittedBytesSum / (long) numberOfInstances, totalManagedMemorySum / (long) numberOfInstances,
+			allocatedManagedMemorySum / (long) numberOfInstances, memoryAllocationLatencySum / (long) numberOfInstances,
+			this.executionGraph.getJobID(), timestamp,
 			(timestamp - this.profilingStart));
 
 		this.collectedInstanceProfilingData.clear();
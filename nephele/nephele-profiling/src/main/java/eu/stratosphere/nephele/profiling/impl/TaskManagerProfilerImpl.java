@@ -42,6 +42,7 @@ import eu.stratosphere.nephele.profiling.TaskManagerProfiler;
 import eu.stratosphere.nephele.profiling.impl.types.InternalExecutionVertexThreadProfilingData;
 import eu.stratosphere.nephele.profiling.impl.types.InternalInstanceProfilingData;
 import eu.stratosphere.nephele.profiling.impl.types.ProfilingDataContainer;
+import eu.stratosphere.nephele.services.memorymanager.MemoryManager;
 import eu.stratosphere.nephele.taskmanager.runtime.RuntimeTask;
 import eu.stratosphere.nephele.util.StringUtils;
 
@@ -118,6 +119,15 @@ public class TaskManagerProfilerImpl extends TimerTask implements TaskManagerPro
 		 */
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void registerMemoryManager(final MemoryManager memoryManager) {
+
+		this.instanceProfiler.setMemoryManager(memoryManager);
+	}
+
 	@Override
 	public void shutdown() {
 
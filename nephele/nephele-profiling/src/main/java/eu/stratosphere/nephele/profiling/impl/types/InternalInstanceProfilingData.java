@@ -53,6 +53,12 @@ public class InternalInstanceProfilingData implements InternalProfilingData {
 
 	private long transmittedBytes;
 
+	private long totalManagedMemory;
+
+	private long allocatedManagedMemory;
+
+	private long memoryAllocationLatency;
+
 	public InternalInstanceProfilingData() {
 		this.freeMemory = -1;
 		this.ioWaitCPU = -1;
@@ -67,6 +73,9 @@ public class InternalInstanceProfilingData implements InternalProfilingData {
 		this.userCPU = -1;
 		this.receivedBytes = -1;
 		this.transmittedBytes = -1;
+		this.totalManagedMemory = -1;
+		this.allocatedManagedMemory = -1;
+		this.memoryAllocationLatency = -1;
 	}
 
 	public InternalInstanceProfilingData(InstanceConnectionInfo instanceConnectionInfo, int profilingInterval) {
@@ -84,6 +93,9 @@ public class InternalInstanceProfilingData implements InternalProfilingData {
 		this.userCPU = -1;
 		this.receivedBytes = -1;
 		this.transmittedBytes = -1;
+		this.totalManagedMemory = -1;
+		this.allocatedManagedMemory = -1;
+		this.memoryAllocationLatency = -1;
 	}
 
 	public long getFreeMemory() {
@@ -146,6 +158,18 @@ public class InternalInstanceProfilingData implements InternalProfilingData {
 		return this.transmittedBytes;
 	}
 
+	public long getTotalManagedMemory() {
+		return this.totalManagedMemory;
+	}
+
+	public long getAllocatedManagedMemory() {
+		return this.allocatedManagedMemory;
+	}
+
+	public long getMemoryAllocationLatency() {
+		return this.memoryAllocationLatency;
+	}
+
 	@Override
 	public void read(DataInput in) throws IOException {
 
@@ -164,6 +188,9 @@ public class InternalInstanceProfilingData implements InternalProfilingData {
 		this.transmittedBytes = in.readLong();
 		this.hardIrqCPU = in.readInt();
 		this.softIrqCPU = in.readInt();
+		this.totalManagedMemory = in.readLong();
+		this.allocatedManagedMemory = in.readLong();
+		this.memoryAllocationLatency = in.readLong();
 
 	}
 
@@ -185,6 +212,9 @@ public class InternalInstanceProfilingData implements InternalProfilingData {
 		out.writeLong(this.transmittedBytes);
 		out.writeInt(this.hardIrqCPU);
 		out.writeInt(this.softIrqCPU);
+		out.writeLong(this.totalManagedMemory);
+		out.writeLong(this.allocatedManagedMemory);
+		out.writeLong(this.memoryAllocationLatency);
 
 	}
 
@@ -240,4 +270,16 @@ public class InternalInstanceProfilingData implements InternalProfilingData {
 		this.transmittedBytes = transmittedBytes;
 	}
 
+	public void setTotalManagedMemory(long totalManagedMemory) {
+		this.totalManagedMemory = totalManagedMemory;
+	}
+
+	public void setAllocatedManagedMemory(long allocatedManagedMemory) {
+		this.allocatedManagedMemory = allocatedManagedMemory;
+	}
+
+	public void setMemoryAllocationLatency(long memoryAllocationLatency) {
+		this.memoryAllocationLatency = memoryAllocationLatency;
+	}
+
 }
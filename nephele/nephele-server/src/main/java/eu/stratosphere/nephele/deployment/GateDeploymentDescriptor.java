@@ -25,6 +25,7 @@ import java.util.List;
 import eu.stratosphere.nephele.io.GateID;
 import eu.stratosphere.nephele.io.IOReadableWritable;
 import eu.stratosphere.nephele.io.channels.ChannelType;
+import eu.stratosphere.nephele.io.compression.CompressionLevel;
 import eu.stratosphere.nephele.util.EnumUtils;
 
 /**
@@ -47,11 +48,31 @@ public final class GateDeploymentDescriptor implements IOReadableWritable {
 	 */
 	private ChannelType channelType;
 
+	/**
+	 * The compression level of the gate.
+	 */
+	private CompressionLevel compressionLevel;
+
 	/**
 	 * The list of channel deployment descriptors attached to this gate.
 	 */
 	private final List<ChannelDeploymentDescriptor> channels;
 
+	/**
+	 * Constructs a new gate deployment descriptor for a gate without compression.
+	 * 
+	 * @param gateID
+	 *        the ID of the gate
+	 * @param channelType
+	 *        the channel type of the gate
+	 * @param channels
+	 *        the list of channel deployment descriptors attached to this gate
+	 */
+	public GateDeploymentDescriptor(final GateID gateID, final ChannelType channelType,
+			final List<ChannelDeploymentDescriptor> channels) {
+		this(gateID, channelType, CompressionLevel.NO_COMPRESSION, channels);
+	}
+
 	/**
 	 * Constructs a new gate deployment descriptor
 	 * 
@@ -65,7 +86,7 @@ public final class GateDeploymentDescriptor implements IOReadableWritable {
 	 *        the list of channel deployment descriptors attached to this gate
 	 */
 	public GateDeploymentDescriptor(final GateID gateID, final ChannelType channelType,
-			 List<ChannelDeploymentDescriptor> channels) {
+			final CompressionLevel compressionLevel, final List<ChannelDeploymentDescriptor> channels) {
 
 		if (gateID == null) {
 			throw new IllegalArgumentException("Argument gateID must no be null");
@@ -75,12 +96,17 @@ public final class GateDeploymentDescriptor implements IOReadableWritable {
 			throw new IllegalArgumentException("Argument channelType must no be null");
 		}
 
+		if (compressionLevel == null) {
+			throw new IllegalArgumentException("Argument compressionLevel must no be null");
+		}
+
 		if (channels == null) {
 			throw new IllegalArgumentException("Argument channels must no be null");
 		}
 
 		this.gateID = gateID;
 		this.channelType = channelType;
+		this.compressionLevel = compressionLevel;
 		this.channels = channels;
 	}
 
@@ -91,6 +117,7 @@ public final class GateDeploymentDescriptor implements IOReadableWritable {
 
 		this.gateID = new GateID();
 		this.channelType = null;
+		this.compressionLevel = null;
 		this.channels = new ArrayList<ChannelDeploymentDescriptor>();
 	}
 
@@ -102,6 +129,7 @@ public final class GateDeploymentDescriptor implements IOReadableWritable {
 
 		this.gateID.write(out);
 		EnumUtils.writeEnum(out, channelType);
+		EnumUtils.writeEnum(out, compressionLevel);
 		out.writeInt(this.channels.size());
 		final Iterator<ChannelDeploymentDescriptor> it = this.channels.iterator();
 		while (it.hasNext()) {
@@ -117,6 +145,7 @@ public final class GateDeploymentDescriptor implements IOReadableWritable {
 
 		this.gateID.read(in);
 		this.channelType = EnumUtils.readEnum(in, ChannelType.class);
+		this.compressionLevel = EnumUtils.readEnum(in, CompressionLevel.class);
 		final int nocdd = in.readInt();
 		for (int i = 0; i < nocdd; ++i) {
 			final ChannelDeploymentDescriptor cdd = new ChannelDeploymentDescriptor();
@@ -145,6 +174,16 @@ public final class GateDeploymentDescriptor implements IOReadableWritable {
 		return this.channelType;
 	}
 
+	/**
+	 * Returns the compression level of the gate.
+	 * 
+	 * @return the compression level of the gate
+	 */
+	public CompressionLevel getCompressionLevel() {
+
+		return this.compressionLevel;
+	}
+
 	/**
 	 * Returns the number of channel deployment descriptors attached to this gate descriptor.
 	 * 
@@ -0,0 +1,127 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.deployment;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * The shared deployment data cache stores the serialized shared data of {@link TaskDeploymentDescriptorList} objects
+ * received by a task manager, indexed by the key of the data. If the cache exceeds its maximum size, the least
+ * recently used entries are evicted. The cached arrays are never copied, so they must not be modified.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class SharedDeploymentDataCache {
+
+	/**
+	 * The default maximum number of bytes stored in the cache.
+	 */
+	public static final int DEFAULT_MAXIMUM_SIZE = 32 * 1024 * 1024;
+
+	/**
+	 * The maximum number of bytes stored in the cache.
+	 */
+	private final int maximumSize;
+
+	/**
+	 * The cached shared data, indexed by its key, in least-recently-used order.
+	 */
+	private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+
+	/**
+	 * The number of bytes currently stored in the cache.
+	 */
+	private int size = 0;
+
+	/**
+	 * Constructs a new shared deployment data cache with the default maximum size.
+	 */
+	public SharedDeploymentDataCache() {
+		this(DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * Constructs a new shared deployment data cache.
+	 * 
+	 * @param maximumSize
+	 *        the maximum number of bytes stored in the cache
+	 */
+	public SharedDeploymentDataCache(final int maximumSize) {
+
+		if (maximumSize < 0) {
+			throw new IllegalArgumentException("Argument maximumSize must not be negative");
+		}
+
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Adds the given shared data to the cache and evicts the least recently used entries if the cache is full. The
+	 * most recently added entry is always kept.
+	 * 
+	 * @param key
+	 *        the key of the shared data
+	 * @param data
+	 *        the serialized shared data
+	 */
+	public synchronized void put(final String key, final byte[] data) {
+
+		final byte[] previous = this.entries.put(key, data);
+		if (previous != null) {
+			this.size -= previous.length;
+		}
+		this.size += data.length;
+
+		final Iterator<byte[]> it = this.entries.values().iterator();
+		while (this.size > this.maximumSize && this.entries.size() > 1) {
+			this.size -= it.next().length;
+			it.remove();
+		}
+	}
+
+	/**
+	 * Returns the shared data cached under the given key.
+	 * 
+	 * @param key
+	 *        the key of the shared data
+	 * @return the serialized shared data or <code>null</code> if no data is cached under the given key
+	 */
+	public synchronized byte[] get(final String key) {
+
+		return this.entries.get(key);
+	}
+
+	/**
+	 * Returns the number of bytes currently stored in the cache.
+	 * 
+	 * @return the number of bytes currently stored in the cache
+	 */
+	public synchronized int getSize() {
+
+		return this.size;
+	}
+
+	/**
+	 * Removes all shared data from the cache.
+	 */
+	public synchronized void clear() {
+
+		this.entries.clear();
+		this.size = 0;
+	}
+}
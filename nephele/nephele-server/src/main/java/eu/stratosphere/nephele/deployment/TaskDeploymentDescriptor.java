@@ -212,10 +212,33 @@ public final class TaskDeploymentDescriptor implements IOReadableWritable {
 	@Override
 	public void write(final DataOutput out) throws IOException {
 
+		writeSharedData(out);
+		writeSubtaskData(out);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void read(final DataInput in) throws IOException {
+
+		readSharedData(in);
+		readSubtaskData(in);
+	}
+
+	/**
+	 * Writes the part of the descriptor which is shared by all subtasks of the same group vertex, i.e. the job ID,
+	 * the task name, the number of subtasks, the required jar files, the invokable class and the configurations.
+	 * 
+	 * @param out
+	 *        the output to write the shared data to
+	 * @throws IOException
+	 *         thrown if an error occurs while writing the shared data
+	 */
+	void writeSharedData(final DataOutput out) throws IOException {
+
 		this.jobID.write(out);
-		this.vertexID.write(out);
 		StringRecord.writeString(out, this.taskName);
-		out.writeInt(this.indexInSubtaskGroup);
 		out.writeInt(this.currentNumberOfSubtasks);
 
 		// Write out the names of the required jar files
@@ -235,6 +258,21 @@ public final class TaskDeploymentDescriptor implements IOReadableWritable {
 
 		this.jobConfiguration.write(out);
 		this.taskConfiguration.write(out);
+	}
+
+	/**
+	 * Writes the part of the descriptor which is specific to the individual subtask, i.e. the vertex ID, the index in
+	 * the subtask group, the gates and the attached plugin data.
+	 * 
+	 * @param out
+	 *        the output to write the subtask data to
+	 * @throws IOException
+	 *         thrown if an error occurs while writing the subtask data
+	 */
+	void writeSubtaskData(final DataOutput out) throws IOException {
+
+		this.vertexID.write(out);
+		out.writeInt(this.indexInSubtaskGroup);
 
 		this.outputGates.write(out);
 		this.inputGates.write(out);
@@ -242,16 +280,19 @@ public final class TaskDeploymentDescriptor implements IOReadableWritable {
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Reads the part of the descriptor which is shared by all subtasks of the same group vertex and registers the
+	 * required jar files with the library cache manager.
+	 * 
+	 * @param in
+	 *        the input to read the shared data from
+	 * @throws IOException
+	 *         thrown if an error occurs while reading the shared data
 	 */
 	@SuppressWarnings("unchecked")
-	@Override
-	public void read(final DataInput in) throws IOException {
+	void readSharedData(final DataInput in) throws IOException {
 
 		this.jobID.read(in);
-		this.vertexID.read(in);
 		this.taskName = StringRecord.readString(in);
-		this.indexInSubtaskGroup = in.readInt();
 		this.currentNumberOfSubtasks = in.readInt();
 
 		// Read names of required jar files
@@ -284,12 +325,69 @@ public final class TaskDeploymentDescriptor implements IOReadableWritable {
 		this.jobConfiguration.read(in);
 		this.taskConfiguration = new Configuration(cl);
 		this.taskConfiguration.read(in);
+	}
+
+	/**
+	 * Copies the shared data from the given descriptor, whose shared data has been read already, instead of
+	 * deserializing it again. The job is registered with the library cache manager for this descriptor as well, and
+	 * the configurations are copied, so tasks never share configuration objects.
+	 * 
+	 * @param template
+	 *        the descriptor of the same group vertex to copy the shared data from
+	 * @throws IOException
+	 *         thrown if the job cannot be registered with the library cache manager
+	 */
+	void copySharedData(final TaskDeploymentDescriptor template) throws IOException {
+
+		this.jobID.setID(template.jobID);
+		this.taskName = template.taskName;
+		this.currentNumberOfSubtasks = template.currentNumberOfSubtasks;
+
+		// The template has registered the job, so the library cache manager knows the required jar files
+		LibraryCacheManager.register(this.jobID, LibraryCacheManager.getRequiredJarFiles(template.jobID));
+
+		final ClassLoader cl = LibraryCacheManager.getClassLoader(this.jobID);
+		this.invokableClass = template.invokableClass;
+		this.jobConfiguration = new Configuration(cl);
+		this.jobConfiguration.addAll(template.jobConfiguration);
+		this.taskConfiguration = new Configuration(cl);
+		this.taskConfiguration.addAll(template.taskConfiguration);
+	}
+
+	/**
+	 * Reads the part of the descriptor which is specific to the individual subtask.
+	 * 
+	 * @param in
+	 *        the input to read the subtask data from
+	 * @throws IOException
+	 *         thrown if an error occurs while reading the subtask data
+	 */
+	void readSubtaskData(final DataInput in) throws IOException {
+
+		this.vertexID.read(in);
+		this.indexInSubtaskGroup = in.readInt();
 
 		this.outputGates.read(in);
 		this.inputGates.read(in);
 		this.attachedPluginData.read(in);
 	}
 
+	/**
+	 * Checks whether this descriptor and the given descriptor belong to the same group vertex and refer to the same
+	 * configuration objects, so their shared data is identical.
+	 * 
+	 * @param tdd
+	 *        the descriptor to compare with
+	 * @return <code>true</code> if both descriptors share the same data, <code>false</code> otherwise
+	 */
+	boolean sharesDataWith(final TaskDeploymentDescriptor tdd) {
+
+		return this.jobID.equals(tdd.jobID) && this.taskName.equals(tdd.taskName)
+			&& this.currentNumberOfSubtasks == tdd.currentNumberOfSubtasks
+			&& this.invokableClass == tdd.invokableClass && this.jobConfiguration == tdd.jobConfiguration
+			&& this.taskConfiguration == tdd.taskConfiguration;
+	}
+
 	/**
 	 * Returns the ID of the job the tasks belongs to.
 	 * 
@@ -0,0 +1,368 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.deployment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import eu.stratosphere.nephele.executiongraph.ExecutionVertexID;
+import eu.stratosphere.nephele.io.IOReadableWritable;
+import eu.stratosphere.nephele.types.StringRecord;
+
+/**
+ * A list of task deployment descriptors with a compact wire format. The data shared by the subtasks of a group
+ * vertex, i.e. the job and task configuration, the invokable class and the required jar files, is written only once
+ * per list, followed by the subtask specific parts of the individual descriptors. The receiving task manager caches
+ * the shared data by the hash of its serialized form in its {@link SharedDeploymentDataCache}. If the sender knows the
+ * receiver already caches a particular piece of shared data, only its hash is transmitted.
+ * <p>
+ * A list which has been read is empty until {@link #resolveSharedData(SharedDeploymentDataCache)} is called with the
+ * receiver's cache. If the cache no longer contains the shared data referred to by a hash, the affected descriptors
+ * are dropped and their vertex IDs are reported by {@link #getVerticesWithMissingData()}, so the sender can deploy
+ * them again with the full data.
+ * <p>
+ * The list must not be modified after its shared data keys have been determined. This class is not thread-safe.
+ */
+public final class TaskDeploymentDescriptorList extends ArrayList<TaskDeploymentDescriptor> implements
+		IOReadableWritable {
+
+	/**
+	 * Generated serial version UID.
+	 */
+	private static final long serialVersionUID = -3172305627459105271L;
+
+	/**
+	 * The keys of the shared data the receiver is known to cache.
+	 */
+	private final transient Set<String> cachedKeys;
+
+	/**
+	 * The keys of the shared data of this list, one per group of descriptors, or <code>null</code> if not determined
+	 * yet.
+	 */
+	private transient List<String> keys = null;
+
+	/**
+	 * The serialized shared data of this list, one per group of descriptors. On the receiving side, the entry of a
+	 * group is <code>null</code> if only its key has been transmitted.
+	 */
+	private transient List<byte[]> sharedData = null;
+
+	/**
+	 * The index of the group each descriptor of this list belongs to. On the receiving side, the indices refer to the
+	 * unresolved descriptors.
+	 */
+	private transient int[] groupIndices = null;
+
+	/**
+	 * The descriptors which have been read but whose shared data has not been resolved yet.
+	 */
+	private final transient List<TaskDeploymentDescriptor> unresolvedDescriptors =
+		new ArrayList<TaskDeploymentDescriptor>();
+
+	/**
+	 * The IDs of the vertices whose descriptors could not be read because their shared data was not cached.
+	 */
+	private final transient List<ExecutionVertexID> verticesWithMissingData = new ArrayList<ExecutionVertexID>();
+
+	/**
+	 * Constructs an empty list which transmits the full shared data.
+	 */
+	public TaskDeploymentDescriptorList() {
+		this.cachedKeys = Collections.emptySet();
+	}
+
+	/**
+	 * Constructs an empty list which transmits only the hash of the shared data the receiver is known to cache.
+	 * 
+	 * @param cachedKeys
+	 *        the keys of the shared data the receiver is known to cache
+	 */
+	public TaskDeploymentDescriptorList(final Set<String> cachedKeys) {
+
+		if (cachedKeys == null) {
+			throw new IllegalArgumentException("Argument cachedKeys must not be null");
+		}
+
+		this.cachedKeys = cachedKeys;
+	}
+
+	/**
+	 * Returns the keys of the shared data of the descriptors in this list. After a successful transmission, the
+	 * receiver caches the shared data under these keys.
+	 * 
+	 * @return the keys of the shared data of the descriptors in this list
+	 * @throws IOException
+	 *         thrown if an error occurs while serializing the shared data
+	 */
+	public Set<String> getSharedDataKeys() throws IOException {
+
+		groupDescriptors();
+
+		return new HashSet<String>(this.keys);
+	}
+
+	/**
+	 * Returns the IDs of the vertices whose descriptors could not be read because their shared data was not cached
+	 * by the receiver.
+	 * 
+	 * @return the IDs of the vertices whose descriptors could not be read
+	 */
+	public List<ExecutionVertexID> getVerticesWithMissingData() {
+
+		return this.verticesWithMissingData;
+	}
+
+	/**
+	 * Groups the descriptors of this list by their shared data and serializes the shared data once per group.
+	 * 
+	 * @throws IOException
+	 *         thrown if an error occurs while serializing the shared data
+	 */
+	private void groupDescriptors() throws IOException {
+
+		if (this.keys != null) {
+			return;
+		}
+
+		final List<String> keys = new ArrayList<String>();
+		final List<byte[]> sharedData = new ArrayList<byte[]>();
+		final List<TaskDeploymentDescriptor> representatives = new ArrayList<TaskDeploymentDescriptor>();
+		final List<Integer> representedGroups = new ArrayList<Integer>();
+		final Map<String, Integer> keyToGroup = new HashMap<String, Integer>();
+		final int[] groupIndices = new int[size()];
+
+		for (int i = 0; i < size(); ++i) {
+
+			final TaskDeploymentDescriptor tdd = get(i);
+
+			// Descriptors of the same group vertex usually share the configuration objects, so compare them first
+			Integer groupIndex = null;
+			for (int j = 0; j < representatives.size(); ++j) {
+				if (representatives.get(j).sharesDataWith(tdd)) {
+					groupIndex = representedGroups.get(j);
+					break;
+				}
+			}
+
+			if (groupIndex == null) {
+
+				final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				final DataOutputStream dos = new DataOutputStream(baos);
+				tdd.writeSharedData(dos);
+				dos.flush();
+				final byte[] data = baos.toByteArray();
+				final String key = computeKey(data);
+
+				groupIndex = keyToGroup.get(key);
+				if (groupIndex == null) {
+					groupIndex = Integer.valueOf(keys.size());
+					keys.add(key);
+					sharedData.add(data);
+					keyToGroup.put(key, groupIndex);
+				}
+
+				representatives.add(tdd);
+				representedGroups.add(groupIndex);
+			}
+
+			groupIndices[i] = groupIndex.intValue();
+		}
+
+		this.keys = keys;
+		this.sharedData = sharedData;
+		this.groupIndices = groupIndices;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final DataOutput out) throws IOException {
+
+		groupDescriptors();
+
+		// Write the shared data once per group, or only its key if the receiver caches it already
+		out.writeInt(this.keys.size());
+		for (int i = 0; i < this.keys.size(); ++i) {
+
+			final String key = this.keys.get(i);
+			StringRecord.writeString(out, key);
+			if (this.cachedKeys.contains(key)) {
+				out.writeBoolean(false);
+			} else {
+				out.writeBoolean(true);
+				final byte[] data = this.sharedData.get(i);
+				out.writeInt(data.length);
+				out.write(data);
+			}
+		}
+
+		// Write the subtask specific data of the individual descriptors
+		out.writeInt(size());
+		for (int i = 0; i < size(); ++i) {
+			out.writeInt(this.groupIndices[i]);
+			get(i).writeSubtaskData(out);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void read(final DataInput in) throws IOException {
+
+		// Make sure the list is empty
+		clear();
+		this.unresolvedDescriptors.clear();
+		this.verticesWithMissingData.clear();
+
+		final int numberOfGroups = in.readInt();
+		final List<String> keys = new ArrayList<String>(numberOfGroups);
+		final List<byte[]> sharedData = new ArrayList<byte[]>(numberOfGroups);
+		for (int i = 0; i < numberOfGroups; ++i) {
+
+			keys.add(StringRecord.readString(in));
+			if (in.readBoolean()) {
+				final byte[] data = new byte[in.readInt()];
+				in.readFully(data);
+				sharedData.add(data);
+			} else {
+				sharedData.add(null);
+			}
+		}
+
+		final int numberOfDescriptors = in.readInt();
+		final int[] groupIndices = new int[numberOfDescriptors];
+		for (int i = 0; i < numberOfDescriptors; ++i) {
+
+			groupIndices[i] = in.readInt();
+			if (groupIndices[i] < 0 || groupIndices[i] >= numberOfGroups) {
+				throw new IOException("Invalid group index " + groupIndices[i]);
+			}
+
+			final TaskDeploymentDescriptor tdd = new TaskDeploymentDescriptor();
+			tdd.readSubtaskData(in);
+			this.unresolvedDescriptors.add(tdd);
+		}
+
+		this.keys = keys;
+		this.sharedData = sharedData;
+		this.groupIndices = groupIndices;
+	}
+
+	/**
+	 * Completes the descriptors which have been read with their shared data and adds them to this list. The shared data
+	 * received with this list is added to the given cache, the shared data of which only the key has been received is
+	 * taken from it. The shared data of each group is deserialized only once, the other descriptors of the group copy
+	 * the deserialized objects. Descriptors whose shared data is not cached are reported by
+	 * {@link #getVerticesWithMissingData()}.
+	 * 
+	 * @param cache
+	 *        the cache of the receiving task manager
+	 * @throws IOException
+	 *         thrown if an error occurs while deserializing the shared data
+	 */
+	public void resolveSharedData(final SharedDeploymentDataCache cache) throws IOException {
+
+		if (this.unresolvedDescriptors.isEmpty()) {
+			return;
+		}
+
+		final int numberOfGroups = this.keys.size();
+		final byte[][] sharedData = new byte[numberOfGroups][];
+		for (int i = 0; i < numberOfGroups; ++i) {
+
+			final String key = this.keys.get(i);
+			final byte[] data = this.sharedData.get(i);
+			if (data != null) {
+				cache.put(key, data);
+				sharedData[i] = data;
+			} else {
+				sharedData[i] = cache.get(key);
+			}
+		}
+
+		final TaskDeploymentDescriptor[] templates = new TaskDeploymentDescriptor[numberOfGroups];
+		for (int i = 0; i < this.unresolvedDescriptors.size(); ++i) {
+
+			final TaskDeploymentDescriptor tdd = this.unresolvedDescriptors.get(i);
+			final int groupIndex = this.groupIndices[i];
+			final byte[] data = sharedData[groupIndex];
+
+			if (data == null) {
+				this.verticesWithMissingData.add(tdd.getVertexID());
+				continue;
+			}
+
+			final TaskDeploymentDescriptor template = templates[groupIndex];
+			if (template == null) {
+				tdd.readSharedData(new DataInputStream(new ByteArrayInputStream(data)));
+				templates[groupIndex] = tdd;
+			} else {
+				tdd.copySharedData(template);
+			}
+
+			add(tdd);
+		}
+
+		this.unresolvedDescriptors.clear();
+	}
+
+	/**
+	 * Computes the key of the given serialized shared data.
+	 * 
+	 * @param data
+	 *        the serialized shared data
+	 * @return the key of the shared data
+	 * @throws IOException
+	 *         thrown if the key cannot be computed
+	 */
+	private static String computeKey(final byte[] data) throws IOException {
+
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e.getMessage());
+		}
+
+		final byte[] hash = digest.digest(data);
+		final StringBuilder sb = new StringBuilder(2 * hash.length + 9);
+		for (int i = 0; i < hash.length; ++i) {
+			sb.append(Character.forDigit((hash[i] >>> 4) & 0x0F, 16));
+			sb.append(Character.forDigit(hash[i] & 0x0F, 16));
+		}
+		sb.append('-');
+		sb.append(data.length);
+
+		return sb.toString();
+	}
+}
@@ -247,6 +247,7 @@ public class RuntimeEnvironment implements Environment, Runnable {
 			final OutputGate og = this.outputGates.get(i);
 			final ChannelType channelType = gdd.getChannelType();
 			og.setChannelType(channelType);
+			og.setCompressionLevel(gdd.getCompressionLevel());
 
 			final int nocdd = gdd.getNumberOfChannelDescriptors();
 			for (int j = 0; j < nocdd; ++j) {
@@ -271,6 +272,7 @@ public class RuntimeEnvironment implements Environment, Runnable {
 			final InputGate ig = this.inputGates.get(i);
 			final ChannelType channelType = gdd.getChannelType();
 			ig.setChannelType(channelType);
+			ig.setCompressionLevel(gdd.getCompressionLevel());
 
 			final int nicdd = gdd.getNumberOfChannelDescriptors();
 			for (int j = 0; j < nicdd; ++j) {
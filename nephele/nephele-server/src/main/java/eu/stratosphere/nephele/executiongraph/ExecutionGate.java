@@ -20,6 +20,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 import eu.stratosphere.nephele.io.GateID;
 import eu.stratosphere.nephele.io.channels.ChannelType;
+import eu.stratosphere.nephele.io.compression.CompressionLevel;
 
 /**
  * Objects of this class represent either an {@link InputGate} or {@link OutputGate} within an {@link ExecutionGraph},
@@ -86,6 +87,11 @@ public final class ExecutionGate {
 		return this.groupEdge.getChannelType();
 	}
 
+	public CompressionLevel getCompressionLevel() {
+
+		return this.groupEdge.getCompressionLevel();
+	}
+
 	ExecutionGroupEdge getGroupEdge() {
 
 		return this.groupEdge;
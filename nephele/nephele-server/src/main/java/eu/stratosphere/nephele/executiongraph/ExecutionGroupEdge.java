@@ -17,6 +17,7 @@ package eu.stratosphere.nephele.executiongraph;
 
 import eu.stratosphere.nephele.io.DistributionPattern;
 import eu.stratosphere.nephele.io.channels.ChannelType;
+import eu.stratosphere.nephele.io.compression.CompressionLevel;
 
 /**
  * An execution group edge represents an edge between two execution group vertices.
@@ -37,6 +38,17 @@ public class ExecutionGroupEdge {
 	 */
 	private volatile ChannelType channelType;
 
+	/**
+	 * Stores if the compression level has been specified by the user.
+	 */
+	private final boolean userDefinedCompressionLevel;
+
+	/**
+	 * The compression level to be used for the channels between the execution vertices of the two connected group
+	 * vertices.
+	 */
+	private final CompressionLevel compressionLevel;
+
 	/**
 	 * The edge's connection ID. The connection ID determines to which physical TCP connection channels represented by
 	 * this edge will be mapped in case the edge's channel type is NETWORK.
@@ -99,13 +111,16 @@ public class ExecutionGroupEdge {
 	 */
 	public ExecutionGroupEdge(final ExecutionGroupVertex sourceVertex, final int indexOfOutputGate,
 			final ExecutionGroupVertex targetVertex, final int indexOfInputGate, final ChannelType channelType,
-			final boolean userDefinedChannelType, final DistributionPattern distributionPattern,
+			final boolean userDefinedChannelType, final CompressionLevel compressionLevel,
+			final boolean userDefinedCompressionLevel, final DistributionPattern distributionPattern,
 			final boolean isBroadcast) {
 		this.sourceVertex = sourceVertex;
 		this.indexOfOutputGate = indexOfOutputGate;
 		this.channelType = channelType;
 		this.indexOfInputGate = indexOfInputGate;
 		this.userDefinedChannelType = userDefinedChannelType;
+		this.compressionLevel = compressionLevel;
+		this.userDefinedCompressionLevel = userDefinedCompressionLevel;
 		this.targetVertex = targetVertex;
 		this.distributionPattern = distributionPattern;
 		this.isBroadcast = isBroadcast;
@@ -120,6 +135,24 @@ public class ExecutionGroupEdge {
 		return this.channelType;
 	}
 
+	/**
+	 * Returns the compression level assigned to this edge.
+	 * 
+	 * @return the compression level assigned to this edge
+	 */
+	public CompressionLevel getCompressionLevel() {
+		return this.compressionLevel;
+	}
+
+	/**
+	 * Returns if the edge's compression level is user defined.
+	 * 
+	 * @return <code>true</code> if the compression level is user defined, <code>false</code> otherwise
+	 */
+	public boolean isCompressionLevelUserDefined() {
+		return this.userDefinedCompressionLevel;
+	}
+
 	/**
 	 * Changes the channel type for this edge.
 	 * 
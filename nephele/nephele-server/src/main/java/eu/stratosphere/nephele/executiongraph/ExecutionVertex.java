@@ -1017,7 +1017,7 @@ public final class ExecutionVertex {
 				cdd.add(new ChannelDeploymentDescriptor(ee.getOutputChannelID(), ee.getInputChannelID()));
 			}
 
-			ogd.add(new GateDeploymentDescriptor(eg.getGateID(), eg.getChannelType(), cdd));
+			ogd.add(new GateDeploymentDescriptor(eg.getGateID(), eg.getChannelType(), eg.getCompressionLevel(), cdd));
 		}
 
 		final SerializableArrayList<GateDeploymentDescriptor> igd = new SerializableArrayList<GateDeploymentDescriptor>(
@@ -1034,7 +1034,7 @@ public final class ExecutionVertex {
 				cdd.add(new ChannelDeploymentDescriptor(ee.getOutputChannelID(), ee.getInputChannelID()));
 			}
 
-			igd.add(new GateDeploymentDescriptor(eg.getGateID(), eg.getChannelType(), cdd));
+			igd.add(new GateDeploymentDescriptor(eg.getGateID(), eg.getChannelType(), eg.getCompressionLevel(), cdd));
 		}
 
 		SerializableHashMap<PluginID, IOReadableWritable> pluginData = new SerializableHashMap<PluginID, IOReadableWritable>();
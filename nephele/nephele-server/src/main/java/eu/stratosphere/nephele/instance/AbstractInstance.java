@@ -17,7 +17,10 @@ package eu.stratosphere.nephele.instance;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import eu.stratosphere.nephele.deployment.TaskDeploymentDescriptor;
@@ -72,6 +75,12 @@ public abstract class AbstractInstance extends NetworkNode {
 	 */
 	private PluginCommunicationProtocol taskManagerPluginComponent = null;
 
+	/**
+	 * The keys of the shared deployment data the instance's task manager has received so far, indexed by the job the
+	 * data has been sent for.
+	 */
+	private final Map<JobID, Set<String>> deploymentDataKeys = new HashMap<JobID, Set<String>>();
+
 	/**
 	 * Constructs an abstract instance object.
 	 * 
@@ -231,6 +240,58 @@ public abstract class AbstractInstance extends NetworkNode {
 		return getTaskManagerProxy().submitTasks(tasks);
 	}
 
+	/**
+	 * Returns the keys of the shared deployment data the instance's task manager has received so far for the given
+	 * job and is therefore expected to cache.
+	 * 
+	 * @param jobID
+	 *        the ID of the job to return the keys for
+	 * @return a copy of the keys of the shared deployment data sent to the instance for the given job
+	 */
+	public Set<String> getDeploymentDataKeys(final JobID jobID) {
+
+		synchronized (this.deploymentDataKeys) {
+			final Set<String> keys = this.deploymentDataKeys.get(jobID);
+			return (keys == null) ? new HashSet<String>() : new HashSet<String>(keys);
+		}
+	}
+
+	/**
+	 * Records that the shared deployment data with the given keys has been sent to the instance's task manager for
+	 * the given job.
+	 * 
+	 * @param jobID
+	 *        the ID of the job the shared deployment data has been sent for
+	 * @param keys
+	 *        the keys of the shared deployment data sent to the instance
+	 */
+	public void addDeploymentDataKeys(final JobID jobID, final Set<String> keys) {
+
+		synchronized (this.deploymentDataKeys) {
+			Set<String> jobKeys = this.deploymentDataKeys.get(jobID);
+			if (jobKeys == null) {
+				jobKeys = new HashSet<String>();
+				this.deploymentDataKeys.put(jobID, jobKeys);
+			}
+			jobKeys.addAll(keys);
+		}
+	}
+
+	/**
+	 * Forgets the keys of the shared deployment data sent to the instance's task manager for the given job. This
+	 * method is called when the job has left the system, so the set of recorded keys does not grow with the history
+	 * of the instance.
+	 * 
+	 * @param jobID
+	 *        the ID of the job whose keys shall be removed
+	 */
+	public void removeDeploymentDataKeys(final JobID jobID) {
+
+		synchronized (this.deploymentDataKeys) {
+			this.deploymentDataKeys.remove(jobID);
+		}
+	}
+
 	/**
 	 * Cancels the task identified by the given ID at the instance's
 	 * {@link eu.stratosphere.nephele.taskmanager.TaskManager}.
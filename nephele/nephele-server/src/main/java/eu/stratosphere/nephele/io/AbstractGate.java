@@ -19,6 +19,7 @@ import eu.stratosphere.nephele.event.task.AbstractTaskEvent;
 import eu.stratosphere.nephele.event.task.EventListener;
 import eu.stratosphere.nephele.event.task.EventNotificationManager;
 import eu.stratosphere.nephele.io.channels.ChannelType;
+import eu.stratosphere.nephele.io.compression.CompressionLevel;
 import eu.stratosphere.nephele.jobgraph.JobID;
 import eu.stratosphere.nephele.types.Record;
 
@@ -61,6 +62,11 @@ public abstract class AbstractGate<T extends Record> implements Gate<T> {
 	 */
 	private ChannelType channelType = ChannelType.NETWORK;
 
+	/**
+	 * The compression level applied to the data of the channels connected to this gate.
+	 */
+	private CompressionLevel compressionLevel = CompressionLevel.NO_COMPRESSION;
+
 	/**
 	 * Constructs a new abstract gate
 	 * 
@@ -149,6 +155,24 @@ public abstract class AbstractGate<T extends Record> implements Gate<T> {
 		return this.channelType;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final void setCompressionLevel(final CompressionLevel compressionLevel) {
+
+		this.compressionLevel = compressionLevel;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final CompressionLevel getCompressionLevel() {
+
+		return this.compressionLevel;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -248,6 +248,44 @@ public class RuntimeInputGate<T extends Record> extends AbstractGate<T> implemen
 		return record;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int readRecords(final T[] targets) throws IOException, InterruptedException {
+
+		if (targets.length == 0) {
+			return 0;
+		}
+
+		// The first record may require waiting for a channel to become available
+		T record = readRecord(targets[0]);
+		if (record == null) {
+			return 0;
+		}
+		targets[0] = record;
+
+		// Continue with the same channel as long as it provides records without blocking
+		int numberOfRecords = 1;
+		while (numberOfRecords < targets.length && this.channelToReadFrom != -1) {
+
+			try {
+				record = this.getInputChannel(this.channelToReadFrom).readRecord(targets[numberOfRecords]);
+			} catch (EOFException e) {
+				record = null;
+			}
+
+			if (record == null) {
+				this.channelToReadFrom = -1;
+				break;
+			}
+
+			targets[numberOfRecords++] = record;
+		}
+
+		return numberOfRecords;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -16,13 +16,16 @@
 package eu.stratosphere.nephele.io;
 
 import java.io.IOException;
+import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import eu.stratosphere.nephele.configuration.GlobalConfiguration;
 import eu.stratosphere.nephele.event.task.AbstractTaskEvent;
 import eu.stratosphere.nephele.execution.Environment;
 import eu.stratosphere.nephele.io.channels.AbstractOutputChannel;
@@ -51,6 +54,11 @@ public class RuntimeOutputGate<T extends Record> extends AbstractGate<T> impleme
 	 */
 	private static final Log LOG = LogFactory.getLog(OutputGate.class);
 
+	/**
+	 * The default setting for serializing the records of in-memory broadcast gates only once.
+	 */
+	private static final boolean DEFAULT_SERIALIZE_BROADCAST_ONCE = false;
+
 	/**
 	 * The list of output channels attached to this gate.
 	 */
@@ -71,6 +79,22 @@ public class RuntimeOutputGate<T extends Record> extends AbstractGate<T> impleme
 	 */
 	private final boolean isBroadcast;
 
+	/**
+	 * Stores whether broadcast records are written to the first output channel only, even if the channels are
+	 * in-memory channels.
+	 */
+	private final boolean serializeBroadcastOnce;
+
+	/**
+	 * The records of the current batch collected per output channel, see {@link #writeRecords(Record[], int)}.
+	 */
+	private T[][] batchRecordsPerChannel;
+
+	/**
+	 * The number of records of the current batch collected per output channel.
+	 */
+	private int[] numberOfBatchRecordsPerChannel = new int[0];
+
 	/**
 	 * Constructs a new runtime output gate.
 	 * 
@@ -92,10 +116,39 @@ public class RuntimeOutputGate<T extends Record> extends AbstractGate<T> impleme
 	public RuntimeOutputGate(final JobID jobID, final GateID gateID, final Class<T> inputClass, final int index,
 			final ChannelSelector<T> channelSelector, final boolean isBroadcast) {
 
+		this(jobID, gateID, inputClass, index, channelSelector, isBroadcast, isBroadcastSerializedOnce());
+	}
+
+	/**
+	 * Constructs a new runtime output gate.
+	 * 
+	 * @param jobID
+	 *        the ID of the job this input gate belongs to
+	 * @param gateID
+	 *        the ID of the gate
+	 * @param inputClass
+	 *        the class of the record that can be transported through this
+	 *        gate
+	 * @param index
+	 *        the index assigned to this output gate at the {@link Environment} object
+	 * @param channelSelector
+	 *        the channel selector to be used for this output gate
+	 * @param isBroadcast
+	 *        <code>true</code> if every records passed to this output gate shall be transmitted through all connected
+	 *        output channels, <code>false</code> otherwise
+	 * @param serializeBroadcastOnce
+	 *        <code>true</code> if broadcast records shall be written to the first output channel only, even if the
+	 *        channels are in-memory channels, <code>false</code> otherwise
+	 */
+	RuntimeOutputGate(final JobID jobID, final GateID gateID, final Class<T> inputClass, final int index,
+			final ChannelSelector<T> channelSelector, final boolean isBroadcast, final boolean serializeBroadcastOnce) {
+
 		super(jobID, gateID, index);
 
 		this.isBroadcast = isBroadcast;
+		this.serializeBroadcastOnce = serializeBroadcastOnce;
 		this.type = inputClass;
+		this.batchRecordsPerChannel = createRecordArrays(0);
 
 		if (this.isBroadcast) {
 			this.channelSelector = null;
@@ -258,7 +311,7 @@ public class RuntimeOutputGate<T extends Record> extends AbstractGate<T> impleme
 
 		if (this.isBroadcast) {
 
-			if (getChannelType() == ChannelType.INMEMORY) {
+			if (getChannelType() == ChannelType.INMEMORY && !this.serializeBroadcastOnce) {
 
 				final int numberOfOutputChannels = this.outputChannels.size();
 				for (int i = 0; i < numberOfOutputChannels; ++i) {
@@ -267,7 +320,7 @@ public class RuntimeOutputGate<T extends Record> extends AbstractGate<T> impleme
 
 			} else {
 
-				// Use optimization for byte buffered channels
+				// Use optimization for byte buffered channels, the record is delivered to the receivers of all channels
 				this.outputChannels.get(0).writeRecord(record);
 			}
 
@@ -291,6 +344,101 @@ public class RuntimeOutputGate<T extends Record> extends AbstractGate<T> impleme
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeRecords(final T[] records, final int numberOfRecords) throws IOException,
+			InterruptedException {
+
+		if (numberOfRecords < 0 || numberOfRecords > records.length) {
+			throw new IllegalArgumentException("Number of records " + numberOfRecords + " is out of range");
+		}
+
+		if (this.isBroadcast) {
+
+			if (getChannelType() == ChannelType.INMEMORY && !this.serializeBroadcastOnce) {
+
+				final int numberOfOutputChannels = this.outputChannels.size();
+				for (int i = 0; i < numberOfOutputChannels; ++i) {
+					this.outputChannels.get(i).writeRecords(records, numberOfRecords);
+				}
+
+			} else {
+
+				// Use optimization for byte buffered channels, the records reach the receivers of all channels
+				this.outputChannels.get(0).writeRecords(records, numberOfRecords);
+			}
+
+			return;
+		}
+
+		// Non-broadcast gate, first collect the records of the batch per selected output channel
+		final int numberOfOutputChannels = this.outputChannels.size();
+		if (this.batchRecordsPerChannel.length != numberOfOutputChannels) {
+			this.batchRecordsPerChannel = createRecordArrays(numberOfOutputChannels);
+			this.numberOfBatchRecordsPerChannel = new int[numberOfOutputChannels];
+		}
+
+		final ChannelSelector<T> selector = this.channelSelector;
+		final T[][] recordsPerChannel = this.batchRecordsPerChannel;
+		final int[] numberOfRecordsPerChannel = this.numberOfBatchRecordsPerChannel;
+
+		for (int i = 0; i < numberOfRecords; ++i) {
+
+			final T record = records[i];
+			final int[] selectedOutputChannels = selector.selectChannels(record, numberOfOutputChannels);
+			if (selectedOutputChannels == null) {
+				continue;
+			}
+
+			for (int j = 0; j < selectedOutputChannels.length; ++j) {
+
+				final int channel = selectedOutputChannels[j];
+				if (channel < numberOfOutputChannels) {
+					final int count = numberOfRecordsPerChannel[channel];
+					if (count == recordsPerChannel[channel].length) {
+						recordsPerChannel[channel] = Arrays.copyOf(recordsPerChannel[channel],
+							Math.max(numberOfRecords, 2 * count));
+					}
+					recordsPerChannel[channel][count] = record;
+					numberOfRecordsPerChannel[channel] = count + 1;
+				}
+			}
+		}
+
+		// Then write each channel's records in one go, which preserves the order of the records within each channel
+		try {
+			for (int i = 0; i < numberOfOutputChannels; ++i) {
+				if (numberOfRecordsPerChannel[i] > 0) {
+					this.outputChannels.get(i).writeRecords(recordsPerChannel[i], numberOfRecordsPerChannel[i]);
+				}
+			}
+		} finally {
+			// Do not keep references to the records, even if writing the batch failed
+			for (int i = 0; i < numberOfOutputChannels; ++i) {
+				Arrays.fill(recordsPerChannel[i], 0, numberOfRecordsPerChannel[i], null);
+				numberOfRecordsPerChannel[i] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Creates an empty record array for each output channel to collect the records of a batch in.
+	 * 
+	 * @param numberOfOutputChannels
+	 *        the number of output channels attached to this gate
+	 * @return an empty record array for each output channel
+	 */
+	@SuppressWarnings("unchecked")
+	private T[][] createRecordArrays(final int numberOfOutputChannels) {
+
+		final Class<?> componentType = (this.type == null) ? Record.class : this.type;
+		final T[][] recordArrays = (T[][]) Array.newInstance(componentType, numberOfOutputChannels, 0);
+
+		return recordArrays;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -341,6 +489,18 @@ public class RuntimeOutputGate<T extends Record> extends AbstractGate<T> impleme
 		return this.isBroadcast;
 	}
 
+	/**
+	 * Checks whether the records of in-memory broadcast gates shall be serialized only once, into buffers shared by all
+	 * receivers.
+	 * 
+	 * @return <code>true</code> if the records of in-memory broadcast gates shall be serialized only once,
+	 *         <code>false</code> otherwise
+	 */
+	public static boolean isBroadcastSerializedOnce() {
+
+		return GlobalConfiguration.getBoolean("channel.broadcast.serializeOnce", DEFAULT_SERIALIZE_BROADCAST_ONCE);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
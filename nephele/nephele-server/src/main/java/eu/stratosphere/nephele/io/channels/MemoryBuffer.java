@@ -122,6 +122,7 @@ public final class MemoryBuffer extends Buffer {
 		this.limit(bufferSize);
 	}
 
+	@Override
 	public final void position(final int i) {
 		if(i > limit) {
 			throw new IndexOutOfBoundsException("new position is larger than the limit");
@@ -182,6 +183,7 @@ public final class MemoryBuffer extends Buffer {
 		return this.limit();
 	}
 
+	@Override
 	public MemorySegment getMemorySegment() {
 		return this.internalMemorySegment;
 	}
@@ -0,0 +1,145 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.nephele.io.compression;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+
+import eu.stratosphere.nephele.io.channels.MemoryBuffer;
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+
+/**
+ * This class compresses the data of memory buffers before they are transported over the network. The compressor reads
+ * directly from the array backing the buffer's memory segment, so the buffer's data is only copied before
+ * compression if the segment's memory is not accessible as an array. Both
+ * compression levels use the deflate algorithm, {@link CompressionLevel#LIGHT_COMPRESSION} with the fastest and
+ * {@link CompressionLevel#HEAVY_COMPRESSION} with the densest setting.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ */
+public final class BufferCompressor {
+
+	/**
+	 * The deflater used for light compression, created on first use.
+	 */
+	private Deflater lightDeflater = null;
+
+	/**
+	 * The deflater used for heavy compression, created on first use.
+	 */
+	private Deflater heavyDeflater = null;
+
+	/**
+	 * The array holding the compressed data of the last buffer.
+	 */
+	private byte[] compressedData = new byte[0];
+
+	/**
+	 * The byte buffer wrapping the compressed data.
+	 */
+	private ByteBuffer compressedDataWrapper = ByteBuffer.wrap(this.compressedData);
+
+	/**
+	 * The array holding a heap copy of the buffer's data, only used for memory segments which are not backed by an
+	 * accessible array.
+	 */
+	private byte[] uncompressedData = new byte[0];
+
+	/**
+	 * Compresses the readable data of the given buffer. If the compression does not reduce the size of the data, the
+	 * compression is aborted.
+	 * 
+	 * @param buffer
+	 *        the buffer whose data shall be compressed
+	 * @param compressionLevel
+	 *        the compression level to apply
+	 * @return the size of the compressed data in bytes or <code>-1</code> if compression does not pay off
+	 */
+	public int compress(final MemoryBuffer buffer, final CompressionLevel compressionLevel) {
+
+		final int uncompressedSize = buffer.remaining();
+		if (uncompressedSize == 0) {
+			return -1;
+		}
+
+		if (this.compressedData.length < uncompressedSize) {
+			this.compressedData = new byte[uncompressedSize];
+			this.compressedDataWrapper = ByteBuffer.wrap(this.compressedData);
+		}
+
+		final Deflater deflater = getDeflater(compressionLevel);
+		final MemorySegment segment = buffer.getMemorySegment();
+		final ByteBuffer data = segment.wrap(buffer.position(), uncompressedSize);
+		deflater.reset();
+		if (data.hasArray()) {
+			deflater.setInput(data.array(), data.arrayOffset() + data.position(), uncompressedSize);
+		} else {
+			// The deflater requires an array, so copy the data to the heap
+			if (this.uncompressedData.length < uncompressedSize) {
+				this.uncompressedData = new byte[uncompressedSize];
+			}
+			segment.get(buffer.position(), this.uncompressedData, 0, uncompressedSize);
+			deflater.setInput(this.uncompressedData, 0, uncompressedSize);
+		}
+		deflater.finish();
+
+		// Stop as soon as the compressed data would be at least as large as the original data
+		int compressedSize = 0;
+		while (!deflater.finished()) {
+			if (compressedSize == uncompressedSize) {
+				return -1;
+			}
+			compressedSize += deflater.deflate(this.compressedData, compressedSize, uncompressedSize - compressedSize);
+		}
+
+		if (compressedSize >= uncompressedSize) {
+			return -1;
+		}
+
+		this.compressedDataWrapper.position(0);
+		this.compressedDataWrapper.limit(compressedSize);
+
+		return compressedSize;
+	}
+
+	/**
+	 * Returns the compressed data of the last successfully compressed buffer.
+	 * 
+	 * @return the compressed data of the last successfully compressed buffer
+	 */
+	public ByteBuffer getCompressedData() {
+
+		return this.compressedDataWrapper;
+	}
+
+	private Deflater getDeflater(final CompressionLevel compressionLevel) {
+
+		switch (compressionLevel) {
+		case LIGHT_COMPRESSION:
+			if (this.lightDeflater == null) {
+				this.lightDeflater = new Deflater(Deflater.BEST_SPEED, true);
+			}
+			return this.lightDeflater;
+		case HEAVY_COMPRESSION:
+			if (this.heavyDeflater == null) {
+				this.heavyDeflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+			}
+			return this.heavyDeflater;
+		default:
+			throw new IllegalArgumentException("No compressor for compression level " + compressionLevel);
+		}
+	}
+}
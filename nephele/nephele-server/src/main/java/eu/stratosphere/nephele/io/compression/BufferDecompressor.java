@@ -0,0 +1,110 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.nephele.io.compression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import eu.stratosphere.nephele.io.channels.MemoryBuffer;
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+
+/**
+ * This class decompresses data produced by the {@link BufferCompressor}. The decompressed data is written directly
+ * into the array backing the destination buffer's memory segment, or copied into the segment if its memory is not
+ * accessible as an array.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ */
+public final class BufferDecompressor {
+
+	/**
+	 * The inflater used for all compression levels.
+	 */
+	private final Inflater inflater = new Inflater(true);
+
+	/**
+	 * The array holding the decompressed data, only used for memory segments which are not backed by an accessible
+	 * array.
+	 */
+	private byte[] decompressedData = new byte[0];
+
+	/**
+	 * Decompresses the given data into the destination buffer. After the call, the buffer contains exactly the
+	 * decompressed data and is ready to be read.
+	 * 
+	 * @param compressedData
+	 *        the array holding the compressed data, it must provide at least one additional byte after the compressed
+	 *        data
+	 * @param compressedSize
+	 *        the size of the compressed data in bytes
+	 * @param buffer
+	 *        the buffer to write the decompressed data to, its size must match the size of the decompressed data
+	 * @throws IOException
+	 *         thrown if the compressed data is corrupt or does not match the size of the buffer
+	 */
+	public void decompress(final byte[] compressedData, final int compressedSize, final MemoryBuffer buffer)
+			throws IOException {
+
+		final int uncompressedSize = buffer.size();
+		final MemorySegment segment = buffer.getMemorySegment();
+		final ByteBuffer wrapped = segment.wrap(0, uncompressedSize);
+		final byte[] target;
+		final int targetOffset;
+		if (wrapped.hasArray()) {
+			target = wrapped.array();
+			targetOffset = wrapped.arrayOffset() + wrapped.position();
+		} else {
+			// The inflater requires an array, so decompress to the heap first
+			if (this.decompressedData.length < uncompressedSize) {
+				this.decompressedData = new byte[uncompressedSize];
+			}
+			target = this.decompressedData;
+			targetOffset = 0;
+		}
+
+		// Inflating raw deflate data requires an extra dummy byte at the end of the input
+		this.inflater.reset();
+		this.inflater.setInput(compressedData, 0, compressedSize + 1);
+
+		int decompressedSize = 0;
+		try {
+			while (decompressedSize < uncompressedSize && !this.inflater.finished()) {
+				final int n = this.inflater.inflate(target, targetOffset + decompressedSize, uncompressedSize
+					- decompressedSize);
+				if (n == 0 && (this.inflater.needsInput() || this.inflater.needsDictionary())) {
+					break;
+				}
+				decompressedSize += n;
+			}
+		} catch (DataFormatException dfe) {
+			throw new IOException("Cannot decompress buffer data: " + dfe.getMessage());
+		}
+
+		if (decompressedSize != uncompressedSize || !this.inflater.finished()) {
+			throw new IOException("Expected " + uncompressedSize + " bytes of decompressed data, but received "
+				+ decompressedSize);
+		}
+
+		if (target == this.decompressedData) {
+			segment.put(0, this.decompressedData, 0, uncompressedSize);
+		}
+
+		buffer.position(uncompressedSize);
+		buffer.flip();
+	}
+}
@@ -0,0 +1,115 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.nephele.io.compression;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class collects statistics on the compression of the data transported through a single channel. The statistics
+ * are updated by the network threads and can be read by any other thread.
+ * <p>
+ * This class is thread-safe.
+ * 
+ */
+public final class CompressionStatistics {
+
+	/**
+	 * The number of bytes handed to the compressor.
+	 */
+	private final AtomicLong uncompressedBytes = new AtomicLong(0L);
+
+	/**
+	 * The number of bytes actually transmitted after compression.
+	 */
+	private final AtomicLong compressedBytes = new AtomicLong(0L);
+
+	/**
+	 * The time spent compressing the data in nanoseconds.
+	 */
+	private final AtomicLong compressionTime = new AtomicLong(0L);
+
+	/**
+	 * Records the compression of a single buffer.
+	 * 
+	 * @param uncompressedSize
+	 *        the size of the buffer's data before compression in bytes
+	 * @param compressedSize
+	 *        the number of bytes transmitted for the buffer's data
+	 * @param elapsedNanos
+	 *        the time spent compressing the buffer's data in nanoseconds
+	 */
+	public void recordCompression(final int uncompressedSize, final int compressedSize, final long elapsedNanos) {
+
+		this.uncompressedBytes.addAndGet(uncompressedSize);
+		this.compressedBytes.addAndGet(compressedSize);
+		this.compressionTime.addAndGet(elapsedNanos);
+	}
+
+	/**
+	 * Returns the number of bytes handed to the compressor.
+	 * 
+	 * @return the number of bytes handed to the compressor
+	 */
+	public long getUncompressedBytes() {
+
+		return this.uncompressedBytes.get();
+	}
+
+	/**
+	 * Returns the number of bytes actually transmitted after compression.
+	 * 
+	 * @return the number of bytes actually transmitted after compression
+	 */
+	public long getCompressedBytes() {
+
+		return this.compressedBytes.get();
+	}
+
+	/**
+	 * Returns the ratio between the uncompressed and the transmitted number of bytes.
+	 * 
+	 * @return the compression ratio or <code>1.0</code> if no data has been compressed yet
+	 */
+	public double getCompressionRatio() {
+
+		final long compressed = this.compressedBytes.get();
+		if (compressed == 0L) {
+			return 1.0;
+		}
+
+		return (double) this.uncompressedBytes.get() / (double) compressed;
+	}
+
+	/**
+	 * Returns the CPU time spent compressing the data in milliseconds. Since compression is purely CPU-bound, the
+	 * time is measured as the elapsed time of the compression calls.
+	 * 
+	 * @return the CPU time spent compressing the data in milliseconds
+	 */
+	public long getCompressionTime() {
+
+		return this.compressionTime.get() / 1000000L;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+
+		return String.format("%d bytes compressed to %d bytes (ratio %.2f) in %d ms", getUncompressedBytes(),
+			getCompressedBytes(), getCompressionRatio(), getCompressionTime());
+	}
+}
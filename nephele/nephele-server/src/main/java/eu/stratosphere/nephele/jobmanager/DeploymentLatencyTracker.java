@@ -0,0 +1,204 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.jobmanager;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import eu.stratosphere.nephele.instance.InstanceConnectionInfo;
+
+/**
+ * The deployment latency tracker keeps track of the time it takes the individual task managers to accept the tasks
+ * deployed to them. A deployment whose latency exceeds the average latency of all task managers by a large factor is
+ * logged, so slow instances become visible.
+ * <p>
+ * This class is thread-safe.
+ * 
+ */
+public final class DeploymentLatencyTracker {
+
+	/**
+	 * The log object used for reporting slow deployments.
+	 */
+	private static final Log LOG = LogFactory.getLog(DeploymentLatencyTracker.class);
+
+	/**
+	 * The factor by which the latency of a deployment must exceed the overall average to be reported as slow.
+	 */
+	private static final int SLOW_DEPLOYMENT_FACTOR = 4;
+
+	/**
+	 * The minimum number of deployments which must have been tracked before slow deployments are reported.
+	 */
+	private static final int MINIMUM_NUMBER_OF_DEPLOYMENTS = 4;
+
+	/**
+	 * The latency statistics of a single task manager.
+	 * <p>
+	 * This class is not thread-safe.
+	 * 
+	 */
+	private static final class InstanceStatistics {
+
+		private int numberOfDeployments = 0;
+
+		private int numberOfTasks = 0;
+
+		private long accumulatedLatency = 0L;
+
+		private long maximumLatency = 0L;
+	}
+
+	/**
+	 * The latency statistics of the individual task managers.
+	 */
+	private final Map<InstanceConnectionInfo, InstanceStatistics> statistics = new HashMap<InstanceConnectionInfo, InstanceStatistics>();
+
+	/**
+	 * The total number of deployments tracked so far.
+	 */
+	private int numberOfDeployments = 0;
+
+	/**
+	 * The accumulated latency of all deployments tracked so far in milliseconds.
+	 */
+	private long accumulatedLatency = 0L;
+
+	/**
+	 * Reports a completed deployment to the given task manager.
+	 * 
+	 * @param instance
+	 *        the connection information of the task manager the tasks have been deployed to
+	 * @param numberOfTasks
+	 *        the number of tasks deployed with this deployment
+	 * @param latency
+	 *        the time it took the task manager to accept the tasks in milliseconds
+	 */
+	public synchronized void reportDeployment(final InstanceConnectionInfo instance, final int numberOfTasks,
+			final long latency) {
+
+		InstanceStatistics instanceStatistics = this.statistics.get(instance);
+		if (instanceStatistics == null) {
+			instanceStatistics = new InstanceStatistics();
+			this.statistics.put(instance, instanceStatistics);
+		}
+
+		if (this.numberOfDeployments >= MINIMUM_NUMBER_OF_DEPLOYMENTS) {
+			final long averageLatency = this.accumulatedLatency / this.numberOfDeployments;
+			if (latency > SLOW_DEPLOYMENT_FACTOR * Math.max(1L, averageLatency)) {
+				LOG.warn("Deployment of " + numberOfTasks + " tasks to " + instance + " took " + latency
+					+ " ms, the average deployment takes " + averageLatency + " ms");
+			}
+		}
+
+		++instanceStatistics.numberOfDeployments;
+		instanceStatistics.numberOfTasks += numberOfTasks;
+		instanceStatistics.accumulatedLatency += latency;
+		instanceStatistics.maximumLatency = Math.max(instanceStatistics.maximumLatency, latency);
+
+		++this.numberOfDeployments;
+		this.accumulatedLatency += latency;
+	}
+
+	/**
+	 * Returns the number of deployments to the given task manager tracked so far.
+	 * 
+	 * @param instance
+	 *        the connection information of the task manager
+	 * @return the number of deployments to the given task manager
+	 */
+	public synchronized int getNumberOfDeployments(final InstanceConnectionInfo instance) {
+
+		final InstanceStatistics instanceStatistics = this.statistics.get(instance);
+		if (instanceStatistics == null) {
+			return 0;
+		}
+
+		return instanceStatistics.numberOfDeployments;
+	}
+
+	/**
+	 * Returns the number of tasks deployed to the given task manager so far.
+	 * 
+	 * @param instance
+	 *        the connection information of the task manager
+	 * @return the number of tasks deployed to the given task manager
+	 */
+	public synchronized int getNumberOfDeployedTasks(final InstanceConnectionInfo instance) {
+
+		final InstanceStatistics instanceStatistics = this.statistics.get(instance);
+		if (instanceStatistics == null) {
+			return 0;
+		}
+
+		return instanceStatistics.numberOfTasks;
+	}
+
+	/**
+	 * Returns the average latency of the deployments to the given task manager.
+	 * 
+	 * @param instance
+	 *        the connection information of the task manager
+	 * @return the average latency of the deployments to the given task manager in milliseconds or <code>-1</code> if
+	 *         no deployment to this task manager has been tracked so far
+	 */
+	public synchronized long getAverageLatency(final InstanceConnectionInfo instance) {
+
+		final InstanceStatistics instanceStatistics = this.statistics.get(instance);
+		if (instanceStatistics == null) {
+			return -1L;
+		}
+
+		return instanceStatistics.accumulatedLatency / instanceStatistics.numberOfDeployments;
+	}
+
+	/**
+	 * Returns the maximum latency of the deployments to the given task manager.
+	 * 
+	 * @param instance
+	 *        the connection information of the task manager
+	 * @return the maximum latency of the deployments to the given task manager in milliseconds or <code>-1</code> if
+	 *         no deployment to this task manager has been tracked so far
+	 */
+	public synchronized long getMaximumLatency(final InstanceConnectionInfo instance) {
+
+		final InstanceStatistics instanceStatistics = this.statistics.get(instance);
+		if (instanceStatistics == null) {
+			return -1L;
+		}
+
+		return instanceStatistics.maximumLatency;
+	}
+
+	/**
+	 * Returns the average latency of all deployments tracked so far.
+	 * 
+	 * @return the average latency of all deployments in milliseconds or <code>-1</code> if no deployment has been
+	 *         tracked so far
+	 */
+	public synchronized long getAverageLatency() {
+
+		if (this.numberOfDeployments == 0) {
+			return -1L;
+		}
+
+		return this.accumulatedLatency / this.numberOfDeployments;
+	}
+}
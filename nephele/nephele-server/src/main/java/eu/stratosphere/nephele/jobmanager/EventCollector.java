@@ -42,14 +42,18 @@ import eu.stratosphere.nephele.executiongraph.ManagementGraphFactory;
 import eu.stratosphere.nephele.executiongraph.VertexAssignmentListener;
 import eu.stratosphere.nephele.instance.AbstractInstance;
 import eu.stratosphere.nephele.instance.AllocatedResource;
+import eu.stratosphere.nephele.io.channels.ChannelID;
 import eu.stratosphere.nephele.jobgraph.JobID;
 import eu.stratosphere.nephele.jobgraph.JobStatus;
 import eu.stratosphere.nephele.jobgraph.JobVertexID;
+import eu.stratosphere.nephele.managementgraph.ManagementEdge;
+import eu.stratosphere.nephele.managementgraph.ManagementGate;
 import eu.stratosphere.nephele.managementgraph.ManagementGraph;
 import eu.stratosphere.nephele.managementgraph.ManagementVertex;
 import eu.stratosphere.nephele.managementgraph.ManagementVertexID;
 import eu.stratosphere.nephele.profiling.ProfilingListener;
 import eu.stratosphere.nephele.profiling.types.ProfilingEvent;
+import eu.stratosphere.nephele.taskmanager.OutputChannelStatistics;
 import eu.stratosphere.nephele.topology.NetworkTopology;
 
 /**
@@ -638,4 +642,50 @@ public final class EventCollector extends TimerTask implements ProfilingListener
 			vertex.setExecutionState(executionStateChangeEvent.getNewExecutionState());
 		}
 	}
+
+	/**
+	 * Applies the statistics of the output channels of an execution vertex to the edges of the stored management
+	 * graph.
+	 * 
+	 * @param jobID
+	 *        the ID of the job whose management graph shall be updated
+	 * @param vertexID
+	 *        the ID of the execution vertex the output channels belong to
+	 * @param outputChannelStatistics
+	 *        the statistics of the vertex's output channels
+	 */
+	void updateManagementGraph(final JobID jobID, final ExecutionVertexID vertexID,
+			final OutputChannelStatistics outputChannelStatistics) {
+
+		final Map<ChannelID, Integer> indexByChannelID = new HashMap<ChannelID, Integer>();
+		for (int i = 0; i < outputChannelStatistics.getNumberOfChannels(); ++i) {
+			indexByChannelID.put(outputChannelStatistics.getChannelID(i), Integer.valueOf(i));
+		}
+
+		synchronized (this.recentManagementGraphs) {
+
+			final ManagementGraph managementGraph = this.recentManagementGraphs.get(jobID);
+			if (managementGraph == null) {
+				return;
+			}
+			final ManagementVertex vertex = managementGraph.getVertexByID(vertexID.toManagementVertexID());
+			if (vertex == null) {
+				return;
+			}
+
+			for (int i = 0; i < vertex.getNumberOfOutputGates(); ++i) {
+				final ManagementGate outputGate = vertex.getOutputGate(i);
+				for (int j = 0; j < outputGate.getNumberOfForwardEdges(); ++j) {
+					final ManagementEdge edge = outputGate.getForwardEdge(j);
+					final Integer index = indexByChannelID.get(edge.getSourceEdgeID().toChannelID());
+					if (index != null) {
+						edge.setAmountOfDataTransmitted(outputChannelStatistics.getAmountOfDataTransmitted(index
+							.intValue()));
+						edge.setNumberOfRecordsTransmitted(outputChannelStatistics.getNumberOfRecordsTransmitted(index
+							.intValue()));
+					}
+				}
+			}
+		}
+	}
 }
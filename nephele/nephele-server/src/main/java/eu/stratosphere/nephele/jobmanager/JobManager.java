@@ -37,6 +37,8 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -64,7 +66,7 @@ import eu.stratosphere.nephele.client.JobProgressResult;
 import eu.stratosphere.nephele.client.JobSubmissionResult;
 import eu.stratosphere.nephele.configuration.ConfigConstants;
 import eu.stratosphere.nephele.configuration.GlobalConfiguration;
-import eu.stratosphere.nephele.deployment.TaskDeploymentDescriptor;
+import eu.stratosphere.nephele.deployment.TaskDeploymentDescriptorList;
 import eu.stratosphere.nephele.discovery.DiscoveryException;
 import eu.stratosphere.nephele.discovery.DiscoveryService;
 import eu.stratosphere.nephele.event.job.AbstractEvent;
@@ -80,6 +82,7 @@ import eu.stratosphere.nephele.executiongraph.GraphConversionException;
 import eu.stratosphere.nephele.executiongraph.InternalJobStatus;
 import eu.stratosphere.nephele.executiongraph.JobStatusListener;
 import eu.stratosphere.nephele.instance.AbstractInstance;
+import eu.stratosphere.nephele.instance.AllocatedResource;
 import eu.stratosphere.nephele.instance.DummyInstance;
 import eu.stratosphere.nephele.instance.HardwareDescription;
 import eu.stratosphere.nephele.instance.InstanceConnectionInfo;
@@ -163,6 +166,31 @@ public class JobManager implements DeploymentManager, ExtendedManagementProtocol
 
 	private final ExecutorService executorService = Executors.newCachedThreadPool();
 
+	/**
+	 * The executor service which constructs the deployment descriptors and submits them to the task managers.
+	 */
+	private final ExecutorService deploymentService;
+
+	/**
+	 * The maximum number of tasks submitted to a task manager with a single call.
+	 */
+	private final int deploymentBatchSize;
+
+	/**
+	 * Keeps track of the time it takes the individual task managers to accept deployed tasks.
+	 */
+	private final DeploymentLatencyTracker deploymentLatencyTracker = new DeploymentLatencyTracker();
+
+	/**
+	 * The default number of threads which deploy tasks concurrently.
+	 */
+	private static final int DEFAULT_DEPLOYMENT_THREADS = 32;
+
+	/**
+	 * The default maximum number of tasks submitted to a task manager with a single call.
+	 */
+	private static final int DEFAULT_DEPLOYMENT_BATCH_SIZE = 128;
+
 	private final static int SLEEPINTERVAL = 1000;
 
 	private final static int FAILURERETURNCODE = 1;
@@ -208,6 +236,12 @@ public class JobManager implements DeploymentManager, ExtendedManagementProtocol
 		// Load the input split manager
 		this.inputSplitManager = new InputSplitManager();
 
+		// Create the thread pool which deploys tasks to the task managers
+		this.deploymentService = Executors.newFixedThreadPool(Math.max(1, GlobalConfiguration.getInteger(
+			"jobmanager.deployment.numthreads", DEFAULT_DEPLOYMENT_THREADS)));
+		this.deploymentBatchSize = Math.max(1, GlobalConfiguration.getInteger("jobmanager.deployment.batchsize",
+			DEFAULT_DEPLOYMENT_BATCH_SIZE));
+
 		// Determine own RPC address
 		final InetSocketAddress rpcServerAddress = new InetSocketAddress(ipcAddress, ipcPort);
 
@@ -257,6 +291,9 @@ public class JobManager implements DeploymentManager, ExtendedManagementProtocol
 			System.exit(FAILURERETURNCODE);
 		}
 
+		// Let the scheduler measure the progress of input vertices
+		this.scheduler.setInputSplitManager(this.inputSplitManager);
+
 		// Create multicastManager
 		this.multicastManager = new MulticastManager(this.scheduler);
 
@@ -325,6 +362,11 @@ public class JobManager implements DeploymentManager, ExtendedManagementProtocol
 			this.jobManagerServer.stop();
 		}
 
+		// Stop the deployment service
+		if (this.deploymentService != null) {
+			this.deploymentService.shutdown();
+		}
+
 		// Stop the executor service
 		if (this.executorService != null) {
 			this.executorService.shutdown();
@@ -560,6 +602,11 @@ public class JobManager implements DeploymentManager, ExtendedManagementProtocol
 				this.profiler.registerForProfilingData(eg.getJobID(), this.eventCollector);
 			}
 
+			// Schedulers which take the load of the instances into account receive the job's profiling data as well
+			if (this.scheduler instanceof ProfilingListener) {
+				this.profiler.registerForProfilingData(eg.getJobID(), (ProfilingListener) this.scheduler);
+			}
+
 			// Allow plugins to register their own profiling listeners for the job
 			it = this.jobManagerPlugins.values().iterator();
 			while (it.hasNext()) {
@@ -612,12 +659,25 @@ public class JobManager implements DeploymentManager, ExtendedManagementProtocol
 			if (this.eventCollector != null) {
 				this.profiler.unregisterFromProfilingData(executionGraph.getJobID(), this.eventCollector);
 			}
+
+			if (this.scheduler instanceof ProfilingListener) {
+				this.profiler.unregisterFromProfilingData(executionGraph.getJobID(), (ProfilingListener) this.scheduler);
+			}
 		}
 
 		// Cancel all pending requests for instances
 		this.instanceManager.cancelPendingRequests(executionGraph.getJobID()); // getJobID is final member, no
 																				// synchronization necessary
 
+		// Forget which shared deployment data has been sent to the job's instances
+		final Iterator<ExecutionVertex> it = new ExecutionGraphIterator(executionGraph, true);
+		while (it.hasNext()) {
+			final AllocatedResource allocatedResource = it.next().getAllocatedResource();
+			if (allocatedResource != null) {
+				allocatedResource.getInstance().removeDeploymentDataKeys(executionGraph.getJobID());
+			}
+		}
+
 		// Remove job from input split manager
 		if (this.inputSplitManager != null) {
 			this.inputSplitManager.unregisterJob(executionGraph);
@@ -681,6 +741,12 @@ public class JobManager implements DeploymentManager, ExtendedManagementProtocol
 			return;
 		}
 
+		// Make the transmitted amounts of data visible in the management graph
+		if (executionState.getOutputChannelStatistics() != null && this.eventCollector != null) {
+			this.eventCollector.updateManagementGraph(eg.getJobID(), executionState.getID(),
+				executionState.getOutputChannelStatistics());
+		}
+
 		// Asynchronously update execute state of vertex
 		vertex.updateExecutionStateAsynchronously(executionState.getExecutionState(), executionState.getDescription());
 	}
@@ -1145,7 +1211,7 @@ public class JobManager implements DeploymentManager, ExtendedManagementProtocol
 			vertex.updateExecutionState(ExecutionState.STARTING, null);
 		}
 
-		// Create a new runnable and pass it the executor service
+		// Check the library availability once, then build and submit the batches of tasks concurrently
 		final Runnable deploymentRunnable = new Runnable() {
 
 			/**
@@ -1161,60 +1227,116 @@ public class JobManager implements DeploymentManager, ExtendedManagementProtocol
 					LOG.error("Cannot check library availability: " + StringUtils.stringifyException(ioe));
 				}
 
-				final List<TaskDeploymentDescriptor> submissionList = new SerializableArrayList<TaskDeploymentDescriptor>();
+				final int numberOfVertices = verticesToBeDeployed.size();
+				final int batchSize = JobManager.this.deploymentBatchSize;
 
-				// Check the consistency of the call
-				for (final ExecutionVertex vertex : verticesToBeDeployed) {
+				for (int start = batchSize; start < numberOfVertices; start += batchSize) {
 
-					submissionList.add(vertex.constructDeploymentDescriptor());
+					final List<ExecutionVertex> batch = new ArrayList<ExecutionVertex>(verticesToBeDeployed.subList(
+						start, Math.min(start + batchSize, numberOfVertices)));
 
-					LOG.info("Starting task " + vertex + " on " + vertex.getAllocatedResource().getInstance());
+					JobManager.this.deploymentService.execute(new Runnable() {
+
+						/**
+						 * {@inheritDoc}
+						 */
+						@Override
+						public void run() {
+							deployBatch(instance, batch, false);
+						}
+					});
 				}
 
-				List<TaskSubmissionResult> submissionResultList = null;
+				// Deploy the first batch from this thread
+				deployBatch(instance, new ArrayList<ExecutionVertex>(verticesToBeDeployed.subList(0,
+					Math.min(batchSize, numberOfVertices))), false);
+			}
+		};
+
+		this.deploymentService.execute(deploymentRunnable);
+	}
 
-				try {
-					submissionResultList = instance.submitTasks(submissionList);
-				} catch (final IOException ioe) {
-					final String errorMsg = StringUtils.stringifyException(ioe);
-					for (final ExecutionVertex vertex : verticesToBeDeployed) {
-						vertex.updateExecutionStateAsynchronously(ExecutionState.FAILED, errorMsg);
-					}
-				}
+	/**
+	 * Constructs the deployment descriptors for the given batch of vertices and submits them to the given instance
+	 * with a single call. The data shared by the subtasks of a group vertex is only sent if the instance has not
+	 * received it before or if it is sent again after the instance reported it as missing.
+	 * 
+	 * @param instance
+	 *        the instance to deploy the vertices on
+	 * @param verticesToBeDeployed
+	 *        the batch of vertices to be deployed
+	 * @param resend
+	 *        <code>true</code> if the batch is sent again because the instance reported its shared data as missing,
+	 *        <code>false</code> otherwise
+	 */
+	private void deployBatch(final AbstractInstance instance, final List<ExecutionVertex> verticesToBeDeployed,
+			final boolean resend) {
 
-				if (verticesToBeDeployed.size() != submissionResultList.size()) {
-					LOG.error("size of submission result list does not match size of list with vertices to be deployed");
-				}
+		final JobID jobID = verticesToBeDeployed.get(0).getExecutionGraph().getJobID();
+		final TaskDeploymentDescriptorList submissionList = resend ? new TaskDeploymentDescriptorList()
+			: new TaskDeploymentDescriptorList(instance.getDeploymentDataKeys(jobID));
+		final Map<ExecutionVertexID, ExecutionVertex> vertexMap = new HashMap<ExecutionVertexID, ExecutionVertex>();
 
-				int count = 0;
-				for (final TaskSubmissionResult tsr : submissionResultList) {
-
-					ExecutionVertex vertex = verticesToBeDeployed.get(count++);
-					if (!vertex.getID().equals(tsr.getVertexID())) {
-						LOG.error("Expected different order of objects in task result list");
-						vertex = null;
-						for (final ExecutionVertex candVertex : verticesToBeDeployed) {
-							if (tsr.getVertexID().equals(candVertex.getID())) {
-								vertex = candVertex;
-								break;
-							}
-						}
+		for (final ExecutionVertex vertex : verticesToBeDeployed) {
 
-						if (vertex == null) {
-							LOG.error("Cannot find execution vertex for vertex ID " + tsr.getVertexID());
-							continue;
-						}
-					}
+			submissionList.add(vertex.constructDeploymentDescriptor());
+			vertexMap.put(vertex.getID(), vertex);
 
-					if (tsr.getReturnCode() != AbstractTaskResult.ReturnCode.SUCCESS) {
-						// Change the execution state to failed and let the scheduler deal with the rest
-						vertex.updateExecutionStateAsynchronously(ExecutionState.FAILED, tsr.getDescription());
-					}
-				}
+			LOG.info("Starting task " + vertex + " on " + vertex.getAllocatedResource().getInstance());
+		}
+
+		List<TaskSubmissionResult> submissionResultList = null;
+
+		final long start = System.currentTimeMillis();
+		try {
+			final Set<String> sharedDataKeys = submissionList.getSharedDataKeys();
+			submissionResultList = instance.submitTasks(submissionList);
+			instance.addDeploymentDataKeys(jobID, sharedDataKeys);
+		} catch (final IOException ioe) {
+			final String errorMsg = StringUtils.stringifyException(ioe);
+			for (final ExecutionVertex vertex : verticesToBeDeployed) {
+				vertex.updateExecutionStateAsynchronously(ExecutionState.FAILED, errorMsg);
+			}
+			return;
+		}
+
+		this.deploymentLatencyTracker.reportDeployment(instance.getInstanceConnectionInfo(),
+			verticesToBeDeployed.size(), System.currentTimeMillis() - start);
+
+		if (verticesToBeDeployed.size() != submissionResultList.size()) {
+			LOG.error("size of submission result list does not match size of list with vertices to be deployed");
+		}
+
+		final List<ExecutionVertex> verticesToResend = new ArrayList<ExecutionVertex>();
+		for (final TaskSubmissionResult tsr : submissionResultList) {
+
+			final ExecutionVertex vertex = vertexMap.get(tsr.getVertexID());
+			if (vertex == null) {
+				LOG.error("Cannot find execution vertex for vertex ID " + tsr.getVertexID());
+				continue;
 			}
-		};
 
-		this.executorService.execute(deploymentRunnable);
+			if (tsr.getReturnCode() == AbstractTaskResult.ReturnCode.MISSING_DEPLOYMENT_DATA && !resend) {
+				verticesToResend.add(vertex);
+			} else if (tsr.getReturnCode() != AbstractTaskResult.ReturnCode.SUCCESS) {
+				// Change the execution state to failed and let the scheduler deal with the rest
+				vertex.updateExecutionStateAsynchronously(ExecutionState.FAILED, tsr.getDescription());
+			}
+		}
+
+		// The instance has evicted the shared data of some tasks from its cache, so send it again
+		if (!verticesToResend.isEmpty()) {
+			deployBatch(instance, verticesToResend, true);
+		}
+	}
+
+	/**
+	 * Returns the tracker which keeps the latencies of the deployments to the individual task managers.
+	 * 
+	 * @return the tracker which keeps the latencies of the deployments to the individual task managers
+	 */
+	public DeploymentLatencyTracker getDeploymentLatencyTracker() {
+		return this.deploymentLatencyTracker;
 	}
 
 	/**
@@ -21,6 +21,7 @@ import java.lang.reflect.InvocationTargetException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import eu.stratosphere.nephele.configuration.GlobalConfiguration;
 import eu.stratosphere.nephele.instance.InstanceManager;
 import eu.stratosphere.nephele.jobmanager.JobManager.ExecutionMode;
 import eu.stratosphere.nephele.jobmanager.scheduler.AbstractScheduler;
@@ -139,29 +140,23 @@ public class JobManagerUtils {
 
 	/**
 	 * Tries to read the class name of the {@link AbstractScheduler} implementation from the global configuration which
-	 * is set to be used for the provided execution mode.
+	 * is set to be used for the provided execution mode. If no implementation is configured, the default scheduler of
+	 * the execution mode is used.
 	 * 
 	 * @param executionMode The Nephele execution mode.
-	 * @return the class name of the {@link AbstractScheduler} implementation to be used or <code>null</code> if no
-	 *         implementation is configured for the given execution mode
+	 * @return the class name of the {@link AbstractScheduler} implementation to be used
 	 */
 	static String getSchedulerClassName(ExecutionMode executionMode) {
 		switch (executionMode) {
 		case LOCAL:
-			return "eu.stratosphere.nephele.jobmanager.scheduler.local.LocalScheduler";
+			return GlobalConfiguration.getString("jobmanager.scheduler.local.classname",
+				"eu.stratosphere.nephele.jobmanager.scheduler.local.LocalScheduler");
 		case CLUSTER:
-			return "eu.stratosphere.nephele.jobmanager.scheduler.queue.QueueScheduler";
+			return GlobalConfiguration.getString("jobmanager.scheduler.cluster.classname",
+				"eu.stratosphere.nephele.jobmanager.scheduler.queue.QueueScheduler");
 		default:
 			throw new RuntimeException("Unrecognized Execution Mode.");
 		}
-//		String modeClass = getClassStringForMode(executionMode);
-//		String instanceManagerClassNameKey = "jobmanager.scheduler." + modeClass + ".classname";
-//		String schedulerClassName = GlobalConfiguration.getString(instanceManagerClassNameKey, null);
-//
-//		if (executionMode == ExecutionMode.LOCAL && schedulerClassName == null) {
-//			schedulerClassName = ConfigConstants.DEFAULT_LOCAL_MODE_SCHEDULER;
-//		}
-//		return schedulerClassName;
 	}
 
 	/**
@@ -64,6 +64,9 @@ public abstract class AbstractExecutionListener implements ExecutionListener {
 
 		final ExecutionGraph eg = this.executionVertex.getExecutionGraph();
 
+		// Keep track of the progress to detect stragglers
+		this.scheduler.reportExecutionStateChange(this.executionVertex, newExecutionState);
+
 		// Check if we can deploy a new pipeline.
 		if (newExecutionState == ExecutionState.FINISHING) {
 
@@ -87,6 +90,11 @@ public abstract class AbstractExecutionListener implements ExecutionListener {
 					return;
 				}
 			}
+
+			// No more work in the group, so let the resource take over a straggler instead
+			if (this.scheduler.relocateStraggler(this.executionVertex)) {
+				return;
+			}
 		}
 
 		if (newExecutionState == ExecutionState.CANCELED || newExecutionState == ExecutionState.FINISHED) {
@@ -95,6 +103,17 @@ public abstract class AbstractExecutionListener implements ExecutionListener {
 
 				if (this.scheduler.getVerticesToBeRestarted().remove(this.executionVertex.getID()) != null) {
 
+					// A relocated straggler which has finished before its cancellation took effect is not restarted
+					final InternalJobStatus jobStatus = eg.getJobStatus();
+					if (newExecutionState == ExecutionState.FINISHED || jobStatus == InternalJobStatus.FAILING
+						|| jobStatus == InternalJobStatus.CANCELING) {
+						if (this.scheduler.completeRelocation(this.executionVertex)) {
+							this.scheduler.checkAndReleaseAllocatedResource(eg, this.executionVertex
+								.getAllocatedResource());
+							return;
+						}
+					}
+
 					if (eg.getJobStatus() == InternalJobStatus.FAILING) {
 						return;
 					}
@@ -103,6 +122,7 @@ public abstract class AbstractExecutionListener implements ExecutionListener {
 
 					// Run through the deployment procedure
 					this.scheduler.deployAssignedVertices(this.executionVertex);
+					this.scheduler.completeRelocation(this.executionVertex);
 					return;
 				}
 			}
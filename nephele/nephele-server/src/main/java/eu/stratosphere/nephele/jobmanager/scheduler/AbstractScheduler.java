@@ -15,6 +15,7 @@
 
 package eu.stratosphere.nephele.jobmanager.scheduler;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -22,12 +23,14 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import eu.stratosphere.nephele.configuration.GlobalConfiguration;
 import eu.stratosphere.nephele.execution.ExecutionState;
 import eu.stratosphere.nephele.executiongraph.ExecutionEdge;
 import eu.stratosphere.nephele.executiongraph.ExecutionGate;
@@ -40,6 +43,7 @@ import eu.stratosphere.nephele.executiongraph.ExecutionStage;
 import eu.stratosphere.nephele.executiongraph.ExecutionVertex;
 import eu.stratosphere.nephele.executiongraph.ExecutionVertexID;
 import eu.stratosphere.nephele.executiongraph.InternalJobStatus;
+import eu.stratosphere.nephele.fs.FileInputSplit;
 import eu.stratosphere.nephele.instance.AbstractInstance;
 import eu.stratosphere.nephele.instance.AllocatedResource;
 import eu.stratosphere.nephele.instance.AllocationID;
@@ -51,6 +55,10 @@ import eu.stratosphere.nephele.instance.InstanceRequestMap;
 import eu.stratosphere.nephele.instance.InstanceType;
 import eu.stratosphere.nephele.jobgraph.JobID;
 import eu.stratosphere.nephele.jobmanager.DeploymentManager;
+import eu.stratosphere.nephele.jobmanager.splitassigner.InputSplitManager;
+import eu.stratosphere.nephele.taskmanager.AbstractTaskResult.ReturnCode;
+import eu.stratosphere.nephele.taskmanager.TaskCancelResult;
+import eu.stratosphere.nephele.template.InputSplit;
 import eu.stratosphere.nephele.util.StringUtils;
 
 /**
@@ -69,6 +77,22 @@ public abstract class AbstractScheduler implements InstanceListener {
 	 */
 	protected static final Log LOG = LogFactory.getLog(AbstractScheduler.class);
 
+	/**
+	 * Whether straggling file input vertices are relocated by default.
+	 */
+	private static final boolean DEFAULT_STRAGGLER_RELOCATION = false;
+
+	/**
+	 * The default factor in percent by which a subtask must exceed the median running time of its group to be
+	 * considered a straggler.
+	 */
+	private static final int DEFAULT_SLOWDOWN_PERCENTAGE = 150;
+
+	/**
+	 * The default percentage of subtasks of a group which must have finished before stragglers are detected.
+	 */
+	private static final int DEFAULT_MINIMUM_FINISHED_PERCENTAGE = 50;
+
 	/**
 	 * The instance manager assigned to this scheduler.
 	 */
@@ -84,6 +108,37 @@ public abstract class AbstractScheduler implements InstanceListener {
 	 */
 	private final Map<ExecutionVertexID, ExecutionVertex> verticesToBeRestarted = new ConcurrentHashMap<ExecutionVertexID, ExecutionVertex>();
 
+	/**
+	 * Stores the resources straggling vertices have been moved away from until the vertices have been restarted.
+	 */
+	private final Map<ExecutionVertexID, AllocatedResource> relocatedVertices = new ConcurrentHashMap<ExecutionVertexID, AllocatedResource>();
+
+	/**
+	 * The straggler detectors of the file input group vertices, weakly referenced so they vanish with their jobs.
+	 */
+	private final Map<ExecutionGroupVertex, StragglerDetector> stragglerDetectors = new WeakHashMap<ExecutionGroupVertex, StragglerDetector>();
+
+	/**
+	 * Indicates whether straggling file input vertices are relocated to instances which have become idle.
+	 */
+	private final boolean stragglerRelocation;
+
+	/**
+	 * The factor in percent by which a subtask must exceed the median running time of its group to be considered a
+	 * straggler.
+	 */
+	private final int slowdownPercentage;
+
+	/**
+	 * The percentage of subtasks of a group which must have finished before stragglers are detected.
+	 */
+	private final int minimumFinishedPercentage;
+
+	/**
+	 * The input split manager which reports how many input splits the individual vertices have received.
+	 */
+	private volatile InputSplitManager inputSplitManager = null;
+
 	/**
 	 * Constructs a new abstract scheduler.
 	 * 
@@ -97,6 +152,25 @@ public abstract class AbstractScheduler implements InstanceListener {
 		this.deploymentManager = deploymentManager;
 		this.instanceManager = instanceManager;
 		this.instanceManager.setInstanceListener(this);
+
+		this.stragglerRelocation = GlobalConfiguration.getBoolean("jobmanager.scheduler.relocation.enable",
+			DEFAULT_STRAGGLER_RELOCATION);
+		this.slowdownPercentage = GlobalConfiguration.getInteger("jobmanager.scheduler.relocation.slowdown",
+			DEFAULT_SLOWDOWN_PERCENTAGE);
+		this.minimumFinishedPercentage = GlobalConfiguration.getInteger(
+			"jobmanager.scheduler.relocation.minfinished", DEFAULT_MINIMUM_FINISHED_PERCENTAGE);
+	}
+
+	/**
+	 * Sets the input split manager the scheduler uses to measure the progress of file input vertices. Stragglers are
+	 * only relocated once the input split manager is set.
+	 * 
+	 * @param inputSplitManager
+	 *        the input split manager serving the input splits of the scheduled jobs
+	 */
+	public void setInputSplitManager(final InputSplitManager inputSplitManager) {
+
+		this.inputSplitManager = inputSplitManager;
 	}
 
 	/**
@@ -153,6 +227,7 @@ public abstract class AbstractScheduler implements InstanceListener {
 		synchronized (executionStage) {
 
 			executionStage.collectRequiredInstanceTypes(instanceRequestMap, ExecutionState.CREATED);
+			adjustInstanceRequest(executionGraph, instanceRequestMap);
 
 			final Iterator<Map.Entry<InstanceType, Integer>> it = instanceRequestMap.getMinimumIterator();
 			LOG.info("Requesting the following instances for job " + executionGraph.getJobID());
@@ -179,6 +254,60 @@ public abstract class AbstractScheduler implements InstanceListener {
 		}
 	}
 
+	/**
+	 * Allows subclasses to modify the instance request for the given {@link ExecutionGraph} before it is passed on to
+	 * the instance manager. The default implementation leaves the request unchanged.
+	 * 
+	 * @param executionGraph
+	 *        the execution graph the instances are requested for
+	 * @param instanceRequestMap
+	 *        the instance request collected from the vertices of the current execution stage
+	 */
+	protected void adjustInstanceRequest(final ExecutionGraph executionGraph,
+			final InstanceRequestMap instanceRequestMap) {
+	}
+
+	/**
+	 * Selects the {@link AllocatedResource} of a vertex in the given execution stage which shall be replaced by the
+	 * newly allocated resource. All vertices assigned to the selected resource are moved to the new resource
+	 * afterwards. The default implementation selects the first scheduled vertex whose resource matches the instance
+	 * type of the allocated resource. This method is called while holding the lock of the execution stage.
+	 * 
+	 * @param executionGraph
+	 *        the execution graph the resource has been allocated for
+	 * @param executionStage
+	 *        the current execution stage of the execution graph
+	 * @param allocatedResource
+	 *        the newly allocated resource
+	 * @return the resource to be replaced or <code>null</code> if the allocated resource is not required
+	 */
+	protected AllocatedResource selectResourceToBeReplaced(final ExecutionGraph executionGraph,
+			final ExecutionStage executionStage, final AllocatedResource allocatedResource) {
+
+		// Important: only look for instances to be replaced in the current stage
+		final Iterator<ExecutionGroupVertex> groupIterator = new ExecutionGroupVertexIterator(executionGraph, true,
+			executionStage.getStageNumber());
+		while (groupIterator.hasNext()) {
+
+			final ExecutionGroupVertex groupVertex = groupIterator.next();
+			for (int i = 0; i < groupVertex.getCurrentNumberOfGroupMembers(); ++i) {
+
+				final ExecutionVertex vertex = groupVertex.getGroupMember(i);
+
+				if (vertex.getExecutionState() == ExecutionState.SCHEDULED
+					&& vertex.getAllocatedResource() != null) {
+					// In local mode, we do not consider any topology, only the instance type
+					if (vertex.getAllocatedResource().getInstanceType().equals(
+						allocatedResource.getInstanceType())) {
+						return vertex.getAllocatedResource();
+					}
+				}
+			}
+		}
+
+		return null;
+	}
+
 	void findVerticesToBeDeployed(final ExecutionVertex vertex,
 			final Map<AbstractInstance, List<ExecutionVertex>> verticesToBeDeployed,
 			final Set<ExecutionVertex> alreadyVisited) {
@@ -422,32 +551,8 @@ public abstract class AbstractScheduler implements InstanceListener {
 
 					for (final AllocatedResource allocatedResource : allocatedResources) {
 
-						AllocatedResource resourceToBeReplaced = null;
-						// Important: only look for instances to be replaced in the current stage
-						final Iterator<ExecutionGroupVertex> groupIterator = new ExecutionGroupVertexIterator(eg, true,
-							stage.getStageNumber());
-						while (groupIterator.hasNext()) {
-
-							final ExecutionGroupVertex groupVertex = groupIterator.next();
-							for (int i = 0; i < groupVertex.getCurrentNumberOfGroupMembers(); ++i) {
-
-								final ExecutionVertex vertex = groupVertex.getGroupMember(i);
-
-								if (vertex.getExecutionState() == ExecutionState.SCHEDULED
-									&& vertex.getAllocatedResource() != null) {
-									// In local mode, we do not consider any topology, only the instance type
-									if (vertex.getAllocatedResource().getInstanceType().equals(
-										allocatedResource.getInstanceType())) {
-										resourceToBeReplaced = vertex.getAllocatedResource();
-										break;
-									}
-								}
-							}
-
-							if (resourceToBeReplaced != null) {
-								break;
-							}
-						}
+						final AllocatedResource resourceToBeReplaced = selectResourceToBeReplaced(eg, stage,
+							allocatedResource);
 
 						// For some reason, we don't need this instance
 						if (resourceToBeReplaced == null) {
@@ -506,6 +611,11 @@ public abstract class AbstractScheduler implements InstanceListener {
 			return;
 		}
 
+		// A straggler is still being moved away from this resource
+		if (this.relocatedVertices.containsValue(allocatedResource)) {
+			return;
+		}
+
 		boolean resourceCanBeReleased = true;
 		final Iterator<ExecutionVertex> it = allocatedResource.assignedVertices();
 		while (it.hasNext()) {
@@ -518,6 +628,12 @@ public abstract class AbstractScheduler implements InstanceListener {
 				resourceCanBeReleased = false;
 				break;
 			}
+
+			// The vertex is about to be restarted on this resource
+			if (this.relocatedVertices.containsKey(vertex.getID())) {
+				resourceCanBeReleased = false;
+				break;
+			}
 		}
 
 		if (resourceCanBeReleased) {
@@ -563,6 +679,256 @@ public abstract class AbstractScheduler implements InstanceListener {
 		return this.verticesToBeRestarted;
 	}
 
+	/**
+	 * Records the execution state change of the given vertex with the straggler detector of its group, provided
+	 * straggler relocation is enabled and the vertex reads file input splits.
+	 * 
+	 * @param vertex
+	 *        the vertex whose execution state has changed
+	 * @param newExecutionState
+	 *        the new execution state of the vertex
+	 */
+	void reportExecutionStateChange(final ExecutionVertex vertex, final ExecutionState newExecutionState) {
+
+		if (!this.stragglerRelocation) {
+			return;
+		}
+
+		final StragglerDetector stragglerDetector = getStragglerDetector(vertex.getGroupVertex(),
+			newExecutionState == ExecutionState.RUNNING);
+		if (stragglerDetector == null) {
+			return;
+		}
+
+		switch (newExecutionState) {
+		case RUNNING:
+			stragglerDetector.subtaskStarted(vertex.getID(), getCurrentTime());
+			break;
+		case FINISHING:
+		case FINISHED:
+			// An input vertex has processed all of its input splits once it is finishing
+			stragglerDetector.subtaskFinished(vertex.getID(), getCurrentTime(), getNumberOfAssignedInputSplits(vertex));
+			break;
+		case CANCELED:
+		case FAILED:
+			stragglerDetector.subtaskStopped(vertex.getID());
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Returns the straggler detector for the given group vertex.
+	 * 
+	 * @param groupVertex
+	 *        the group vertex to return the straggler detector for
+	 * @param create
+	 *        <code>true</code> to create the straggler detector if it does not exist yet
+	 * @return the straggler detector or <code>null</code> if it does not exist or the group vertex does not read file
+	 *         input splits
+	 */
+	private StragglerDetector getStragglerDetector(final ExecutionGroupVertex groupVertex, final boolean create) {
+
+		synchronized (this.stragglerDetectors) {
+
+			StragglerDetector stragglerDetector = this.stragglerDetectors.get(groupVertex);
+			if (stragglerDetector == null && create) {
+
+				final InputSplit[] inputSplits = groupVertex.getInputSplits();
+				if (inputSplits == null || inputSplits.length == 0 || !(inputSplits[0] instanceof FileInputSplit)) {
+					return null;
+				}
+
+				stragglerDetector = new StragglerDetector(this.slowdownPercentage, this.minimumFinishedPercentage);
+				this.stragglerDetectors.put(groupVertex, stragglerDetector);
+			}
+
+			return stragglerDetector;
+		}
+	}
+
+	/**
+	 * Returns the number of input splits the given vertex has received so far, including the one it is currently
+	 * processing.
+	 * 
+	 * @param vertex
+	 *        the vertex to return the number of input splits for
+	 * @return the number of input splits the vertex has received or <code>0</code> if the input split manager is not
+	 *         set
+	 */
+	private int getNumberOfAssignedInputSplits(final ExecutionVertex vertex) {
+
+		final InputSplitManager ism = this.inputSplitManager;
+		if (ism == null) {
+			return 0;
+		}
+
+		return ism.getNumberOfAssignedInputSplits(vertex);
+	}
+
+	/**
+	 * Returns the current time in milliseconds, which the progress of the subtasks is measured against.
+	 * 
+	 * @return the current time in milliseconds
+	 */
+	long getCurrentTime() {
+
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Moves a straggling vertex of the given vertex's group to the resource of the given vertex, which is about to
+	 * become idle. The straggler is canceled at its task manager and restarted on the resource as part of the recovery
+	 * procedure, so it receives the same sequence of input splits from the input split manager and its consumers
+	 * discard the data they have already received. Since a restart repeats all the work the straggler has done so far,
+	 * a straggler is only moved if its estimated remaining time exceeds the time a restart takes, see
+	 * {@link StragglerDetector#isRelocationWorthwhile(ExecutionVertexID, int, long)}. Only input vertices which do not
+	 * share their resource with other vertices are moved. If the straggler finishes before the cancel request takes
+	 * effect, it is not restarted.
+	 * <p>
+	 * Note that this is a relocation rather than a speculative duplicate: the original attempt is canceled before the
+	 * straggler is restarted, so two attempts of the same vertex never run at the same time and there is no race in
+	 * which the first attempt to finish wins.
+	 * 
+	 * @param finishingVertex
+	 *        the vertex whose resource is about to become idle
+	 * @return <code>true</code> if a straggler has been moved to the resource, <code>false</code> otherwise
+	 */
+	boolean relocateStraggler(final ExecutionVertex finishingVertex) {
+
+		if (!this.stragglerRelocation || this.inputSplitManager == null) {
+			return false;
+		}
+
+		// A relocated straggler which has finished anyway does not take over another straggler
+		if (this.relocatedVertices.containsKey(finishingVertex.getID())) {
+			return false;
+		}
+
+		final ExecutionGroupVertex groupVertex = finishingVertex.getGroupVertex();
+		final StragglerDetector stragglerDetector = getStragglerDetector(groupVertex, false);
+		if (stragglerDetector == null) {
+			return false;
+		}
+
+		final ExecutionGraph eg = finishingVertex.getExecutionGraph();
+		final AllocatedResource targetResource = finishingVertex.getAllocatedResource();
+		final long now = getCurrentTime();
+
+		final Iterator<ExecutionVertexID> it = stragglerDetector.getStragglers(
+			groupVertex.getCurrentNumberOfGroupMembers(), now).iterator();
+		while (it.hasNext()) {
+
+			final ExecutionVertex straggler = eg.getVertexByID(it.next());
+			if (straggler == null || !isRelocatable(straggler, targetResource)) {
+				continue;
+			}
+
+			if (!stragglerDetector.isRelocationWorthwhile(straggler.getID(),
+				getNumberOfAssignedInputSplits(straggler), now)) {
+				continue;
+			}
+
+			synchronized (eg) {
+
+				if (straggler.getExecutionState() != ExecutionState.RUNNING
+					|| eg.getJobStatus() != InternalJobStatus.RUNNING) {
+					continue;
+				}
+
+				final AllocatedResource sourceResource = straggler.getAllocatedResource();
+				this.verticesToBeRestarted.put(straggler.getID(), straggler);
+				this.relocatedVertices.put(straggler.getID(), sourceResource);
+
+				// Bypass the vertex's CANCELING state, so a task which finishes in the meantime still reports FINISHED
+				TaskCancelResult cancelResult;
+				try {
+					cancelResult = sourceResource.getInstance().cancelTask(straggler.getID());
+				} catch (IOException ioe) {
+					cancelResult = new TaskCancelResult(straggler.getID(), ReturnCode.IPC_ERROR);
+					cancelResult.setDescription(StringUtils.stringifyException(ioe));
+				}
+
+				if (cancelResult.getReturnCode() != ReturnCode.SUCCESS) {
+
+					// The task may also have terminated already, its final state change is then processed as usual
+					this.verticesToBeRestarted.remove(straggler.getID());
+					this.relocatedVertices.remove(straggler.getID());
+					LOG.warn("Unable to cancel straggler " + straggler + ": " + cancelResult.getReturnCode() + " "
+						+ cancelResult.getDescription());
+					continue;
+				}
+
+				stragglerDetector.markAsReported(straggler.getID());
+
+				// The vertex is restarted on the new resource once it has switched to CANCELED
+				straggler.setAllocatedResource(targetResource);
+
+				LOG.info("Relocating straggler " + straggler + " from " + sourceResource.getInstance() + " to "
+					+ targetResource.getInstance());
+			}
+
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Completes the relocation of the given vertex, if it has been relocated, by checking whether the resource the
+	 * vertex has been moved away from can be released.
+	 * 
+	 * @param vertex
+	 *        the vertex which has been restarted or, because it has finished or its job is aborted, will not be
+	 *        restarted
+	 * @return <code>true</code> if the vertex has been relocated, <code>false</code> otherwise
+	 */
+	boolean completeRelocation(final ExecutionVertex vertex) {
+
+		final AllocatedResource sourceResource = this.relocatedVertices.remove(vertex.getID());
+		if (sourceResource == null) {
+			return false;
+		}
+
+		checkAndReleaseAllocatedResource(vertex.getExecutionGraph(), sourceResource);
+
+		return true;
+	}
+
+	/**
+	 * Checks whether the given vertex can be moved to the given resource.
+	 * 
+	 * @param vertex
+	 *        the vertex to check
+	 * @param targetResource
+	 *        the resource to move the vertex to
+	 * @return <code>true</code> if the vertex can be moved to the resource, <code>false</code> otherwise
+	 */
+	private static boolean isRelocatable(final ExecutionVertex vertex, final AllocatedResource targetResource) {
+
+		if (!vertex.isInputVertex()) {
+			return false;
+		}
+
+		final AllocatedResource sourceResource = vertex.getAllocatedResource();
+		if (sourceResource == null || sourceResource.equals(targetResource)
+			|| sourceResource.getInstance() instanceof DummyInstance
+			|| !sourceResource.getInstanceType().equals(targetResource.getInstanceType())) {
+			return false;
+		}
+
+		// Vertices connected through in-memory channels must stay together
+		final Iterator<ExecutionVertex> it = vertex.getExecutionPipeline().iterator();
+		while (it.hasNext()) {
+			if (it.next() != vertex) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
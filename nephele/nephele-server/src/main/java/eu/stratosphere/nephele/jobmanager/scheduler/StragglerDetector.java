@@ -0,0 +1,253 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.jobmanager.scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import eu.stratosphere.nephele.executiongraph.ExecutionVertexID;
+
+/**
+ * The straggler detector keeps track of the progress of the subtasks of a single group vertex and identifies those
+ * subtasks which run considerably longer than the subtasks which have already finished. A subtask is considered a
+ * straggler once a minimum fraction of its group has finished and it has been running longer than the median running
+ * time of the finished subtasks multiplied by a slowdown factor. Each subtask is reported as a straggler at most once.
+ * Based on the number of input splits the subtasks have received, the detector also estimates whether relocating a
+ * straggler, i.e. canceling it and restarting it elsewhere, pays off.
+ * <p>
+ * This class is thread-safe.
+ */
+final class StragglerDetector {
+
+	/**
+	 * The factor in percent by which a subtask must exceed the median running time to be considered a straggler.
+	 */
+	private final int slowdownPercentage;
+
+	/**
+	 * The percentage of subtasks of the group which must have finished before stragglers are reported.
+	 */
+	private final int minimumFinishedPercentage;
+
+	/**
+	 * The start times of the subtasks currently running.
+	 */
+	private final Map<ExecutionVertexID, Long> startTimes = new HashMap<ExecutionVertexID, Long>();
+
+	/**
+	 * The running times of the subtasks which have finished.
+	 */
+	private final List<Long> runningTimes = new ArrayList<Long>();
+
+	/**
+	 * The average times per input split of the subtasks which have finished after receiving at least one input split.
+	 */
+	private final List<Long> inputSplitTimes = new ArrayList<Long>();
+
+	/**
+	 * The subtasks which have already been reported as stragglers.
+	 */
+	private final Set<ExecutionVertexID> reportedStragglers = new HashSet<ExecutionVertexID>();
+
+	/**
+	 * Constructs a new straggler detector.
+	 * 
+	 * @param slowdownPercentage
+	 *        the factor in percent by which a subtask must exceed the median running time to be considered a straggler
+	 * @param minimumFinishedPercentage
+	 *        the percentage of subtasks of the group which must have finished before stragglers are reported
+	 */
+	StragglerDetector(final int slowdownPercentage, final int minimumFinishedPercentage) {
+
+		this.slowdownPercentage = Math.max(100, slowdownPercentage);
+		this.minimumFinishedPercentage = Math.min(100, Math.max(0, minimumFinishedPercentage));
+	}
+
+	/**
+	 * Reports that the given subtask has started running.
+	 * 
+	 * @param vertexID
+	 *        the ID of the subtask
+	 * @param timestamp
+	 *        the time the subtask has started running in milliseconds
+	 */
+	synchronized void subtaskStarted(final ExecutionVertexID vertexID, final long timestamp) {
+
+		this.startTimes.put(vertexID, Long.valueOf(timestamp));
+	}
+
+	/**
+	 * Reports that the given subtask has finished.
+	 * 
+	 * @param vertexID
+	 *        the ID of the subtask
+	 * @param timestamp
+	 *        the time the subtask has finished in milliseconds
+	 * @param numberOfInputSplits
+	 *        the number of input splits the subtask has processed
+	 */
+	synchronized void subtaskFinished(final ExecutionVertexID vertexID, final long timestamp,
+			final int numberOfInputSplits) {
+
+		final Long startTime = this.startTimes.remove(vertexID);
+		if (startTime != null) {
+			final long runningTime = timestamp - startTime.longValue();
+			this.runningTimes.add(Long.valueOf(runningTime));
+			if (numberOfInputSplits > 0) {
+				this.inputSplitTimes.add(Long.valueOf(runningTime / numberOfInputSplits));
+			}
+		}
+	}
+
+	/**
+	 * Reports that the given subtask has stopped running without finishing, i.e. it has been canceled or has failed.
+	 * 
+	 * @param vertexID
+	 *        the ID of the subtask
+	 */
+	synchronized void subtaskStopped(final ExecutionVertexID vertexID) {
+
+		this.startTimes.remove(vertexID);
+	}
+
+	/**
+	 * Returns the running subtasks which are considered stragglers and have not been reported before, ordered by their
+	 * running time in descending order.
+	 * 
+	 * @param numberOfSubtasks
+	 *        the total number of subtasks of the group
+	 * @param timestamp
+	 *        the current time in milliseconds
+	 * @return the IDs of the stragglers, possibly empty
+	 */
+	synchronized List<ExecutionVertexID> getStragglers(final int numberOfSubtasks, final long timestamp) {
+
+		final int numberOfFinishedSubtasks = this.runningTimes.size();
+		if (numberOfFinishedSubtasks == 0
+			|| numberOfFinishedSubtasks * 100 < numberOfSubtasks * this.minimumFinishedPercentage) {
+			return Collections.emptyList();
+		}
+
+		final long threshold = median(this.runningTimes) * this.slowdownPercentage / 100L;
+
+		final Map<ExecutionVertexID, Long> elapsedTimes = new HashMap<ExecutionVertexID, Long>();
+		final Iterator<Map.Entry<ExecutionVertexID, Long>> it = this.startTimes.entrySet().iterator();
+		while (it.hasNext()) {
+
+			final Map.Entry<ExecutionVertexID, Long> entry = it.next();
+			if (this.reportedStragglers.contains(entry.getKey())) {
+				continue;
+			}
+
+			final long elapsed = timestamp - entry.getValue().longValue();
+			if (elapsed > threshold) {
+				elapsedTimes.put(entry.getKey(), Long.valueOf(elapsed));
+			}
+		}
+
+		final List<ExecutionVertexID> stragglers = new ArrayList<ExecutionVertexID>(elapsedTimes.keySet());
+		Collections.sort(stragglers, new Comparator<ExecutionVertexID>() {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public int compare(final ExecutionVertexID o1, final ExecutionVertexID o2) {
+
+				return elapsedTimes.get(o2).compareTo(elapsedTimes.get(o1));
+			}
+		});
+
+		return stragglers;
+	}
+
+	/**
+	 * Marks the given subtask as reported, so it is not considered a straggler again, even after a restart.
+	 * 
+	 * @param vertexID
+	 *        the ID of the subtask
+	 */
+	synchronized void markAsReported(final ExecutionVertexID vertexID) {
+
+		this.reportedStragglers.add(vertexID);
+	}
+
+	/**
+	 * Checks whether restarting the given running subtask elsewhere is expected to finish earlier than letting it
+	 * continue. A restart replays all input splits the subtask has received so far, which takes as long as the
+	 * finished subtasks needed for the same number of input splits. The subtask itself is expected to need its own
+	 * average time per input split so far to complete the input split it is currently processing, as no more input
+	 * splits are left to be handed out once the group's resources become idle.
+	 * 
+	 * @param vertexID
+	 *        the ID of the running subtask
+	 * @param numberOfInputSplits
+	 *        the number of input splits the subtask has received so far, including the one it is currently processing
+	 * @param timestamp
+	 *        the current time in milliseconds
+	 * @return <code>true</code> if the estimated remaining time of the subtask exceeds the time a restart takes,
+	 *         <code>false</code> otherwise
+	 */
+	synchronized boolean isRelocationWorthwhile(final ExecutionVertexID vertexID, final int numberOfInputSplits,
+			final long timestamp) {
+
+		final Long startTime = this.startTimes.get(vertexID);
+		if (startTime == null) {
+			return false;
+		}
+
+		// Nothing is lost by restarting a subtask which has not received any input split yet
+		if (numberOfInputSplits <= 0) {
+			return true;
+		}
+
+		if (this.inputSplitTimes.isEmpty()) {
+			return false;
+		}
+
+		final long remainingTime = (timestamp - startTime.longValue()) / numberOfInputSplits;
+		final long restartTime = median(this.inputSplitTimes) * numberOfInputSplits;
+
+		return remainingTime > restartTime;
+	}
+
+	/**
+	 * Returns the median of the given non-empty list of values.
+	 * 
+	 * @param values
+	 *        the values to compute the median of
+	 * @return the median of the values
+	 */
+	private static long median(final List<Long> values) {
+
+		final long[] sortedValues = new long[values.size()];
+		for (int i = 0; i < sortedValues.length; ++i) {
+			sortedValues[i] = values.get(i).longValue();
+		}
+		Arrays.sort(sortedValues);
+
+		return sortedValues[sortedValues.length / 2];
+	}
+}
@@ -199,6 +199,20 @@ public final class InputSplitManager {
 		return nextInputSplit;
 	}
 
+	/**
+	 * Returns the number of input splits the given vertex has received so far. As a vertex requests its next input
+	 * split only after it has processed the previous one, this includes the input split the vertex is currently
+	 * processing. After a restart, the vertex receives the same input splits again.
+	 * 
+	 * @param vertex
+	 *        the vertex to return the number of input splits for
+	 * @return the number of input splits the vertex has received so far
+	 */
+	public int getNumberOfAssignedInputSplits(final ExecutionVertex vertex) {
+
+		return this.inputSplitTracker.getNumberOfLoggedInputSplits(vertex);
+	}
+
 	/**
 	 * Returns the {@link InputSplitAssigner} which is defined for the given type of input split.
 	 * 
@@ -133,6 +133,25 @@ final class InputSplitTracker {
 		return null;
 	}
 
+	/**
+	 * Returns the number of input splits stored in the specified vertex's log.
+	 * 
+	 * @param vertex
+	 *        the vertex whose log shall be inspected
+	 * @return the number of input splits stored in the vertex's log or <code>0</code> if no such log exists
+	 */
+	int getNumberOfLoggedInputSplits(final ExecutionVertex vertex) {
+
+		final List<InputSplit> inputSplitLog = this.splitMap.get(vertex.getID());
+		if (inputSplitLog == null) {
+			return 0;
+		}
+
+		synchronized (inputSplitLog) {
+			return inputSplitLog.size();
+		}
+	}
+
 	/**
 	 * Adds the given input split to the vertex's log and stores it under the specified sequence number.
 	 * 
@@ -24,6 +24,7 @@ import eu.stratosphere.nephele.io.InputGate;
 import eu.stratosphere.nephele.io.channels.AbstractInputChannel;
 import eu.stratosphere.nephele.io.channels.ChannelID;
 import eu.stratosphere.nephele.io.channels.ChannelType;
+import eu.stratosphere.nephele.io.compression.CompressionLevel;
 import eu.stratosphere.nephele.io.channels.bytebuffered.InMemoryInputChannel;
 import eu.stratosphere.nephele.io.channels.bytebuffered.NetworkInputChannel;
 import eu.stratosphere.nephele.jobgraph.JobID;
@@ -143,6 +144,15 @@ public abstract class AbstractInputGateWrapper<T extends Record> implements
 		return this.wrappedInputGate.getChannelType();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CompressionLevel getCompressionLevel() {
+
+		return this.wrappedInputGate.getCompressionLevel();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -188,6 +198,15 @@ public abstract class AbstractInputGateWrapper<T extends Record> implements
 		this.wrappedInputGate.setChannelType(channelType);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setCompressionLevel(final CompressionLevel compressionLevel) {
+
+		this.wrappedInputGate.setCompressionLevel(compressionLevel);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -198,6 +217,29 @@ public abstract class AbstractInputGateWrapper<T extends Record> implements
 		return this.wrappedInputGate.readRecord(target);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int readRecords(final T[] targets) throws IOException, InterruptedException {
+
+		// Route every record through readRecord, so subclasses intercepting it see the entire batch. Only the first
+		// record may block, the batch ends as soon as no further record is available.
+		int numberOfRecords = 0;
+		while (numberOfRecords < targets.length) {
+			if (numberOfRecords > 0 && !hasRecordAvailable()) {
+				break;
+			}
+			final T record = readRecord(targets[numberOfRecords]);
+			if (record == null) {
+				break;
+			}
+			targets[numberOfRecords++] = record;
+		}
+
+		return numberOfRecords;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -26,6 +26,7 @@ import eu.stratosphere.nephele.io.OutputGate;
 import eu.stratosphere.nephele.io.channels.AbstractOutputChannel;
 import eu.stratosphere.nephele.io.channels.ChannelID;
 import eu.stratosphere.nephele.io.channels.ChannelType;
+import eu.stratosphere.nephele.io.compression.CompressionLevel;
 import eu.stratosphere.nephele.io.channels.bytebuffered.InMemoryOutputChannel;
 import eu.stratosphere.nephele.io.channels.bytebuffered.NetworkOutputChannel;
 import eu.stratosphere.nephele.jobgraph.JobID;
@@ -138,6 +139,15 @@ public abstract class AbstractOutputGateWrapper<T extends Record> implements Out
 		return this.wrappedOutputGate.getChannelType();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CompressionLevel getCompressionLevel() {
+
+		return this.wrappedOutputGate.getCompressionLevel();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -183,6 +193,15 @@ public abstract class AbstractOutputGateWrapper<T extends Record> implements Out
 		this.wrappedOutputGate.setChannelType(channelType);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setCompressionLevel(final CompressionLevel compressionLevel) {
+
+		this.wrappedOutputGate.setCompressionLevel(compressionLevel);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -201,6 +220,22 @@ public abstract class AbstractOutputGateWrapper<T extends Record> implements Out
 		this.wrappedOutputGate.writeRecord(record);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeRecords(final T[] records, final int numberOfRecords) throws IOException, InterruptedException {
+
+		if (numberOfRecords < 0 || numberOfRecords > records.length) {
+			throw new IllegalArgumentException("Number of records " + numberOfRecords + " is out of range");
+		}
+
+		// Route every record through writeRecord, so subclasses intercepting it see the entire batch
+		for (int i = 0; i < numberOfRecords; ++i) {
+			writeRecord(records[i]);
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
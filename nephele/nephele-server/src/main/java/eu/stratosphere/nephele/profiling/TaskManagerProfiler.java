@@ -18,6 +18,7 @@ package eu.stratosphere.nephele.profiling;
 import eu.stratosphere.nephele.configuration.Configuration;
 import eu.stratosphere.nephele.execution.ExecutionListener;
 import eu.stratosphere.nephele.executiongraph.ExecutionVertexID;
+import eu.stratosphere.nephele.services.memorymanager.MemoryManager;
 import eu.stratosphere.nephele.taskmanager.runtime.RuntimeTask;
 
 /**
@@ -48,6 +49,15 @@ public interface TaskManagerProfiler {
 	 */
 	void unregisterExecutionListener(ExecutionVertexID id);
 
+	/**
+	 * Registers the task manager's memory manager, whose utilization and allocation latency are to be included in
+	 * the instance profiling data.
+	 * 
+	 * @param memoryManager
+	 *        the memory manager of the task manager
+	 */
+	void registerMemoryManager(MemoryManager memoryManager);
+
 	/**
 	 * Shuts done the task manager's profiling component
 	 * and stops all its internal processes.
@@ -23,13 +23,17 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import eu.stratosphere.nephele.execution.Environment;
+import eu.stratosphere.nephele.jobgraph.JobID;
 import eu.stratosphere.nephele.services.memorymanager.MemoryAllocationException;
 import eu.stratosphere.nephele.services.memorymanager.MemoryManager;
+import eu.stratosphere.nephele.services.memorymanager.MemoryReclaimer;
 import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
 import eu.stratosphere.nephele.template.AbstractInvokable;
 
@@ -48,6 +52,10 @@ import eu.stratosphere.nephele.template.AbstractInvokable;
  * the manager works 2 dimensional byte array (i.e. with memory chunks). Please be aware that in order to keep the array
  * access methods in the {@link DefaultMemorySegment} fast and simple, the actual allocated memory segments must not
  * exceed 2GB and must be contained in a single memory chunk.
+ * <p>
+ * The number of pages a single owner and a single job may hold can be limited by quotas. Allocations exceeding a quota
+ * fail. Blocking allocations wait for pages to become available and ask owners holding more than their fair share of
+ * the memory to release pages through their registered {@link MemoryReclaimer}.
  * 
  * @author Alexander Alexandrov
  * @author Stephan Ewen
@@ -77,6 +85,20 @@ public class DefaultMemoryManager implements MemoryManager
 	
 	private final HashMap<AbstractInvokable, Set<DefaultMemorySegment>> allocatedSegments;
 	
+	private final HashMap<AbstractInvokable, MemoryReclaimer> reclaimers;	// the reclaimers registered by the owners
+	
+	private final HashMap<JobID, int[]> allocatedPagesPerJob;	// the number of pages allocated by each job
+	
+	private final HashMap<JobID, Integer> jobQuotas;	// the quotas set for individual jobs
+	
+	private int ownerQuota = Integer.MAX_VALUE;	// the maximum number of pages a single owner may hold
+	
+	private int defaultJobQuota = Integer.MAX_VALUE;	// the maximum number of pages a job without own quota may hold
+	
+	private long numAllocations;			// the number of successful allocations
+	
+	private long allocationTime;			// the accumulated time of the successful allocations, in nanoseconds
+	
 	private final long roundingMask;		// mask used to round down sizes to multiples of the page size
 	
 	private final int pageSize;				// the page size, in bytes
@@ -136,6 +158,9 @@ public class DefaultMemoryManager implements MemoryManager
 		// initialize the free segments and allocated segments tracking structures
 		this.freeSegments = new ArrayDeque<byte[]>();
 		this.allocatedSegments = new HashMap<AbstractInvokable, Set<DefaultMemorySegment>>();
+		this.reclaimers = new HashMap<AbstractInvokable, MemoryReclaimer>();
+		this.allocatedPagesPerJob = new HashMap<JobID, int[]>();
+		this.jobQuotas = new HashMap<JobID, Integer>();
 
 		
 		// add the full chunks
@@ -161,6 +186,7 @@ public class DefaultMemoryManager implements MemoryManager
 				// mark as shutdown and release memory
 				this.isShutDown = true;
 				this.freeSegments.clear();
+				this.lock.notifyAll();
 				
 				// go over all allocated segments and release them
 				for (Set<DefaultMemorySegment> segments : this.allocatedSegments.values()) {
@@ -214,32 +240,92 @@ public class DefaultMemoryManager implements MemoryManager
 			((ArrayList<MemorySegment>) target).ensureCapacity(numPages);
 		}
 		
+		final long start = System.nanoTime();
+		final JobID jobID = getJobID(owner);
+		
 		// -------------------- BEGIN CRITICAL SECTION -------------------
 		synchronized (this.lock)
 		{
-			if (this.isShutDown) {
-				throw new IllegalStateException("Memory manager has been shut down.");
+			if (!tryAllocate(owner, jobID, target, numPages, start)) {
+				if (numPages > this.freeSegments.size()) {
+					throw new MemoryAllocationException("Could not allocate " + numPages + " pages. Only " + 
+						this.freeSegments.size() + " pages are remaining.");
+				} else {
+					throw new MemoryAllocationException("Could not allocate " + numPages + " pages. The quota of "
+						+ getJobQuota(jobID) + " pages for job " + jobID + " is exhausted.");
+				}
 			}
+		}
+		// -------------------- END CRITICAL SECTION -------------------
+	}
+	
+	/* (non-Javadoc)
+	 * @see eu.stratosphere.nephele.services.memorymanager.MemoryManager#allocatePages(eu.stratosphere.nephele.template.AbstractInvokable, java.util.List, int, long)
+	 */
+	@Override
+	public void allocatePages(AbstractInvokable owner, List<MemorySegment> target, int numPages, long timeout)
+			throws MemoryAllocationException
+	{
+		// sanity check
+		if (owner == null) {
+			throw new IllegalAccessError("The memory owner must not be null.");
+		}
+		
+		// reserve array space, if applicable
+		if (target instanceof ArrayList) {
+			((ArrayList<MemorySegment>) target).ensureCapacity(numPages);
+		}
+		
+		final long start = System.nanoTime();
+		// saturate the timeout, the remaining time is computed from the elapsed time so no addition can overflow
+		final long timeoutNanos = timeout >= Long.MAX_VALUE / 1000000L ? Long.MAX_VALUE : timeout * 1000000L;
+		final JobID jobID = getJobID(owner);
+		boolean reclaimRequested = false;
+		
+		while (true) {
 			
-			if (numPages > this.freeSegments.size()) {
-				throw new MemoryAllocationException("Could not allocate " + numPages + " pages. Only " + 
-					this.freeSegments.size() + " pages are remaining.");
-			}
+			Map<MemoryReclaimer, Integer> toReclaim = null;
 			
-			Set<DefaultMemorySegment> segmentsForOwner = this.allocatedSegments.get(owner);
-			if (segmentsForOwner == null) {
-				segmentsForOwner = new HashSet<DefaultMemorySegment>(4 * numPages / 3 + 1);
-				this.allocatedSegments.put(owner, segmentsForOwner);
+			// -------------------- BEGIN CRITICAL SECTION -------------------
+			synchronized (this.lock)
+			{
+				if (tryAllocate(owner, jobID, target, numPages, start)) {
+					return;
+				}
+				
+				final long remaining = timeoutNanos - (System.nanoTime() - start);
+				if (remaining <= 0) {
+					throw new MemoryAllocationException("Could not allocate " + numPages + " pages within "
+						+ timeout + " ms. Only " + this.freeSegments.size() + " pages are remaining.");
+				}
+				
+				if (!reclaimRequested) {
+					// ask the owners holding more than their fair share once, then wait for pages to be released
+					reclaimRequested = true;
+					toReclaim = selectReclaimers(owner, jobID, numPages);
+				} else {
+					try {
+						this.lock.wait(remaining / 1000000L + 1);
+					} catch (InterruptedException iex) {
+						// preserve the interrupt for the caller, which cannot receive the InterruptedException
+						Thread.currentThread().interrupt();
+						throw new MemoryAllocationException("Interrupted while waiting for " + numPages + " pages.");
+					}
+				}
 			}
+			// -------------------- END CRITICAL SECTION -------------------
 			
-			for (int i = numPages; i > 0; i--) {
-				byte[] buffer = this.freeSegments.poll();
-				final DefaultMemorySegment segment = new DefaultMemorySegment(owner, buffer);
-				target.add(segment);
-				segmentsForOwner.add(segment);
+			// call the reclaimers outside the lock, so they may release pages right away
+			if (toReclaim != null) {
+				for (final Map.Entry<MemoryReclaimer, Integer> entry : toReclaim.entrySet()) {
+					try {
+						entry.getKey().reclaimMemory(entry.getValue().intValue());
+					} catch (Throwable t) {
+						LOG.error("Memory reclaimer failed to process a reclaim request.", t);
+					}
+				}
 			}
 		}
-		// -------------------- END CRITICAL SECTION -------------------
 	}
 	
 	/* (non-Javadoc)
@@ -261,6 +347,92 @@ public class DefaultMemoryManager implements MemoryManager
 		allocatePages(owner, target, getNumPages(numBytes));
 	}
 	
+	/* (non-Javadoc)
+	 * @see eu.stratosphere.nephele.services.memorymanager.MemoryManager#registerMemoryReclaimer(eu.stratosphere.nephele.template.AbstractInvokable, eu.stratosphere.nephele.services.memorymanager.MemoryReclaimer)
+	 */
+	@Override
+	public void registerMemoryReclaimer(AbstractInvokable owner, MemoryReclaimer reclaimer)
+	{
+		if (owner == null || reclaimer == null) {
+			throw new NullPointerException();
+		}
+		
+		synchronized (this.lock) {
+			this.reclaimers.put(owner, reclaimer);
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see eu.stratosphere.nephele.services.memorymanager.MemoryManager#unregisterMemoryReclaimer(eu.stratosphere.nephele.template.AbstractInvokable)
+	 */
+	@Override
+	public void unregisterMemoryReclaimer(AbstractInvokable owner)
+	{
+		synchronized (this.lock) {
+			this.reclaimers.remove(owner);
+		}
+	}
+	
+	// ------------------------------------------------------------------------
+	
+	/**
+	 * Sets the maximum number of pages a single owner may hold.
+	 * 
+	 * @param numPages The maximum number of pages a single owner may hold.
+	 */
+	public void setOwnerQuota(int numPages)
+	{
+		if (numPages < 1) {
+			throw new IllegalArgumentException("The quota must be at least one page.");
+		}
+		
+		synchronized (this.lock) {
+			this.ownerQuota = numPages;
+		}
+	}
+	
+	/**
+	 * Sets the maximum number of pages the tasks of a job may hold together, for all jobs that have no quota of
+	 * their own.
+	 * 
+	 * @param numPages The maximum number of pages the tasks of a job may hold together.
+	 */
+	public void setDefaultJobQuota(int numPages)
+	{
+		if (numPages < 1) {
+			throw new IllegalArgumentException("The quota must be at least one page.");
+		}
+		
+		synchronized (this.lock) {
+			this.defaultJobQuota = numPages;
+			this.lock.notifyAll();
+		}
+	}
+	
+	/**
+	 * Sets the maximum number of pages the tasks of the given job may hold together. The quota can only tighten the
+	 * default job quota, a larger quota is capped at the default job quota.
+	 * 
+	 * @param jobID The ID of the job.
+	 * @param numPages The maximum number of pages the tasks of the job may hold together, or a non-positive value
+	 *                 to apply the default job quota again.
+	 */
+	public void setJobQuota(JobID jobID, int numPages)
+	{
+		if (jobID == null) {
+			throw new NullPointerException();
+		}
+		
+		synchronized (this.lock) {
+			if (numPages > 0) {
+				this.jobQuotas.put(jobID, Integer.valueOf(numPages));
+			} else {
+				this.jobQuotas.remove(jobID);
+			}
+			this.lock.notifyAll();
+		}
+	}
+	
 	// ------------------------------------------------------------------------
 	
 	/* (non-Javadoc)
@@ -289,7 +461,9 @@ public class DefaultMemoryManager implements MemoryManager
 				Set<DefaultMemorySegment> segsForOwner = this.allocatedSegments.get(owner);
 				
 				if (segsForOwner != null) {
-					segsForOwner.remove(defSeg);
+					if (segsForOwner.remove(defSeg)) {
+						releasePagesOfJob(defSeg.jobID, 1);
+					}
 					if (segsForOwner.isEmpty()) {
 						this.allocatedSegments.remove(owner);
 					}
@@ -302,6 +476,7 @@ public class DefaultMemoryManager implements MemoryManager
 				// release the memory in any case
 				byte[] buffer = defSeg.destroy();
 				this.freeSegments.add(buffer);
+				this.lock.notifyAll();
 			}
 		}
 		// -------------------- END CRITICAL SECTION -------------------
@@ -351,7 +526,9 @@ public class DefaultMemoryManager implements MemoryManager
 					
 					// remove the segment from the list
 					if (segsForOwner != null) {
-						segsForOwner.remove(defSeg);
+						if (segsForOwner.remove(defSeg)) {
+							releasePagesOfJob(defSeg.jobID, 1);
+						}
 						if (segsForOwner.isEmpty()) {
 							this.allocatedSegments.remove(owner);
 						}
@@ -368,6 +545,7 @@ public class DefaultMemoryManager implements MemoryManager
 			}
 			
 			segments.clear();
+			this.lock.notifyAll();
 		}
 		// -------------------- END CRITICAL SECTION -------------------
 	}
@@ -385,6 +563,8 @@ public class DefaultMemoryManager implements MemoryManager
 				throw new IllegalStateException("Memory manager has been shut down.");
 			}
 			
+			this.reclaimers.remove(owner);
+			
 			// get all segments
 			final Set<DefaultMemorySegment> segments = this.allocatedSegments.remove(owner);
 			
@@ -395,11 +575,13 @@ public class DefaultMemoryManager implements MemoryManager
 			
 			// free each segment
 			for (DefaultMemorySegment seg : segments) {
+				releasePagesOfJob(seg.jobID, 1);
 				final byte[] buffer = seg.destroy();
 				this.freeSegments.add(buffer);
 			}
 			
 			segments.clear();
+			this.lock.notifyAll();
 		}
 		// -------------------- END CRITICAL SECTION -------------------
 	}
@@ -430,6 +612,190 @@ public class DefaultMemoryManager implements MemoryManager
 		return numBytes & this.roundingMask;
 	}
 	
+	/* (non-Javadoc)
+	 * @see eu.stratosphere.nephele.services.memorymanager.MemoryManager#getTotalNumberOfPages()
+	 */
+	@Override
+	public int getTotalNumberOfPages() {
+		return this.totalNumPages;
+	}
+	
+	/* (non-Javadoc)
+	 * @see eu.stratosphere.nephele.services.memorymanager.MemoryManager#getNumberOfAllocatedPages()
+	 */
+	@Override
+	public int getNumberOfAllocatedPages() {
+		synchronized (this.lock) {
+			return this.isShutDown ? 0 : this.totalNumPages - this.freeSegments.size();
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see eu.stratosphere.nephele.services.memorymanager.MemoryManager#getNumberOfAllocations()
+	 */
+	@Override
+	public long getNumberOfAllocations() {
+		synchronized (this.lock) {
+			return this.numAllocations;
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see eu.stratosphere.nephele.services.memorymanager.MemoryManager#getAccumulatedAllocationTime()
+	 */
+	@Override
+	public long getAccumulatedAllocationTime() {
+		synchronized (this.lock) {
+			return this.allocationTime;
+		}
+	}
+	
+	// ------------------------------------------------------------------------
+	
+	/**
+	 * Allocates the given number of pages, if they are available and the allocation stays within the job's quota.
+	 * This method must be called while holding the lock.
+	 * 
+	 * @return True, if the pages have been allocated, false if not enough pages are available or the job's quota
+	 *         is exhausted.
+	 * @throws MemoryAllocationException Thrown, if the allocation can never succeed, because it exceeds the owner's
+	 *                                   quota or the job's quota on its own.
+	 */
+	private boolean tryAllocate(AbstractInvokable owner, JobID jobID, List<MemorySegment> target, int numPages,
+			long start)
+	throws MemoryAllocationException
+	{
+		if (this.isShutDown) {
+			throw new IllegalStateException("Memory manager has been shut down.");
+		}
+		
+		Set<DefaultMemorySegment> segmentsForOwner = this.allocatedSegments.get(owner);
+		final int ownerPages = segmentsForOwner == null ? 0 : segmentsForOwner.size();
+		if ((long) ownerPages + numPages > this.ownerQuota) {
+			throw new MemoryAllocationException("Could not allocate " + numPages + " pages. The owner already holds "
+				+ ownerPages + " pages of its quota of " + this.ownerQuota + " pages.");
+		}
+		
+		final int jobQuota = getJobQuota(jobID);
+		if (numPages > jobQuota) {
+			throw new MemoryAllocationException("Could not allocate " + numPages + " pages. The quota of job "
+				+ jobID + " is " + jobQuota + " pages.");
+		}
+		if (numPages > this.totalNumPages) {
+			throw new MemoryAllocationException("Could not allocate " + numPages + " pages. The memory manager only "
+				+ "manages " + this.totalNumPages + " pages.");
+		}
+		
+		if (numPages > this.freeSegments.size() || (long) getPagesOfJob(jobID) + numPages > jobQuota) {
+			return false;
+		}
+		
+		if (segmentsForOwner == null) {
+			segmentsForOwner = new HashSet<DefaultMemorySegment>(4 * numPages / 3 + 1);
+			this.allocatedSegments.put(owner, segmentsForOwner);
+		}
+		
+		for (int i = numPages; i > 0; i--) {
+			byte[] buffer = this.freeSegments.poll();
+			final DefaultMemorySegment segment = new DefaultMemorySegment(owner, jobID, buffer);
+			target.add(segment);
+			segmentsForOwner.add(segment);
+		}
+		
+		if (jobID != null && numPages > 0) {
+			int[] jobPages = this.allocatedPagesPerJob.get(jobID);
+			if (jobPages == null) {
+				jobPages = new int[1];
+				this.allocatedPagesPerJob.put(jobID, jobPages);
+			}
+			jobPages[0] += numPages;
+		}
+		
+		this.numAllocations++;
+		this.allocationTime += System.nanoTime() - start;
+		return true;
+	}
+	
+	/**
+	 * Selects the reclaimers to ask for pages on behalf of the given owner, together with the number of pages to ask
+	 * each of them for. Only owners holding more than their fair share are asked, which is the number of pages
+	 * divided by the number of owners. If the job's quota is the limit, only owners of the same job are asked.
+	 * This method must be called while holding the lock.
+	 */
+	private Map<MemoryReclaimer, Integer> selectReclaimers(AbstractInvokable owner, JobID jobID, int numPages)
+	{
+		final boolean jobLimited = numPages <= this.freeSegments.size();
+		int missing = jobLimited ? getPagesOfJob(jobID) + numPages - getJobQuota(jobID)
+			: numPages - this.freeSegments.size();
+		
+		final int numOwners = this.allocatedSegments.size() + (this.allocatedSegments.containsKey(owner) ? 0 : 1);
+		final int fairShare = this.totalNumPages / numOwners;
+		
+		final Map<MemoryReclaimer, Integer> selected = new HashMap<MemoryReclaimer, Integer>();
+		for (final Map.Entry<AbstractInvokable, MemoryReclaimer> entry : this.reclaimers.entrySet()) {
+			if (missing <= 0) {
+				break;
+			}
+			
+			final AbstractInvokable candidate = entry.getKey();
+			if (candidate == owner || (jobLimited && (jobID == null || !jobID.equals(getJobID(candidate))))) {
+				continue;
+			}
+			
+			final Set<DefaultMemorySegment> segments = this.allocatedSegments.get(candidate);
+			final int excess = (segments == null ? 0 : segments.size()) - fairShare;
+			if (excess > 0) {
+				final int request = Math.min(excess, missing);
+				selected.put(entry.getValue(), Integer.valueOf(request));
+				missing -= request;
+			}
+		}
+		
+		return selected;
+	}
+	
+	private int getJobQuota(JobID jobID)
+	{
+		if (jobID == null) {
+			return Integer.MAX_VALUE;
+		}
+		
+		// a job must not grant itself more than the default
+		final Integer quota = this.jobQuotas.get(jobID);
+		return quota == null ? this.defaultJobQuota : Math.min(quota.intValue(), this.defaultJobQuota);
+	}
+	
+	private int getPagesOfJob(JobID jobID)
+	{
+		if (jobID == null) {
+			return 0;
+		}
+		
+		final int[] jobPages = this.allocatedPagesPerJob.get(jobID);
+		return jobPages == null ? 0 : jobPages[0];
+	}
+	
+	private void releasePagesOfJob(JobID jobID, int numPages)
+	{
+		if (jobID == null) {
+			return;
+		}
+		
+		final int[] jobPages = this.allocatedPagesPerJob.get(jobID);
+		if (jobPages != null) {
+			jobPages[0] -= numPages;
+			if (jobPages[0] <= 0) {
+				this.allocatedPagesPerJob.remove(jobID);
+			}
+		}
+	}
+	
+	private static JobID getJobID(AbstractInvokable owner)
+	{
+		final Environment environment = owner.getEnvironment();
+		return environment == null ? null : environment.getJobID();
+	}
+	
 	// ------------------------------------------------------------------------
 	
 	private final int getNumPages(long numBytes)
@@ -450,9 +816,12 @@ public class DefaultMemoryManager implements MemoryManager
 		
 		private AbstractInvokable owner;
 		
-		DefaultMemorySegment(AbstractInvokable owner, byte[] memory) {
+		private final JobID jobID;
+		
+		DefaultMemorySegment(AbstractInvokable owner, JobID jobID, byte[] memory) {
 			super(memory);
 			this.owner = owner;
+			this.jobID = jobID;
 		}
 		
 		byte[] destroy() {
@@ -34,7 +34,8 @@ import eu.stratosphere.nephele.util.EnumUtils;
 public abstract class AbstractTaskResult implements IOReadableWritable {
 
 	public enum ReturnCode {
-		SUCCESS, DEPLOYMENT_ERROR, IPC_ERROR, NO_INSTANCE, ILLEGAL_STATE, TASK_NOT_FOUND, INSUFFICIENT_RESOURCES
+		SUCCESS, DEPLOYMENT_ERROR, IPC_ERROR, NO_INSTANCE, ILLEGAL_STATE, TASK_NOT_FOUND, INSUFFICIENT_RESOURCES,
+		MISSING_DEPLOYMENT_DATA
 	};
 
 	private ExecutionVertexID vertexID;
@@ -0,0 +1,146 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.nephele.taskmanager;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import eu.stratosphere.nephele.io.IOReadableWritable;
+import eu.stratosphere.nephele.io.channels.ChannelID;
+
+/**
+ * This class carries the number of bytes and records a task has transmitted through each of its output channels from
+ * the task manager to the job manager, so skew in the partitioning of the data becomes visible in the management
+ * graph.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ */
+public final class OutputChannelStatistics implements IOReadableWritable {
+
+	/**
+	 * The IDs of the output channels.
+	 */
+	private final List<ChannelID> channelIDs = new ArrayList<ChannelID>();
+
+	/**
+	 * The number of bytes transmitted through each output channel.
+	 */
+	private final List<Long> amountsOfDataTransmitted = new ArrayList<Long>();
+
+	/**
+	 * The number of records transmitted through each output channel.
+	 */
+	private final List<Long> numbersOfRecordsTransmitted = new ArrayList<Long>();
+
+	/**
+	 * Adds the statistics of an output channel.
+	 * 
+	 * @param channelID
+	 *        the ID of the output channel
+	 * @param amountOfDataTransmitted
+	 *        the number of bytes transmitted through the output channel
+	 * @param numberOfRecordsTransmitted
+	 *        the number of records transmitted through the output channel
+	 */
+	public void add(final ChannelID channelID, final long amountOfDataTransmitted,
+			final long numberOfRecordsTransmitted) {
+
+		this.channelIDs.add(channelID);
+		this.amountsOfDataTransmitted.add(Long.valueOf(amountOfDataTransmitted));
+		this.numbersOfRecordsTransmitted.add(Long.valueOf(numberOfRecordsTransmitted));
+	}
+
+	/**
+	 * Returns the number of output channels included in these statistics.
+	 * 
+	 * @return the number of output channels included in these statistics
+	 */
+	public int getNumberOfChannels() {
+
+		return this.channelIDs.size();
+	}
+
+	/**
+	 * Returns the ID of the output channel with the given index.
+	 * 
+	 * @param index
+	 *        the index of the output channel within these statistics
+	 * @return the ID of the output channel
+	 */
+	public ChannelID getChannelID(final int index) {
+
+		return this.channelIDs.get(index);
+	}
+
+	/**
+	 * Returns the number of bytes transmitted through the output channel with the given index.
+	 * 
+	 * @param index
+	 *        the index of the output channel within these statistics
+	 * @return the number of bytes transmitted through the output channel
+	 */
+	public long getAmountOfDataTransmitted(final int index) {
+
+		return this.amountsOfDataTransmitted.get(index).longValue();
+	}
+
+	/**
+	 * Returns the number of records transmitted through the output channel with the given index.
+	 * 
+	 * @param index
+	 *        the index of the output channel within these statistics
+	 * @return the number of records transmitted through the output channel
+	 */
+	public long getNumberOfRecordsTransmitted(final int index) {
+
+		return this.numbersOfRecordsTransmitted.get(index).longValue();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final DataOutput out) throws IOException {
+
+		out.writeInt(this.channelIDs.size());
+		for (int i = 0; i < this.channelIDs.size(); ++i) {
+			this.channelIDs.get(i).write(out);
+			out.writeLong(this.amountsOfDataTransmitted.get(i).longValue());
+			out.writeLong(this.numbersOfRecordsTransmitted.get(i).longValue());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void read(final DataInput in) throws IOException {
+
+		this.channelIDs.clear();
+		this.amountsOfDataTransmitted.clear();
+		this.numbersOfRecordsTransmitted.clear();
+
+		final int numberOfChannels = in.readInt();
+		for (int i = 0; i < numberOfChannels; ++i) {
+			final ChannelID channelID = new ChannelID();
+			channelID.read(in);
+			add(channelID, in.readLong(), in.readLong());
+		}
+	}
+}
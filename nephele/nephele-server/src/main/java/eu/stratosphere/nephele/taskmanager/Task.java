@@ -110,6 +110,13 @@ public interface Task {
 	 */
 	ExecutionState getExecutionState();
 
+	/**
+	 * Collects the number of bytes and records the task has transmitted through each of its output channels so far.
+	 * 
+	 * @return the statistics of the task's output channels
+	 */
+	OutputChannelStatistics getOutputChannelStatistics();
+
 	TaskContext createTaskContext(TransferEnvelopeDispatcher transferEnvelopeDispatcher,
 			LocalBufferPoolOwner previousBufferPoolOwner);
 }
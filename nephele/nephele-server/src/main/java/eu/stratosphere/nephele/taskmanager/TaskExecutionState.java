@@ -42,6 +42,8 @@ public class TaskExecutionState implements IOReadableWritable {
 
 	private String description = null;
 
+	private OutputChannelStatistics outputChannelStatistics = null;
+
 	/**
 	 * Creates a new task execution state.
 	 * 
@@ -104,6 +106,25 @@ public class TaskExecutionState implements IOReadableWritable {
 		return this.jobID;
 	}
 
+	/**
+	 * Returns the statistics of the task's output channels attached to this task execution state.
+	 * 
+	 * @return the statistics of the task's output channels or <code>null</code> if no statistics are attached
+	 */
+	public OutputChannelStatistics getOutputChannelStatistics() {
+		return this.outputChannelStatistics;
+	}
+
+	/**
+	 * Attaches the statistics of the task's output channels to this task execution state.
+	 * 
+	 * @param outputChannelStatistics
+	 *        the statistics of the task's output channels
+	 */
+	public void setOutputChannelStatistics(final OutputChannelStatistics outputChannelStatistics) {
+		this.outputChannelStatistics = outputChannelStatistics;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -134,6 +155,14 @@ public class TaskExecutionState implements IOReadableWritable {
 
 		// Read description
 		this.description = StringRecord.readString(in);
+
+		// Read output channel statistics
+		if (in.readBoolean()) {
+			this.outputChannelStatistics = new OutputChannelStatistics();
+			this.outputChannelStatistics.read(in);
+		} else {
+			this.outputChannelStatistics = null;
+		}
 	}
 
 	/**
@@ -163,6 +192,13 @@ public class TaskExecutionState implements IOReadableWritable {
 		// Write description
 		StringRecord.writeString(out, this.description);
 
+		// Write output channel statistics
+		if (this.outputChannelStatistics == null) {
+			out.writeBoolean(false);
+		} else {
+			out.writeBoolean(true);
+			this.outputChannelStatistics.write(out);
+		}
 	}
 
 }
@@ -46,7 +46,9 @@ import org.apache.commons.logging.LogFactory;
 import eu.stratosphere.nephele.configuration.ConfigConstants;
 import eu.stratosphere.nephele.configuration.Configuration;
 import eu.stratosphere.nephele.configuration.GlobalConfiguration;
+import eu.stratosphere.nephele.deployment.SharedDeploymentDataCache;
 import eu.stratosphere.nephele.deployment.TaskDeploymentDescriptor;
+import eu.stratosphere.nephele.deployment.TaskDeploymentDescriptorList;
 import eu.stratosphere.nephele.discovery.DiscoveryException;
 import eu.stratosphere.nephele.discovery.DiscoveryService;
 import eu.stratosphere.nephele.execution.Environment;
@@ -62,6 +64,7 @@ import eu.stratosphere.nephele.instance.HardwareDescriptionFactory;
 import eu.stratosphere.nephele.instance.InstanceConnectionInfo;
 import eu.stratosphere.nephele.io.IOReadableWritable;
 import eu.stratosphere.nephele.io.channels.ChannelID;
+import eu.stratosphere.nephele.io.compression.CompressionLevel;
 import eu.stratosphere.nephele.ipc.RPC;
 import eu.stratosphere.nephele.ipc.Server;
 import eu.stratosphere.nephele.jobgraph.JobID;
@@ -125,6 +128,11 @@ public class TaskManager implements TaskOperationProtocol, PluginCommunicationPr
 
 	private final static int DEFAULTPERIODICTASKSINTERVAL = 2000;
 
+	/**
+	 * The default share of the memory a single task or job may hold, in percent.
+	 */
+	private final static int DEFAULT_MEMORY_QUOTA = 100;
+
 	/**
 	 * The instance of the {@link ByteBufferedChannelManager} which is responsible for
 	 * setting up and cleaning up the byte buffered channels of the tasks.
@@ -144,6 +152,11 @@ public class TaskManager implements TaskOperationProtocol, PluginCommunicationPr
 
 	private final ConcurrentHashMap<PluginID, TaskManagerPlugin> taskManagerPlugins;
 
+	/**
+	 * The cache for the shared data of the deployed tasks, so the job manager only has to send it once.
+	 */
+	private final SharedDeploymentDataCache sharedDeploymentDataCache = new SharedDeploymentDataCache();
+
 	/**
 	 * Stores whether the task manager has already been shut down.
 	 */
@@ -308,15 +321,37 @@ public class TaskManager implements TaskOperationProtocol, PluginCommunicationPr
 
 		// Initialize the memory manager
 		LOG.info("Initializing memory manager with " + (hardware.getSizeOfFreeMemory() >>> 20) + " megabytes of memory");
+		final DefaultMemoryManager defaultMemoryManager;
 		try {
-			this.memoryManager = new DefaultMemoryManager(hardware.getSizeOfFreeMemory());
+			defaultMemoryManager = new DefaultMemoryManager(hardware.getSizeOfFreeMemory());
 		} catch (RuntimeException rte) {
 			LOG.fatal("Unable to initialize memory manager with " + (hardware.getSizeOfFreeMemory() >>> 20)
 				+ " megabytes of memory", rte);
 			throw rte;
 		}
 
-		this.ioManager = new IOManager(tmpDirPaths);
+		// Limit the share of the memory a single task and a single job may hold, in percent of the memory
+		final int ownerQuota = GlobalConfiguration.getInteger("taskmanager.memory.ownerquota", DEFAULT_MEMORY_QUOTA);
+		if (ownerQuota < DEFAULT_MEMORY_QUOTA) {
+			defaultMemoryManager.setOwnerQuota(Math.max(1, (int) ((long) defaultMemoryManager.getTotalNumberOfPages()
+				* ownerQuota / 100L)));
+		}
+		final int jobQuota = GlobalConfiguration.getInteger("taskmanager.memory.jobquota", DEFAULT_MEMORY_QUOTA);
+		if (jobQuota < DEFAULT_MEMORY_QUOTA) {
+			defaultMemoryManager.setDefaultJobQuota(Math.max(1, (int) ((long) defaultMemoryManager
+				.getTotalNumberOfPages() * jobQuota / 100L)));
+		}
+		this.memoryManager = defaultMemoryManager;
+
+		if (this.profiler != null) {
+			this.profiler.registerMemoryManager(this.memoryManager);
+		}
+
+		final CompressionLevel blockCompression = CompressionLevel.valueOf(GlobalConfiguration.getString(
+			"taskmanager.io.compression", CompressionLevel.NO_COMPRESSION.toString()));
+		this.ioManager = new IOManager(tmpDirPaths, GlobalConfiguration.getInteger("taskmanager.io.threadsperpath",
+			IOManager.DEFAULT_NUMBER_OF_THREADS_PER_PATH), blockCompression, GlobalConfiguration.getBoolean(
+			"taskmanager.io.checksums", false));
 
 		// Load the plugins
 		this.taskManagerPlugins = new ConcurrentHashMap<PluginID, TaskManagerPlugin>(PluginManager.getTaskManagerPlugins(this)); 
@@ -472,6 +507,18 @@ public class TaskManager implements TaskOperationProtocol, PluginCommunicationPr
 		final List<TaskSubmissionResult> submissionResultList = new SerializableArrayList<TaskSubmissionResult>();
 		final List<Task> tasksToStart = new ArrayList<Task>();
 
+		// Report the tasks whose shared deployment data is no longer cached, so the job manager sends them again
+		if (tasks instanceof TaskDeploymentDescriptorList) {
+			final TaskDeploymentDescriptorList tddList = (TaskDeploymentDescriptorList) tasks;
+			tddList.resolveSharedData(this.sharedDeploymentDataCache);
+			for (final ExecutionVertexID vertexID : tddList.getVerticesWithMissingData()) {
+				final TaskSubmissionResult result = new TaskSubmissionResult(vertexID,
+					AbstractTaskResult.ReturnCode.MISSING_DEPLOYMENT_DATA);
+				result.setDescription("Shared deployment data of task " + vertexID + " is not cached");
+				submissionResultList.add(result);
+			}
+		}
+
 		// Make sure all tasks are fully registered before they are started
 		for (final TaskDeploymentDescriptor tdd : tasks) {
 
@@ -595,6 +642,9 @@ public class TaskManager implements TaskOperationProtocol, PluginCommunicationPr
 					task.registerProfiler(this.profiler, jobConfiguration);
 				}
 
+				// Apply the memory quota the job requested for its tasks on this instance
+				setJobMemoryQuota(task.getJobID(), jobConfiguration.getInteger("taskmanager.memory.jobquota", -1));
+
 				// Allow plugins to register their listeners for this task
 				if (!this.taskManagerPlugins.isEmpty()) {
 					for(PluginID pluginID : this.taskManagerPlugins.keySet()) {
@@ -635,6 +685,11 @@ public class TaskManager implements TaskOperationProtocol, PluginCommunicationPr
 			// Unregister task from memory manager
 			task.unregisterMemoryManager(this.memoryManager);
 
+			// Drop the job's memory quota once its last task on this instance is gone
+			if (!hasRunningTasksOfJob(task.getJobID())) {
+				setJobMemoryQuota(task.getJobID(), -1);
+			}
+
 			// Allow plugins to unregister their listeners for this task
 			if (!this.taskManagerPlugins.isEmpty()) {
 				final Iterator<TaskManagerPlugin> it = this.taskManagerPlugins.values().iterator();
@@ -654,6 +709,50 @@ public class TaskManager implements TaskOperationProtocol, PluginCommunicationPr
 		}
 	}
 
+	/**
+	 * Limits the share of the managed memory the tasks of the given job may hold together. The quota can only tighten
+	 * the default job quota of the task manager, the memory manager caps larger quotas at the default. This method
+	 * must be called while holding the task manager's monitor.
+	 * 
+	 * @param jobID
+	 *        the ID of the job
+	 * @param quota
+	 *        the share of the managed memory in percent, or a non-positive value to apply the default job quota
+	 */
+	private void setJobMemoryQuota(final JobID jobID, final int quota) {
+
+		if (!(this.memoryManager instanceof DefaultMemoryManager)) {
+			return;
+		}
+
+		final DefaultMemoryManager defaultMemoryManager = (DefaultMemoryManager) this.memoryManager;
+		if (quota <= 0) {
+			defaultMemoryManager.setJobQuota(jobID, 0);
+		} else {
+			defaultMemoryManager.setJobQuota(jobID, Math.max(1, (int) ((long) defaultMemoryManager
+				.getTotalNumberOfPages() * Math.min(quota, DEFAULT_MEMORY_QUOTA) / 100L)));
+		}
+	}
+
+	/**
+	 * Checks whether a task of the given job is still registered with this task manager. This method must be called
+	 * while holding the task manager's monitor.
+	 * 
+	 * @param jobID
+	 *        the ID of the job
+	 * @return <code>true</code> if a task of the job is still registered, <code>false</code> otherwise
+	 */
+	private boolean hasRunningTasksOfJob(final JobID jobID) {
+
+		for (final Task task : this.runningTasks.values()) {
+			if (jobID.equals(task.getJobID())) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -690,17 +789,25 @@ public class TaskManager implements TaskOperationProtocol, PluginCommunicationPr
 			return;
 		}
 
+		final TaskExecutionState taskExecutionState = new TaskExecutionState(jobID, id, newExecutionState,
+			optionalDescription);
+
 		if (newExecutionState == ExecutionState.FINISHED || newExecutionState == ExecutionState.CANCELED
 				|| newExecutionState == ExecutionState.FAILED) {
 
+			// Report the final channel statistics before the task's channels are removed
+			final Task task = this.runningTasks.get(id);
+			if (task != null) {
+				taskExecutionState.setOutputChannelStatistics(task.getOutputChannelStatistics());
+			}
+
 			// Unregister the task (free all buffers, remove all channels, task-specific class loaders, etc...)
 			unregisterTask(id);
 		}
 		// Get lock on the jobManager object and propagate the state change
 		synchronized (this.jobManager) {
 			try {
-				this.jobManager.updateTaskExecutionState(new TaskExecutionState(jobID, id, newExecutionState,
-					optionalDescription));
+				this.jobManager.updateTaskExecutionState(taskExecutionState);
 			} catch (IOException e) {
 				LOG.error(StringUtils.stringifyException(e));
 			}
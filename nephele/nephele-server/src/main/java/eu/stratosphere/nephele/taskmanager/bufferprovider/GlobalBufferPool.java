@@ -16,7 +16,8 @@
 package eu.stratosphere.nephele.taskmanager.bufferprovider;
 
 import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -24,6 +25,18 @@ import org.apache.commons.logging.LogFactory;
 import eu.stratosphere.nephele.configuration.GlobalConfiguration;
 import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
 
+/**
+ * The global buffer pool manages the memory segments which are used as network buffers by the local buffer pools of
+ * the tasks running on this task manager.
+ * <p>
+ * The buffers are always allocated on the heap. A {@link MemorySegment} stores its data in a byte array and accesses
+ * it through final methods which are shared with the memory manager and the sort code, so a segment cannot be backed
+ * by a direct {@link java.nio.ByteBuffer} or a memory mapping. To keep large network budgets from occupying the heap
+ * before they are needed, the pool can be configured to allocate its buffers on demand with the
+ * <code>channel.network.lazyBufferAllocation</code> option.
+ * <p>
+ * This class is thread-safe.
+ */
 public final class GlobalBufferPool {
 
 	private final static Log LOG = LogFactory.getLog(GlobalBufferPool.class);
@@ -43,6 +56,11 @@ public final class GlobalBufferPool {
 	 */
 	public static final int DEFAULT_BUFFER_SIZE_IN_BYTES = 64 * 1024; // 64k
 
+	/**
+	 * By default, all buffers are allocated at startup.
+	 */
+	private static final boolean DEFAULT_LAZY_BUFFER_ALLOCATION = false;
+
 	/**
 	 * The number of buffers created at startup.
 	 */
@@ -53,6 +71,15 @@ public final class GlobalBufferPool {
 	 */
 	private final int bufferSizeInBytes;
 
+	/**
+	 * The number of buffers which have not been allocated yet because the pool allocates its buffers on demand.
+	 */
+	private final AtomicInteger numberOfUnallocatedBuffers;
+
+	/**
+	 * The buffers currently available at this pool. The queue is non-blocking, so the local buffer pools of
+	 * concurrently running tasks do not contend for a common lock when locking or releasing buffers.
+	 */
 	private final Queue<MemorySegment> buffers;
 
 	/**
@@ -75,25 +102,57 @@ public final class GlobalBufferPool {
 	 */
 	private GlobalBufferPool() {
 
-		this.numberOfBuffers = GlobalConfiguration.getInteger("channel.network.numberOfBuffers",
-			DEFAULT_NUMBER_OF_BUFFERS);
-		this.bufferSizeInBytes = GlobalConfiguration.getInteger("channel.network.bufferSizeInBytes",
-			DEFAULT_BUFFER_SIZE_IN_BYTES);
+		this(GlobalConfiguration.getInteger("channel.network.numberOfBuffers", DEFAULT_NUMBER_OF_BUFFERS),
+			GlobalConfiguration.getInteger("channel.network.bufferSizeInBytes", DEFAULT_BUFFER_SIZE_IN_BYTES),
+			GlobalConfiguration.getBoolean("channel.network.lazyBufferAllocation", DEFAULT_LAZY_BUFFER_ALLOCATION));
+	}
+
+	/**
+	 * Constructs a global buffer pool with the given parameters.
+	 * 
+	 * @param numberOfBuffers
+	 *        the total number of buffers managed by the pool
+	 * @param bufferSizeInBytes
+	 *        the size of each buffer in bytes
+	 * @param lazyBufferAllocation
+	 *        <code>true</code> to allocate the buffers on demand, <code>false</code> to allocate all buffers at
+	 *        construction time
+	 */
+	GlobalBufferPool(final int numberOfBuffers, final int bufferSizeInBytes, final boolean lazyBufferAllocation) {
+
+		this.numberOfBuffers = numberOfBuffers;
+		this.bufferSizeInBytes = bufferSizeInBytes;
 
-		this.buffers = new ArrayBlockingQueue<MemorySegment>(this.numberOfBuffers);
+		this.buffers = new ConcurrentLinkedQueue<MemorySegment>();
+
+		if (lazyBufferAllocation) {
+			this.numberOfUnallocatedBuffers = new AtomicInteger(this.numberOfBuffers);
+			LOG.info("Initialized global buffer pool for up to " + this.numberOfBuffers + " heap buffers with a size "
+				+ this.bufferSizeInBytes + " bytes each, buffers are allocated on demand");
+			return;
+		}
+
+		this.numberOfUnallocatedBuffers = new AtomicInteger(0);
 
 		// Initialize buffers
 		for (int i = 0; i < this.numberOfBuffers; i++) {
-			// allocate byteBuffer
-			final byte[] segMemory = new byte[this.bufferSizeInBytes];
-			final MemorySegment readBuffer = new MemorySegment(segMemory);
-			this.buffers.add(readBuffer);
+			this.buffers.add(allocateBuffer());
 		}
 
-		LOG.info("Initialized global buffer pool with " + this.numberOfBuffers + " buffers with a size "
+		LOG.info("Initialized global buffer pool with " + this.numberOfBuffers + " heap buffers with a size "
 			+ this.bufferSizeInBytes + " bytes each");
 	}
 
+	/**
+	 * Allocates a new buffer of the configured size.
+	 * 
+	 * @return the newly allocated buffer
+	 */
+	private MemorySegment allocateBuffer() {
+
+		return new MemorySegment(new byte[this.bufferSizeInBytes]);
+	}
+
 	/**
 	 * Returns the maximum size of a buffer available at this pool in bytes.
 	 * 
@@ -111,7 +170,23 @@ public final class GlobalBufferPool {
 	 */
 	public MemorySegment lockGlobalBuffer() {
 
-		return this.buffers.poll();
+		final MemorySegment memSeg = this.buffers.poll();
+		if (memSeg != null) {
+			return memSeg;
+		}
+
+		// Allocate a new buffer if the pool has not reached its total number of buffers yet
+		while (true) {
+
+			final int unallocated = this.numberOfUnallocatedBuffers.get();
+			if (unallocated == 0) {
+				return null;
+			}
+
+			if (this.numberOfUnallocatedBuffers.compareAndSet(unallocated, unallocated - 1)) {
+				return allocateBuffer();
+			}
+		}
 	}
 
 	/**
@@ -135,12 +210,13 @@ public final class GlobalBufferPool {
 	}
 
 	/**
-	 * Returns the number of buffers which are currently available at this pool.
+	 * Returns the number of buffers which are currently available at this pool. Since the size of the underlying queue
+	 * is determined by traversing it, this method should only be used for diagnostic purposes.
 	 * 
 	 * @return the number of buffers which are currently available at this pool
 	 */
 	public int getCurrentNumberOfBuffers() {
 
-		return this.buffers.size();
+		return this.buffers.size() + this.numberOfUnallocatedBuffers.get();
 	}
 }
@@ -16,8 +16,10 @@
 package eu.stratosphere.nephele.taskmanager.bufferprovider;
 
 import java.io.IOException;
-import java.util.ArrayDeque;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -27,6 +29,17 @@ import eu.stratosphere.nephele.io.channels.BufferFactory;
 import eu.stratosphere.nephele.io.channels.MemoryBufferPoolConnector;
 import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
 
+/**
+ * A local buffer pool caches a designated number of buffers from the {@link GlobalBufferPool} for a task or a gate.
+ * <p>
+ * Requesting and recycling buffers does not require a lock: the cached buffers and the registered
+ * {@link BufferAvailabilityListener} objects are kept in non-blocking queues and the number of buffers taken from the
+ * global pool is tracked by an atomic counter. A monitor is only entered by threads which have to block until a buffer
+ * becomes available and by the threads waking them up.
+ * <p>
+ * This class is thread-safe.
+ * 
+ */
 public final class LocalBufferPool implements BufferProvider {
 
 	private static final class LocalBufferPoolConnector implements MemoryBufferPoolConnector {
@@ -50,25 +63,43 @@ public final class LocalBufferPool implements BufferProvider {
 
 	private final static Log LOG = LogFactory.getLog(LocalBufferPool.class);
 
+	/**
+	 * The maximum time in milliseconds a blocking request waits before it checks the global pool again.
+	 */
+	private static final long WAIT_TIME = 100L;
+
 	private final GlobalBufferPool globalBufferPool;
 
 	private final int maximumBufferSize;
 
-	private int designatedNumberOfBuffers;
+	private volatile int designatedNumberOfBuffers;
 
-	private int requestedNumberOfBuffers = 0;
+	/**
+	 * The number of buffers currently taken from the global buffer pool, no matter if they are cached or in use.
+	 */
+	private final AtomicInteger requestedNumberOfBuffers = new AtomicInteger(0);
 
 	private final boolean isShared;
 
-	private boolean asynchronousEventOccurred = false;
+	private final AtomicBoolean asynchronousEventOccurred = new AtomicBoolean(false);
 
-	private boolean isDestroyed = false;
+	private volatile boolean isDestroyed = false;
 
-	private final Queue<MemorySegment> buffers = new ArrayDeque<MemorySegment>();
+	private final Queue<MemorySegment> buffers = new ConcurrentLinkedQueue<MemorySegment>();
 
 	private final LocalBufferPoolConnector bufferPoolConnector;
 
-	private final Queue<BufferAvailabilityListener> bufferAvailabilityListenerQueue = new ArrayDeque<BufferAvailabilityListener>();
+	private final Queue<BufferAvailabilityListener> bufferAvailabilityListenerQueue = new ConcurrentLinkedQueue<BufferAvailabilityListener>();
+
+	/**
+	 * The monitor threads wait on while blocking for a buffer to become available.
+	 */
+	private final Object waitMonitor = new Object();
+
+	/**
+	 * The number of threads currently waiting on the wait monitor.
+	 */
+	private final AtomicInteger numberOfWaitingThreads = new AtomicInteger(0);
 
 	public LocalBufferPool(final int designatedNumberOfBuffers, final boolean isShared) {
 
@@ -113,52 +144,116 @@ public final class LocalBufferPool implements BufferProvider {
 
 		while (true) {
 
-			boolean async = false;
+			// Make sure we return excess buffers immediately
+			releaseExcessBuffers();
 
-			synchronized (this.buffers) {
+			MemorySegment memSeg = this.buffers.poll();
+			if (memSeg == null) {
+				memSeg = lockGlobalBuffer();
+			}
 
-				// Make sure we return excess buffers immediately
-				while (this.requestedNumberOfBuffers > this.designatedNumberOfBuffers) {
+			if (memSeg != null) {
+				return BufferFactory.createFromMemory(minimumSizeOfBuffer, memSeg, this.bufferPoolConnector);
+			}
 
-					final MemorySegment seg = this.buffers.poll();
-					if (seg == null) {
-						break;
-					}
+			if (!block) {
+				return null;
+			}
+
+			if (this.asynchronousEventOccurred.compareAndSet(true, false)) {
+				continue;
+			}
 
-					this.globalBufferPool.releaseGlobalBuffer(seg);
-					this.requestedNumberOfBuffers--;
+			this.numberOfWaitingThreads.incrementAndGet();
+			try {
+				synchronized (this.waitMonitor) {
+					// Check again after announcing ourselves to avoid missing a wake-up
+					if (this.buffers.isEmpty() && !this.asynchronousEventOccurred.get()) {
+						this.waitMonitor.wait(WAIT_TIME);
+					}
 				}
+			} finally {
+				this.numberOfWaitingThreads.decrementAndGet();
+			}
+		}
+	}
 
-				while (this.buffers.isEmpty()) {
+	/**
+	 * Tries to take an additional buffer from the global buffer pool, provided the number of buffers requested by this
+	 * pool is below the designated number of buffers.
+	 * 
+	 * @return a buffer from the global buffer pool or <code>null</code> if no buffer could be taken
+	 */
+	private MemorySegment lockGlobalBuffer() {
 
-					// Check if the number of cached buffers matches the number of designated buffers
-					if (this.requestedNumberOfBuffers < this.designatedNumberOfBuffers) {
+		while (true) {
 
-						final MemorySegment memSeg = this.globalBufferPool.lockGlobalBuffer();
-						if (memSeg != null) {
-							this.buffers.add(memSeg);
-							this.requestedNumberOfBuffers++;
-							continue;
-						}
-					}
+			final int requested = this.requestedNumberOfBuffers.get();
+			if (requested >= this.designatedNumberOfBuffers) {
+				return null;
+			}
 
-					if (this.asynchronousEventOccurred && block) {
-						this.asynchronousEventOccurred = false;
-						async = true;
-						break;
-					}
+			// Reserve the buffer before actually taking it from the global pool
+			if (this.requestedNumberOfBuffers.compareAndSet(requested, requested + 1)) {
+				break;
+			}
+		}
 
-					if (block) {
-						this.buffers.wait(100);
-					} else {
-						return null;
-					}
-				}
+		final MemorySegment memSeg = this.globalBufferPool.lockGlobalBuffer();
+		if (memSeg == null) {
+			this.requestedNumberOfBuffers.decrementAndGet();
+		}
 
-				if (!async) {
-					final MemorySegment memSeg = this.buffers.poll();
-					return BufferFactory.createFromMemory(minimumSizeOfBuffer, memSeg, this.bufferPoolConnector);
-				}
+		return memSeg;
+	}
+
+	/**
+	 * Returns cached buffers to the global buffer pool until the number of requested buffers no longer exceeds the
+	 * designated number of buffers or no more buffers are cached.
+	 */
+	private void releaseExcessBuffers() {
+
+		while (true) {
+
+			final int requested = this.requestedNumberOfBuffers.get();
+			if (requested <= this.designatedNumberOfBuffers) {
+				return;
+			}
+
+			if (!this.requestedNumberOfBuffers.compareAndSet(requested, requested - 1)) {
+				continue;
+			}
+
+			final MemorySegment memSeg = this.buffers.poll();
+			if (memSeg == null) {
+				this.requestedNumberOfBuffers.incrementAndGet();
+				return;
+			}
+
+			this.globalBufferPool.releaseGlobalBuffer(memSeg);
+		}
+	}
+
+	/**
+	 * Returns all cached buffers to the global buffer pool.
+	 */
+	private void releaseAllBuffers() {
+
+		MemorySegment memSeg;
+		while ((memSeg = this.buffers.poll()) != null) {
+			this.globalBufferPool.releaseGlobalBuffer(memSeg);
+			this.requestedNumberOfBuffers.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Wakes up the threads blocking until a buffer becomes available, if there are any.
+	 */
+	private void wakeUpWaitingThreads() {
+
+		if (this.numberOfWaitingThreads.get() > 0) {
+			synchronized (this.waitMonitor) {
+				this.waitMonitor.notifyAll();
 			}
 		}
 	}
@@ -180,28 +275,17 @@ public final class LocalBufferPool implements BufferProvider {
 	 */
 	public void setDesignatedNumberOfBuffers(final int designatedNumberOfBuffers) {
 
-		synchronized (this.buffers) {
-
-			this.designatedNumberOfBuffers = designatedNumberOfBuffers;
+		this.designatedNumberOfBuffers = designatedNumberOfBuffers;
 
-			// Make sure we return excess buffers immediately
-			while (this.requestedNumberOfBuffers > this.designatedNumberOfBuffers) {
+		// Make sure we return excess buffers immediately
+		releaseExcessBuffers();
 
-				if (this.buffers.isEmpty()) {
-					break;
-				}
-
-				this.globalBufferPool.releaseGlobalBuffer(this.buffers.poll());
-				this.requestedNumberOfBuffers--;
-			}
-
-			this.buffers.notify();
-		}
+		wakeUpWaitingThreads();
 	}
 
 	public void destroy() {
 
-		synchronized (this.buffers) {
+		synchronized (this.waitMonitor) {
 
 			if (this.isDestroyed) {
 				LOG.error("destroy is called on LocalBufferPool multiple times");
@@ -209,13 +293,9 @@ public final class LocalBufferPool implements BufferProvider {
 			}
 
 			this.isDestroyed = true;
-
-			while (!this.buffers.isEmpty()) {
-				this.globalBufferPool.releaseGlobalBuffer(this.buffers.poll());
-			}
-
-			this.requestedNumberOfBuffers = 0;
 		}
+
+		releaseAllBuffers();
 	}
 
 	/**
@@ -227,42 +307,45 @@ public final class LocalBufferPool implements BufferProvider {
 		return this.isShared;
 	}
 
+	/**
+	 * Returns the number of buffers currently cached by this pool. Since the size of the underlying queue is
+	 * determined by traversing it, this method should only be used for diagnostic purposes.
+	 * 
+	 * @return the number of buffers currently cached by this pool
+	 */
 	public int getNumberOfAvailableBuffers() {
 
-		synchronized (this.buffers) {
-			return this.buffers.size();
-		}
+		return this.buffers.size();
 	}
 
 	public int getDesignatedNumberOfBuffers() {
 
-		synchronized (this.buffers) {
-			return this.designatedNumberOfBuffers;
-		}
+		return this.designatedNumberOfBuffers;
 	}
 
 	public int getRequestedNumberOfBuffers() {
 
-		synchronized (this.buffers) {
-			return this.requestedNumberOfBuffers;
-		}
+		return this.requestedNumberOfBuffers.get();
 	}
 
 	private void recycleBuffer(final MemorySegment memSeg) {
 
-		synchronized (this.buffers) {
-
+		if (this.isDestroyed) {
+			this.globalBufferPool.releaseGlobalBuffer(memSeg);
+			this.requestedNumberOfBuffers.decrementAndGet();
+		} else {
+			this.buffers.add(memSeg);
+			// The pool may have been destroyed concurrently, so make sure the buffer does not get lost
 			if (this.isDestroyed) {
-				this.globalBufferPool.releaseGlobalBuffer(memSeg);
-				this.requestedNumberOfBuffers--;
+				releaseAllBuffers();
 			} else {
-				this.buffers.add(memSeg);
-				this.buffers.notify();
+				wakeUpWaitingThreads();
 			}
+		}
 
-			while (!this.bufferAvailabilityListenerQueue.isEmpty()) {
-				this.bufferAvailabilityListenerQueue.poll().bufferAvailable();
-			}
+		BufferAvailabilityListener listener;
+		while ((listener = this.bufferAvailabilityListenerQueue.poll()) != null) {
+			listener.bufferAvailable();
 		}
 	}
 
@@ -272,10 +355,8 @@ public final class LocalBufferPool implements BufferProvider {
 	@Override
 	public void reportAsynchronousEvent() {
 
-		synchronized (this.buffers) {
-			this.asynchronousEventOccurred = true;
-			this.buffers.notify();
-		}
+		this.asynchronousEventOccurred.set(true);
+		wakeUpWaitingThreads();
 	}
 
 	/**
@@ -284,16 +365,18 @@ public final class LocalBufferPool implements BufferProvider {
 	@Override
 	public boolean registerBufferAvailabilityListener(final BufferAvailabilityListener bufferAvailabilityListener) {
 
-		synchronized (this.buffers) {
-			if (!this.buffers.isEmpty()) {
-				return false;
-			}
+		if (!this.buffers.isEmpty() || this.isDestroyed) {
+			return false;
+		}
 
-			if (this.isDestroyed) {
+		this.bufferAvailabilityListenerQueue.add(bufferAvailabilityListener);
+
+		// A buffer may have been recycled in the meantime. If we can still withdraw the listener, report the buffer
+		// to the caller. Otherwise, the recycling thread has already taken the listener and is going to notify it.
+		if (!this.buffers.isEmpty() || this.isDestroyed) {
+			if (this.bufferAvailabilityListenerQueue.remove(bufferAvailabilityListener)) {
 				return false;
 			}
-
-			this.bufferAvailabilityListenerQueue.add(bufferAvailabilityListener);
 		}
 
 		return true;
@@ -32,6 +32,7 @@ import eu.stratosphere.nephele.executiongraph.ExecutionVertexID;
 import eu.stratosphere.nephele.instance.InstanceConnectionInfo;
 import eu.stratosphere.nephele.io.AbstractID;
 import eu.stratosphere.nephele.io.GateID;
+import eu.stratosphere.nephele.io.RuntimeOutputGate;
 import eu.stratosphere.nephele.io.channels.Buffer;
 import eu.stratosphere.nephele.io.channels.ChannelID;
 import eu.stratosphere.nephele.io.channels.ChannelType;
@@ -77,6 +78,11 @@ public final class ByteBufferedChannelManager implements TransferEnvelopeDispatc
 
 	private final boolean mergeSpilledBuffers;
 
+	/**
+	 * Stores whether buffers with several receivers are shared by the local receivers instead of being copied.
+	 */
+	private final boolean serializeBroadcastOnce;
+
 	private final boolean multicastEnabled = true;
 
 	/**
@@ -106,9 +112,12 @@ public final class ByteBufferedChannelManager implements TransferEnvelopeDispatc
 		this.mergeSpilledBuffers = GlobalConfiguration.getBoolean("channel.network.mergeSpilledBuffers",
 			DEFAULT_MERGE_SPILLED_BUFFERS);
 
+		this.serializeBroadcastOnce = RuntimeOutputGate.isBroadcastSerializedOnce();
+
 		LOG.info("Initialized byte buffered channel manager with sender-side spilling "
 			+ (this.allowSenderSideSpilling ? "enabled" : "disabled")
-			+ (this.mergeSpilledBuffers ? " and spilled buffer merging enabled" : ""));
+			+ (this.mergeSpilledBuffers ? " and spilled buffer merging enabled" : "")
+			+ (this.serializeBroadcastOnce ? ", broadcast buffers are shared" : ""));
 	}
 
 	/**
@@ -151,8 +160,14 @@ public final class ByteBufferedChannelManager implements TransferEnvelopeDispatc
 
 				// Add routing entry to receiver cache to reduce latency
 				if (outputChannelContext.getType() == ChannelType.INMEMORY) {
-					addReceiverListHint(outputChannelContext.getChannelID(),
-						outputChannelContext.getConnectedChannelID());
+					final List<ChannelID> broadcastReceivers = outputGateContext.getBroadcastReceivers(channelID);
+					if (broadcastReceivers != null) {
+						// The gate broadcasts its records through this channel only
+						addReceiverListHint(outputChannelContext.getChannelID(), broadcastReceivers);
+					} else {
+						addReceiverListHint(outputChannelContext.getChannelID(),
+							outputChannelContext.getConnectedChannelID());
+					}
 				}
 
 				// Add routing entry to receiver cache to save lookup for data arriving at the output channel
@@ -393,6 +408,12 @@ public final class ByteBufferedChannelManager implements TransferEnvelopeDispatc
 
 					final InputChannelContext inputChannelContext = (InputChannelContext) cc;
 
+					// Let all receivers share the source buffer, it is recycled once the last receiver releases it
+					if (this.serializeBroadcastOnce && receiverList.getTotalNumberOfReceivers() > 1) {
+						inputChannelContext.queueTransferEnvelope(transferEnvelope.duplicate());
+						continue;
+					}
+
 					Buffer destBuffer = null;
 					try {
 						destBuffer = inputChannelContext.requestEmptyBufferBlocking(srcBuffer.size());
@@ -497,6 +518,15 @@ public final class ByteBufferedChannelManager implements TransferEnvelopeDispatc
 		}
 	}
 
+	private void addReceiverListHint(final ChannelID source, final List<ChannelID> localReceivers) {
+
+		final TransferEnvelopeReceiverList receiverList = new TransferEnvelopeReceiverList(localReceivers);
+
+		if (this.receiverCache.put(source, receiverList) != null) {
+			LOG.warn("Receiver cache already contained entry for " + source);
+		}
+	}
+
 	private void addReceiverListHint(final ChannelID source, final RemoteReceiver remoteReceiver) {
 
 		final TransferEnvelopeReceiverList receiverList = new TransferEnvelopeReceiverList(remoteReceiver);
@@ -0,0 +1,89 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.bytebuffered;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import eu.stratosphere.nephele.event.task.AbstractEvent;
+import eu.stratosphere.nephele.taskmanager.transferenvelope.TransferEnvelope;
+
+/**
+ * This event is sent by an {@link InputChannelContext} to the output channel it is connected to. It grants the sender
+ * the credit to transmit the given number of additional {@link TransferEnvelope} objects with buffers attached. The
+ * receiver announces credit as it consumes the envelopes, so a slow consumer only throttles its own channel instead of
+ * the network connection it shares with other channels. The first credit event of a channel announces its initial
+ * credit in response to a {@link ChannelCreditRequestEvent}.
+ * 
+ */
+public final class ChannelCreditEvent extends AbstractEvent {
+
+	/**
+	 * The number of envelopes the sender may additionally transmit.
+	 */
+	private int credit;
+
+	/**
+	 * Constructs a new channel credit event.
+	 * 
+	 * @param credit
+	 *        the number of envelopes the sender may additionally transmit
+	 */
+	public ChannelCreditEvent(final int credit) {
+
+		if (credit <= 0) {
+			throw new IllegalArgumentException("Argument credit must be positive.");
+		}
+
+		this.credit = credit;
+	}
+
+	/**
+	 * Default constructor for serialization/deserialization.
+	 */
+	public ChannelCreditEvent() {
+	}
+
+	/**
+	 * Returns the number of envelopes the sender may additionally transmit.
+	 * 
+	 * @return the number of envelopes the sender may additionally transmit
+	 */
+	public int getCredit() {
+
+		return this.credit;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final DataOutput out) throws IOException {
+
+		out.writeInt(this.credit);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void read(final DataInput in) throws IOException {
+
+		this.credit = in.readInt();
+	}
+
+}
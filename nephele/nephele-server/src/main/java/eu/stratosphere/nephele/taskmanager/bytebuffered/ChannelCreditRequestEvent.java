@@ -0,0 +1,50 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.bytebuffered;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import eu.stratosphere.nephele.event.task.AbstractEvent;
+
+/**
+ * This event is attached by a flow-controlled output channel to the first envelope with a buffer it transmits. It asks
+ * the {@link InputChannelContext} on the receiving side to announce the initial credit of the channel with a
+ * {@link ChannelCreditEvent}. The initial credit is derived from the buffers the receiving gate reserves for each of
+ * its channels, so the sender does not depend on its own configuration to know how much the receiver can accept.
+ * 
+ */
+public final class ChannelCreditRequestEvent extends AbstractEvent {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final DataOutput out) throws IOException {
+
+		// Nothing to do here
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void read(final DataInput in) throws IOException {
+
+		// Nothing to do here
+	}
+}
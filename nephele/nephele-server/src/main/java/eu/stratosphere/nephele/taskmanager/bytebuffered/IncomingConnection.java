@@ -88,10 +88,14 @@ public class IncomingConnection {
 
 	public void read() throws IOException, InterruptedException, NoBufferAvailableException {
 
-		this.deserializer.read(this.readableByteChannel);
+		while (true) {
 
-		final TransferEnvelope transferEnvelope = this.deserializer.getFullyDeserializedTransferEnvelope();
-		if (transferEnvelope != null) {
+			this.deserializer.read(this.readableByteChannel);
+
+			final TransferEnvelope transferEnvelope = this.deserializer.getFullyDeserializedTransferEnvelope();
+			if (transferEnvelope == null) {
+				return;
+			}
 
 			final BufferProvider bufferProvider = this.deserializer.getBufferProvider();
 			if (bufferProvider == null) {
@@ -99,6 +103,11 @@ public class IncomingConnection {
 			} else {
 				this.byteBufferedChannelManager.processEnvelopeFromNetwork(transferEnvelope, bufferProvider.isShared());
 			}
+
+			// Demultiplex the remaining envelopes of a batch frame right away
+			if (!this.deserializer.hasMoreEnvelopesInFrame()) {
+				return;
+			}
 		}
 	}
 
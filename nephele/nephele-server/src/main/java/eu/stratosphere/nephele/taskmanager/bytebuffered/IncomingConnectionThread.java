@@ -17,6 +17,7 @@ package eu.stratosphere.nephele.taskmanager.bytebuffered;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
@@ -25,6 +26,7 @@ import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayDeque;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Queue;
 
 import org.apache.commons.logging.Log;
@@ -46,6 +48,23 @@ public class IncomingConnectionThread extends Thread {
 
 	private final ServerSocketChannel listeningSocket;
 
+	/**
+	 * Queue of accepted connections which have been handed over to this thread by the listening thread.
+	 */
+	private final Queue<SocketChannel> pendingConnectionRegistrations = new ArrayDeque<SocketChannel>();
+
+	/**
+	 * The threads among which the listening thread distributes the accepted connections or <code>null</code> if the
+	 * listening thread handles all connections itself.
+	 */
+	private final List<IncomingConnectionThread> readThreads;
+
+	/**
+	 * The number of connections which have been registered with this thread's selector so far. The variable is only
+	 * written by this thread.
+	 */
+	private volatile int numberOfRegisteredConnections = 0;
+
 	private static final class IncomingConnectionBufferAvailListener implements BufferAvailabilityListener {
 
 		private final Queue<SelectionKey> pendingReadEventSubscribeRequests;
@@ -73,10 +92,33 @@ public class IncomingConnectionThread extends Thread {
 
 	public IncomingConnectionThread(ByteBufferedChannelManager byteBufferedChannelManager,
 			boolean isListeningThread, InetSocketAddress listeningAddress) throws IOException {
+		this(byteBufferedChannelManager, isListeningThread, listeningAddress, null);
+	}
+
+	/**
+	 * Constructs a new incoming connection thread.
+	 * 
+	 * @param byteBufferedChannelManager
+	 *        the byte buffered channel manager the received envelopes are passed on to
+	 * @param isListeningThread
+	 *        <code>true</code> if this thread shall accept new connections on the given address, <code>false</code>
+	 *        otherwise
+	 * @param listeningAddress
+	 *        the address to accept new connections on, only evaluated if this is a listening thread
+	 * @param readThreads
+	 *        the threads among which accepted connections are distributed by the remote address or <code>null</code>
+	 *        if the listening thread shall handle all connections itself
+	 * @throws IOException
+	 *         thrown if the selector or the listening socket cannot be opened
+	 */
+	public IncomingConnectionThread(ByteBufferedChannelManager byteBufferedChannelManager,
+			boolean isListeningThread, InetSocketAddress listeningAddress, List<IncomingConnectionThread> readThreads)
+			throws IOException {
 		super("Incoming Connection Thread");
 
 		this.selector = Selector.open();
 		this.byteBufferedChannelManager = byteBufferedChannelManager;
+		this.readThreads = readThreads;
 
 		if (isListeningThread) {
 			this.listeningSocket = ServerSocketChannel.open();
@@ -109,6 +151,12 @@ public class IncomingConnectionThread extends Thread {
 				}
 			}
 
+			synchronized (this.pendingConnectionRegistrations) {
+				while (!this.pendingConnectionRegistrations.isEmpty()) {
+					registerConnection(this.pendingConnectionRegistrations.poll());
+				}
+			}
+
 			try {
 				this.selector.select(500);
 			} catch (IOException e) {
@@ -168,6 +216,64 @@ public class IncomingConnectionThread extends Thread {
 			return;
 		}
 
+		if (this.readThreads != null && !this.readThreads.isEmpty()) {
+
+			// Connections from the same remote host are always handled by the same thread
+			final int index = getReadThreadIndex(clientSocket.socket().getInetAddress(), this.readThreads.size());
+			final IncomingConnectionThread readThread = this.readThreads.get(index);
+			if (readThread != this) {
+				readThread.handOverConnection(clientSocket);
+				return;
+			}
+		}
+
+		registerConnection(clientSocket);
+	}
+
+	/**
+	 * Selects the thread which shall handle a connection accepted from the given remote host. Only the remote
+	 * host's address is considered because the remote port of an accepted connection is an ephemeral port which
+	 * changes with every new connection.
+	 * 
+	 * @param remoteAddress
+	 *        the address of the remote host
+	 * @param numberOfReadThreads
+	 *        the number of threads among which the accepted connections are distributed
+	 * @return the index of the thread which shall handle the connection
+	 */
+	static int getReadThreadIndex(final InetAddress remoteAddress, final int numberOfReadThreads) {
+
+		return (remoteAddress.hashCode() & Integer.MAX_VALUE) % numberOfReadThreads;
+	}
+
+	/**
+	 * Returns the number of connections which have been registered with this thread's selector so far.
+	 * 
+	 * @return the number of connections registered with this thread
+	 */
+	int getNumberOfRegisteredConnections() {
+
+		return this.numberOfRegisteredConnections;
+	}
+
+	/**
+	 * Hands over an accepted connection to this thread. The connection is registered with this thread's selector
+	 * during the next iteration of the event loop.
+	 * 
+	 * @param clientSocket
+	 *        the socket channel of the accepted connection
+	 */
+	void handOverConnection(final SocketChannel clientSocket) {
+
+		synchronized (this.pendingConnectionRegistrations) {
+			this.pendingConnectionRegistrations.add(clientSocket);
+		}
+
+		this.selector.wakeup();
+	}
+
+	private void registerConnection(final SocketChannel clientSocket) {
+
 		final IncomingConnection incomingConnection = new IncomingConnection(this.byteBufferedChannelManager,
 			clientSocket);
 		SelectionKey clientKey = null;
@@ -175,6 +281,7 @@ public class IncomingConnectionThread extends Thread {
 			clientSocket.configureBlocking(false);
 			clientKey = clientSocket.register(this.selector, SelectionKey.OP_READ);
 			clientKey.attach(incomingConnection);
+			++this.numberOfRegisteredConnections;
 		} catch (IOException ioe) {
 			incomingConnection.reportTransmissionProblem(clientKey, ioe);
 		}
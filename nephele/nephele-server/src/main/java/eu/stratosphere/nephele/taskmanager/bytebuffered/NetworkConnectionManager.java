@@ -18,6 +18,7 @@ package eu.stratosphere.nephele.taskmanager.bytebuffered;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -43,20 +44,40 @@ public final class NetworkConnectionManager {
 	 */
 	private static final int DEFAULT_NUMBER_OF_OUTGOING_CONNECTION_THREADS = 1;
 
+	/**
+	 * The default number of threads dealing with incoming connections.
+	 */
+	private static final int DEFAULT_NUMBER_OF_INCOMING_CONNECTION_THREADS = 1;
+
 	/**
 	 * The default number of connection retries before giving up.
 	 */
 	private static final int DEFAULT_NUMBER_OF_CONNECTION_RETRIES = 10;
 
+	/**
+	 * The default setting whether outgoing connections shall transmit envelopes with gathering writes.
+	 */
+	private static final boolean DEFAULT_USE_GATHERING_WRITES = false;
+
+	/**
+	 * The default size of an envelope batch frame in bytes, <code>0</code> disables the coalescing of small envelopes.
+	 */
+	private static final int DEFAULT_ENVELOPE_BATCH_SIZE = 0;
+
+	/**
+	 * The default time in milliseconds small envelopes may be held back to be coalesced with later envelopes.
+	 */
+	private static final long DEFAULT_ENVELOPE_BATCH_DEADLINE = 10L;
+
 	/**
 	 * List of active threads dealing with outgoing connections.
 	 */
 	private final List<OutgoingConnectionThread> outgoingConnectionThreads = new CopyOnWriteArrayList<OutgoingConnectionThread>();
 
 	/**
-	 * Thread dealing with incoming connections.
+	 * List of active threads dealing with incoming connections. The first thread also accepts new connections.
 	 */
-	private final IncomingConnectionThread incomingConnectionThread;
+	private final List<IncomingConnectionThread> incomingConnectionThreads = new CopyOnWriteArrayList<IncomingConnectionThread>();
 
 	/**
 	 * Map containing currently active outgoing connections.
@@ -68,6 +89,21 @@ public final class NetworkConnectionManager {
 	 */
 	private final int numberOfConnectionRetries;
 
+	/**
+	 * Stores whether outgoing connections shall transmit envelopes with gathering writes.
+	 */
+	private final boolean useGatheringWrites;
+
+	/**
+	 * The size of an envelope batch frame in bytes or <code>0</code> if small envelopes shall not be coalesced.
+	 */
+	private final int envelopeBatchSize;
+
+	/**
+	 * The maximum time in milliseconds small envelopes may be held back to be coalesced with later envelopes.
+	 */
+	private final long envelopeBatchDeadline;
+
 	/**
 	 * A buffer provider for read buffers
 	 */
@@ -86,26 +122,57 @@ public final class NetworkConnectionManager {
 
 		for (int i = 0; i < numberOfOutgoingConnectionThreads; i++) {
 			final OutgoingConnectionThread outgoingConnectionThread = new OutgoingConnectionThread();
+			outgoingConnectionThread.setName("Outgoing Connection Thread " + i);
 			outgoingConnectionThread.start();
 			this.outgoingConnectionThreads.add(outgoingConnectionThread);
 		}
 
-		this.incomingConnectionThread = new IncomingConnectionThread(
-			this.byteBufferedChannelManager, true, new InetSocketAddress(bindAddress, dataPort));
-		this.incomingConnectionThread.start();
+		final int numberOfIncomingConnectionThreads = configuration.getInteger(
+			"channel.network.numberOfIncomingConnectionThreads", DEFAULT_NUMBER_OF_INCOMING_CONNECTION_THREADS);
+
+		// The listening thread is part of the pool and distributes the accepted connections among all threads
+		final List<IncomingConnectionThread> readThreads = new ArrayList<IncomingConnectionThread>(
+			Math.max(1, numberOfIncomingConnectionThreads));
+		final IncomingConnectionThread listeningThread = new IncomingConnectionThread(this.byteBufferedChannelManager,
+			true, new InetSocketAddress(bindAddress, dataPort), readThreads);
+		readThreads.add(listeningThread);
+		for (int i = 1; i < numberOfIncomingConnectionThreads; i++) {
+			readThreads.add(new IncomingConnectionThread(this.byteBufferedChannelManager, false, null));
+		}
+
+		for (int i = 0; i < readThreads.size(); i++) {
+			final IncomingConnectionThread incomingConnectionThread = readThreads.get(i);
+			incomingConnectionThread.setName("Incoming Connection Thread " + i);
+			incomingConnectionThread.start();
+			this.incomingConnectionThreads.add(incomingConnectionThread);
+		}
 
 		this.numberOfConnectionRetries = configuration.getInteger("channel.network.numberOfConnectionRetries",
 			DEFAULT_NUMBER_OF_CONNECTION_RETRIES);
+
+		this.useGatheringWrites = configuration.getBoolean("channel.network.useGatheringWrites",
+			DEFAULT_USE_GATHERING_WRITES);
+
+		this.envelopeBatchSize = configuration.getInteger("channel.network.envelopeBatchSize",
+			DEFAULT_ENVELOPE_BATCH_SIZE);
+
+		this.envelopeBatchDeadline = configuration.getLong("channel.network.envelopeBatchDeadline",
+			DEFAULT_ENVELOPE_BATCH_DEADLINE);
 	}
 
 	/**
-	 * Randomly selects one of the active threads dealing with outgoing connections.
+	 * Selects the thread dealing with the outgoing connection to the given remote receiver. Connections to the same
+	 * remote receiver are always assigned to the same thread.
 	 * 
+	 * @param remoteReceiver
+	 *        the remote receiver to select the thread for
 	 * @return one of the active threads dealing with outgoing connections
 	 */
-	private OutgoingConnectionThread getOutgoingConnectionThread() {
+	private OutgoingConnectionThread getOutgoingConnectionThread(final RemoteReceiver remoteReceiver) {
 
-		return this.outgoingConnectionThreads.get((int) (this.outgoingConnectionThreads.size() * Math.random()));
+		final int index = (remoteReceiver.hashCode() & Integer.MAX_VALUE) % this.outgoingConnectionThreads.size();
+
+		return this.outgoingConnectionThreads.get(index);
 	}
 
 	/**
@@ -134,8 +201,9 @@ public final class NetworkConnectionManager {
 
 		if (outgoingConnection == null) {
 
-			outgoingConnection = new OutgoingConnection(remoteReceiver, getOutgoingConnectionThread(),
-				this.numberOfConnectionRetries);
+			outgoingConnection = new OutgoingConnection(remoteReceiver, getOutgoingConnectionThread(remoteReceiver),
+				this.numberOfConnectionRetries, this.useGatheringWrites, this.envelopeBatchSize,
+				this.envelopeBatchDeadline);
 
 			final OutgoingConnection oldEntry = this.outgoingConnections
 				.putIfAbsent(remoteReceiver, outgoingConnection);
@@ -152,11 +220,14 @@ public final class NetworkConnectionManager {
 	public void shutDown() {
 
 		// Interrupt the threads we started
-		this.incomingConnectionThread.interrupt();
+		final Iterator<IncomingConnectionThread> incomingIt = this.incomingConnectionThreads.iterator();
+		while (incomingIt.hasNext()) {
+			incomingIt.next().interrupt();
+		}
 
-		final Iterator<OutgoingConnectionThread> it = this.outgoingConnectionThreads.iterator();
-		while (it.hasNext()) {
-			it.next().interrupt();
+		final Iterator<OutgoingConnectionThread> outgoingIt = this.outgoingConnectionThreads.iterator();
+		while (outgoingIt.hasNext()) {
+			outgoingIt.next().interrupt();
 		}
 	}
 
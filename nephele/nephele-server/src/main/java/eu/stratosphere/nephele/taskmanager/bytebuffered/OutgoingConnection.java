@@ -17,6 +17,7 @@ package eu.stratosphere.nephele.taskmanager.bytebuffered;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.WritableByteChannel;
@@ -27,9 +28,12 @@ import java.util.Queue;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import eu.stratosphere.nephele.io.channels.Buffer;
 import eu.stratosphere.nephele.io.channels.ChannelID;
 import eu.stratosphere.nephele.taskmanager.transferenvelope.TransferEnvelope;
 import eu.stratosphere.nephele.taskmanager.transferenvelope.DefaultSerializer;
+import eu.stratosphere.nephele.taskmanager.transferenvelope.EnvelopeBatchSerializer;
+import eu.stratosphere.nephele.taskmanager.transferenvelope.GatheringSerializer;
 
 /**
  * This class represents an outgoing TCP connection through which {@link TransferEnvelope} objects can be sent.
@@ -61,11 +65,58 @@ public class OutgoingConnection {
 	 */
 	private final Queue<TransferEnvelope> queuedEnvelopes = new ArrayDeque<TransferEnvelope>();
 
+	/**
+	 * The times at which the envelopes in the queue of transfer envelopes were queued, in the same order as the
+	 * envelopes themselves. This queue is protected by the monitor of the envelope queue.
+	 */
+	private final Queue<Long> enqueueTimestamps = new ArrayDeque<Long>();
+
 	/**
 	 * The {@link DefaultSerializer} object used to transform the envelopes into a byte stream.
 	 */
 	private final DefaultSerializer serializer = new DefaultSerializer();
 
+	/**
+	 * The {@link GatheringSerializer} object used to transform batches of envelopes into a byte stream or
+	 * <code>null</code> if gathering writes are disabled.
+	 */
+	private final GatheringSerializer gatheringSerializer;
+
+	/**
+	 * The {@link EnvelopeBatchSerializer} object used to coalesce small envelopes into batch frames or
+	 * <code>null</code> if envelope batching is disabled.
+	 */
+	private final EnvelopeBatchSerializer batchSerializer;
+
+	/**
+	 * The size of a batch frame in bytes which causes the frame to be flushed immediately.
+	 */
+	private final int batchSize;
+
+	/**
+	 * The maximum time in milliseconds small envelopes may be held back to be coalesced with later envelopes.
+	 */
+	private final long batchDeadline;
+
+	/**
+	 * The time at which the first of the currently queued envelopes was queued. The variable is reset to the enqueue
+	 * time of the new head envelope whenever envelopes are removed from the queue. This variable is protected by the
+	 * monitor of the envelope queue.
+	 */
+	private long timestampOfFirstQueuedEnvelope = 0;
+
+	/**
+	 * Stores whether the transmission of the queued envelopes is delayed to coalesce them with later envelopes. This
+	 * variable is protected by the monitor of the envelope queue.
+	 */
+	private boolean isWriteDelayed = false;
+
+	/**
+	 * The estimated size of the envelopes held back while the transmission is delayed. This variable is protected by
+	 * the monitor of the envelope queue.
+	 */
+	private int delayedBytes = 0;
+
 	/**
 	 * The {@link TransferEnvelope} that is currently processed.
 	 */
@@ -121,10 +172,37 @@ public class OutgoingConnection {
 	 */
 	public OutgoingConnection(RemoteReceiver remoteReceiver, OutgoingConnectionThread connectionThread,
 			int numberOfConnectionRetries) {
+		this(remoteReceiver, connectionThread, numberOfConnectionRetries, false, 0, 0L);
+	}
+
+	/**
+	 * Constructs a new outgoing connection object.
+	 * 
+	 * @param remoteReceiver
+	 *        the address of the destination host this outgoing connection object is supposed to connect to
+	 * @param connectionThread
+	 *        the connection thread which actually handles the network transfer
+	 * @param numberOfConnectionRetries
+	 *        the number of connection retries allowed before an I/O error is reported
+	 * @param useGatheringWrites
+	 *        <code>true</code> to transmit batches of queued envelopes with gathering writes, <code>false</code> to
+	 *        transmit the envelopes one by one
+	 * @param batchSize
+	 *        the size of a batch frame in bytes which causes the frame to be flushed immediately or <code>0</code> to
+	 *        disable the coalescing of small envelopes
+	 * @param batchDeadline
+	 *        the maximum time in milliseconds small envelopes may be held back to be coalesced with later envelopes
+	 */
+	public OutgoingConnection(RemoteReceiver remoteReceiver, OutgoingConnectionThread connectionThread,
+			int numberOfConnectionRetries, boolean useGatheringWrites, int batchSize, long batchDeadline) {
 
 		this.remoteReceiver = remoteReceiver;
 		this.connectionThread = connectionThread;
 		this.numberOfConnectionRetries = numberOfConnectionRetries;
+		this.gatheringSerializer = useGatheringWrites ? new GatheringSerializer() : null;
+		this.batchSerializer = (batchSize > 0) ? new EnvelopeBatchSerializer() : null;
+		this.batchSize = batchSize;
+		this.batchDeadline = batchDeadline;
 	}
 
 	/**
@@ -140,8 +218,104 @@ public class OutgoingConnection {
 
 		synchronized (this.queuedEnvelopes) {
 
+			final long now = System.currentTimeMillis();
+			if (this.queuedEnvelopes.isEmpty()) {
+				this.timestampOfFirstQueuedEnvelope = now;
+			}
+
+			if (this.isWriteDelayed) {
+				if (!isFlushRequired(transferEnvelope)) {
+					// Keep holding back the envelopes to coalesce them with later ones
+					this.queuedEnvelopes.add(transferEnvelope);
+					this.enqueueTimestamps.add(Long.valueOf(now));
+					return;
+				}
+				this.isWriteDelayed = false;
+			}
+
 			checkConnection();
 			this.queuedEnvelopes.add(transferEnvelope);
+			this.enqueueTimestamps.add(Long.valueOf(now));
+		}
+	}
+
+	/**
+	 * Removes the head of the envelope queue and resets the timestamp of the first queued envelope to the time the new
+	 * head envelope was queued.
+	 * <p>
+	 * This method must be called while holding the monitor of the envelope queue.
+	 * 
+	 * @return the removed envelope or <code>null</code> if the queue is empty
+	 */
+	private TransferEnvelope pollQueuedEnvelope() {
+
+		final TransferEnvelope transferEnvelope = this.queuedEnvelopes.poll();
+		this.enqueueTimestamps.poll();
+
+		final Long timestampOfHead = this.enqueueTimestamps.peek();
+		if (timestampOfHead != null) {
+			this.timestampOfFirstQueuedEnvelope = timestampOfHead.longValue();
+		}
+
+		return transferEnvelope;
+	}
+
+	/**
+	 * Checks whether the envelopes held back for coalescing must be transmitted now that the given envelope is queued.
+	 * <p>
+	 * This method must be called while holding the monitor of the envelope queue.
+	 * 
+	 * @param transferEnvelope
+	 *        the envelope which is about to be queued
+	 * @return <code>true</code> if the queued envelopes must be transmitted, <code>false</code> if they can be held
+	 *         back further
+	 */
+	private boolean isFlushRequired(final TransferEnvelope transferEnvelope) {
+
+		if (!isBatchable(transferEnvelope)) {
+			return true;
+		}
+
+		this.delayedBytes += EnvelopeBatchSerializer.estimateSize(transferEnvelope);
+		if (this.delayedBytes >= this.batchSize) {
+			return true;
+		}
+
+		return (System.currentTimeMillis() >= this.timestampOfFirstQueuedEnvelope + this.batchDeadline);
+	}
+
+	/**
+	 * Checks whether the given envelope is small enough to be coalesced with other envelopes into a batch frame.
+	 * 
+	 * @param transferEnvelope
+	 *        the envelope to check
+	 * @return <code>true</code> if the envelope can be added to a batch frame, <code>false</code> otherwise
+	 */
+	private boolean isBatchable(final TransferEnvelope transferEnvelope) {
+
+		final Buffer buffer = transferEnvelope.getBuffer();
+		if (buffer == null) {
+			return true;
+		}
+
+		return (buffer.isBackedByMemory() && buffer.remaining() <= this.batchSize / 2);
+	}
+
+	/**
+	 * Transmits the envelopes which have been held back for coalescing once the batch deadline has expired.
+	 * <p>
+	 * This method should only be called by the {@link OutgoingConnectionThread} object.
+	 */
+	public void flushDelayedEnvelopes() {
+
+		synchronized (this.queuedEnvelopes) {
+
+			if (!this.isWriteDelayed) {
+				return;
+			}
+
+			this.isWriteDelayed = false;
+			checkConnection();
 		}
 	}
 
@@ -237,6 +411,16 @@ public class OutgoingConnection {
 				}
 			}
 
+			if (this.gatheringSerializer != null) {
+				this.gatheringSerializer.releaseAllEnvelopes();
+			}
+
+			if (this.batchSerializer != null) {
+				this.batchSerializer.reset();
+			}
+
+			this.isWriteDelayed = false;
+
 			// Notify all other tasks which are waiting for data to be transmitted
 			final Iterator<TransferEnvelope> iter = this.queuedEnvelopes.iterator();
 			while (iter.hasNext()) {
@@ -249,6 +433,7 @@ public class OutgoingConnection {
 			}
 
 			this.queuedEnvelopes.clear();
+			this.enqueueTimestamps.clear();
 		}
 	}
 
@@ -292,6 +477,17 @@ public class OutgoingConnection {
 			// Error is fatal
 			LOG.error(ioe);
 
+			// We must assume the envelopes of the current batch are corrupted as well
+			if (this.gatheringSerializer != null) {
+				this.gatheringSerializer.releaseAllEnvelopes();
+			}
+
+			if (this.batchSerializer != null) {
+				this.batchSerializer.reset();
+			}
+
+			this.isWriteDelayed = false;
+
 			// Trigger new connection if there are more envelopes to be transmitted
 			if (this.queuedEnvelopes.isEmpty()) {
 				this.isConnected = false;
@@ -343,6 +539,28 @@ public class OutgoingConnection {
 	 */
 	public boolean write() throws IOException {
 
+		if (this.batchSerializer != null) {
+
+			if (!this.batchSerializer.hasPendingFrame() && this.currentEnvelope == null
+				&& (this.gatheringSerializer == null || this.gatheringSerializer.isEmpty())) {
+
+				synchronized (this.queuedEnvelopes) {
+					if (delayOrAssembleFrame()) {
+						return false;
+					}
+				}
+			}
+
+			if (this.batchSerializer.hasPendingFrame()) {
+				this.batchSerializer.write((WritableByteChannel) this.selectionKey.channel());
+				return true;
+			}
+		}
+
+		if (this.gatheringSerializer != null) {
+			return writeBatch((GatheringByteChannel) this.selectionKey.channel());
+		}
+
 		final WritableByteChannel writableByteChannel = (WritableByteChannel) this.selectionKey.channel();
 
 		if (this.currentEnvelope == null) {
@@ -364,7 +582,7 @@ public class OutgoingConnection {
 			}
 
 			synchronized (this.queuedEnvelopes) {
-				this.queuedEnvelopes.poll();
+				pollQueuedEnvelope();
 				this.currentEnvelope = null;
 			}
 		}
@@ -372,6 +590,111 @@ public class OutgoingConnection {
 		return true;
 	}
 
+	/**
+	 * Checks whether the head of the envelope queue consists of small envelopes which can be coalesced into a batch
+	 * frame. If the envelopes neither fill a frame nor have exceeded the batch deadline, their transmission is delayed.
+	 * Otherwise, they are moved from the queue into a new batch frame.
+	 * <p>
+	 * This method must be called while holding the monitor of the envelope queue.
+	 * 
+	 * @return <code>true</code> if the transmission has been delayed, <code>false</code> otherwise
+	 * @throws IOException
+	 *         thrown if an error occurs while assembling the batch frame
+	 */
+	private boolean delayOrAssembleFrame() throws IOException {
+
+		final TransferEnvelope head = this.queuedEnvelopes.peek();
+		if (head == null || !isBatchable(head)) {
+			return false;
+		}
+
+		int numberOfBatchableEnvelopes = 0;
+		int estimatedBytes = 0;
+		boolean flush = false;
+
+		final Iterator<TransferEnvelope> it = this.queuedEnvelopes.iterator();
+		while (it.hasNext()) {
+			final TransferEnvelope te = it.next();
+			if (!isBatchable(te) || !head.getJobID().equals(te.getJobID())) {
+				flush = true;
+				break;
+			}
+			++numberOfBatchableEnvelopes;
+			estimatedBytes += EnvelopeBatchSerializer.estimateSize(te);
+			if (estimatedBytes >= this.batchSize) {
+				flush = true;
+				break;
+			}
+		}
+
+		final long deadline = this.timestampOfFirstQueuedEnvelope + this.batchDeadline;
+		if (!flush && System.currentTimeMillis() < deadline) {
+			this.isWriteDelayed = true;
+			this.delayedBytes = estimatedBytes;
+			this.isSubscribedToWriteEvent = false;
+			this.connectionThread.delayWriteEvent(this.selectionKey, deadline);
+			return true;
+		}
+
+		// A frame only pays off for more than one envelope
+		if (numberOfBatchableEnvelopes < 2) {
+			return false;
+		}
+
+		this.batchSerializer.startFrame(head.getJobID());
+		while (numberOfBatchableEnvelopes-- > 0 && this.batchSerializer.getFrameSize() < this.batchSize) {
+			final TransferEnvelope te = pollQueuedEnvelope();
+			this.batchSerializer.addTransferEnvelope(te);
+			// The buffer's data has been copied into the frame
+			if (te.getBuffer() != null) {
+				te.getBuffer().recycleBuffer();
+			}
+		}
+		this.batchSerializer.finishFrame();
+
+		return false;
+	}
+
+	/**
+	 * Writes the current batch of {@link TransferEnvelope} objects to the underlying TCP connection using a gathering
+	 * write. If no batch is currently in transmission, a new batch is assembled from the queued envelopes first.
+	 * 
+	 * @param gatheringByteChannel
+	 *        the channel to write the batch to
+	 * @return <code>true</code> if there is more data from this/other queued envelopes to be written to this channel
+	 * @throws IOException
+	 *         thrown if an error occurs while writing the data to the channel
+	 */
+	private boolean writeBatch(final GatheringByteChannel gatheringByteChannel) throws IOException {
+
+		if (this.gatheringSerializer.isEmpty()) {
+			synchronized (this.queuedEnvelopes) {
+				if (this.queuedEnvelopes.isEmpty()) {
+					return false;
+				}
+
+				while (!this.queuedEnvelopes.isEmpty()) {
+					if (!this.gatheringSerializer.addTransferEnvelope(this.queuedEnvelopes.peek())) {
+						break;
+					}
+					pollQueuedEnvelope();
+				}
+			}
+		}
+
+		this.gatheringSerializer.write(gatheringByteChannel);
+
+		// Make sure we recycle the attached memory or file buffers correctly
+		TransferEnvelope transferEnvelope;
+		while ((transferEnvelope = this.gatheringSerializer.pollFullyWrittenEnvelope()) != null) {
+			if (transferEnvelope.getBuffer() != null) {
+				transferEnvelope.getBuffer().recycleBuffer();
+			}
+		}
+
+		return true;
+	}
+
 	/**
 	 * Requests to close the underlying TCP connection. The request is ignored if at least one {@link TransferEnvelope}
 	 * is queued.
@@ -411,6 +734,14 @@ public class OutgoingConnection {
 				return;
 			}
 
+			if (this.gatheringSerializer != null && !this.gatheringSerializer.isEmpty()) {
+				return;
+			}
+
+			if (this.batchSerializer != null && this.batchSerializer.hasPendingFrame()) {
+				return;
+			}
+
 			if (this.selectionKey != null) {
 
 				final SocketChannel socketChannel = (SocketChannel) this.selectionKey.channel();
@@ -461,15 +792,23 @@ public class OutgoingConnection {
 		synchronized (this.queuedEnvelopes) {
 
 			final Iterator<TransferEnvelope> it = this.queuedEnvelopes.iterator();
+			final Iterator<Long> timestampIt = this.enqueueTimestamps.iterator();
 			while (it.hasNext()) {
 				final TransferEnvelope te = it.next();
+				timestampIt.next();
 				if (sourceChannelID.equals(te.getSource())) {
 					it.remove();
+					timestampIt.remove();
 					if (te.getBuffer() != null) {
 						te.getBuffer().recycleBuffer();
 					}
 				}
 			}
+
+			final Long timestampOfHead = this.enqueueTimestamps.peek();
+			if (timestampOfHead != null) {
+				this.timestampOfFirstQueuedEnvelope = timestampOfHead.longValue();
+			}
 		}
 	}
 
@@ -494,6 +833,14 @@ public class OutgoingConnection {
 				return false;
 			}
 
+			if (this.gatheringSerializer != null && !this.gatheringSerializer.isEmpty()) {
+				return false;
+			}
+
+			if (this.batchSerializer != null && this.batchSerializer.hasPendingFrame()) {
+				return false;
+			}
+
 			return this.queuedEnvelopes.isEmpty();
 		}
 	}
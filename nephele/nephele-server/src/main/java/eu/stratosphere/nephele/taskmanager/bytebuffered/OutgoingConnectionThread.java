@@ -21,8 +21,10 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 
@@ -48,6 +50,12 @@ public class OutgoingConnectionThread extends Thread {
 
 	private final Map<OutgoingConnection, Long> connectionsToClose = new HashMap<OutgoingConnection, Long>();
 
+	/**
+	 * Map of connections whose transmission has been delayed to coalesce small envelopes, along with the time at
+	 * which the delayed envelopes must be flushed.
+	 */
+	private final Map<OutgoingConnection, Long> delayedWriteEvents = new HashMap<OutgoingConnection, Long>();
+
 	public OutgoingConnectionThread() throws IOException {
 		super("Outgoing Connection Thread");
 
@@ -143,6 +151,34 @@ public class OutgoingConnectionThread extends Thread {
 				}
 			}
 
+			// Collect the expired connections first, flushing them while holding the lock could cause deadlocks
+			List<OutgoingConnection> connectionsToFlush = null;
+			synchronized (this.delayedWriteEvents) {
+
+				if (!this.delayedWriteEvents.isEmpty()) {
+					final Iterator<Map.Entry<OutgoingConnection, Long>> delayIt = this.delayedWriteEvents.entrySet()
+						.iterator();
+					final long now = System.currentTimeMillis();
+					while (delayIt.hasNext()) {
+
+						final Map.Entry<OutgoingConnection, Long> entry = delayIt.next();
+						if (entry.getValue().longValue() <= now) {
+							if (connectionsToFlush == null) {
+								connectionsToFlush = new ArrayList<OutgoingConnection>();
+							}
+							connectionsToFlush.add(entry.getKey());
+							delayIt.remove();
+						}
+					}
+				}
+			}
+
+			if (connectionsToFlush != null) {
+				for (final OutgoingConnection outgoingConnection : connectionsToFlush) {
+					outgoingConnection.flushDelayedEnvelopes();
+				}
+			}
+
 			try {
 				this.selector.select(10);
 			} catch (IOException e) {
@@ -261,6 +297,34 @@ public class OutgoingConnectionThread extends Thread {
 		}
 	}
 
+	/**
+	 * Unsubscribes the connection of the given selection key from write events until the given deadline has expired
+	 * or the connection subscribes to write events again. In contrast to
+	 * {@link #unsubscribeFromWriteEvent(SelectionKey)}, the connection is not considered idle.
+	 * <p>
+	 * This method must only be called from within this thread.
+	 * 
+	 * @param selectionKey
+	 *        the selection key of the connection whose write events shall be delayed
+	 * @param deadline
+	 *        the time at which the connection shall be flushed
+	 * @throws IOException
+	 *         thrown if the connection cannot be re-registered with the selector
+	 */
+	public void delayWriteEvent(SelectionKey selectionKey, long deadline) throws IOException {
+
+		final SocketChannel socketChannel = (SocketChannel) selectionKey.channel();
+		final OutgoingConnection outgoingConnection = (OutgoingConnection) selectionKey.attachment();
+
+		final SelectionKey newSelectionKey = socketChannel.register(this.selector, SelectionKey.OP_READ);
+		newSelectionKey.attach(outgoingConnection);
+		outgoingConnection.setSelectionKey(newSelectionKey);
+
+		synchronized (this.delayedWriteEvents) {
+			this.delayedWriteEvents.put(outgoingConnection, Long.valueOf(deadline));
+		}
+	}
+
 	public void subscribeToWriteEvent(SelectionKey selectionKey) {
 
 		synchronized (this.pendingWriteEventSubscribeRequests) {
@@ -269,6 +333,9 @@ public class OutgoingConnectionThread extends Thread {
 		synchronized (this.connectionsToClose) {
 			this.connectionsToClose.remove((OutgoingConnection) selectionKey.attachment());
 		}
+		synchronized (this.delayedWriteEvents) {
+			this.delayedWriteEvents.remove((OutgoingConnection) selectionKey.attachment());
+		}
 
 	}
 }
@@ -16,15 +16,16 @@
 package eu.stratosphere.nephele.taskmanager.bytebuffered;
 
 import java.io.IOException;
-import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
 
 import eu.stratosphere.nephele.event.task.AbstractEvent;
 import eu.stratosphere.nephele.taskmanager.transferenvelope.TransferEnvelope;
 
 public final class OutputChannelForwardingChain {
 
-	private final Queue<AbstractEvent> incomingEventQueue = new LinkedBlockingDeque<AbstractEvent>();
+	private final BlockingQueue<AbstractEvent> incomingEventQueue = new LinkedBlockingDeque<AbstractEvent>();
 
 	private final AbstractOutputChannelForwarder first;
 
@@ -80,6 +81,25 @@ public final class OutputChannelForwardingChain {
 		}
 	}
 
+	/**
+	 * Waits until at least one event has been offered to this chain or the given timeout has elapsed. Afterwards, all
+	 * queued events are processed. This method must only be called by the thread which also processes the other events
+	 * of this chain, usually the task thread.
+	 * 
+	 * @param timeout
+	 *        the maximum time to wait in milliseconds
+	 * @throws InterruptedException
+	 *         thrown if the thread is interrupted while waiting for events
+	 */
+	public void waitForEvents(final long timeout) throws InterruptedException {
+
+		final AbstractEvent event = this.incomingEventQueue.poll(timeout, TimeUnit.MILLISECONDS);
+		if (event != null) {
+			this.first.processEvent(event);
+			processQueuedEvents();
+		}
+	}
+
 	void offerEvent(final AbstractEvent event) {
 		this.incomingEventQueue.offer(event);
 	}
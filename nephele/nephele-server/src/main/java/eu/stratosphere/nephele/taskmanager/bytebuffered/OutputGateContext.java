@@ -15,10 +15,24 @@
 
 package eu.stratosphere.nephele.taskmanager.bytebuffered;
 
+import java.util.List;
+
 import eu.stratosphere.nephele.io.channels.ChannelID;
 
 public interface OutputGateContext extends GateContext {
 
 	OutputChannelContext createOutputChannelContext(ChannelID channelID, OutputChannelContext previousContext,
 			boolean isReceiverRunning, boolean mergeSpillBuffers);
+
+	/**
+	 * Returns the IDs of the input channels which receive the data of the output channel with the given ID. If the gate
+	 * writes the records it broadcasts through in-memory channels only once to this channel, these are the input
+	 * channels connected to all of the gate's output channels.
+	 * 
+	 * @param channelID
+	 *        the ID of the output channel
+	 * @return the IDs of the input channels receiving the data of all of the gate's output channels or
+	 *         <code>null</code> if the output channel only transmits data to its own connected input channel
+	 */
+	List<ChannelID> getBroadcastReceivers(ChannelID channelID);
 }
\ No newline at end of file
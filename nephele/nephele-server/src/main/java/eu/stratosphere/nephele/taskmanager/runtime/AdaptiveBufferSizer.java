@@ -0,0 +1,128 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.runtime;
+
+import eu.stratosphere.nephele.configuration.GlobalConfiguration;
+
+/**
+ * The adaptive buffer sizer adjusts the size of the buffers handed to an output channel based on how the channel fills
+ * them. It observes the released buffers in windows of a fixed number of buffers:
+ * <ul>
+ * <li>If most buffers of a window were released completely full, the channel produces data faster than the buffers
+ * are shipped, so the buffer size is doubled to reduce the per-buffer overhead.</li>
+ * <li>If most buffers of a window were flushed before they were full, the channel produces little data, so the buffer
+ * size is halved, but not below the average amount of data per buffer. Smaller buffers are shipped and returned to the
+ * pool earlier.</li>
+ * </ul>
+ * The buffer size always stays between a minimum size and the maximum buffer size of the buffer pool.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ */
+final class AdaptiveBufferSizer {
+
+	/**
+	 * By default, the buffer size is not adapted at runtime.
+	 */
+	private static final boolean DEFAULT_ADAPTIVE_BUFFER_SIZING = false;
+
+	/**
+	 * The smallest buffer size in bytes the sizer shrinks a buffer to.
+	 */
+	static final int MINIMUM_BUFFER_SIZE = 4096;
+
+	/**
+	 * The number of released buffers the sizer observes before it adapts the buffer size.
+	 */
+	static final int OBSERVATION_WINDOW = 16;
+
+	private final int minimumBufferSize;
+
+	private final int maximumBufferSize;
+
+	private int bufferSize;
+
+	private int numberOfObservedBuffers = 0;
+
+	private int numberOfFullBuffers = 0;
+
+	private long amountOfObservedData = 0L;
+
+	/**
+	 * Constructs a new adaptive buffer sizer.
+	 * 
+	 * @param maximumBufferSize
+	 *        the maximum buffer size in bytes, also used as the initial buffer size
+	 */
+	AdaptiveBufferSizer(final int maximumBufferSize) {
+
+		this.maximumBufferSize = maximumBufferSize;
+		this.minimumBufferSize = Math.min(MINIMUM_BUFFER_SIZE, maximumBufferSize);
+		this.bufferSize = maximumBufferSize;
+	}
+
+	/**
+	 * Checks whether adaptive buffer sizing is enabled in the configuration of this task manager.
+	 * 
+	 * @return <code>true</code> if adaptive buffer sizing is enabled, <code>false</code> otherwise
+	 */
+	static boolean isEnabled() {
+
+		return GlobalConfiguration.getBoolean("channel.adaptiveBufferSizing", DEFAULT_ADAPTIVE_BUFFER_SIZING);
+	}
+
+	/**
+	 * Returns the size of the next buffer to be handed to the channel in bytes.
+	 * 
+	 * @return the size of the next buffer in bytes
+	 */
+	int getBufferSize() {
+
+		return this.bufferSize;
+	}
+
+	/**
+	 * Reports a buffer which has been released by the channel.
+	 * 
+	 * @param requestedSize
+	 *        the size of the buffer in bytes as it was handed to the channel
+	 * @param amountOfData
+	 *        the number of bytes the channel has written to the buffer
+	 */
+	void reportReleasedBuffer(final int requestedSize, final int amountOfData) {
+
+		++this.numberOfObservedBuffers;
+		this.amountOfObservedData += amountOfData;
+		if (amountOfData >= requestedSize) {
+			++this.numberOfFullBuffers;
+		}
+
+		if (this.numberOfObservedBuffers < OBSERVATION_WINDOW) {
+			return;
+		}
+
+		if (this.numberOfFullBuffers * 4 >= OBSERVATION_WINDOW * 3) {
+			this.bufferSize = Math.min(this.maximumBufferSize, this.bufferSize * 2);
+		} else if (this.numberOfFullBuffers * 4 <= OBSERVATION_WINDOW) {
+			final int averageAmountOfData = (int) (this.amountOfObservedData / this.numberOfObservedBuffers);
+			this.bufferSize = Math.max(this.minimumBufferSize, Math.max(averageAmountOfData, this.bufferSize / 2));
+		}
+
+		this.numberOfObservedBuffers = 0;
+		this.numberOfFullBuffers = 0;
+		this.amountOfObservedData = 0L;
+	}
+}
@@ -0,0 +1,153 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.runtime;
+
+import java.io.IOException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import eu.stratosphere.nephele.configuration.GlobalConfiguration;
+import eu.stratosphere.nephele.event.task.AbstractEvent;
+import eu.stratosphere.nephele.io.channels.ChannelID;
+import eu.stratosphere.nephele.taskmanager.bytebuffered.AbstractOutputChannelForwarder;
+import eu.stratosphere.nephele.taskmanager.bytebuffered.ChannelCreditEvent;
+import eu.stratosphere.nephele.taskmanager.bytebuffered.ChannelCreditRequestEvent;
+import eu.stratosphere.nephele.taskmanager.bytebuffered.OutputChannelForwardingChain;
+import eu.stratosphere.nephele.taskmanager.bytebuffered.ReceiverNotFoundEvent;
+import eu.stratosphere.nephele.taskmanager.transferenvelope.TransferEnvelope;
+
+/**
+ * The credit barrier implements credit-based flow control for network output channels. It only forwards a
+ * {@link TransferEnvelope} with a buffer attached if the receiver has granted the credit to accept it. Otherwise, the
+ * task thread waits until a {@link ChannelCreditEvent} arrives. Envelopes without buffers only carry events and are
+ * forwarded regardless of the credit.
+ * <p>
+ * The credit is granted by the receiver, so sender and receiver never have to agree on a configured value. Initially,
+ * the channel may only forward a single envelope with a buffer. A {@link ChannelCreditRequestEvent} is attached to
+ * this envelope, and the receiver answers it by announcing the initial credit of the channel, which is derived from
+ * the buffers its input gate reserves for each channel. Afterwards, the receiver returns the credit as it consumes the
+ * envelopes.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ */
+public final class CreditBarrier extends AbstractOutputChannelForwarder {
+
+	private static final Log LOG = LogFactory.getLog(CreditBarrier.class);
+
+	/**
+	 * By default, credit-based flow control is disabled.
+	 */
+	private static final boolean DEFAULT_CREDIT_BASED_FLOW_CONTROL = false;
+
+	/**
+	 * The maximum time in milliseconds to wait for incoming events before checking the credit again.
+	 */
+	private static final long WAIT_TIME = 100L;
+
+	private final ChannelID outputChannelID;
+
+	/**
+	 * The number of envelopes with buffers this channel may currently forward. Until the receiver has announced the
+	 * initial credit, only the envelope carrying the request for it may be forwarded.
+	 */
+	private int credit = 1;
+
+	/**
+	 * Stores whether the receiver has already been asked to announce the initial credit.
+	 */
+	private boolean initialCreditRequested = false;
+
+	/**
+	 * Stores whether flow control has been suspended because the receiver could not be found.
+	 */
+	private boolean flowControlSuspended = false;
+
+	/**
+	 * The forwarding chain this barrier belongs to.
+	 */
+	private OutputChannelForwardingChain forwardingChain = null;
+
+	public CreditBarrier(final ChannelID outputChannelID, final AbstractOutputChannelForwarder next) {
+		super(next);
+
+		if (next == null) {
+			throw new IllegalArgumentException("Argument next must not be null");
+		}
+
+		this.outputChannelID = outputChannelID;
+	}
+
+	/**
+	 * Checks whether the network output channels of this task manager shall be subject to credit-based flow control.
+	 * 
+	 * @return <code>true</code> if credit-based flow control is enabled, <code>false</code> otherwise
+	 */
+	static boolean isCreditBasedFlowControlEnabled() {
+
+		return GlobalConfiguration.getBoolean("channel.network.creditBasedFlowControl",
+			DEFAULT_CREDIT_BASED_FLOW_CONTROL);
+	}
+
+	public void setForwardingChain(final OutputChannelForwardingChain forwardingChain) {
+		this.forwardingChain = forwardingChain;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void push(final TransferEnvelope transferEnvelope) throws IOException, InterruptedException {
+
+		if (transferEnvelope.getBuffer() != null && !this.flowControlSuspended) {
+
+			// Credit is only granted through events which are processed by the task thread itself
+			while (this.credit == 0 && !this.flowControlSuspended) {
+				this.forwardingChain.waitForEvents(WAIT_TIME);
+			}
+
+			if (!this.flowControlSuspended) {
+				--this.credit;
+				if (!this.initialCreditRequested) {
+					transferEnvelope.addEvent(new ChannelCreditRequestEvent());
+					this.initialCreditRequested = true;
+				}
+			}
+		}
+
+		getNext().push(transferEnvelope);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void processEvent(final AbstractEvent event) {
+
+		if (event instanceof ChannelCreditEvent) {
+			this.credit += ((ChannelCreditEvent) event).getCredit();
+		} else if (event instanceof ReceiverNotFoundEvent) {
+			// The receiver discards our envelopes, so it will never return any credit
+			if (!this.flowControlSuspended && LOG.isDebugEnabled()) {
+				LOG.debug("Suspending flow control for output channel " + this.outputChannelID);
+			}
+			this.flowControlSuspended = true;
+		}
+
+		getNext().processEvent(event);
+	}
+}
@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.Iterator;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -33,6 +34,8 @@ import eu.stratosphere.nephele.io.channels.bytebuffered.ByteBufferedChannelClose
 import eu.stratosphere.nephele.io.channels.bytebuffered.ByteBufferedInputChannelBroker;
 import eu.stratosphere.nephele.jobgraph.JobID;
 import eu.stratosphere.nephele.taskmanager.bufferprovider.BufferAvailabilityListener;
+import eu.stratosphere.nephele.taskmanager.bytebuffered.ChannelCreditEvent;
+import eu.stratosphere.nephele.taskmanager.bytebuffered.ChannelCreditRequestEvent;
 import eu.stratosphere.nephele.taskmanager.bytebuffered.InputChannelContext;
 import eu.stratosphere.nephele.taskmanager.bytebuffered.ReceiverNotFoundEvent;
 import eu.stratosphere.nephele.taskmanager.bytebuffered.UnexpectedEnvelopeEvent;
@@ -56,6 +59,17 @@ final class RuntimeInputChannelContext implements InputChannelContext, ByteBuffe
 
 	private boolean destroyCalled = false;
 
+	/**
+	 * The number of consumed envelopes after which the credit is returned to the sender or <code>0</code> if the
+	 * sender has not requested credit-based flow control for this channel.
+	 */
+	private volatile int creditAnnouncementThreshold = 0;
+
+	/**
+	 * The credit for consumed envelopes which has not yet been returned to the sender.
+	 */
+	private final AtomicInteger unannouncedCredit = new AtomicInteger(0);
+
 	RuntimeInputChannelContext(final RuntimeInputGateContext inputGateContext,
 			final TransferEnvelopeDispatcher transferEnvelopeDispatcher,
 			final AbstractByteBufferedInputChannel<?> byteBufferedInputChannel) {
@@ -131,12 +145,18 @@ final class RuntimeInputChannelContext implements InputChannelContext, ByteBuffe
 		}
 
 		// Process events
+		boolean initialCreditRequested = false;
 		final EventList eventList = transferEnvelope.getEventList();
 		if (eventList != null) {
 			if (!eventList.isEmpty()) {
 				final Iterator<AbstractEvent> it = eventList.iterator();
 				while (it.hasNext()) {
-					this.byteBufferedInputChannel.processEvent(it.next());
+					final AbstractEvent event = it.next();
+					if (event instanceof ChannelCreditRequestEvent) {
+						initialCreditRequested = true;
+					} else {
+						this.byteBufferedInputChannel.processEvent(event);
+					}
 				}
 			}
 		}
@@ -151,6 +171,57 @@ final class RuntimeInputChannelContext implements InputChannelContext, ByteBuffe
 
 		// Recycle consumed read buffer
 		buffer.recycleBuffer();
+
+		if (initialCreditRequested) {
+			announceInitialCredit();
+		} else {
+			returnCredit();
+		}
+	}
+
+	/**
+	 * Announces the initial credit of this channel to the sender, which has requested it with a
+	 * {@link ChannelCreditRequestEvent}. The initial credit is the number of buffers the input gate reserves for each
+	 * of its channels. This method must only be called after the buffer of the envelope carrying the request has been
+	 * recycled.
+	 */
+	private void announceInitialCredit() {
+
+		final int initialCredit = this.inputGateContext.getNumberOfBuffersPerChannel();
+
+		// Return the credit in batches, but early enough so the sender never runs dry while we still have data queued
+		this.unannouncedCredit.set(0);
+		this.creditAnnouncementThreshold = Math.max(1, initialCredit / 2);
+
+		try {
+			transferEventToOutputChannel(new ChannelCreditEvent(initialCredit));
+		} catch (Exception e) {
+			LOG.error(StringUtils.stringifyException(e));
+		}
+	}
+
+	/**
+	 * Records that an envelope with a buffer has been consumed or discarded and returns the accumulated credit to the
+	 * sender once it reaches the announcement threshold.
+	 */
+	private void returnCredit() {
+
+		if (this.creditAnnouncementThreshold == 0) {
+			return;
+		}
+
+		if (this.unannouncedCredit.incrementAndGet() < this.creditAnnouncementThreshold) {
+			return;
+		}
+
+		final int credit = this.unannouncedCredit.getAndSet(0);
+		if (credit > 0) {
+			try {
+				transferEventToOutputChannel(new ChannelCreditEvent(credit));
+			} catch (Exception e) {
+				LOG.error(StringUtils.stringifyException(e));
+			}
+		}
 	}
 
 	/**
@@ -175,6 +246,8 @@ final class RuntimeInputChannelContext implements InputChannelContext, ByteBuffe
 		final int sequenceNumber = transferEnvelope.getSequenceNumber();
 
 		AbstractEvent eventToSend = null;
+		boolean discardedBuffer = false;
+		boolean initialCreditRequested = false;
 
 		if (ReceiverNotFoundEvent.isReceiverNotFoundEvent(transferEnvelope)) {
 			return;
@@ -220,6 +293,8 @@ final class RuntimeInputChannelContext implements InputChannelContext, ByteBuffe
 				final Buffer buffer = transferEnvelope.getBuffer();
 				if (buffer != null) {
 					buffer.recycleBuffer();
+					discardedBuffer = true;
+					initialCreditRequested = containsEvent(transferEnvelope, ChannelCreditRequestEvent.class);
 				}
 			} else {
 
@@ -238,6 +313,13 @@ final class RuntimeInputChannelContext implements InputChannelContext, ByteBuffe
 				LOG.error(StringUtils.stringifyException(e));
 			}
 		}
+
+		// The sender has spent credit on the discarded envelope as well
+		if (initialCreditRequested) {
+			announceInitialCredit();
+		} else if (discardedBuffer) {
+			returnCredit();
+		}
 	}
 
 	/**
@@ -268,6 +350,33 @@ final class RuntimeInputChannelContext implements InputChannelContext, ByteBuffe
 		return null;
 	}
 
+	/**
+	 * Checks whether the given envelope carries an event of the given type.
+	 * 
+	 * @param envelope
+	 *        the envelope to be inspected
+	 * @param eventType
+	 *        the type of event to look for
+	 * @return <code>true</code> if the envelope carries an event of the given type, <code>false</code> otherwise
+	 */
+	private static boolean containsEvent(final TransferEnvelope envelope,
+			final Class<? extends AbstractEvent> eventType) {
+
+		final EventList eventList = envelope.getEventList();
+		if (eventList == null) {
+			return false;
+		}
+
+		final Iterator<AbstractEvent> it = eventList.iterator();
+		while (it.hasNext()) {
+			if (eventType.isInstance(it.next())) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
 	@Override
 	public ChannelID getChannelID() {
 
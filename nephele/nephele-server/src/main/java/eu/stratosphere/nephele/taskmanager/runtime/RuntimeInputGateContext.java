@@ -178,6 +178,20 @@ final class RuntimeInputGateContext implements BufferProvider, InputGateContext,
 			(AbstractByteBufferedInputChannel<? extends Record>) channel);
 	}
 
+	/**
+	 * Returns the number of buffers this gate reserves for each of its input channels. A flow-controlled sender is
+	 * granted this number as its initial credit, so all channels of the gate together never have more envelopes in
+	 * flight than the gate has buffers to receive them.
+	 * 
+	 * @return the number of buffers this gate reserves for each of its input channels, at least <code>1</code>
+	 */
+	int getNumberOfBuffersPerChannel() {
+
+		final int numberOfChannels = Math.max(1, this.inputGate.getNumberOfInputChannels());
+
+		return Math.max(1, this.localBufferPool.getDesignatedNumberOfBuffers() / numberOfChannels);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
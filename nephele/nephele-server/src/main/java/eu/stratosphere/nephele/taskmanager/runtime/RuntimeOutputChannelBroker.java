@@ -17,12 +17,18 @@ package eu.stratosphere.nephele.taskmanager.runtime;
 
 import java.io.IOException;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
 import eu.stratosphere.nephele.event.task.AbstractEvent;
 import eu.stratosphere.nephele.event.task.AbstractTaskEvent;
 import eu.stratosphere.nephele.io.channels.Buffer;
+import eu.stratosphere.nephele.io.channels.ChannelType;
 import eu.stratosphere.nephele.io.channels.bytebuffered.AbstractByteBufferedOutputChannel;
 import eu.stratosphere.nephele.io.channels.bytebuffered.ByteBufferedChannelCloseEvent;
 import eu.stratosphere.nephele.io.channels.bytebuffered.ByteBufferedOutputChannelBroker;
+import eu.stratosphere.nephele.io.compression.CompressionLevel;
+import eu.stratosphere.nephele.io.compression.CompressionStatistics;
 import eu.stratosphere.nephele.taskmanager.bytebuffered.AbstractOutputChannelForwarder;
 import eu.stratosphere.nephele.taskmanager.bytebuffered.OutputChannelForwardingChain;
 import eu.stratosphere.nephele.taskmanager.bytebuffered.ReceiverNotFoundEvent;
@@ -31,6 +37,8 @@ import eu.stratosphere.nephele.taskmanager.transferenvelope.TransferEnvelope;
 final class RuntimeOutputChannelBroker extends AbstractOutputChannelForwarder implements
 		ByteBufferedOutputChannelBroker {
 
+	private static final Log LOG = LogFactory.getLog(RuntimeOutputChannelBroker.class);
+
 	/**
 	 * The byte buffered output channel this context belongs to.
 	 */
@@ -72,6 +80,22 @@ final class RuntimeOutputChannelBroker extends AbstractOutputChannelForwarder im
 	 */
 	private int bufferSize;
 
+	/**
+	 * The compression level applied to the buffers of this channel when they are transported over the network.
+	 */
+	private final CompressionLevel compressionLevel;
+
+	/**
+	 * The statistics on the compression of this channel's buffers or <code>null</code> if the channel is not
+	 * compressed.
+	 */
+	private final CompressionStatistics compressionStatistics;
+
+	/**
+	 * Adapts the buffer size to the data rate of the channel or <code>null</code> if the buffer size is fixed.
+	 */
+	private AdaptiveBufferSizer adaptiveBufferSizer = null;
+
 	RuntimeOutputChannelBroker(final RuntimeOutputGateContext outputGateContext,
 			final AbstractByteBufferedOutputChannel<?> byteBufferedOutputChannel,
 			final AbstractOutputChannelForwarder next) {
@@ -88,6 +112,22 @@ final class RuntimeOutputChannelBroker extends AbstractOutputChannelForwarder im
 		
 		// Set the buffer size to the largest possible value by default
 		this.bufferSize = this.outputGateContext.getMaximumBufferSize();
+		if (AdaptiveBufferSizer.isEnabled()) {
+			this.adaptiveBufferSizer = new AdaptiveBufferSizer(this.bufferSize);
+		}
+
+		// Compression only applies to data which is transported over the network
+		if (this.byteBufferedOutputChannel.getType() == ChannelType.NETWORK) {
+			this.compressionLevel = this.byteBufferedOutputChannel.getOutputGate().getCompressionLevel();
+		} else {
+			this.compressionLevel = CompressionLevel.NO_COMPRESSION;
+		}
+
+		if (this.compressionLevel != CompressionLevel.NO_COMPRESSION) {
+			this.compressionStatistics = new CompressionStatistics();
+		} else {
+			this.compressionStatistics = null;
+		}
 	}
 
 	public void setForwardingChain(final OutputChannelForwardingChain forwardingChain) {
@@ -119,6 +159,10 @@ final class RuntimeOutputChannelBroker extends AbstractOutputChannelForwarder im
 
 		if (event instanceof ByteBufferedChannelCloseEvent) {
 			this.closeAcknowledgmentReceived = true;
+			if (this.compressionStatistics != null && LOG.isInfoEnabled()) {
+				LOG.info("Channel " + this.byteBufferedOutputChannel.getID() + " (" + this.compressionLevel + "): "
+					+ this.compressionStatistics);
+			}
 		} else if (event instanceof ReceiverNotFoundEvent) {
 			this.lastSequenceNumberWithReceiverNotFound = ((ReceiverNotFoundEvent) event).getSequenceNumber();
 		} else if (event instanceof AbstractTaskEvent) {
@@ -156,6 +200,10 @@ final class RuntimeOutputChannelBroker extends AbstractOutputChannelForwarder im
 			this.byteBufferedOutputChannel.getJobID(),
 			this.byteBufferedOutputChannel.getID());
 
+		if (this.compressionStatistics != null) {
+			transferEnvelope.setCompressionLevel(this.compressionLevel, this.compressionStatistics);
+		}
+
 		return transferEnvelope;
 	}
 
@@ -166,6 +214,11 @@ final class RuntimeOutputChannelBroker extends AbstractOutputChannelForwarder im
 	 * @return the recommended size of the next buffer in bytes
 	 */
 	private int calculateBufferSize() {
+
+		if (this.adaptiveBufferSizer != null) {
+			return this.adaptiveBufferSizer.getBufferSize();
+		}
+
 		return this.bufferSize;
 	}
 
@@ -188,6 +241,10 @@ final class RuntimeOutputChannelBroker extends AbstractOutputChannelForwarder im
 			throw new IllegalStateException("Channel " + this.byteBufferedOutputChannel.getID()
 				+ " has already a buffer attached");
 		}
+		if (this.adaptiveBufferSizer != null) {
+			this.adaptiveBufferSizer.reportReleasedBuffer(buffer.size(), buffer.size() - buffer.remaining());
+		}
+
 		buffer.flip();
 		this.outgoingTransferEnvelope.setBuffer(buffer);
 
@@ -224,6 +281,17 @@ final class RuntimeOutputChannelBroker extends AbstractOutputChannelForwarder im
 		}
 	}
 
+	/**
+	 * Returns the statistics on the compression of this channel's buffers.
+	 * 
+	 * @return the statistics on the compression of this channel's buffers or <code>null</code> if the channel is not
+	 *         compressed
+	 */
+	CompressionStatistics getCompressionStatistics() {
+
+		return this.compressionStatistics;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -236,5 +304,8 @@ final class RuntimeOutputChannelBroker extends AbstractOutputChannelForwarder im
 		}
 
 		this.bufferSize = bufferSize;
+
+		// An explicit limit takes precedence over the adaptive buffer size
+		this.adaptiveBufferSizer = null;
 	}
 }
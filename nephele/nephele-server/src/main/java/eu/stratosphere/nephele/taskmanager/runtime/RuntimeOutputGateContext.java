@@ -16,13 +16,17 @@
 package eu.stratosphere.nephele.taskmanager.runtime;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import eu.stratosphere.nephele.io.AbstractID;
 import eu.stratosphere.nephele.io.GateID;
 import eu.stratosphere.nephele.io.OutputGate;
+import eu.stratosphere.nephele.io.RuntimeOutputGate;
 import eu.stratosphere.nephele.io.channels.AbstractOutputChannel;
 import eu.stratosphere.nephele.io.channels.Buffer;
 import eu.stratosphere.nephele.io.channels.ChannelID;
+import eu.stratosphere.nephele.io.channels.ChannelType;
 import eu.stratosphere.nephele.io.channels.bytebuffered.AbstractByteBufferedOutputChannel;
 import eu.stratosphere.nephele.taskmanager.bufferprovider.BufferAvailabilityListener;
 import eu.stratosphere.nephele.taskmanager.bufferprovider.BufferProvider;
@@ -154,7 +158,13 @@ final class RuntimeOutputGateContext implements BufferProvider, OutputGateContex
 		 * runtimeDispatcher);
 		 * final ForwardingBarrier forwardingBarrier = new ForwardingBarrier(channelID, spillingBarrier);
 		 */
-		final ForwardingBarrier forwardingBarrier = new ForwardingBarrier(channelID, runtimeDispatcher);
+		// Network channels are subject to credit-based flow control if enabled
+		CreditBarrier creditBarrier = null;
+		if (outputChannel.getType() == ChannelType.NETWORK && CreditBarrier.isCreditBasedFlowControlEnabled()) {
+			creditBarrier = new CreditBarrier(channelID, runtimeDispatcher);
+		}
+		final ForwardingBarrier forwardingBarrier = new ForwardingBarrier(channelID,
+			(creditBarrier != null) ? creditBarrier : runtimeDispatcher);
 		outputChannelBroker = new RuntimeOutputChannelBroker(this, outputChannel, forwardingBarrier);
 		last = runtimeDispatcher;
 
@@ -162,10 +172,37 @@ final class RuntimeOutputGateContext implements BufferProvider, OutputGateContex
 
 		// Set forwarding chain for broker
 		outputChannelBroker.setForwardingChain(forwardingChain);
+		if (creditBarrier != null) {
+			creditBarrier.setForwardingChain(forwardingChain);
+		}
 
 		return new RuntimeOutputChannelContext(outputChannel, forwardingChain);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<ChannelID> getBroadcastReceivers(final ChannelID channelID) {
+
+		if (!this.outputGate.isBroadcast() || this.outputGate.getChannelType() != ChannelType.INMEMORY
+			|| !RuntimeOutputGate.isBroadcastSerializedOnce()) {
+			return null;
+		}
+
+		final int numberOfOutputChannels = this.outputGate.getNumberOfOutputChannels();
+		if (numberOfOutputChannels < 2 || !this.outputGate.getOutputChannel(0).getID().equals(channelID)) {
+			return null;
+		}
+
+		final List<ChannelID> broadcastReceivers = new ArrayList<ChannelID>(numberOfOutputChannels);
+		for (int i = 0; i < numberOfOutputChannels; ++i) {
+			broadcastReceivers.add(this.outputGate.getOutputChannel(i).getConnectedChannelID());
+		}
+
+		return broadcastReceivers;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -30,15 +30,20 @@ import eu.stratosphere.nephele.execution.ExecutionState;
 import eu.stratosphere.nephele.execution.ExecutionStateTransition;
 import eu.stratosphere.nephele.execution.RuntimeEnvironment;
 import eu.stratosphere.nephele.executiongraph.ExecutionVertexID;
+import eu.stratosphere.nephele.io.OutputGate;
+import eu.stratosphere.nephele.io.channels.AbstractOutputChannel;
+import eu.stratosphere.nephele.io.channels.bytebuffered.AbstractByteBufferedOutputChannel;
 import eu.stratosphere.nephele.jobgraph.JobID;
 import eu.stratosphere.nephele.profiling.TaskManagerProfiler;
 import eu.stratosphere.nephele.services.memorymanager.MemoryManager;
+import eu.stratosphere.nephele.taskmanager.OutputChannelStatistics;
 import eu.stratosphere.nephele.taskmanager.Task;
 import eu.stratosphere.nephele.taskmanager.TaskManager;
 import eu.stratosphere.nephele.taskmanager.bufferprovider.LocalBufferPoolOwner;
 import eu.stratosphere.nephele.taskmanager.bytebuffered.TaskContext;
 import eu.stratosphere.nephele.taskmanager.transferenvelope.TransferEnvelopeDispatcher;
 import eu.stratosphere.nephele.template.AbstractInvokable;
+import eu.stratosphere.nephele.types.Record;
 import eu.stratosphere.nephele.util.StringUtils;
 
 public final class RuntimeTask implements Task, ExecutionObserver {
@@ -378,4 +383,28 @@ public final class RuntimeTask implements Task, ExecutionObserver {
 		return this.executionState;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public OutputChannelStatistics getOutputChannelStatistics() {
+
+		final OutputChannelStatistics statistics = new OutputChannelStatistics();
+
+		for (int i = 0; i < this.environment.getNumberOfOutputGates(); ++i) {
+			final OutputGate<? extends Record> outputGate = this.environment.getOutputGate(i);
+			for (int j = 0; j < outputGate.getNumberOfOutputChannels(); ++j) {
+				final AbstractOutputChannel<? extends Record> outputChannel = outputGate.getOutputChannel(j);
+				long numberOfRecordsTransmitted = -1L;
+				if (outputChannel instanceof AbstractByteBufferedOutputChannel) {
+					numberOfRecordsTransmitted = ((AbstractByteBufferedOutputChannel<? extends Record>) outputChannel)
+						.getNumberOfRecordsTransmitted();
+				}
+				statistics.add(outputChannel.getID(), outputChannel.getAmountOfDataTransmitted(),
+					numberOfRecordsTransmitted);
+			}
+		}
+
+		return statistics;
+	}
 }
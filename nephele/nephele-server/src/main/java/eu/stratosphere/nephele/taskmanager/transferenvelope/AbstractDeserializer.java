@@ -24,6 +24,8 @@ import eu.stratosphere.nephele.event.task.EventList;
 import eu.stratosphere.nephele.io.channels.Buffer;
 import eu.stratosphere.nephele.io.channels.ChannelID;
 import eu.stratosphere.nephele.io.channels.DefaultDeserializer;
+import eu.stratosphere.nephele.io.channels.MemoryBuffer;
+import eu.stratosphere.nephele.io.compression.BufferDecompressor;
 import eu.stratosphere.nephele.jobgraph.JobID;
 
 public abstract class AbstractDeserializer {
@@ -34,7 +36,9 @@ public abstract class AbstractDeserializer {
 		JOBIDDESERIALIZED,
 		SOURCEDESERIALIZED,
 		NOTIFICATIONSDESERIALIZED,
-		FULLYDESERIALIZED
+		FULLYDESERIALIZED,
+		FRAMEMARKERDESERIALIZED,
+		FRAMEJOBIDDESERIALIZED
 	};
 
 	private static final int SIZEOFINT = 4;
@@ -62,6 +66,26 @@ public abstract class AbstractDeserializer {
 
 	private int sizeOfBuffer = -1;
 
+	/**
+	 * Stores whether the buffer of the current envelope has been transmitted in compressed form.
+	 */
+	private boolean isBufferCompressed = false;
+
+	/**
+	 * The size of the compressed buffer data in bytes or <code>-1</code> if the size has not been read yet.
+	 */
+	private int compressedSizeOfBuffer = -1;
+
+	/**
+	 * The staging area for compressed buffer data, created on first use.
+	 */
+	private ByteBuffer compressedBufferData = null;
+
+	/**
+	 * The decompressor for compressed buffer data, created on first use.
+	 */
+	private BufferDecompressor bufferDecompressor = null;
+
 	private int deserializedSequenceNumber = -1;
 
 	private Buffer buffer = null;
@@ -72,6 +96,16 @@ public abstract class AbstractDeserializer {
 
 	private EventList deserializedEventList = null;
 
+	/**
+	 * The job ID of the batch frame which is currently demultiplexed.
+	 */
+	private JobID frameJobID = null;
+
+	/**
+	 * The number of envelopes in the current batch frame which have not been deserialized yet.
+	 */
+	private int envelopesLeftInFrame = 0;
+
 	public void read(ReadableByteChannel readableByteChannel) throws IOException, NoBufferAvailableException {
 
 		while (true) {
@@ -96,6 +130,12 @@ public abstract class AbstractDeserializer {
 			case NOTIFICATIONSDESERIALIZED:
 				waitingForMoreData = readBuffer(readableByteChannel);
 				break;
+			case FRAMEMARKERDESERIALIZED:
+				waitingForMoreData = readFrameJobID(readableByteChannel);
+				break;
+			case FRAMEJOBIDDESERIALIZED:
+				waitingForMoreData = readNumberOfEnvelopesInFrame(readableByteChannel);
+				break;
 			case FULLYDESERIALIZED:
 				return;
 			}
@@ -148,14 +188,34 @@ public abstract class AbstractDeserializer {
 		if (!this.tempBuffer.hasRemaining()) {
 
 			this.deserializedSequenceNumber = byteBufferToInteger(this.tempBuffer, 0);
+
+			if (this.deserializedSequenceNumber == EnvelopeBatchSerializer.BATCH_FRAME_MARKER
+				&& this.envelopesLeftInFrame == 0) {
+				// A batch frame follows, read its header before the first envelope
+				this.deserializationState = DeserializationState.FRAMEMARKERDESERIALIZED;
+				this.sequenceNumberDeserializationStarted = false;
+				this.tempBuffer.clear();
+				this.jobIDDeserializationBuffer.clear();
+				return false;
+			}
+
 			if (this.deserializedSequenceNumber < 0) {
 				throw new IOException("Received invalid sequence number: " + this.deserializedSequenceNumber);
 			}
 
-			this.deserializationState = DeserializationState.SEQUENCENUMBERDESERIALIZED;
+			if (this.envelopesLeftInFrame > 0) {
+				// Envelopes within a batch frame do not carry their own job ID
+				--this.envelopesLeftInFrame;
+				this.deserializedJobID = this.frameJobID;
+				this.deserializationState = DeserializationState.JOBIDDESERIALIZED;
+			} else {
+				this.deserializationState = DeserializationState.SEQUENCENUMBERDESERIALIZED;
+			}
 			this.sequenceNumberDeserializationStarted = false;
 			this.transferEnvelope = null;
 			this.sizeOfBuffer = -1;
+			this.isBufferCompressed = false;
+			this.compressedSizeOfBuffer = -1;
 			this.bufferExistanceDeserialized = false;
 			this.eventListExistanceDeserialized = false;
 			this.tempBuffer.clear();
@@ -193,6 +253,42 @@ public abstract class AbstractDeserializer {
 		return false;
 	}
 
+	private boolean readFrameJobID(final ReadableByteChannel readableByteChannel) throws IOException {
+
+		this.frameJobID = this.jobIDDeserializationBuffer.readData(null, readableByteChannel);
+		if (this.frameJobID == null) {
+			return true;
+		}
+
+		this.tempBuffer.position(0);
+		this.tempBuffer.limit(SIZEOFINT);
+		this.deserializationState = DeserializationState.FRAMEJOBIDDESERIALIZED;
+
+		return false;
+	}
+
+	private boolean readNumberOfEnvelopesInFrame(final ReadableByteChannel readableByteChannel) throws IOException {
+
+		if (readableByteChannel.read(this.tempBuffer) == -1) {
+			throw new IOException("Unexpected end of stream while deserializing the batch frame header");
+		}
+
+		if (this.tempBuffer.hasRemaining()) {
+			return true;
+		}
+
+		final int numberOfEnvelopes = byteBufferToInteger(this.tempBuffer, 0);
+		if (numberOfEnvelopes <= 0) {
+			throw new IOException("Received invalid number of envelopes in batch frame: " + numberOfEnvelopes);
+		}
+
+		this.envelopesLeftInFrame = numberOfEnvelopes;
+		this.tempBuffer.clear();
+		this.deserializationState = DeserializationState.NOTDESERIALIZED;
+
+		return false;
+	}
+
 	private boolean readNotificationList(ReadableByteChannel readableByteChannel) throws IOException {
 
 		if (!this.eventListExistanceDeserialized) {
@@ -242,6 +338,67 @@ public abstract class AbstractDeserializer {
 	protected abstract boolean readBufferData(ReadableByteChannel readableByteChannel) throws IOException,
 			NoBufferAvailableException;
 
+	/**
+	 * Requests an empty buffer to store the decompressed data of the current envelope's buffer.
+	 * 
+	 * @param sizeOfBuffer
+	 *        the size of the decompressed data in bytes
+	 * @return the requested buffer or <code>null</code> if the request has been interrupted
+	 * @throws IOException
+	 *         thrown if an I/O error occurred while requesting the buffer
+	 * @throws NoBufferAvailableException
+	 *         thrown if the deserialization process could not be continued due to a lack of buffers
+	 */
+	protected abstract Buffer requestEmptyBuffer(int sizeOfBuffer) throws IOException, NoBufferAvailableException;
+
+	/**
+	 * Reads the compressed data of the current envelope's buffer from the stream and decompresses it into a buffer
+	 * obtained through {@link #requestEmptyBuffer(int)}.
+	 * 
+	 * @param readableByteChannel
+	 *        the stream to read the compressed data from
+	 * @return <code>true</code> if more data need to be read from the stream, <code>false</code> otherwise
+	 * @throws IOException
+	 *         thrown if an I/O error occurred while reading or decompressing the data
+	 * @throws NoBufferAvailableException
+	 *         thrown if the deserialization process could not be continued due to a lack of buffers
+	 */
+	private boolean readCompressedBufferData(final ReadableByteChannel readableByteChannel) throws IOException,
+			NoBufferAvailableException {
+
+		if (this.compressedBufferData.hasRemaining()) {
+
+			if (readableByteChannel.read(this.compressedBufferData) == -1) {
+				throw new IOException("Deserialization error: Expected at least "
+					+ this.compressedBufferData.remaining() + " more bytes to follow");
+			}
+
+			if (this.compressedBufferData.hasRemaining()) {
+				return true;
+			}
+		}
+
+		if (this.buffer == null) {
+			this.buffer = requestEmptyBuffer(this.sizeOfBuffer);
+			if (this.buffer == null) {
+				return true;
+			}
+		}
+
+		if (!this.buffer.isBackedByMemory()) {
+			throw new IOException("Compressed data can only be decompressed into memory-backed buffers");
+		}
+
+		if (this.bufferDecompressor == null) {
+			this.bufferDecompressor = new BufferDecompressor();
+		}
+
+		this.bufferDecompressor.decompress(this.compressedBufferData.array(), this.compressedSizeOfBuffer,
+			(MemoryBuffer) this.buffer);
+
+		return false;
+	}
+
 	private boolean readBuffer(final ReadableByteChannel readableByteChannel) throws IOException,
 			NoBufferAvailableException {
 
@@ -268,8 +425,10 @@ public abstract class AbstractDeserializer {
 
 			if (!this.tempBuffer.hasRemaining()) {
 				this.bufferExistanceDeserialized = true;
+				this.isBufferCompressed = (this.tempBuffer.get(0) == AbstractSerializer.BUFFER_FLAG_COMPRESSED);
 				this.tempBuffer.position(0);
-				this.tempBuffer.limit(SIZEOFINT);
+				// Compressed buffers announce both the uncompressed and the compressed size
+				this.tempBuffer.limit(this.isBufferCompressed ? 2 * SIZEOFINT : SIZEOFINT);
 				if (this.tempBuffer.get(0) == 0) {
 					// No buffer will follow, we are done
 					this.transferEnvelope.setBuffer(null);
@@ -297,12 +456,24 @@ public abstract class AbstractDeserializer {
 				if (this.sizeOfBuffer <= 0) {
 					throw new IOException("Invalid buffer size: " + this.sizeOfBuffer);
 				}
+
+				if (this.isBufferCompressed) {
+					this.compressedSizeOfBuffer = byteBufferToInteger(this.tempBuffer, SIZEOFINT);
+					if (this.compressedSizeOfBuffer <= 0) {
+						throw new IOException("Invalid compressed buffer size: " + this.compressedSizeOfBuffer);
+					}
+					prepareCompressedBufferData(this.compressedSizeOfBuffer);
+				}
 			} else {
 				return true;
 			}
 		}
 
-		if (readBufferData(readableByteChannel)) {
+		if (this.isBufferCompressed) {
+			if (readCompressedBufferData(readableByteChannel)) {
+				return true;
+			}
+		} else if (readBufferData(readableByteChannel)) {
 			return true;
 		}
 
@@ -311,6 +482,18 @@ public abstract class AbstractDeserializer {
 		return false;
 	}
 
+	private void prepareCompressedBufferData(final int compressedSize) {
+
+		// Reserve one extra byte, the decompressor requires a dummy byte at the end of the input
+		if (this.compressedBufferData == null || this.compressedBufferData.capacity() <= compressedSize) {
+			this.compressedBufferData = ByteBuffer.allocate(compressedSize + 1);
+		}
+
+		this.compressedBufferData.clear();
+		this.compressedBufferData.put(compressedSize, (byte) 0);
+		this.compressedBufferData.limit(compressedSize);
+	}
+
 	public TransferEnvelope getFullyDeserializedTransferEnvelope() {
 
 		if (this.deserializationState == DeserializationState.FULLYDESERIALIZED) {
@@ -328,6 +511,19 @@ public abstract class AbstractDeserializer {
 	public void reset() {
 		this.deserializationState = DeserializationState.NOTDESERIALIZED;
 		this.sequenceNumberDeserializationStarted = false;
+		this.envelopesLeftInFrame = 0;
+		this.frameJobID = null;
+	}
+
+	/**
+	 * Checks whether the deserializer is currently demultiplexing a batch frame which contains more envelopes.
+	 * 
+	 * @return <code>true</code> if more envelopes of the current batch frame are to be deserialized,
+	 *         <code>false</code> otherwise
+	 */
+	public boolean hasMoreEnvelopesInFrame() {
+
+		return (this.envelopesLeftInFrame > 0);
 	}
 
 	public boolean hasUnfinishedData() {
@@ -336,6 +532,10 @@ public abstract class AbstractDeserializer {
 			return true;
 		}
 
+		if (this.envelopesLeftInFrame > 0) {
+			return true;
+		}
+
 		return this.channelIDDeserializationBuffer.hasUnfinishedData();
 	}
 
@@ -23,7 +23,11 @@ import eu.stratosphere.nephele.event.task.EventList;
 import eu.stratosphere.nephele.io.AbstractID;
 import eu.stratosphere.nephele.io.IOReadableWritable;
 import eu.stratosphere.nephele.io.channels.Buffer;
+import eu.stratosphere.nephele.io.channels.MemoryBuffer;
 import eu.stratosphere.nephele.io.channels.SerializationBuffer;
+import eu.stratosphere.nephele.io.compression.BufferCompressor;
+import eu.stratosphere.nephele.io.compression.CompressionLevel;
+import eu.stratosphere.nephele.io.compression.CompressionStatistics;
 
 public abstract class AbstractSerializer {
 
@@ -38,6 +42,17 @@ public abstract class AbstractSerializer {
 
 	private final static int SIZEOFINT = 4;
 
+	/**
+	 * The flag announcing that an uncompressed buffer follows.
+	 */
+	static final byte BUFFER_FLAG_UNCOMPRESSED = 1;
+
+	/**
+	 * The flag announcing that a compressed buffer follows. The flag is followed by the uncompressed and the
+	 * compressed size of the buffer.
+	 */
+	static final byte BUFFER_FLAG_COMPRESSED = 2;
+
 	private TransferEnvelope transferEnvelope = null;
 
 	private SerializationState serializationState;
@@ -52,6 +67,16 @@ public abstract class AbstractSerializer {
 
 	private boolean eventListExistanceSerialized = false;
 
+	/**
+	 * The compressor for buffers of envelopes which request compression, created on first use.
+	 */
+	private BufferCompressor bufferCompressor = null;
+
+	/**
+	 * The compressed data of the current envelope's buffer or <code>null</code> if the buffer is sent uncompressed.
+	 */
+	private ByteBuffer compressedBufferData = null;
+
 	public final void setTransferEnvelope(TransferEnvelope transferEnvelope) {
 
 		this.transferEnvelope = transferEnvelope;
@@ -197,6 +222,7 @@ public abstract class AbstractSerializer {
 		this.serializationStarted = false;
 		this.bufferExistanceSerialized = false;
 		this.eventListExistanceSerialized = false;
+		this.compressedBufferData = null;
 	}
 
 	private boolean writeBuffer(WritableByteChannel writableByteChannel, Buffer buffer) throws IOException {
@@ -212,9 +238,16 @@ public abstract class AbstractSerializer {
 						this.tempBuffer.put(0, (byte) 0);
 						this.tempBuffer.limit(1);
 					} else {
-						this.tempBuffer.put(0, (byte) 1);
-						// System.out.println("OUTGOING: Buffer size is " + buffer.size());
-						integerToByteBuffer(buffer.size(), 1, this.tempBuffer);
+						final int compressedSize = compressBuffer(buffer);
+						if (compressedSize < 0) {
+							this.tempBuffer.put(0, BUFFER_FLAG_UNCOMPRESSED);
+							// System.out.println("OUTGOING: Buffer size is " + buffer.size());
+							integerToByteBuffer(buffer.size(), 1, this.tempBuffer);
+						} else {
+							this.tempBuffer.put(0, BUFFER_FLAG_COMPRESSED);
+							integerToByteBuffer(buffer.size(), 1, this.tempBuffer);
+							integerToByteBuffer(compressedSize, 1 + SIZEOFINT, this.tempBuffer);
+						}
 					}
 					this.serializationStarted = true;
 				}
@@ -235,6 +268,18 @@ public abstract class AbstractSerializer {
 
 			} else {
 
+				if (this.compressedBufferData != null) {
+					if (writableByteChannel.write(this.compressedBufferData) == -1) {
+						throw new IOException("Unexpected end of stream while writing compressed buffer data");
+					}
+					if (!this.compressedBufferData.hasRemaining()) {
+						this.compressedBufferData = null;
+						this.serializationState = SerializationState.FULLYSERIALIZED;
+						return false;
+					}
+					return true;
+				}
+
 				if (!writeBufferData(writableByteChannel, buffer)) {
 					this.serializationState = SerializationState.FULLYSERIALIZED;
 					return false;
@@ -245,6 +290,73 @@ public abstract class AbstractSerializer {
 		}
 	}
 
+	/**
+	 * Compresses the data of the given buffer if the current envelope requests compression.
+	 * 
+	 * @param buffer
+	 *        the buffer whose data shall be compressed
+	 * @return the size of the compressed data in bytes or <code>-1</code> if the buffer shall be sent uncompressed
+	 */
+	private int compressBuffer(final Buffer buffer) {
+
+		if (!requestsCompression(this.transferEnvelope)) {
+			return -1;
+		}
+
+		if (this.bufferCompressor == null) {
+			this.bufferCompressor = new BufferCompressor();
+		}
+
+		final long start = System.nanoTime();
+		final int compressedSize = this.bufferCompressor.compress((MemoryBuffer) buffer,
+			this.transferEnvelope.getCompressionLevel());
+		recordCompression(this.transferEnvelope, compressedSize, System.nanoTime() - start);
+
+		if (compressedSize >= 0) {
+			this.compressedBufferData = this.bufferCompressor.getCompressedData();
+		}
+
+		return compressedSize;
+	}
+
+	/**
+	 * Checks whether the buffer of the given envelope shall be compressed before it is sent.
+	 * 
+	 * @param transferEnvelope
+	 *        the envelope to check
+	 * @return <code>true</code> if the envelope carries a memory-backed buffer and requests compression,
+	 *         <code>false</code> otherwise
+	 */
+	static boolean requestsCompression(final TransferEnvelope transferEnvelope) {
+
+		final Buffer buffer = transferEnvelope.getBuffer();
+		if (buffer == null || !buffer.isBackedByMemory()) {
+			return false;
+		}
+
+		return (transferEnvelope.getCompressionLevel() != CompressionLevel.NO_COMPRESSION);
+	}
+
+	/**
+	 * Reports the outcome of compressing the given envelope's buffer to the envelope's compression statistics.
+	 * 
+	 * @param transferEnvelope
+	 *        the envelope whose buffer has been compressed
+	 * @param compressedSize
+	 *        the size of the compressed data in bytes or <code>-1</code> if compression did not pay off
+	 * @param elapsed
+	 *        the time spent on compression in nanoseconds
+	 */
+	static void recordCompression(final TransferEnvelope transferEnvelope, final int compressedSize,
+			final long elapsed) {
+
+		final CompressionStatistics compressionStatistics = transferEnvelope.getCompressionStatistics();
+		if (compressionStatistics != null) {
+			final int size = transferEnvelope.getBuffer().size();
+			compressionStatistics.recordCompression(size, (compressedSize < 0) ? size : compressedSize, elapsed);
+		}
+	}
+
 	/**
 	 * Writes the buffer's actual data.
 	 * 
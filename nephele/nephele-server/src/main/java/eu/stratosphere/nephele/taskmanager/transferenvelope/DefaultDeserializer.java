@@ -47,25 +47,9 @@ public final class DefaultDeserializer extends AbstractDeserializer {
 
 		if (getBuffer() == null) {
 
-			// Find buffer provider for this channel
-			if (!getDeserializedJobID().equals(this.lastDeserializedJobID)
-				|| !getDeserializedSourceID().equals(this.lastDeserializedSourceID)) {
-
-				try {
-					this.bufferProvider = this.bufferProviderBroker.getBufferProvider(getDeserializedJobID(),
-						getDeserializedSourceID());
-				} catch (InterruptedException e) {
-					return true;
-				}
-
-				this.lastDeserializedJobID = getDeserializedJobID();
-				this.lastDeserializedSourceID = getDeserializedSourceID();
-			}
-
-			final Buffer buf = this.bufferProvider.requestEmptyBuffer(getSizeOfBuffer());
-
+			final Buffer buf = requestEmptyBuffer(getSizeOfBuffer());
 			if (buf == null) {
-				throw new NoBufferAvailableException(this.bufferProvider);
+				return true;
 			}
 
 			setBuffer(buf);
@@ -91,6 +75,36 @@ public final class DefaultDeserializer extends AbstractDeserializer {
 		return true;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Buffer requestEmptyBuffer(final int sizeOfBuffer) throws IOException, NoBufferAvailableException {
+
+		// Find buffer provider for this channel
+		if (!getDeserializedJobID().equals(this.lastDeserializedJobID)
+			|| !getDeserializedSourceID().equals(this.lastDeserializedSourceID)) {
+
+			try {
+				this.bufferProvider = this.bufferProviderBroker.getBufferProvider(getDeserializedJobID(),
+					getDeserializedSourceID());
+			} catch (InterruptedException e) {
+				return null;
+			}
+
+			this.lastDeserializedJobID = getDeserializedJobID();
+			this.lastDeserializedSourceID = getDeserializedSourceID();
+		}
+
+		final Buffer buf = this.bufferProvider.requestEmptyBuffer(sizeOfBuffer);
+
+		if (buf == null) {
+			throw new NoBufferAvailableException(this.bufferProvider);
+		}
+
+		return buf;
+	}
+
 	public BufferProvider getBufferProvider() {
 
 		return this.bufferProvider;
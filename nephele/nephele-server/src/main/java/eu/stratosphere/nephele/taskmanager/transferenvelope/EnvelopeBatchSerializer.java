@@ -0,0 +1,332 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.transferenvelope;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import eu.stratosphere.nephele.event.task.EventList;
+import eu.stratosphere.nephele.io.DataOutputBuffer;
+import eu.stratosphere.nephele.io.channels.Buffer;
+import eu.stratosphere.nephele.io.channels.MemoryBuffer;
+import eu.stratosphere.nephele.io.compression.BufferCompressor;
+import eu.stratosphere.nephele.jobgraph.JobID;
+
+/**
+ * This class serializes several small {@link TransferEnvelope} objects of the same job into one batch frame. Within a
+ * frame, the job ID is transmitted only once and the data of the envelopes' buffers is copied into the frame, so the
+ * buffers can be recycled as soon as the envelope has been added.
+ * <p>
+ * A frame has the following layout:
+ *
+ * <pre>
+ * int   BATCH_FRAME_MARKER
+ * ID    job ID (length-prefixed)
+ * int   number of envelopes N
+ * N x   sequence number, source channel ID, event list and buffer in the format of the {@link DefaultSerializer}
+ * </pre>
+ *
+ * Buffers of envelopes which request compression are compressed before they are copied into the frame.
+ *
+ * Since regular envelopes always start with a non-negative sequence number, frames and regular envelopes can be freely
+ * mixed within one byte stream. The {@link AbstractDeserializer} demultiplexes a frame back into the individual
+ * envelopes.
+ * <p>
+ * This class is not thread-safe.
+ *
+ */
+public final class EnvelopeBatchSerializer {
+
+	/**
+	 * The marker which introduces a batch frame in place of a sequence number.
+	 */
+	static final int BATCH_FRAME_MARKER = -1;
+
+	/**
+	 * The estimated number of bytes an envelope without events and buffer occupies within a frame.
+	 */
+	public static final int ESTIMATED_ENVELOPE_OVERHEAD = 32;
+
+	private static final int SIZEOFINT = 4;
+
+	/**
+	 * The buffer the frame is serialized to.
+	 */
+	private final DataOutputBuffer frameBuffer = new DataOutputBuffer(8192);
+
+	/**
+	 * Auxiliary buffer to determine the length of the serialized event lists.
+	 */
+	private final DataOutputBuffer eventListBuffer = new DataOutputBuffer();
+
+	/**
+	 * The compressor for buffers of envelopes which request compression, created on first use.
+	 */
+	private BufferCompressor bufferCompressor = null;
+
+	/**
+	 * The job ID of the envelopes in the current frame or <code>null</code> if no frame has been started.
+	 */
+	private JobID jobID = null;
+
+	/**
+	 * The offset of the envelope counter within the frame.
+	 */
+	private int counterOffset = -1;
+
+	/**
+	 * The number of envelopes in the current frame.
+	 */
+	private int numberOfEnvelopes = 0;
+
+	/**
+	 * Stores whether the current frame has been finished and is ready to be written.
+	 */
+	private boolean isFinished = false;
+
+	/**
+	 * Estimates the number of bytes the given envelope occupies within a frame.
+	 *
+	 * @param transferEnvelope
+	 *        the envelope to estimate the size for
+	 * @return the estimated size of the envelope in bytes
+	 */
+	public static int estimateSize(final TransferEnvelope transferEnvelope) {
+
+		int size = ESTIMATED_ENVELOPE_OVERHEAD;
+
+		final EventList eventList = transferEnvelope.getEventList();
+		if (eventList != null) {
+			size += eventList.size() * ESTIMATED_ENVELOPE_OVERHEAD;
+		}
+
+		final Buffer buffer = transferEnvelope.getBuffer();
+		if (buffer != null) {
+			size += buffer.remaining();
+		}
+
+		return size;
+	}
+
+	/**
+	 * Starts a new frame for envelopes of the given job.
+	 *
+	 * @param jobID
+	 *        the ID of the job the envelopes in the frame belong to
+	 * @throws IOException
+	 *         thrown if an error occurs while serializing the frame header
+	 */
+	public void startFrame(final JobID jobID) throws IOException {
+
+		if (this.jobID != null) {
+			throw new IllegalStateException("Previous frame has not been fully written yet");
+		}
+
+		this.jobID = jobID;
+		this.frameBuffer.reset();
+		this.frameBuffer.writeInt(BATCH_FRAME_MARKER);
+		this.frameBuffer.writeInt(0); // Placeholder for the length of the ID
+		final int idStart = this.frameBuffer.getLength();
+		jobID.write(this.frameBuffer);
+		this.frameBuffer.getData().putInt(idStart - SIZEOFINT, this.frameBuffer.getLength() - idStart);
+		this.counterOffset = this.frameBuffer.getLength();
+		this.frameBuffer.writeInt(0); // Placeholder for the number of envelopes
+		this.numberOfEnvelopes = 0;
+		this.isFinished = false;
+	}
+
+	/**
+	 * Adds the given envelope to the current frame. The data of the envelope's buffer is copied into the frame, the
+	 * buffer itself is not modified and must be recycled by the caller.
+	 *
+	 * @param transferEnvelope
+	 *        the envelope to add
+	 * @throws IOException
+	 *         thrown if an error occurs while serializing the envelope
+	 */
+	public void addTransferEnvelope(final TransferEnvelope transferEnvelope) throws IOException {
+
+		if (this.jobID == null || this.isFinished) {
+			throw new IllegalStateException("No frame has been started");
+		}
+
+		if (!this.jobID.equals(transferEnvelope.getJobID())) {
+			throw new IllegalArgumentException("Envelope belongs to job " + transferEnvelope.getJobID()
+				+ ", but frame has been started for job " + this.jobID);
+		}
+
+		final int sequenceNumber = transferEnvelope.getSequenceNumber();
+		if (sequenceNumber < 0) {
+			throw new IOException("Invalid sequence number: " + sequenceNumber);
+		}
+
+		final DataOutputBuffer dob = this.frameBuffer;
+
+		dob.writeInt(sequenceNumber);
+
+		dob.writeInt(0); // Placeholder for the length of the ID
+		final int idStart = dob.getLength();
+		transferEnvelope.getSource().write(dob);
+		dob.getData().putInt(idStart - SIZEOFINT, dob.getLength() - idStart);
+
+		final EventList eventList = transferEnvelope.getEventList();
+		if (eventList == null) {
+			dob.writeByte(0);
+		} else {
+			dob.writeByte(1);
+			this.eventListBuffer.reset();
+			eventList.write(this.eventListBuffer);
+			final ByteBuffer serializedEventList = this.eventListBuffer.getData();
+			dob.writeInt(serializedEventList.limit());
+			dob.write(serializedEventList.array(), 0, serializedEventList.limit());
+		}
+
+		final Buffer buffer = transferEnvelope.getBuffer();
+		if (buffer == null) {
+			dob.writeByte(0);
+		} else {
+			if (!buffer.isBackedByMemory()) {
+				throw new IOException("Batch frames can only contain memory-backed buffers");
+			}
+			final MemoryBuffer memoryBuffer = (MemoryBuffer) buffer;
+			final int compressedSize = compressBuffer(transferEnvelope);
+			if (compressedSize < 0) {
+				dob.writeByte(AbstractSerializer.BUFFER_FLAG_UNCOMPRESSED);
+				dob.writeInt(memoryBuffer.size());
+				memoryBuffer.getMemorySegment().get(dob, memoryBuffer.position(), memoryBuffer.remaining());
+			} else {
+				dob.writeByte(AbstractSerializer.BUFFER_FLAG_COMPRESSED);
+				dob.writeInt(memoryBuffer.size());
+				dob.writeInt(compressedSize);
+				dob.write(this.bufferCompressor.getCompressedData().array(), 0, compressedSize);
+			}
+		}
+
+		++this.numberOfEnvelopes;
+	}
+
+	/**
+	 * Compresses the buffer of the given envelope if the envelope requests compression.
+	 *
+	 * @param transferEnvelope
+	 *        the envelope whose buffer shall be compressed
+	 * @return the size of the compressed data in bytes or <code>-1</code> if the buffer shall be sent uncompressed
+	 */
+	private int compressBuffer(final TransferEnvelope transferEnvelope) {
+
+		if (!AbstractSerializer.requestsCompression(transferEnvelope)) {
+			return -1;
+		}
+
+		if (this.bufferCompressor == null) {
+			this.bufferCompressor = new BufferCompressor();
+		}
+
+		final long start = System.nanoTime();
+		final int compressedSize = this.bufferCompressor.compress((MemoryBuffer) transferEnvelope.getBuffer(),
+			transferEnvelope.getCompressionLevel());
+		AbstractSerializer.recordCompression(transferEnvelope, compressedSize, System.nanoTime() - start);
+
+		return compressedSize;
+	}
+
+	/**
+	 * Finishes the current frame so it can be written to a channel.
+	 */
+	public void finishFrame() {
+
+		if (this.jobID == null || this.isFinished) {
+			throw new IllegalStateException("No frame has been started");
+		}
+
+		final ByteBuffer data = this.frameBuffer.getData();
+		data.putInt(this.counterOffset, this.numberOfEnvelopes);
+		data.position(0);
+		this.isFinished = true;
+	}
+
+	/**
+	 * Writes as much of the finished frame as possible to the given channel.
+	 *
+	 * @param writableByteChannel
+	 *        the channel to write the frame to
+	 * @return <code>true</code> if the frame has more data to be written, <code>false</code> otherwise
+	 * @throws IOException
+	 *         thrown if an error occurs while writing to the channel
+	 */
+	public boolean write(final WritableByteChannel writableByteChannel) throws IOException {
+
+		if (!this.isFinished) {
+			return false;
+		}
+
+		final ByteBuffer data = this.frameBuffer.getData();
+		if (writableByteChannel.write(data) == -1) {
+			throw new IOException("Unexpected end of stream while writing batch frame");
+		}
+
+		if (data.hasRemaining()) {
+			return true;
+		}
+
+		reset();
+
+		return false;
+	}
+
+	/**
+	 * Checks whether the serializer has a frame which has not been fully written yet.
+	 *
+	 * @return <code>true</code> if the serializer has a pending frame, <code>false</code> otherwise
+	 */
+	public boolean hasPendingFrame() {
+
+		return (this.jobID != null);
+	}
+
+	/**
+	 * Returns the number of envelopes in the current frame.
+	 *
+	 * @return the number of envelopes in the current frame
+	 */
+	public int getNumberOfEnvelopes() {
+
+		return this.numberOfEnvelopes;
+	}
+
+	/**
+	 * Returns the current size of the frame in bytes.
+	 *
+	 * @return the current size of the frame in bytes
+	 */
+	public int getFrameSize() {
+
+		return this.frameBuffer.getLength();
+	}
+
+	/**
+	 * Drops the current frame.
+	 */
+	public void reset() {
+
+		this.jobID = null;
+		this.counterOffset = -1;
+		this.numberOfEnvelopes = 0;
+		this.isFinished = false;
+		this.frameBuffer.reset();
+	}
+}
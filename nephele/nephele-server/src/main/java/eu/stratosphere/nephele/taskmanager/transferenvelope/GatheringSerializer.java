@@ -0,0 +1,377 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.transferenvelope;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+import eu.stratosphere.nephele.event.task.EventList;
+import eu.stratosphere.nephele.io.DataOutputBuffer;
+import eu.stratosphere.nephele.io.channels.Buffer;
+import eu.stratosphere.nephele.io.channels.MemoryBuffer;
+import eu.stratosphere.nephele.io.compression.BufferCompressor;
+
+/**
+ * This class serializes a batch of {@link TransferEnvelope} objects into a byte stream using gathering writes. The
+ * headers of all envelopes in the batch are packed into a single direct byte buffer. Headers and buffer data are then
+ * handed to the channel with a single {@link GatheringByteChannel#write(ByteBuffer[], int, int)} call, so the number
+ * of system calls per envelope drops significantly.
+ * <p>
+ * The produced byte stream is identical to the one produced by the {@link DefaultSerializer}, so the receiving side
+ * does not have to be aware of the serialization mode. Buffers of envelopes which request compression are compressed
+ * into the header buffer right behind the envelope's header, the data of all other buffers is handed to the channel
+ * without being copied.
+ * <p>
+ * This class is not thread-safe.
+ *
+ */
+public final class GatheringSerializer {
+
+	/**
+	 * The default size of the direct buffer holding the envelope headers in bytes.
+	 */
+	public static final int DEFAULT_HEADER_BUFFER_SIZE = 16 * 1024; // 16 KB
+
+	/**
+	 * The default maximum number of envelopes which are serialized in one batch.
+	 */
+	public static final int DEFAULT_MAXIMUM_NUMBER_OF_ENVELOPES = 64;
+
+	private static final int SIZEOFINT = 4;
+
+	/**
+	 * The direct buffer holding the headers of all envelopes in the current batch.
+	 */
+	private ByteBuffer headerBuffer;
+
+	/**
+	 * Auxiliary buffer to serialize the IDs and the event list of an envelope.
+	 */
+	private final DataOutputBuffer dataOutputBuffer = new DataOutputBuffer();
+
+	/**
+	 * The compressor for buffers of envelopes which request compression, created on first use.
+	 */
+	private BufferCompressor bufferCompressor = null;
+
+	/**
+	 * The envelopes of the current batch.
+	 */
+	private final TransferEnvelope[] envelopes;
+
+	/**
+	 * The index of the last byte buffer belonging to the envelope with the same index.
+	 */
+	private final int[] lastByteBufferOfEnvelope;
+
+	/**
+	 * The byte buffers to be handed to the gathering channel, alternating between headers and buffer data.
+	 */
+	private final ByteBuffer[] byteBuffers;
+
+	/**
+	 * The number of envelopes in the current batch.
+	 */
+	private int numberOfEnvelopes = 0;
+
+	/**
+	 * The number of envelopes which have been fully written and already been returned to the caller.
+	 */
+	private int numberOfPolledEnvelopes = 0;
+
+	/**
+	 * The number of byte buffers in the current batch.
+	 */
+	private int numberOfByteBuffers = 0;
+
+	/**
+	 * The index of the first byte buffer which has not been fully written yet.
+	 */
+	private int firstPendingByteBuffer = 0;
+
+	/**
+	 * Constructs a new gathering serializer with the default header buffer size and batch size.
+	 */
+	public GatheringSerializer() {
+		this(DEFAULT_HEADER_BUFFER_SIZE, DEFAULT_MAXIMUM_NUMBER_OF_ENVELOPES);
+	}
+
+	/**
+	 * Constructs a new gathering serializer.
+	 *
+	 * @param headerBufferSize
+	 *        the initial size of the direct buffer holding the envelope headers in bytes
+	 * @param maximumNumberOfEnvelopes
+	 *        the maximum number of envelopes which are serialized in one batch
+	 */
+	public GatheringSerializer(final int headerBufferSize, final int maximumNumberOfEnvelopes) {
+
+		if (maximumNumberOfEnvelopes <= 0) {
+			throw new IllegalArgumentException("Maximum number of envelopes must be greater than zero");
+		}
+
+		this.headerBuffer = ByteBuffer.allocateDirect(headerBufferSize);
+		this.envelopes = new TransferEnvelope[maximumNumberOfEnvelopes];
+		this.lastByteBufferOfEnvelope = new int[maximumNumberOfEnvelopes];
+		this.byteBuffers = new ByteBuffer[2 * maximumNumberOfEnvelopes];
+	}
+
+	/**
+	 * Adds the given {@link TransferEnvelope} to the current batch. Envelopes can only be added as long as the
+	 * transmission of the batch has not started yet.
+	 *
+	 * @param transferEnvelope
+	 *        the envelope to add
+	 * @return <code>true</code> if the envelope has been added to the batch, <code>false</code> if the batch is full
+	 * @throws IOException
+	 *         thrown if an error occurs while serializing the envelope's header
+	 */
+	public boolean addTransferEnvelope(final TransferEnvelope transferEnvelope) throws IOException {
+
+		if (this.numberOfEnvelopes == this.envelopes.length) {
+			return false;
+		}
+
+		if (this.firstPendingByteBuffer > 0 || this.numberOfPolledEnvelopes > 0) {
+			throw new IllegalStateException("Cannot add envelopes after the transmission of the batch has started");
+		}
+
+		final int sequenceNumber = transferEnvelope.getSequenceNumber();
+		if (sequenceNumber < 0) {
+			throw new IOException("Invalid sequence number: " + sequenceNumber);
+		}
+
+		// Serialize the variable-length parts of the header first to determine the header size
+		final DataOutputBuffer dob = this.dataOutputBuffer;
+		dob.reset();
+		transferEnvelope.getJobID().write(dob);
+		final int jobIDLength = dob.getLength();
+		transferEnvelope.getSource().write(dob);
+		final int sourceLength = dob.getLength() - jobIDLength;
+		final EventList eventList = transferEnvelope.getEventList();
+		if (eventList != null) {
+			eventList.write(dob);
+		}
+		final int eventListLength = dob.getLength() - jobIDLength - sourceLength;
+
+		final Buffer buffer = transferEnvelope.getBuffer();
+
+		// Compressed data is stored in the header buffer as well, so compress before checking the remaining space
+		final boolean compress = AbstractSerializer.requestsCompression(transferEnvelope);
+		int compressedSize = -1;
+		long compressionTime = 0L;
+		if (compress) {
+			if (this.bufferCompressor == null) {
+				this.bufferCompressor = new BufferCompressor();
+			}
+			final long start = System.nanoTime();
+			compressedSize = this.bufferCompressor.compress((MemoryBuffer) buffer,
+				transferEnvelope.getCompressionLevel());
+			compressionTime = System.nanoTime() - start;
+		}
+
+		int headerSize = SIZEOFINT + SIZEOFINT + jobIDLength + SIZEOFINT + sourceLength + 1 + 1;
+		if (eventList != null) {
+			headerSize += SIZEOFINT + eventListLength;
+		}
+		if (buffer != null) {
+			headerSize += SIZEOFINT;
+		}
+		if (compressedSize >= 0) {
+			headerSize += SIZEOFINT + compressedSize;
+		}
+
+		if (headerSize > this.headerBuffer.remaining()) {
+
+			if (this.numberOfEnvelopes > 0) {
+				return false;
+			}
+
+			// A single header exceeds the buffer, so grow it
+			int newSize = this.headerBuffer.capacity();
+			while (newSize < headerSize) {
+				newSize <<= 1;
+			}
+			this.headerBuffer = ByteBuffer.allocateDirect(newSize);
+		}
+
+		final byte[] data = dob.getData().array();
+		final int headerStart = this.headerBuffer.position();
+
+		this.headerBuffer.putInt(sequenceNumber);
+		this.headerBuffer.putInt(jobIDLength);
+		this.headerBuffer.put(data, 0, jobIDLength);
+		this.headerBuffer.putInt(sourceLength);
+		this.headerBuffer.put(data, jobIDLength, sourceLength);
+		if (eventList == null) {
+			this.headerBuffer.put((byte) 0);
+		} else {
+			this.headerBuffer.put((byte) 1);
+			this.headerBuffer.putInt(eventListLength);
+			this.headerBuffer.put(data, jobIDLength + sourceLength, eventListLength);
+		}
+		if (buffer == null) {
+			this.headerBuffer.put((byte) 0);
+		} else if (compressedSize < 0) {
+			this.headerBuffer.put(AbstractSerializer.BUFFER_FLAG_UNCOMPRESSED);
+			this.headerBuffer.putInt(buffer.size());
+		} else {
+			this.headerBuffer.put(AbstractSerializer.BUFFER_FLAG_COMPRESSED);
+			this.headerBuffer.putInt(buffer.size());
+			this.headerBuffer.putInt(compressedSize);
+			this.headerBuffer.put(this.bufferCompressor.getCompressedData().array(), 0, compressedSize);
+		}
+
+		// Only report the compression once the envelope has been accepted, rejected envelopes are compressed again
+		if (compress) {
+			AbstractSerializer.recordCompression(transferEnvelope, compressedSize, compressionTime);
+		}
+
+		final ByteBuffer header = this.headerBuffer.duplicate();
+		header.position(headerStart);
+		header.limit(this.headerBuffer.position());
+		this.byteBuffers[this.numberOfByteBuffers++] = header;
+
+		if (buffer != null && compressedSize < 0) {
+			this.byteBuffers[this.numberOfByteBuffers++] = wrapBufferData(buffer);
+		}
+
+		this.envelopes[this.numberOfEnvelopes] = transferEnvelope;
+		this.lastByteBufferOfEnvelope[this.numberOfEnvelopes] = this.numberOfByteBuffers - 1;
+		++this.numberOfEnvelopes;
+
+		return true;
+	}
+
+	/**
+	 * Wraps the readable data of the given buffer in a byte buffer without copying it.
+	 *
+	 * @param buffer
+	 *        the buffer whose data shall be wrapped
+	 * @return the byte buffer wrapping the buffer's data
+	 * @throws IOException
+	 *         thrown if the buffer's data cannot be accessed directly
+	 */
+	private static ByteBuffer wrapBufferData(final Buffer buffer) throws IOException {
+
+		if (!buffer.isBackedByMemory()) {
+			throw new IOException("Gathering writes are only supported for memory-backed buffers");
+		}
+
+		final MemoryBuffer memoryBuffer = (MemoryBuffer) buffer;
+
+		// The memory segment reuses its wrapper object, so take an independent slice
+		return memoryBuffer.getMemorySegment().wrap(memoryBuffer.position(), memoryBuffer.remaining()).slice();
+	}
+
+	/**
+	 * Writes as much of the current batch as possible to the given channel.
+	 *
+	 * @param gatheringByteChannel
+	 *        the channel to write the batch to
+	 * @return <code>true</code> if the batch has more data to be written, <code>false</code> otherwise
+	 * @throws IOException
+	 *         thrown if an error occurs while writing to the channel
+	 */
+	public boolean write(final GatheringByteChannel gatheringByteChannel) throws IOException {
+
+		if (this.firstPendingByteBuffer == this.numberOfByteBuffers) {
+			return false;
+		}
+
+		if (gatheringByteChannel.write(this.byteBuffers, this.firstPendingByteBuffer, this.numberOfByteBuffers
+			- this.firstPendingByteBuffer) == -1) {
+			throw new IOException("Unexpected end of stream while writing transfer envelopes");
+		}
+
+		while (this.firstPendingByteBuffer < this.numberOfByteBuffers
+			&& !this.byteBuffers[this.firstPendingByteBuffer].hasRemaining()) {
+			this.byteBuffers[this.firstPendingByteBuffer++] = null;
+		}
+
+		return (this.firstPendingByteBuffer < this.numberOfByteBuffers);
+	}
+
+	/**
+	 * Returns the next envelope of the current batch which has been fully written to the channel. Once all envelopes
+	 * of the batch have been returned, the serializer is reset and accepts a new batch.
+	 *
+	 * @return the next fully written envelope or <code>null</code> if no such envelope exists
+	 */
+	public TransferEnvelope pollFullyWrittenEnvelope() {
+
+		if (this.numberOfPolledEnvelopes == this.numberOfEnvelopes) {
+			return null;
+		}
+
+		if (this.lastByteBufferOfEnvelope[this.numberOfPolledEnvelopes] >= this.firstPendingByteBuffer) {
+			return null;
+		}
+
+		final TransferEnvelope transferEnvelope = this.envelopes[this.numberOfPolledEnvelopes];
+		this.envelopes[this.numberOfPolledEnvelopes++] = null;
+
+		if (this.numberOfPolledEnvelopes == this.numberOfEnvelopes) {
+			reset();
+		}
+
+		return transferEnvelope;
+	}
+
+	/**
+	 * Checks whether the serializer currently holds any envelopes.
+	 *
+	 * @return <code>true</code> if the serializer holds no envelopes, <code>false</code> otherwise
+	 */
+	public boolean isEmpty() {
+
+		return (this.numberOfEnvelopes == 0);
+	}
+
+	/**
+	 * Drops the current batch and recycles the buffers of all envelopes which have not been returned through
+	 * {@link #pollFullyWrittenEnvelope()} yet.
+	 */
+	public void releaseAllEnvelopes() {
+
+		for (int i = this.numberOfPolledEnvelopes; i < this.numberOfEnvelopes; ++i) {
+			final Buffer buffer = this.envelopes[i].getBuffer();
+			if (buffer != null) {
+				buffer.recycleBuffer();
+			}
+			this.envelopes[i] = null;
+		}
+
+		reset();
+	}
+
+	/**
+	 * Resets the serializer so it accepts a new batch.
+	 */
+	private void reset() {
+
+		for (int i = this.firstPendingByteBuffer; i < this.numberOfByteBuffers; ++i) {
+			this.byteBuffers[i] = null;
+		}
+
+		this.numberOfEnvelopes = 0;
+		this.numberOfPolledEnvelopes = 0;
+		this.numberOfByteBuffers = 0;
+		this.firstPendingByteBuffer = 0;
+		this.headerBuffer.clear();
+	}
+}
@@ -21,6 +21,8 @@ import eu.stratosphere.nephele.event.task.AbstractEvent;
 import eu.stratosphere.nephele.event.task.EventList;
 import eu.stratosphere.nephele.io.channels.Buffer;
 import eu.stratosphere.nephele.io.channels.ChannelID;
+import eu.stratosphere.nephele.io.compression.CompressionLevel;
+import eu.stratosphere.nephele.io.compression.CompressionStatistics;
 import eu.stratosphere.nephele.jobgraph.JobID;
 
 public final class TransferEnvelope {
@@ -35,6 +37,10 @@ public final class TransferEnvelope {
 
 	private Buffer buffer = null;
 
+	private CompressionLevel compressionLevel = CompressionLevel.NO_COMPRESSION;
+
+	private CompressionStatistics compressionStatistics = null;
+
 	public TransferEnvelope(int sequenceNumber, JobID jobID, ChannelID source) {
 		this(sequenceNumber, jobID, source, null);
 	}
@@ -81,11 +87,38 @@ public final class TransferEnvelope {
 		return this.buffer;
 	}
 
+	/**
+	 * Sets the compression level to be applied to the envelope's buffer when it is transported over the network.
+	 * 
+	 * @param compressionLevel
+	 *        the compression level to be applied to the envelope's buffer
+	 * @param compressionStatistics
+	 *        the statistics object to record the compression results in or <code>null</code> if the results shall
+	 *        not be recorded
+	 */
+	public void setCompressionLevel(final CompressionLevel compressionLevel,
+			final CompressionStatistics compressionStatistics) {
+
+		this.compressionLevel = compressionLevel;
+		this.compressionStatistics = compressionStatistics;
+	}
+
+	public CompressionLevel getCompressionLevel() {
+		return this.compressionLevel;
+	}
+
+	public CompressionStatistics getCompressionStatistics() {
+		return this.compressionStatistics;
+	}
+
 	public TransferEnvelope duplicate() throws IOException, InterruptedException {
 
 		final TransferEnvelope duplicatedTransferEnvelope = new TransferEnvelope(this.sequenceNumber, this.jobID,
 			this.source, this.eventList); // No need to duplicate event list
 
+		duplicatedTransferEnvelope.compressionLevel = this.compressionLevel;
+		duplicatedTransferEnvelope.compressionStatistics = this.compressionStatistics;
+
 		if (this.buffer != null) {
 			duplicatedTransferEnvelope.buffer = this.buffer.duplicate();
 		} else {
@@ -100,6 +133,9 @@ public final class TransferEnvelope {
 		final TransferEnvelope duplicatedTransferEnvelope = new TransferEnvelope(this.sequenceNumber, this.jobID,
 			this.source, this.eventList); // No need to duplicate event list
 
+		duplicatedTransferEnvelope.compressionLevel = this.compressionLevel;
+		duplicatedTransferEnvelope.compressionStatistics = this.compressionStatistics;
+
 		duplicatedTransferEnvelope.buffer = null;
 
 		return duplicatedTransferEnvelope;
@@ -54,6 +54,12 @@ public class TransferEnvelopeReceiverList {
 		this.remoteReceivers = Collections.emptyList();
 	}
 
+	public TransferEnvelopeReceiverList(final List<ChannelID> localReceivers) {
+
+		this.localReceivers = Collections.unmodifiableList(new ArrayList<ChannelID>(localReceivers));
+		this.remoteReceivers = Collections.emptyList();
+	}
+
 	public TransferEnvelopeReceiverList(final RemoteReceiver remoteReceiver) {
 
 		final List<RemoteReceiver> rr = new ArrayList<RemoteReceiver>(1);
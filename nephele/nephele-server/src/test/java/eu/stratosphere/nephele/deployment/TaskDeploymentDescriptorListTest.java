@@ -0,0 +1,287 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.deployment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.configuration.Configuration;
+import eu.stratosphere.nephele.execution.librarycache.LibraryCacheManager;
+import eu.stratosphere.nephele.executiongraph.ExecutionVertexID;
+import eu.stratosphere.nephele.io.IOReadableWritable;
+import eu.stratosphere.nephele.io.library.FileLineReader;
+import eu.stratosphere.nephele.io.library.FileLineWriter;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.util.SerializableArrayList;
+import eu.stratosphere.nephele.util.StringUtils;
+
+/**
+ * This class contains unit tests for the {@link TaskDeploymentDescriptorList} class.
+ */
+public class TaskDeploymentDescriptorListTest {
+
+	/**
+	 * The number of subtasks of each group vertex used in the tests.
+	 */
+	private static final int NUMBER_OF_SUBTASKS = 8;
+
+	/**
+	 * The shared data cache of the receiving task manager.
+	 */
+	private final SharedDeploymentDataCache cache = new SharedDeploymentDataCache();
+
+	/**
+	 * The ID of the job the test descriptors belong to.
+	 */
+	private final JobID jobID = new JobID();
+
+	/**
+	 * The configuration of the job the test descriptors belong to.
+	 */
+	private final Configuration jobConfiguration = new Configuration();
+
+	/**
+	 * The task configuration of the first group vertex.
+	 */
+	private final Configuration readerConfiguration = new Configuration();
+
+	/**
+	 * The task configuration of the second group vertex.
+	 */
+	private final Configuration writerConfiguration = new Configuration();
+
+	/**
+	 * Tests that the descriptors of a list are restored correctly and that the shared data is written only once.
+	 */
+	@Test
+	public void testSerialization() {
+
+		try {
+			final TaskDeploymentDescriptorList orig = createList(new HashSet<String>());
+			final TaskDeploymentDescriptorList copy = new TaskDeploymentDescriptorList();
+			final int size = transmit(orig, copy);
+
+			// The received descriptors are only complete once their shared data has been resolved
+			assertTrue(copy.isEmpty());
+			copy.resolveSharedData(this.cache);
+
+			assertEquals(2, orig.getSharedDataKeys().size());
+			for (final String key : orig.getSharedDataKeys()) {
+				assertNotNull(this.cache.get(key));
+			}
+			assertEquals(orig.size(), copy.size());
+			assertTrue(copy.getVerticesWithMissingData().isEmpty());
+			checkCopy(orig, copy);
+
+			// The compact form must be smaller than the individually serialized descriptors
+			final SerializableArrayList<TaskDeploymentDescriptor> plain = new SerializableArrayList<TaskDeploymentDescriptor>();
+			plain.addAll(orig);
+			assertTrue(size < transmit(plain, new SerializableArrayList<TaskDeploymentDescriptor>()));
+
+			// Tasks must not share configuration objects, even if their shared data is deserialized only once
+			assertFalse(copy.get(0).getTaskConfiguration() == copy.get(1).getTaskConfiguration());
+			assertFalse(copy.get(0).getTaskConfiguration() == copy.get(2).getTaskConfiguration());
+			assertFalse(copy.get(0).getJobConfiguration() == copy.get(2).getJobConfiguration());
+
+		} catch (IOException ioe) {
+			fail(StringUtils.stringifyException(ioe));
+		}
+	}
+
+	/**
+	 * Tests that only the keys of the shared data are transmitted if the receiver caches the shared data already.
+	 */
+	@Test
+	public void testCachedSharedData() {
+
+		try {
+			final TaskDeploymentDescriptorList first = createList(new HashSet<String>());
+			final TaskDeploymentDescriptorList firstCopy = new TaskDeploymentDescriptorList();
+			final int fullSize = transmit(first, firstCopy);
+			firstCopy.resolveSharedData(this.cache);
+
+			final TaskDeploymentDescriptorList second = createList(first.getSharedDataKeys());
+			final TaskDeploymentDescriptorList copy = new TaskDeploymentDescriptorList();
+			final int compactSize = transmit(second, copy);
+			copy.resolveSharedData(this.cache);
+
+			assertTrue(compactSize < fullSize);
+			assertEquals(second.size(), copy.size());
+			assertTrue(copy.getVerticesWithMissingData().isEmpty());
+			checkCopy(second, copy);
+
+		} catch (IOException ioe) {
+			fail(StringUtils.stringifyException(ioe));
+		}
+	}
+
+	/**
+	 * Tests that the vertices are reported if the receiver no longer caches their shared data.
+	 */
+	@Test
+	public void testMissingSharedData() {
+
+		try {
+			final TaskDeploymentDescriptorList first = createList(new HashSet<String>());
+			final TaskDeploymentDescriptorList firstCopy = new TaskDeploymentDescriptorList();
+			transmit(first, firstCopy);
+			firstCopy.resolveSharedData(this.cache);
+
+			this.cache.clear();
+
+			final TaskDeploymentDescriptorList second = createList(first.getSharedDataKeys());
+			final TaskDeploymentDescriptorList copy = new TaskDeploymentDescriptorList();
+			transmit(second, copy);
+			copy.resolveSharedData(this.cache);
+
+			assertTrue(copy.isEmpty());
+			assertEquals(second.size(), copy.getVerticesWithMissingData().size());
+			for (int i = 0; i < second.size(); ++i) {
+				assertEquals(second.get(i).getVertexID(), copy.getVerticesWithMissingData().get(i));
+			}
+
+		} catch (IOException ioe) {
+			fail(StringUtils.stringifyException(ioe));
+		}
+	}
+
+	/**
+	 * Tests that the shared data cache evicts the least recently used entries once it exceeds its maximum size.
+	 */
+	@Test
+	public void testCacheEviction() {
+
+		final SharedDeploymentDataCache smallCache = new SharedDeploymentDataCache(100);
+		final byte[] data = new byte[40];
+
+		smallCache.put("a", data);
+		smallCache.put("b", data);
+		assertNotNull(smallCache.get("a"));
+		smallCache.put("c", data);
+
+		// Key b has been used least recently, the cached data must not be copied
+		assertNull(smallCache.get("b"));
+		assertTrue(smallCache.get("a") == data);
+		assertNotNull(smallCache.get("c"));
+		assertEquals(80, smallCache.getSize());
+
+		// An entry larger than the cache is still kept until the next entry is added
+		smallCache.put("d", new byte[200]);
+		assertNotNull(smallCache.get("d"));
+		assertEquals(200, smallCache.getSize());
+	}
+
+	/**
+	 * Creates a list with the descriptors of two group vertices.
+	 * 
+	 * @param cachedKeys
+	 *        the keys of the shared data the receiver is known to cache
+	 * @return the list with the descriptors
+	 * @throws IOException
+	 *         thrown if the job cannot be registered with the library cache manager
+	 */
+	private TaskDeploymentDescriptorList createList(final Set<String> cachedKeys) throws IOException {
+
+		LibraryCacheManager.register(this.jobID, new String[] {});
+
+		this.jobConfiguration.setString("job.key", "job value");
+		this.readerConfiguration.setString("reader.key", "reader value");
+		this.writerConfiguration.setString("writer.key", "writer value");
+
+		final TaskDeploymentDescriptorList list = new TaskDeploymentDescriptorList(cachedKeys);
+		for (int i = 0; i < NUMBER_OF_SUBTASKS; ++i) {
+			list.add(new TaskDeploymentDescriptor(this.jobID, new ExecutionVertexID(), "reader", i,
+				NUMBER_OF_SUBTASKS, this.jobConfiguration, this.readerConfiguration, FileLineReader.class,
+				new SerializableArrayList<GateDeploymentDescriptor>(), new SerializableArrayList<GateDeploymentDescriptor>(),
+				null));
+			list.add(new TaskDeploymentDescriptor(this.jobID, new ExecutionVertexID(), "writer", i,
+				NUMBER_OF_SUBTASKS, this.jobConfiguration, this.writerConfiguration, FileLineWriter.class,
+				new SerializableArrayList<GateDeploymentDescriptor>(), new SerializableArrayList<GateDeploymentDescriptor>(),
+				null));
+		}
+
+		return list;
+	}
+
+	/**
+	 * Writes the given object and reads the written data into the given copy.
+	 * 
+	 * @param orig
+	 *        the object to write
+	 * @param copy
+	 *        the object to read the written data into
+	 * @return the number of bytes written
+	 * @throws IOException
+	 *         thrown if an error occurs while writing or reading the object
+	 */
+	private static int transmit(final IOReadableWritable orig, final IOReadableWritable copy) throws IOException {
+
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final DataOutputStream dos = new DataOutputStream(baos);
+		orig.write(dos);
+		dos.flush();
+
+		final byte[] data = baos.toByteArray();
+		copy.read(new DataInputStream(new ByteArrayInputStream(data)));
+
+		return data.length;
+	}
+
+	/**
+	 * Checks that the given copy contains the same descriptors as the original list.
+	 * 
+	 * @param orig
+	 *        the original list
+	 * @param copy
+	 *        the copy of the list
+	 */
+	private static void checkCopy(final TaskDeploymentDescriptorList orig, final TaskDeploymentDescriptorList copy) {
+
+		for (int i = 0; i < orig.size(); ++i) {
+
+			final TaskDeploymentDescriptor o = orig.get(i);
+			final TaskDeploymentDescriptor c = copy.get(i);
+
+			assertEquals(o.getJobID(), c.getJobID());
+			assertEquals(o.getVertexID(), c.getVertexID());
+			assertEquals(o.getTaskName(), c.getTaskName());
+			assertEquals(o.getIndexInSubtaskGroup(), c.getIndexInSubtaskGroup());
+			assertEquals(o.getCurrentNumberOfSubtasks(), c.getCurrentNumberOfSubtasks());
+			assertEquals(o.getInvokableClass(), c.getInvokableClass());
+			assertEquals(o.getJobConfiguration().getString("job.key", null),
+				c.getJobConfiguration().getString("job.key", null));
+			assertEquals(o.getTaskConfiguration().getString("reader.key", null),
+				c.getTaskConfiguration().getString("reader.key", null));
+			assertEquals(o.getTaskConfiguration().getString("writer.key", null),
+				c.getTaskConfiguration().getString("writer.key", null));
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.instance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.jobgraph.JobID;
+
+/**
+ * This class contains tests for the bookkeeping of the shared deployment data in the {@link AbstractInstance} class.
+ * 
+ */
+public class AbstractInstanceTest {
+
+	/**
+	 * Checks that the keys of the shared deployment data are tracked per job and are dropped once the job has left.
+	 */
+	@Test
+	public void testDeploymentDataKeys() {
+
+		final AbstractInstance instance = DummyInstance.createDummyInstance(InstanceTypeFactory.construct("test", 1, 1,
+			1024, 1024, 10));
+		final JobID jobA = new JobID();
+		final JobID jobB = new JobID();
+
+		instance.addDeploymentDataKeys(jobA, new HashSet<String>(Arrays.asList("a1", "a2")));
+		instance.addDeploymentDataKeys(jobA, new HashSet<String>(Arrays.asList("a3")));
+		instance.addDeploymentDataKeys(jobB, new HashSet<String>(Arrays.asList("b1")));
+
+		assertEquals(new HashSet<String>(Arrays.asList("a1", "a2", "a3")), instance.getDeploymentDataKeys(jobA));
+		assertEquals(new HashSet<String>(Arrays.asList("b1")), instance.getDeploymentDataKeys(jobB));
+
+		// The returned set is a copy
+		final Set<String> keys = instance.getDeploymentDataKeys(jobB);
+		keys.add("b2");
+		assertEquals(1, instance.getDeploymentDataKeys(jobB).size());
+
+		instance.removeDeploymentDataKeys(jobA);
+		assertTrue(instance.getDeploymentDataKeys(jobA).isEmpty());
+		assertEquals(1, instance.getDeploymentDataKeys(jobB).size());
+	}
+}
@@ -0,0 +1,186 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import eu.stratosphere.nephele.io.channels.AbstractInputChannel;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.types.IntegerRecord;
+
+/**
+ * This class contains tests covering the batched reading of records by the {@link RuntimeInputGate}.
+ * 
+ */
+public class RuntimeInputGateTest {
+
+	/**
+	 * A source of records backing a mocked input channel.
+	 * <p>
+	 * This class is not thread-safe.
+	 * 
+	 */
+	private static final class RecordSource {
+
+		private final Queue<IntegerRecord> records = new ArrayDeque<IntegerRecord>();
+
+		private boolean closed = false;
+
+		private IntegerRecord readRecord() throws EOFException {
+
+			final IntegerRecord record = this.records.poll();
+			if (record == null && this.closed) {
+				throw new EOFException();
+			}
+
+			return record;
+		}
+	}
+
+	/**
+	 * Checks that a batch drains the channel which provided the first record and ends as soon as that channel runs
+	 * dry, so the next batch continues with the next available channel.
+	 */
+	@Test
+	public void testBatchedRead() throws IOException, InterruptedException {
+
+		final RecordSource[] sources = createSources(5, 3);
+		final RuntimeInputGate<IntegerRecord> inputGate = createGate(sources);
+		inputGate.notifyRecordIsAvailable(0);
+		inputGate.notifyRecordIsAvailable(1);
+
+		final IntegerRecord[] targets = new IntegerRecord[8];
+		assertEquals(5, inputGate.readRecords(targets));
+		for (int i = 0; i < 5; ++i) {
+			assertEquals(i, targets[i].getValue());
+		}
+
+		assertEquals(3, inputGate.readRecords(targets));
+		for (int i = 0; i < 3; ++i) {
+			assertEquals(100 + i, targets[i].getValue());
+		}
+
+		assertFalse(inputGate.hasRecordAvailable());
+		assertEquals(0, inputGate.readRecords(new IntegerRecord[0]));
+	}
+
+	/**
+	 * Checks that a batch never exceeds the length of the array and that the remaining records of the channel are
+	 * returned by the next batch without waiting for a new notification.
+	 */
+	@Test
+	public void testBatchLimitedByArray() throws IOException, InterruptedException {
+
+		final RecordSource[] sources = createSources(5);
+		final RuntimeInputGate<IntegerRecord> inputGate = createGate(sources);
+		inputGate.notifyRecordIsAvailable(0);
+
+		final IntegerRecord[] targets = new IntegerRecord[3];
+		assertEquals(3, inputGate.readRecords(targets));
+		assertEquals(2, targets[2].getValue());
+
+		assertTrue(inputGate.hasRecordAvailable());
+		assertEquals(2, inputGate.readRecords(targets));
+		assertEquals(3, targets[0].getValue());
+		assertEquals(4, targets[1].getValue());
+	}
+
+	/**
+	 * Checks that a batch returns the records read before the channels were closed and that the next batch reports
+	 * the end of the input.
+	 */
+	@Test
+	public void testBatchedReadAfterClose() throws IOException, InterruptedException {
+
+		final RecordSource[] sources = createSources(2);
+		sources[0].closed = true;
+		final RuntimeInputGate<IntegerRecord> inputGate = createGate(sources);
+		inputGate.notifyRecordIsAvailable(0);
+
+		final IntegerRecord[] targets = new IntegerRecord[8];
+		assertEquals(2, inputGate.readRecords(targets));
+		assertEquals(1, targets[1].getValue());
+		assertEquals(0, inputGate.readRecords(targets));
+		assertTrue(inputGate.isClosed());
+	}
+
+	private static RecordSource[] createSources(final int... numberOfRecords) {
+
+		final RecordSource[] sources = new RecordSource[numberOfRecords.length];
+		for (int i = 0; i < numberOfRecords.length; ++i) {
+			sources[i] = new RecordSource();
+			for (int j = 0; j < numberOfRecords[i]; ++j) {
+				sources[i].records.add(new IntegerRecord(100 * i + j));
+			}
+		}
+
+		return sources;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static RuntimeInputGate<IntegerRecord> createGate(final RecordSource[] sources) throws IOException {
+
+		final AbstractInputChannel<IntegerRecord>[] channels = new AbstractInputChannel[sources.length];
+		for (int i = 0; i < sources.length; ++i) {
+			final RecordSource source = sources[i];
+			channels[i] = mock(AbstractInputChannel.class);
+			when(channels[i].readRecord(any(IntegerRecord.class))).thenAnswer(new Answer<IntegerRecord>() {
+
+				@Override
+				public IntegerRecord answer(final InvocationOnMock invocation) throws EOFException {
+					return source.readRecord();
+				}
+			});
+		}
+
+		return new RuntimeInputGate<IntegerRecord>(new JobID(), new GateID(), null, 0) {
+
+			@Override
+			public int getNumberOfInputChannels() {
+				return channels.length;
+			}
+
+			@Override
+			public AbstractInputChannel<IntegerRecord> getInputChannel(final int pos) {
+				return channels[pos];
+			}
+
+			@Override
+			public boolean isClosed() {
+				for (final RecordSource source : sources) {
+					if (!source.closed || !source.records.isEmpty()) {
+						return false;
+					}
+				}
+				return true;
+			}
+		};
+	}
+}
@@ -0,0 +1,264 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.event.task.AbstractEvent;
+import eu.stratosphere.nephele.io.channels.Buffer;
+import eu.stratosphere.nephele.io.channels.BufferFactory;
+import eu.stratosphere.nephele.io.channels.ChannelID;
+import eu.stratosphere.nephele.io.channels.ChannelType;
+import eu.stratosphere.nephele.io.channels.bytebuffered.ByteBufferedOutputChannelBroker;
+import eu.stratosphere.nephele.io.channels.bytebuffered.InMemoryOutputChannel;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+import eu.stratosphere.nephele.types.StringRecord;
+import eu.stratosphere.nephele.util.BufferPoolConnector;
+
+/**
+ * This class contains tests covering the distribution of records by the {@link RuntimeOutputGate}.
+ * 
+ */
+public class RuntimeOutputGateTest {
+
+	/**
+	 * The size of the test buffers in bytes.
+	 */
+	private static final int BUFFER_SIZE = 1024;
+
+	/**
+	 * The number of output channels attached to the test gates.
+	 */
+	private static final int NUMBER_OF_CHANNELS = 4;
+
+	/**
+	 * The number of records written to the test gates.
+	 */
+	private static final int NUMBER_OF_RECORDS = 1000;
+
+	/**
+	 * A {@link ByteBufferedOutputChannelBroker} which counts the bytes written by its channel.
+	 * <p>
+	 * This class is not thread-safe.
+	 * 
+	 */
+	private static final class CountingOutputChannelBroker implements ByteBufferedOutputChannelBroker {
+
+		private final Queue<MemorySegment> bufferPool = new ArrayDeque<MemorySegment>();
+
+		private int numberOfBytes = 0;
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Buffer requestEmptyWriteBuffer() {
+
+			MemorySegment segment = this.bufferPool.poll();
+			if (segment == null) {
+				segment = new MemorySegment(new byte[BUFFER_SIZE]);
+			}
+
+			return BufferFactory.createFromMemory(BUFFER_SIZE, segment, new BufferPoolConnector(this.bufferPool));
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void releaseWriteBuffer(final Buffer buffer) {
+
+			buffer.flip();
+			this.numberOfBytes += buffer.size();
+			buffer.recycleBuffer();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean hasDataLeftToTransmit() {
+
+			return false;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void transferEventToInputChannel(final AbstractEvent event) {
+
+			throw new IllegalStateException("transferEventToInputChannel called");
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void limitBufferSize(final int bufferSize) {
+
+			throw new IllegalStateException("limitBufferSize called");
+		}
+	}
+
+	/**
+	 * Checks that an in-memory broadcast gate writes each record to every output channel by default.
+	 */
+	@Test
+	public void testInMemoryBroadcast() throws IOException, InterruptedException {
+
+		final CountingOutputChannelBroker[] brokers = broadcast(false);
+
+		assertTrue(brokers[0].numberOfBytes > 0);
+		for (int i = 1; i < NUMBER_OF_CHANNELS; ++i) {
+			assertEquals(brokers[0].numberOfBytes, brokers[i].numberOfBytes);
+		}
+	}
+
+	/**
+	 * Checks that an in-memory broadcast gate writes each record to its first output channel only if broadcast records
+	 * are serialized once.
+	 */
+	@Test
+	public void testInMemoryBroadcastSerializedOnce() throws IOException, InterruptedException {
+
+		final CountingOutputChannelBroker[] brokers = broadcast(true);
+
+		assertTrue(brokers[0].numberOfBytes > 0);
+		for (int i = 1; i < NUMBER_OF_CHANNELS; ++i) {
+			assertEquals(0, brokers[i].numberOfBytes);
+		}
+	}
+
+	/**
+	 * Checks that writing records in batches distributes them to the output channels exactly like writing them one by
+	 * one.
+	 */
+	@Test
+	public void testBatchedWrite() throws IOException, InterruptedException {
+
+		final CountingOutputChannelBroker[] singleBrokers = new CountingOutputChannelBroker[NUMBER_OF_CHANNELS];
+		final RuntimeOutputGate<StringRecord> singleGate = createPartitioningGate(singleBrokers);
+		final CountingOutputChannelBroker[] batchBrokers = new CountingOutputChannelBroker[NUMBER_OF_CHANNELS];
+		final RuntimeOutputGate<StringRecord> batchGate = createPartitioningGate(batchBrokers);
+
+		final StringRecord[] batch = new StringRecord[7];
+		int numberOfRecordsInBatch = 0;
+		for (int i = 0; i < NUMBER_OF_RECORDS; ++i) {
+			final StringRecord record = new StringRecord("Record " + i);
+			singleGate.writeRecord(record);
+			batch[numberOfRecordsInBatch++] = record;
+			if (numberOfRecordsInBatch == batch.length) {
+				batchGate.writeRecords(batch, numberOfRecordsInBatch);
+				numberOfRecordsInBatch = 0;
+			}
+		}
+		batchGate.writeRecords(batch, numberOfRecordsInBatch);
+		singleGate.flush();
+		batchGate.flush();
+
+		for (int i = 0; i < NUMBER_OF_CHANNELS; ++i) {
+			assertTrue(singleBrokers[i].numberOfBytes > 0);
+			assertEquals(singleBrokers[i].numberOfBytes, batchBrokers[i].numberOfBytes);
+		}
+	}
+
+	/**
+	 * Checks that a batch is rejected if the number of records exceeds the length of the array or is negative.
+	 */
+	@Test
+	public void testBatchSizeValidation() throws IOException, InterruptedException {
+
+		final CountingOutputChannelBroker[] brokers = new CountingOutputChannelBroker[NUMBER_OF_CHANNELS];
+		final RuntimeOutputGate<StringRecord> outputGate = createPartitioningGate(brokers);
+		final StringRecord[] batch = new StringRecord[] { new StringRecord("Record") };
+
+		for (final int numberOfRecords : new int[] { -1, batch.length + 1 }) {
+			try {
+				outputGate.writeRecords(batch, numberOfRecords);
+				fail("Expected IllegalArgumentException");
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+
+		outputGate.writeRecords(batch, batch.length);
+		outputGate.flush();
+
+		int numberOfBytes = 0;
+		for (final CountingOutputChannelBroker broker : brokers) {
+			numberOfBytes += broker.numberOfBytes;
+		}
+		assertTrue(numberOfBytes > 0);
+	}
+
+	private static RuntimeOutputGate<StringRecord> createPartitioningGate(final CountingOutputChannelBroker[] brokers) {
+
+		final RuntimeOutputGate<StringRecord> outputGate = new RuntimeOutputGate<StringRecord>(new JobID(),
+			new GateID(), StringRecord.class, 0, new HashChannelSelector<StringRecord>(
+				new KeyExtractor<StringRecord>() {
+
+					@Override
+					public int getKeyHash(final StringRecord record) {
+						return record.hashCode();
+					}
+				}), false, false);
+		outputGate.setChannelType(ChannelType.INMEMORY);
+
+		for (int i = 0; i < brokers.length; ++i) {
+			final InMemoryOutputChannel<StringRecord> outputChannel = outputGate.createInMemoryOutputChannel(
+				outputGate, new ChannelID(), new ChannelID());
+			brokers[i] = new CountingOutputChannelBroker();
+			outputChannel.setByteBufferedOutputChannelBroker(brokers[i]);
+		}
+
+		return outputGate;
+	}
+
+	private static CountingOutputChannelBroker[] broadcast(final boolean serializeBroadcastOnce) throws IOException,
+			InterruptedException {
+
+		final RuntimeOutputGate<StringRecord> outputGate = new RuntimeOutputGate<StringRecord>(new JobID(),
+			new GateID(), StringRecord.class, 0, null, true, serializeBroadcastOnce);
+		outputGate.setChannelType(ChannelType.INMEMORY);
+
+		final CountingOutputChannelBroker[] brokers = new CountingOutputChannelBroker[NUMBER_OF_CHANNELS];
+		for (int i = 0; i < NUMBER_OF_CHANNELS; ++i) {
+			final InMemoryOutputChannel<StringRecord> outputChannel = outputGate.createInMemoryOutputChannel(
+				outputGate, new ChannelID(), new ChannelID());
+			brokers[i] = new CountingOutputChannelBroker();
+			outputChannel.setByteBufferedOutputChannelBroker(brokers[i]);
+		}
+
+		final StringRecord record = new StringRecord();
+		for (int i = 0; i < NUMBER_OF_RECORDS; ++i) {
+			record.set("Record " + i);
+			outputGate.writeRecord(record);
+		}
+		outputGate.flush();
+
+		return brokers;
+	}
+}
@@ -0,0 +1,107 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.io.channels;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import eu.stratosphere.nephele.io.channels.DirectSerializationTest.PayloadRecord;
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+import eu.stratosphere.nephele.util.BufferPoolConnector;
+
+/**
+ * Compares the throughput of serializing records directly into the memory segments of write buffers with the regular
+ * serialization through the {@link SerializationBuffer}, which copies each record into the write buffer afterwards.
+ *
+ */
+public class DirectSerializationBenchmark {
+
+	private static final int[] PAYLOAD_SIZES = { 16, 256, 4096, 100000 };
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final long BYTES_PER_RUN = 512L * 1024L * 1024L;
+
+	private static final int ROUNDS = 3;
+
+	public static void main(final String[] args) throws IOException {
+
+		final Random random = new Random(42L);
+
+		for (int round = 0; round < ROUNDS; ++round) {
+			for (final int payloadSize : PAYLOAD_SIZES) {
+
+				final byte[] payload = new byte[payloadSize];
+				random.nextBytes(payload);
+				final PayloadRecord record = new PayloadRecord(payload);
+				final int numberOfRecords = (int) (BYTES_PER_RUN / (payloadSize + 8));
+
+				final long elapsedRegular = runBenchmark(record, numberOfRecords, false);
+				final long elapsedDirect = runBenchmark(record, numberOfRecords, true);
+
+				System.out.println(String.format(
+					"Round %d, %,d records with %d byte payload: regular=%,d msecs, direct=%,d msecs.", round,
+					numberOfRecords, payloadSize, elapsedRegular, elapsedDirect));
+			}
+		}
+	}
+
+	private static long runBenchmark(final PayloadRecord record, final int numberOfRecords, final boolean direct)
+			throws IOException {
+
+		final MemorySegment segment = new MemorySegment(new byte[BUFFER_SIZE]);
+		final BufferPoolConnector bufferPoolConnector = new BufferPoolConnector(new ArrayDeque<MemorySegment>());
+		final SerializationBuffer<PayloadRecord> serializationBuffer = new SerializationBuffer<PayloadRecord>();
+
+		long numberOfBuffers = 0L;
+		Buffer buffer = BufferFactory.createFromMemory(BUFFER_SIZE, segment, bufferPoolConnector);
+
+		final long start = System.currentTimeMillis();
+
+		for (int i = 0; i < numberOfRecords; ++i) {
+
+			// Mirror the way the byte-buffered output channels fill their write buffers
+			if (direct) {
+				serializationBuffer.serialize(record, buffer);
+			} else {
+				serializationBuffer.serialize(record);
+			}
+
+			while (serializationBuffer.dataLeftFromPreviousSerialization()) {
+				serializationBuffer.read(buffer);
+				if (buffer.remaining() == 0) {
+					buffer = BufferFactory.createFromMemory(BUFFER_SIZE, segment, bufferPoolConnector);
+					++numberOfBuffers;
+				}
+			}
+
+			if (buffer.remaining() == 0) {
+				buffer = BufferFactory.createFromMemory(BUFFER_SIZE, segment, bufferPoolConnector);
+				++numberOfBuffers;
+			}
+		}
+
+		final long elapsed = System.currentTimeMillis() - start;
+
+		if (numberOfBuffers == 0L) {
+			System.out.println("No buffer has been filled");
+		}
+
+		return elapsed;
+	}
+}
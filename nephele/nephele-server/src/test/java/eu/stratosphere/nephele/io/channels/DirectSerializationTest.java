@@ -0,0 +1,235 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.io.channels;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.io.IOReadableWritable;
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+import eu.stratosphere.nephele.util.BufferPoolConnector;
+
+/**
+ * This class checks that records serialized directly into the memory segments of {@link MemoryBuffer} objects by the
+ * {@link SerializationBuffer} produce the same byte stream as the regular serialization and that the
+ * {@link DefaultDeserializer} restores them, both from a byte stream and directly from the buffers' memory segments.
+ * 
+ */
+public class DirectSerializationTest {
+
+	/**
+	 * The size of the memory segments backing the test buffers in bytes.
+	 */
+	private static final int SEGMENT_SIZE = 128;
+
+	/**
+	 * The number of records to serialize in each test.
+	 */
+	private static final int NUMBER_OF_RECORDS = 2000;
+
+	/**
+	 * A record with a payload of variable length.
+	 * 
+	 */
+	public static final class PayloadRecord implements IOReadableWritable {
+
+		private byte[] payload;
+
+		public PayloadRecord() {
+			this.payload = new byte[0];
+		}
+
+		public PayloadRecord(final byte[] payload) {
+			this.payload = payload;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void write(final DataOutput out) throws IOException {
+
+			out.writeInt(this.payload.length);
+			out.write(this.payload);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void read(final DataInput in) throws IOException {
+
+			this.payload = new byte[in.readInt()];
+			in.readFully(this.payload);
+		}
+	}
+
+	/**
+	 * Checks that small records, which mostly fit into the remaining space of a buffer, are serialized correctly.
+	 */
+	@Test
+	public void testSmallRecords() throws IOException {
+
+		testRecords(generateRecords(SEGMENT_SIZE / 4), SEGMENT_SIZE);
+	}
+
+	/**
+	 * Checks that records spanning several buffers are serialized correctly.
+	 */
+	@Test
+	public void testLargeRecords() throws IOException {
+
+		testRecords(generateRecords(SEGMENT_SIZE * 3), SEGMENT_SIZE);
+	}
+
+	/**
+	 * Checks that records are serialized correctly into buffers whose limit is smaller than the backing segment.
+	 */
+	@Test
+	public void testLimitedBuffers() throws IOException {
+
+		testRecords(generateRecords(SEGMENT_SIZE), SEGMENT_SIZE - 27);
+	}
+
+	private static List<PayloadRecord> generateRecords(final int maximumPayloadSize) {
+
+		final Random random = new Random(42L);
+		final List<PayloadRecord> records = new ArrayList<PayloadRecord>(NUMBER_OF_RECORDS);
+		for (int i = 0; i < NUMBER_OF_RECORDS; ++i) {
+			final byte[] payload = new byte[random.nextInt(maximumPayloadSize + 1)];
+			random.nextBytes(payload);
+			records.add(new PayloadRecord(payload));
+		}
+
+		return records;
+	}
+
+	private static void testRecords(final List<PayloadRecord> records, final int bufferSize) throws IOException {
+
+		final Queue<MemorySegment> bufferPool = new LinkedBlockingQueue<MemorySegment>();
+		final BufferPoolConnector bufferPoolConnector = new BufferPoolConnector(bufferPool);
+
+		// Serialize the records directly into the buffers, the same way the output channels do
+		final ByteArrayOutputStream direct = new ByteArrayOutputStream();
+		final WritableByteChannel directChannel = Channels.newChannel(direct);
+		final SerializationBuffer<PayloadRecord> directSerializationBuffer = new SerializationBuffer<PayloadRecord>();
+		final List<Buffer> buffers = new ArrayList<Buffer>();
+		Buffer buffer = createBuffer(bufferPool, bufferPoolConnector, bufferSize);
+		for (final PayloadRecord record : records) {
+			directSerializationBuffer.serialize(record, buffer);
+			while (directSerializationBuffer.dataLeftFromPreviousSerialization()) {
+				directSerializationBuffer.read(buffer);
+				if (buffer.remaining() == 0) {
+					buffer.flip();
+					buffers.add(buffer);
+					buffer = createBuffer(bufferPool, bufferPoolConnector, bufferSize);
+				}
+			}
+		}
+		buffer.flip();
+		buffers.add(buffer);
+
+		for (final Buffer b : buffers) {
+			copyBuffer(b, directChannel);
+		}
+
+		// Serialize the records the regular way
+		final ByteArrayOutputStream regular = new ByteArrayOutputStream();
+		final WritableByteChannel regularChannel = Channels.newChannel(regular);
+		final SerializationBuffer<PayloadRecord> regularSerializationBuffer = new SerializationBuffer<PayloadRecord>();
+		for (final PayloadRecord record : records) {
+			regularSerializationBuffer.serialize(record);
+			while (regularSerializationBuffer.dataLeftFromPreviousSerialization()) {
+				regularSerializationBuffer.read(regularChannel);
+			}
+		}
+
+		assertArrayEquals(regular.toByteArray(), direct.toByteArray());
+
+		final ReadableByteChannel readableChannel = Channels.newChannel(new ByteArrayInputStream(direct.toByteArray()));
+		final DefaultDeserializer<PayloadRecord> deserializer = new DefaultDeserializer<PayloadRecord>(
+			PayloadRecord.class);
+		for (final PayloadRecord record : records) {
+			final PayloadRecord result = deserializer.readData(null, readableChannel);
+			assertNotNull(result);
+			assertArrayEquals(record.payload, result.payload);
+		}
+		assertFalse(deserializer.hasUnfinishedData());
+
+		// Deserialize the records from the buffers, the same way the input channels do
+		final DefaultDeserializer<PayloadRecord> bufferDeserializer = new DefaultDeserializer<PayloadRecord>(
+			PayloadRecord.class);
+		final Iterator<Buffer> it = buffers.iterator();
+		Buffer readBuffer = it.next();
+		for (final PayloadRecord record : records) {
+			PayloadRecord result = null;
+			while (result == null) {
+				if (readBuffer.remaining() == 0) {
+					readBuffer.recycleBuffer();
+					readBuffer = it.next();
+				}
+				result = bufferDeserializer.readData(null, readBuffer);
+			}
+			assertArrayEquals(record.payload, result.payload);
+		}
+		assertEquals(0, readBuffer.remaining());
+		assertFalse(it.hasNext());
+		assertFalse(bufferDeserializer.hasUnfinishedData());
+		readBuffer.recycleBuffer();
+	}
+
+	private static Buffer createBuffer(final Queue<MemorySegment> bufferPool,
+			final BufferPoolConnector bufferPoolConnector, final int bufferSize) {
+
+		MemorySegment segment = bufferPool.poll();
+		if (segment == null) {
+			segment = new MemorySegment(new byte[SEGMENT_SIZE]);
+		}
+
+		return BufferFactory.createFromMemory(bufferSize, segment, bufferPoolConnector);
+	}
+
+	private static void copyBuffer(final Buffer buffer, final WritableByteChannel writableByteChannel)
+			throws IOException {
+
+		final ByteBuffer data = ByteBuffer.allocate(buffer.size());
+		buffer.read(data);
+		assertEquals(buffer.size(), data.position());
+		buffer.position(0);
+		data.flip();
+		writableByteChannel.write(data);
+	}
+}
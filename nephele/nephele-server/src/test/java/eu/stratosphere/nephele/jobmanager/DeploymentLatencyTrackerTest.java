@@ -0,0 +1,65 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.jobmanager;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.instance.InstanceConnectionInfo;
+
+/**
+ * This class contains tests for the {@link DeploymentLatencyTracker}.
+ * 
+ */
+public class DeploymentLatencyTrackerTest {
+
+	/**
+	 * Checks that the latencies of the deployments are tracked per task manager.
+	 * 
+	 * @throws UnknownHostException
+	 *         thrown if the local host address cannot be determined
+	 */
+	@Test
+	public void testLatenciesPerInstance() throws UnknownHostException {
+
+		final InstanceConnectionInfo first = new InstanceConnectionInfo(InetAddress.getLocalHost(), 1, 1);
+		final InstanceConnectionInfo second = new InstanceConnectionInfo(InetAddress.getLocalHost(), 2, 2);
+		final DeploymentLatencyTracker tracker = new DeploymentLatencyTracker();
+
+		assertEquals(-1L, tracker.getAverageLatency());
+		assertEquals(-1L, tracker.getAverageLatency(first));
+		assertEquals(0, tracker.getNumberOfDeployments(first));
+
+		tracker.reportDeployment(first, 10, 20L);
+		tracker.reportDeployment(first, 5, 40L);
+		tracker.reportDeployment(second, 100, 300L);
+
+		assertEquals(2, tracker.getNumberOfDeployments(first));
+		assertEquals(15, tracker.getNumberOfDeployedTasks(first));
+		assertEquals(30L, tracker.getAverageLatency(first));
+		assertEquals(40L, tracker.getMaximumLatency(first));
+
+		assertEquals(1, tracker.getNumberOfDeployments(second));
+		assertEquals(300L, tracker.getMaximumLatency(second));
+
+		assertEquals(120L, tracker.getAverageLatency());
+	}
+}
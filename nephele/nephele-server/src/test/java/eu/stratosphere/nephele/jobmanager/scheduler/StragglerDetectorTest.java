@@ -0,0 +1,133 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.jobmanager.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.executiongraph.ExecutionVertexID;
+
+/**
+ * This class contains tests for the {@link StragglerDetector}.
+ */
+public class StragglerDetectorTest {
+
+	/**
+	 * Checks that stragglers are only reported once enough subtasks have finished and that they are ordered by their
+	 * running time.
+	 */
+	@Test
+	public void testDetectStragglers() {
+
+		final StragglerDetector detector = new StragglerDetector(150, 50);
+		final ExecutionVertexID[] ids = new ExecutionVertexID[4];
+		for (int i = 0; i < ids.length; ++i) {
+			ids[i] = new ExecutionVertexID();
+		}
+
+		detector.subtaskStarted(ids[0], 0L);
+		detector.subtaskStarted(ids[1], 0L);
+		detector.subtaskStarted(ids[2], 0L);
+		detector.subtaskStarted(ids[3], 100L);
+
+		// Nothing has finished yet
+		assertTrue(detector.getStragglers(4, 10000L).isEmpty());
+
+		// One out of four subtasks is below the minimum of 50 percent
+		detector.subtaskFinished(ids[0], 100L, 1);
+		assertTrue(detector.getStragglers(4, 10000L).isEmpty());
+
+		// Median running time is 200, so subtasks running longer than 300 are stragglers
+		detector.subtaskFinished(ids[1], 200L, 1);
+		assertTrue(detector.getStragglers(4, 300L).isEmpty());
+
+		final List<ExecutionVertexID> stragglers = detector.getStragglers(4, 350L);
+		assertEquals(1, stragglers.size());
+		assertEquals(ids[2], stragglers.get(0));
+
+		final List<ExecutionVertexID> allStragglers = detector.getStragglers(4, 1000L);
+		assertEquals(2, allStragglers.size());
+		assertEquals(ids[2], allStragglers.get(0));
+		assertEquals(ids[3], allStragglers.get(1));
+	}
+
+	/**
+	 * Checks that a straggler is reported only once, even after it has been restarted, and that canceled subtasks are
+	 * no longer considered.
+	 */
+	@Test
+	public void testReportStragglerOnlyOnce() {
+
+		final StragglerDetector detector = new StragglerDetector(150, 0);
+		final ExecutionVertexID finished = new ExecutionVertexID();
+		final ExecutionVertexID straggler = new ExecutionVertexID();
+		final ExecutionVertexID canceled = new ExecutionVertexID();
+
+		detector.subtaskStarted(finished, 0L);
+		detector.subtaskStarted(straggler, 0L);
+		detector.subtaskStarted(canceled, 0L);
+		detector.subtaskFinished(finished, 100L, 1);
+		detector.subtaskStopped(canceled);
+
+		List<ExecutionVertexID> stragglers = detector.getStragglers(3, 500L);
+		assertEquals(1, stragglers.size());
+		assertEquals(straggler, stragglers.get(0));
+
+		detector.markAsReported(straggler);
+		detector.subtaskStopped(straggler);
+		detector.subtaskStarted(straggler, 500L);
+
+		stragglers = detector.getStragglers(3, 5000L);
+		assertTrue(stragglers.isEmpty());
+	}
+
+	/**
+	 * Checks that relocating a straggler is only considered worthwhile if its estimated remaining time exceeds the
+	 * time it takes to replay its input splits.
+	 */
+	@Test
+	public void testRelocationWorthwhile() {
+
+		final StragglerDetector detector = new StragglerDetector(150, 0);
+		final ExecutionVertexID finished = new ExecutionVertexID();
+		final ExecutionVertexID straggler = new ExecutionVertexID();
+
+		detector.subtaskStarted(finished, 0L);
+		detector.subtaskStarted(straggler, 0L);
+
+		// Without a measured time per input split, a relocation is only worthwhile if nothing is lost
+		assertFalse(detector.isRelocationWorthwhile(straggler, 1, 1000L));
+		assertTrue(detector.isRelocationWorthwhile(straggler, 0, 1000L));
+
+		// The finished subtask needed 100 per input split
+		detector.subtaskFinished(finished, 400L, 4);
+
+		// A single input split after 1000 is expected to take longer than replaying it
+		assertTrue(detector.isRelocationWorthwhile(straggler, 1, 1000L));
+
+		// Five input splits take 500 to replay, but the straggler is expected to need only 200 more
+		assertFalse(detector.isRelocationWorthwhile(straggler, 5, 1000L));
+
+		// Subtasks which are not running are never relocated
+		assertFalse(detector.isRelocationWorthwhile(finished, 1, 1000L));
+	}
+}
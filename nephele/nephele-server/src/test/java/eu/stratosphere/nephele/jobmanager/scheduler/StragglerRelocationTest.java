@@ -0,0 +1,582 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.jobmanager.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.stratosphere.nephele.configuration.Configuration;
+import eu.stratosphere.nephele.configuration.GlobalConfiguration;
+import eu.stratosphere.nephele.execution.ExecutionState;
+import eu.stratosphere.nephele.execution.librarycache.LibraryCacheManager;
+import eu.stratosphere.nephele.executiongraph.ExecutionGraph;
+import eu.stratosphere.nephele.executiongraph.ExecutionGraphIterator;
+import eu.stratosphere.nephele.executiongraph.ExecutionGroupVertex;
+import eu.stratosphere.nephele.executiongraph.ExecutionGroupVertexIterator;
+import eu.stratosphere.nephele.executiongraph.ExecutionVertex;
+import eu.stratosphere.nephele.executiongraph.GraphConversionException;
+import eu.stratosphere.nephele.executiongraph.InternalJobStatus;
+import eu.stratosphere.nephele.fs.Path;
+import eu.stratosphere.nephele.instance.AllocatedResource;
+import eu.stratosphere.nephele.instance.InstanceException;
+import eu.stratosphere.nephele.instance.InstanceManager;
+import eu.stratosphere.nephele.io.channels.ChannelType;
+import eu.stratosphere.nephele.io.library.FileLineReader;
+import eu.stratosphere.nephele.io.library.FileLineWriter;
+import eu.stratosphere.nephele.jobgraph.JobFileInputVertex;
+import eu.stratosphere.nephele.jobgraph.JobFileOutputVertex;
+import eu.stratosphere.nephele.jobgraph.JobGraph;
+import eu.stratosphere.nephele.jobgraph.JobGraphDefinitionException;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.jobmanager.DeploymentManager;
+import eu.stratosphere.nephele.jobmanager.splitassigner.InputSplitManager;
+import eu.stratosphere.nephele.template.InputSplit;
+import eu.stratosphere.nephele.util.ServerTestUtils;
+import eu.stratosphere.nephele.util.StringUtils;
+
+/**
+ * This class checks the relocation of straggling file input vertices by the {@link AbstractScheduler}. The job reads
+ * four input splits with two input subtasks, the first of which finishes early while the second one straggles.
+ */
+public class StragglerRelocationTest {
+
+	/**
+	 * The number of input files, each of which results in one input split.
+	 */
+	private static final int NUMBER_OF_INPUT_FILES = 4;
+
+	/**
+	 * The time the fast input subtask starts running.
+	 */
+	private static final long FAST_START_TIME = 700L;
+
+	/**
+	 * The time the fast input subtask finishes.
+	 */
+	private static final long FAST_FINISH_TIME = 1000L;
+
+	/**
+	 * A scheduler whose clock is set by the tests.
+	 */
+	private static final class TestScheduler extends AbstractScheduler {
+
+		/**
+		 * The current time in milliseconds.
+		 */
+		private volatile long currentTime = 0L;
+
+		/**
+		 * Constructs a new test scheduler.
+		 * 
+		 * @param deploymentManager
+		 *        the deployment manager assigned to this scheduler
+		 * @param instanceManager
+		 *        the instance manager to be used with this scheduler
+		 */
+		TestScheduler(final DeploymentManager deploymentManager, final InstanceManager instanceManager) {
+			super(deploymentManager, instanceManager);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void schedulJob(final ExecutionGraph executionGraph) throws SchedulingException {
+
+			final Iterator<ExecutionVertex> it = new ExecutionGraphIterator(executionGraph, true);
+			while (it.hasNext()) {
+				final ExecutionVertex vertex = it.next();
+				vertex.registerExecutionListener(new TestExecutionListener(this, vertex));
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public ExecutionGraph getExecutionGraphByID(final JobID jobID) {
+
+			return null;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void shutdown() {
+			// Nothing to do here
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		long getCurrentTime() {
+
+			return this.currentTime;
+		}
+
+		/**
+		 * Sets the current time in milliseconds.
+		 * 
+		 * @param currentTime
+		 *        the current time in milliseconds
+		 */
+		void setCurrentTime(final long currentTime) {
+
+			this.currentTime = currentTime;
+		}
+	}
+
+	/**
+	 * The execution listener registered by the {@link TestScheduler}.
+	 */
+	private static final class TestExecutionListener extends AbstractExecutionListener {
+
+		/**
+		 * Constructs a new test execution listener.
+		 * 
+		 * @param scheduler
+		 *        the scheduler this listener is connected with
+		 * @param executionVertex
+		 *        the execution vertex this listener is created for
+		 */
+		TestExecutionListener(final AbstractScheduler scheduler, final ExecutionVertex executionVertex) {
+			super(scheduler, executionVertex);
+		}
+	}
+
+	/**
+	 * The directory containing the input files.
+	 */
+	private File inputDirectory;
+
+	/**
+	 * The execution graph of the job.
+	 */
+	private ExecutionGraph executionGraph;
+
+	/**
+	 * The cluster serving as both the instance manager and the deployment manager in the tests.
+	 */
+	private TestCluster cluster;
+
+	/**
+	 * The scheduler under test.
+	 */
+	private TestScheduler scheduler;
+
+	/**
+	 * The input split manager serving the input splits of the job.
+	 */
+	private InputSplitManager inputSplitManager;
+
+	/**
+	 * The instances of the fast input subtask, the straggler and the output subtask, in this order.
+	 */
+	private final TestCluster.TestInstance[] instances = new TestCluster.TestInstance[3];
+
+	/**
+	 * The resources of the fast input subtask, the straggler and the output subtask, in this order.
+	 */
+	private final AllocatedResource[] resources = new AllocatedResource[3];
+
+	/**
+	 * The input subtask which finishes early.
+	 */
+	private ExecutionVertex fastVertex;
+
+	/**
+	 * The input subtask which straggles.
+	 */
+	private ExecutionVertex straggler;
+
+	/**
+	 * Creates the job, assigns a resource to each of its subtasks and lets all subtasks run. The straggler starts
+	 * running at time 0, the fast input subtask at {@link #FAST_START_TIME}.
+	 */
+	@Before
+	public void startJob() {
+
+		try {
+			final String directoryName = ServerTestUtils.getRandomFilename();
+			this.inputDirectory = new File(ServerTestUtils.getTempDir() + File.separator + directoryName);
+			assertTrue(this.inputDirectory.mkdir());
+			for (int i = 0; i < NUMBER_OF_INPUT_FILES; ++i) {
+				ServerTestUtils.createInputFile(directoryName, 100);
+			}
+
+			final JobGraph jobGraph = new JobGraph("Straggler Relocation Job");
+
+			final JobFileInputVertex input = new JobFileInputVertex("Input", jobGraph);
+			input.setFileInputClass(FileLineReader.class);
+			input.setFilePath(new Path(this.inputDirectory.toURI()));
+			input.setNumberOfSubtasks(2);
+
+			final JobFileOutputVertex output = new JobFileOutputVertex("Output", jobGraph);
+			output.setFileOutputClass(FileLineWriter.class);
+			output.setFilePath(new Path(new File(ServerTestUtils.getRandomFilename()).toURI()));
+			output.setNumberOfSubtasks(1);
+
+			input.connectTo(output, ChannelType.NETWORK);
+
+			LibraryCacheManager.register(jobGraph.getJobID(), new String[0]);
+
+			this.cluster = new TestCluster(this.instances.length);
+			this.executionGraph = new ExecutionGraph(jobGraph, this.cluster);
+
+		} catch (GraphConversionException e) {
+			fail(StringUtils.stringifyException(e));
+		} catch (JobGraphDefinitionException e) {
+			fail(StringUtils.stringifyException(e));
+		} catch (IOException e) {
+			fail(StringUtils.stringifyException(e));
+		}
+
+		final Configuration conf = new Configuration();
+		conf.setBoolean("jobmanager.scheduler.relocation.enable", true);
+		GlobalConfiguration.includeConfiguration(conf);
+		this.scheduler = new TestScheduler(this.cluster, this.cluster);
+		conf.setBoolean("jobmanager.scheduler.relocation.enable", false);
+		GlobalConfiguration.includeConfiguration(conf);
+
+		try {
+			this.scheduler.schedulJob(this.executionGraph);
+		} catch (SchedulingException e) {
+			fail(StringUtils.stringifyException(e));
+		}
+
+		this.inputSplitManager = new InputSplitManager();
+		this.inputSplitManager.registerJob(this.executionGraph);
+		this.scheduler.setInputSplitManager(this.inputSplitManager);
+
+		for (int i = 0; i < this.instances.length; ++i) {
+			try {
+				this.resources[i] = this.cluster.allocateSlice(this.executionGraph.getJobID());
+			} catch (InstanceException e) {
+				fail(StringUtils.stringifyException(e));
+			}
+			this.instances[i] = (TestCluster.TestInstance) this.resources[i].getInstance();
+		}
+
+		final ExecutionGroupVertex inputGroupVertex = getGroupVertex("Input");
+		assertEquals(NUMBER_OF_INPUT_FILES, inputGroupVertex.getInputSplits().length);
+
+		this.fastVertex = inputGroupVertex.getGroupMember(0);
+		this.straggler = inputGroupVertex.getGroupMember(1);
+		final ExecutionVertex outputVertex = getGroupVertex("Output").getGroupMember(0);
+
+		this.fastVertex.setAllocatedResource(this.resources[0]);
+		this.straggler.setAllocatedResource(this.resources[1]);
+		outputVertex.setAllocatedResource(this.resources[2]);
+
+		this.fastVertex.updateExecutionState(ExecutionState.SCHEDULED);
+		this.straggler.updateExecutionState(ExecutionState.SCHEDULED);
+		outputVertex.updateExecutionState(ExecutionState.SCHEDULED);
+
+		run(this.straggler, 0L);
+		run(outputVertex, 0L);
+		run(this.fastVertex, FAST_START_TIME);
+
+		assertEquals(InternalJobStatus.RUNNING, this.executionGraph.getJobStatus());
+	}
+
+	/**
+	 * Removes the job and its input files.
+	 */
+	@After
+	public void removeJob() {
+
+		if (this.inputSplitManager != null) {
+			this.inputSplitManager.unregisterJob(this.executionGraph);
+		}
+
+		if (this.executionGraph != null) {
+			try {
+				LibraryCacheManager.unregister(this.executionGraph.getJobID());
+			} catch (IOException ioe) {
+				// Ignore exception here
+			}
+		}
+
+		if (this.inputDirectory != null) {
+			final File[] inputFiles = this.inputDirectory.listFiles();
+			if (inputFiles != null) {
+				for (final File inputFile : inputFiles) {
+					inputFile.delete();
+				}
+			}
+			this.inputDirectory.delete();
+		}
+	}
+
+	/**
+	 * Checks that a straggler is canceled at its task manager once the fast input subtask is finishing and restarted
+	 * on the resource of the fast input subtask after it has switched to <code>CANCELED</code>.
+	 */
+	@Test
+	public void testCancelAndRestartOnNewResource() {
+
+		requestInputSplits(this.straggler, 1);
+		finishReading(this.fastVertex, NUMBER_OF_INPUT_FILES - 1);
+
+		relocateStraggler();
+
+		// The resource of the fast input subtask is kept for the straggler
+		this.fastVertex.updateExecutionState(ExecutionState.FINISHED);
+		assertTrue(this.cluster.getReturnedResources().isEmpty());
+
+		this.straggler.updateExecutionState(ExecutionState.CANCELING);
+		this.straggler.updateExecutionState(ExecutionState.CANCELED);
+
+		assertEquals(this.instances[0], this.cluster.getDeploymentTarget(this.straggler));
+		assertEquals(ExecutionState.READY, this.straggler.getExecutionState());
+		assertEquals(this.resources[0], this.straggler.getAllocatedResource());
+		assertTrue(this.scheduler.getVerticesToBeRestarted().isEmpty());
+		assertEquals(InternalJobStatus.RUNNING, this.executionGraph.getJobStatus());
+	}
+
+	/**
+	 * Checks that a straggler which finishes before the cancel request takes effect is not restarted and that both
+	 * its original and its designated resource are released.
+	 */
+	@Test
+	public void testStragglerFinishesBeforeCancel() {
+
+		requestInputSplits(this.straggler, 1);
+		finishReading(this.fastVertex, NUMBER_OF_INPUT_FILES - 1);
+
+		relocateStraggler();
+
+		this.fastVertex.updateExecutionState(ExecutionState.FINISHED);
+
+		// The task completes at the task manager before the cancel request arrives
+		this.straggler.updateExecutionState(ExecutionState.FINISHING);
+		this.straggler.updateExecutionState(ExecutionState.FINISHED);
+
+		assertEquals(ExecutionState.FINISHED, this.straggler.getExecutionState());
+		assertNull(this.cluster.getDeploymentTarget(this.straggler));
+		assertTrue(this.scheduler.getVerticesToBeRestarted().isEmpty());
+
+		final List<AllocatedResource> releasedResources = this.cluster.getReturnedResources();
+		assertEquals(2, releasedResources.size());
+		assertEquals(this.resources[1], releasedResources.get(0));
+		assertEquals(this.resources[0], releasedResources.get(1));
+	}
+
+	/**
+	 * Checks that the resource a straggler is moved away from is kept until the straggler has been canceled and is
+	 * released exactly once afterwards.
+	 */
+	@Test
+	public void testReleaseOfSourceResource() {
+
+		requestInputSplits(this.straggler, 1);
+		finishReading(this.fastVertex, NUMBER_OF_INPUT_FILES - 1);
+
+		relocateStraggler();
+
+		this.fastVertex.updateExecutionState(ExecutionState.FINISHED);
+
+		// The straggler is still running on its original resource
+		this.scheduler.checkAndReleaseAllocatedResource(this.executionGraph, this.resources[1]);
+		assertTrue(this.cluster.getReturnedResources().isEmpty());
+
+		this.straggler.updateExecutionState(ExecutionState.CANCELING);
+		this.straggler.updateExecutionState(ExecutionState.CANCELED);
+
+		List<AllocatedResource> releasedResources = this.cluster.getReturnedResources();
+		assertEquals(1, releasedResources.size());
+		assertEquals(this.resources[1], releasedResources.get(0));
+
+		// The restarted straggler returns the resource it has been moved to
+		run(this.straggler, 2000L);
+		this.straggler.updateExecutionState(ExecutionState.FINISHING);
+		this.straggler.updateExecutionState(ExecutionState.FINISHED);
+
+		releasedResources = this.cluster.getReturnedResources();
+		assertEquals(2, releasedResources.size());
+		assertEquals(this.resources[0], releasedResources.get(1));
+	}
+
+	/**
+	 * Checks that the restarted straggler receives the same input splits as before from the input split log while the
+	 * {@link eu.stratosphere.nephele.jobmanager.splitassigner.file.FileInputSplitList} hands out no input split twice.
+	 */
+	@Test
+	public void testInputSplitReplay() {
+
+		final List<InputSplit> stragglerSplits = requestInputSplits(this.straggler, 1);
+		final List<InputSplit> fastSplits = finishReading(this.fastVertex, NUMBER_OF_INPUT_FILES - 1);
+
+		relocateStraggler();
+
+		this.fastVertex.updateExecutionState(ExecutionState.FINISHED);
+		this.straggler.updateExecutionState(ExecutionState.CANCELING);
+		this.straggler.updateExecutionState(ExecutionState.CANCELED);
+
+		run(this.straggler, 2000L);
+		assertEquals(1, this.inputSplitManager.getNumberOfAssignedInputSplits(this.straggler));
+
+		final InputSplit replayedSplit = this.inputSplitManager.getNextInputSplit(this.straggler, 0);
+		assertNotNull(replayedSplit);
+		assertEquals(stragglerSplits.get(0).getSplitNumber(), replayedSplit.getSplitNumber());
+		assertNull(this.inputSplitManager.getNextInputSplit(this.straggler, 1));
+
+		final Set<Integer> splitNumbers = new HashSet<Integer>();
+		splitNumbers.add(Integer.valueOf(replayedSplit.getSplitNumber()));
+		for (final InputSplit inputSplit : fastSplits) {
+			assertTrue(splitNumbers.add(Integer.valueOf(inputSplit.getSplitNumber())));
+		}
+		assertEquals(NUMBER_OF_INPUT_FILES, splitNumbers.size());
+	}
+
+	/**
+	 * Checks that a straggler is left alone if replaying its input splits is expected to take longer than letting it
+	 * complete its current input split.
+	 */
+	@Test
+	public void testNoRelocationIfRestartTakesLonger() {
+
+		requestInputSplits(this.straggler, NUMBER_OF_INPUT_FILES - 1);
+		finishReading(this.fastVertex, 1);
+
+		this.scheduler.setCurrentTime(FAST_FINISH_TIME);
+		this.fastVertex.updateExecutionState(ExecutionState.FINISHING);
+
+		assertTrue(this.instances[1].getCanceledVertices().isEmpty());
+		assertEquals(this.resources[1], this.straggler.getAllocatedResource());
+
+		this.fastVertex.updateExecutionState(ExecutionState.FINISHED);
+
+		final List<AllocatedResource> releasedResources = this.cluster.getReturnedResources();
+		assertEquals(1, releasedResources.size());
+		assertEquals(this.resources[0], releasedResources.get(0));
+	}
+
+	/**
+	 * Lets the fast input subtask finish at {@link #FAST_FINISH_TIME} and checks that the straggler has been canceled
+	 * at its task manager and moved to the resource of the fast input subtask.
+	 */
+	private void relocateStraggler() {
+
+		this.scheduler.setCurrentTime(FAST_FINISH_TIME);
+		this.fastVertex.updateExecutionState(ExecutionState.FINISHING);
+
+		assertEquals(1, this.instances[1].getCanceledVertices().size());
+		assertEquals(this.straggler.getID(), this.instances[1].getCanceledVertices().get(0));
+		assertEquals(ExecutionState.RUNNING, this.straggler.getExecutionState());
+		assertEquals(this.resources[0], this.straggler.getAllocatedResource());
+	}
+
+	/**
+	 * Requests the given number of input splits for the given vertex.
+	 * 
+	 * @param vertex
+	 *        the vertex to request the input splits for
+	 * @param numberOfInputSplits
+	 *        the number of input splits to request
+	 * @return the input splits the vertex has received
+	 */
+	private List<InputSplit> requestInputSplits(final ExecutionVertex vertex, final int numberOfInputSplits) {
+
+		final List<InputSplit> inputSplits = new ArrayList<InputSplit>();
+		for (int i = 0; i < numberOfInputSplits; ++i) {
+			final InputSplit inputSplit = this.inputSplitManager.getNextInputSplit(vertex, i);
+			assertNotNull(inputSplit);
+			inputSplits.add(inputSplit);
+		}
+
+		return inputSplits;
+	}
+
+	/**
+	 * Requests the given number of input splits for the given vertex and checks that no more input splits are left.
+	 * 
+	 * @param vertex
+	 *        the vertex to request the input splits for
+	 * @param numberOfInputSplits
+	 *        the number of input splits to request
+	 * @return the input splits the vertex has received
+	 */
+	private List<InputSplit> finishReading(final ExecutionVertex vertex, final int numberOfInputSplits) {
+
+		final List<InputSplit> inputSplits = requestInputSplits(vertex, numberOfInputSplits);
+		assertNull(this.inputSplitManager.getNextInputSplit(vertex, numberOfInputSplits));
+
+		return inputSplits;
+	}
+
+	/**
+	 * Runs the given vertex through the deployment states until it is running at the given time.
+	 * 
+	 * @param vertex
+	 *        the vertex to run
+	 * @param time
+	 *        the time the vertex starts running
+	 */
+	private void run(final ExecutionVertex vertex, final long time) {
+
+		this.scheduler.setCurrentTime(time);
+
+		if (vertex.getExecutionState() == ExecutionState.SCHEDULED) {
+			vertex.updateExecutionState(ExecutionState.ASSIGNED);
+		}
+		if (vertex.getExecutionState() == ExecutionState.ASSIGNED) {
+			vertex.updateExecutionState(ExecutionState.READY);
+		}
+		vertex.updateExecutionState(ExecutionState.STARTING);
+		vertex.updateExecutionState(ExecutionState.RUNNING);
+	}
+
+	/**
+	 * Returns the group vertex with the given name.
+	 * 
+	 * @param name
+	 *        the name of the group vertex
+	 * @return the group vertex with the given name
+	 */
+	private ExecutionGroupVertex getGroupVertex(final String name) {
+
+		final Iterator<ExecutionGroupVertex> it = new ExecutionGroupVertexIterator(this.executionGraph, true, -1);
+		while (it.hasNext()) {
+			final ExecutionGroupVertex groupVertex = it.next();
+			if (name.equals(groupVertex.getName())) {
+				return groupVertex;
+			}
+		}
+
+		fail("Cannot find group vertex " + name);
+
+		return null;
+	}
+}
@@ -0,0 +1,670 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.jobmanager.scheduler;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import eu.stratosphere.nephele.configuration.Configuration;
+import eu.stratosphere.nephele.executiongraph.ExecutionVertex;
+import eu.stratosphere.nephele.executiongraph.ExecutionVertexID;
+import eu.stratosphere.nephele.instance.AbstractInstance;
+import eu.stratosphere.nephele.instance.AllocatedResource;
+import eu.stratosphere.nephele.instance.AllocationID;
+import eu.stratosphere.nephele.instance.HardwareDescription;
+import eu.stratosphere.nephele.instance.HardwareDescriptionFactory;
+import eu.stratosphere.nephele.instance.InstanceConnectionInfo;
+import eu.stratosphere.nephele.instance.InstanceException;
+import eu.stratosphere.nephele.instance.InstanceListener;
+import eu.stratosphere.nephele.instance.InstanceManager;
+import eu.stratosphere.nephele.instance.InstanceRequestMap;
+import eu.stratosphere.nephele.instance.InstanceType;
+import eu.stratosphere.nephele.instance.InstanceTypeDescription;
+import eu.stratosphere.nephele.instance.InstanceTypeDescriptionFactory;
+import eu.stratosphere.nephele.instance.InstanceTypeFactory;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.jobmanager.DeploymentManager;
+import eu.stratosphere.nephele.taskmanager.AbstractTaskResult.ReturnCode;
+import eu.stratosphere.nephele.taskmanager.TaskCancelResult;
+import eu.stratosphere.nephele.topology.NetworkTopology;
+import eu.stratosphere.nephele.util.StringUtils;
+
+/**
+ * A simulated cluster used for the scheduler unit tests. The cluster acts as both the instance manager and the
+ * deployment manager of a scheduler and keeps track of every slice, i.e. instance, it hands out. The slices are named
+ * <code>host0</code>, <code>host1</code>, ... and are all attached to the root of a common network topology. Free
+ * slices are handed out in reverse order of their names.
+ * <p>
+ * Like a real cluster manager, the cluster fails a request whose minimum number of slices exceeds the number of free
+ * slices. Otherwise it allocates as many slices as possible right away and keeps the remainder of the request up to
+ * its maximum as pending. Slices returned by a job are handed to the oldest pending request first and only go back to
+ * the pool of free slices if no request is pending. Pending requests are dropped by
+ * {@link #cancelPendingRequests(JobID)}.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class TestCluster implements InstanceManager, DeploymentManager {
+
+	/**
+	 * The default instance type to be used during the tests.
+	 */
+	public static final InstanceType INSTANCE_TYPE = InstanceTypeFactory.construct("test", 1, 1, 1024, 1024, 10);
+
+	/**
+	 * The maximum time to wait for a deployment in milliseconds.
+	 */
+	private static final long DEPLOYMENT_TIMEOUT = 10000L;
+
+	/**
+	 * The instance types of the cluster.
+	 */
+	private final Map<InstanceType, InstanceTypeDescription> instanceMap;
+
+	/**
+	 * The slices which are currently not allocated to any job. The deque also serves as the lock for the slice
+	 * bookkeeping.
+	 */
+	private final Deque<AbstractInstance> freeSlices = new ArrayDeque<AbstractInstance>();
+
+	/**
+	 * The resources currently allocated to each job.
+	 */
+	private final Map<JobID, List<AllocatedResource>> allocatedResources =
+		new HashMap<JobID, List<AllocatedResource>>();
+
+	/**
+	 * The pending requests in the order they were issued.
+	 */
+	private final List<PendingRequest> pendingRequests = new ArrayList<PendingRequest>();
+
+	/**
+	 * The resources returned so far, in the order of their return.
+	 */
+	private final List<AllocatedResource> returnedResources = new ArrayList<AllocatedResource>();
+
+	/**
+	 * The vertices deployed so far, indexed by the ID of their job. The map also serves as the lock for the
+	 * deployment bookkeeping.
+	 */
+	private final Map<JobID, List<ExecutionVertex>> deployedVertices = new HashMap<JobID, List<ExecutionVertex>>();
+
+	/**
+	 * The slices the vertices have last been deployed on.
+	 */
+	private final Map<ExecutionVertexID, AbstractInstance> deploymentTargets =
+		new HashMap<ExecutionVertexID, AbstractInstance>();
+
+	/**
+	 * The number of calls to {@link #cancelPendingRequests(JobID)} so far.
+	 */
+	private int numberOfCancelCalls = 0;
+
+	/**
+	 * The instance listener.
+	 */
+	private volatile InstanceListener instanceListener = null;
+
+	/**
+	 * A slice of the test cluster. Instead of forwarding cancel requests to a task manager, the slice records them.
+	 */
+	public static final class TestInstance extends AbstractInstance {
+
+		/**
+		 * The IDs of the vertices this slice was requested to cancel.
+		 */
+		private final List<ExecutionVertexID> canceledVertices = new ArrayList<ExecutionVertexID>();
+
+		/**
+		 * Constructs a new test instance.
+		 * 
+		 * @param instanceConnectionInfo
+		 *        the instance connection information
+		 * @param networkTopology
+		 *        the network topology
+		 * @param hardwareDescription
+		 *        the hardware description
+		 */
+		private TestInstance(final InstanceConnectionInfo instanceConnectionInfo,
+				final NetworkTopology networkTopology, final HardwareDescription hardwareDescription) {
+			super(INSTANCE_TYPE, instanceConnectionInfo, networkTopology.getRootNode(), networkTopology,
+				hardwareDescription);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public synchronized TaskCancelResult cancelTask(final ExecutionVertexID id) throws IOException {
+
+			this.canceledVertices.add(id);
+
+			return new TaskCancelResult(id, ReturnCode.SUCCESS);
+		}
+
+		/**
+		 * Returns the IDs of the vertices this slice was requested to cancel.
+		 * 
+		 * @return the IDs of the vertices this slice was requested to cancel
+		 */
+		public synchronized List<ExecutionVertexID> getCanceledVertices() {
+
+			return new ArrayList<ExecutionVertexID>(this.canceledVertices);
+		}
+	}
+
+	/**
+	 * The part of an instance request which could not be fulfilled right away.
+	 */
+	private static final class PendingRequest {
+
+		/**
+		 * The ID of the job which issued the request.
+		 */
+		private final JobID jobID;
+
+		/**
+		 * The number of slices still to be allocated to the job.
+		 */
+		private int numberOfSlices;
+
+		/**
+		 * Constructs a new pending request.
+		 * 
+		 * @param jobID
+		 *        the ID of the job which issued the request
+		 * @param numberOfSlices
+		 *        the number of slices still to be allocated to the job
+		 */
+		private PendingRequest(final JobID jobID, final int numberOfSlices) {
+			this.jobID = jobID;
+			this.numberOfSlices = numberOfSlices;
+		}
+	}
+
+	/**
+	 * Constructs a new test cluster.
+	 * 
+	 * @param numberOfSlices
+	 *        the number of slices of the cluster
+	 */
+	public TestCluster(final int numberOfSlices) {
+
+		final HardwareDescription hd = HardwareDescriptionFactory.construct(1, 1L, 1L);
+		this.instanceMap = Collections.singletonMap(INSTANCE_TYPE, InstanceTypeDescriptionFactory.construct(
+			INSTANCE_TYPE, hd, numberOfSlices));
+
+		try {
+			final NetworkTopology nt = new NetworkTopology();
+			for (int i = numberOfSlices - 1; i >= 0; --i) {
+				// The instances must differ in their ports to be distinguishable
+				final InstanceConnectionInfo ici = new InstanceConnectionInfo(Inet4Address.getLocalHost(), "host"
+					+ i, "localdomain", 2 * i + 1, 2 * i + 2);
+				this.freeSlices.add(new TestInstance(ici, nt, hd));
+			}
+		} catch (UnknownHostException e) {
+			throw new RuntimeException(StringUtils.stringifyException(e));
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void requestInstance(final JobID jobID, final Configuration conf,
+			final InstanceRequestMap instanceRequestMap, final List<String> splitAffinityList)
+			throws InstanceException {
+
+		if (this.instanceListener == null) {
+			throw new InstanceException("instanceListener not registered with TestCluster");
+		}
+
+		final List<AllocatedResource> resources = new ArrayList<AllocatedResource>();
+
+		synchronized (this.freeSlices) {
+
+			final int minimum = instanceRequestMap.getMinimumNumberOfInstances(INSTANCE_TYPE);
+			if (this.freeSlices.size() < minimum) {
+				throw new InstanceException("Cannot allocate " + minimum + " slices, only " + this.freeSlices.size()
+					+ " are free");
+			}
+
+			final int maximum = instanceRequestMap.getMaximumNumberOfInstances(INSTANCE_TYPE);
+			while (resources.size() < maximum && !this.freeSlices.isEmpty()) {
+				resources.add(allocate(jobID, this.freeSlices.poll()));
+			}
+
+			if (resources.size() < maximum) {
+				this.pendingRequests.add(new PendingRequest(jobID, maximum - resources.size()));
+			}
+		}
+
+		notifyAllocation(jobID, resources);
+	}
+
+	/**
+	 * Allocates a free slice to the given job without notifying the instance listener. This allows tests to assign
+	 * resources to vertices directly.
+	 * 
+	 * @param jobID
+	 *        the ID of the job to allocate the slice to
+	 * @return the allocated resource
+	 * @throws InstanceException
+	 *         thrown if no slice is free
+	 */
+	public AllocatedResource allocateSlice(final JobID jobID) throws InstanceException {
+
+		synchronized (this.freeSlices) {
+
+			if (this.freeSlices.isEmpty()) {
+				throw new InstanceException("Cannot allocate a slice, no slice is free");
+			}
+
+			return allocate(jobID, this.freeSlices.poll());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void releaseAllocatedResource(final JobID jobID, final Configuration conf,
+			final AllocatedResource allocatedResource) throws InstanceException {
+
+		JobID receivingJob = null;
+		AllocatedResource reallocatedResource = null;
+
+		synchronized (this.freeSlices) {
+
+			final List<AllocatedResource> resources = this.allocatedResources.get(jobID);
+			if (resources == null || !resources.remove(allocatedResource)) {
+				throw new InstanceException("Resource " + allocatedResource.getAllocationID()
+					+ " is not allocated to job " + jobID);
+			}
+
+			this.returnedResources.add(allocatedResource);
+
+			// The returned slice serves the oldest pending request first
+			if (this.pendingRequests.isEmpty()) {
+				this.freeSlices.add(allocatedResource.getInstance());
+			} else {
+				final PendingRequest request = this.pendingRequests.get(0);
+				if (--request.numberOfSlices == 0) {
+					this.pendingRequests.remove(0);
+				}
+				receivingJob = request.jobID;
+				reallocatedResource = allocate(receivingJob, allocatedResource.getInstance());
+			}
+		}
+
+		if (receivingJob != null) {
+			notifyAllocation(receivingJob, Collections.singletonList(reallocatedResource));
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void cancelPendingRequests(final JobID jobID) {
+
+		synchronized (this.freeSlices) {
+
+			++this.numberOfCancelCalls;
+
+			final Iterator<PendingRequest> it = this.pendingRequests.iterator();
+			while (it.hasNext()) {
+				if (it.next().jobID.equals(jobID)) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Allocates the given slice to the given job. The caller must hold the lock of the free slices.
+	 * 
+	 * @param jobID
+	 *        the ID of the job to allocate the slice to
+	 * @param instance
+	 *        the slice to allocate
+	 * @return the allocated resource
+	 */
+	private AllocatedResource allocate(final JobID jobID, final AbstractInstance instance) {
+
+		final AllocatedResource resource = new AllocatedResource(instance, INSTANCE_TYPE, new AllocationID());
+
+		List<AllocatedResource> resources = this.allocatedResources.get(jobID);
+		if (resources == null) {
+			resources = new ArrayList<AllocatedResource>();
+			this.allocatedResources.put(jobID, resources);
+		}
+		resources.add(resource);
+
+		return resource;
+	}
+
+	/**
+	 * Notifies the instance listener about the given allocated resources in a separate thread, like a real instance
+	 * manager does.
+	 * 
+	 * @param jobID
+	 *        the ID of the job the resources have been allocated to
+	 * @param resources
+	 *        the allocated resources
+	 */
+	private void notifyAllocation(final JobID jobID, final List<AllocatedResource> resources) {
+
+		if (resources.isEmpty()) {
+			return;
+		}
+
+		final InstanceListener il = this.instanceListener;
+
+		final Runnable runnable = new Runnable() {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public void run() {
+				il.resourcesAllocated(jobID, resources);
+			}
+		};
+
+		new Thread(runnable).start();
+	}
+
+	/**
+	 * Returns the number of slices currently allocated to the given job.
+	 * 
+	 * @param jobID
+	 *        the ID of the job
+	 * @return the number of slices currently allocated to the job
+	 */
+	public int getNumberOfAllocatedSlices(final JobID jobID) {
+
+		synchronized (this.freeSlices) {
+
+			final List<AllocatedResource> resources = this.allocatedResources.get(jobID);
+			return (resources == null) ? 0 : resources.size();
+		}
+	}
+
+	/**
+	 * Returns the resources currently allocated to the given job.
+	 * 
+	 * @param jobID
+	 *        the ID of the job
+	 * @return the resources currently allocated to the job
+	 */
+	public List<AllocatedResource> getAllocatedResources(final JobID jobID) {
+
+		synchronized (this.freeSlices) {
+
+			final List<AllocatedResource> resources = this.allocatedResources.get(jobID);
+			return (resources == null) ? new ArrayList<AllocatedResource>() : new ArrayList<AllocatedResource>(
+				resources);
+		}
+	}
+
+	/**
+	 * Returns the number of slices the pending requests of the given job still wait for.
+	 * 
+	 * @param jobID
+	 *        the ID of the job
+	 * @return the number of slices the pending requests of the job still wait for
+	 */
+	public int getNumberOfPendingSlices(final JobID jobID) {
+
+		synchronized (this.freeSlices) {
+
+			int numberOfSlices = 0;
+			for (final PendingRequest request : this.pendingRequests) {
+				if (request.jobID.equals(jobID)) {
+					numberOfSlices += request.numberOfSlices;
+				}
+			}
+
+			return numberOfSlices;
+		}
+	}
+
+	/**
+	 * Returns the number of slices which are currently not allocated to any job.
+	 * 
+	 * @return the number of free slices
+	 */
+	public int getNumberOfFreeSlices() {
+
+		synchronized (this.freeSlices) {
+			return this.freeSlices.size();
+		}
+	}
+
+	/**
+	 * Returns the number of slices returned so far.
+	 * 
+	 * @return the number of slices returned so far
+	 */
+	public int getNumberOfReturnedSlices() {
+
+		synchronized (this.freeSlices) {
+			return this.returnedResources.size();
+		}
+	}
+
+	/**
+	 * Returns the resources returned so far, in the order of their return.
+	 * 
+	 * @return the resources returned so far
+	 */
+	public List<AllocatedResource> getReturnedResources() {
+
+		synchronized (this.freeSlices) {
+			return new ArrayList<AllocatedResource>(this.returnedResources);
+		}
+	}
+
+	/**
+	 * Returns the number of calls to {@link #cancelPendingRequests(JobID)} so far.
+	 * 
+	 * @return the number of calls to {@link #cancelPendingRequests(JobID)} so far
+	 */
+	public int getNumberOfCancelCalls() {
+
+		synchronized (this.freeSlices) {
+			return this.numberOfCancelCalls;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void deploy(final JobID jobID, final AbstractInstance instance,
+			final List<ExecutionVertex> verticesToBeDeployed) {
+
+		synchronized (this.deployedVertices) {
+
+			List<ExecutionVertex> vertices = this.deployedVertices.get(jobID);
+			if (vertices == null) {
+				vertices = new ArrayList<ExecutionVertex>();
+				this.deployedVertices.put(jobID, vertices);
+			}
+			vertices.addAll(verticesToBeDeployed);
+
+			for (final ExecutionVertex vertex : verticesToBeDeployed) {
+				this.deploymentTargets.put(vertex.getID(), instance);
+			}
+
+			this.deployedVertices.notifyAll();
+		}
+	}
+
+	/**
+	 * Waits until the given number of vertices of the given job has been deployed or the deployment timeout expired.
+	 * 
+	 * @param jobID
+	 *        the ID of the job
+	 * @param numberOfVertices
+	 *        the number of vertices to wait for
+	 * @return the vertices of the job deployed so far
+	 */
+	public List<ExecutionVertex> waitForDeployment(final JobID jobID, final int numberOfVertices) {
+
+		final long deadline = System.currentTimeMillis() + DEPLOYMENT_TIMEOUT;
+
+		synchronized (this.deployedVertices) {
+
+			while (true) {
+
+				final List<ExecutionVertex> vertices = this.deployedVertices.get(jobID);
+				final long remaining = deadline - System.currentTimeMillis();
+				if ((vertices != null && vertices.size() >= numberOfVertices) || remaining <= 0L) {
+					return (vertices == null) ? new ArrayList<ExecutionVertex>() : new ArrayList<ExecutionVertex>(
+						vertices);
+				}
+
+				try {
+					this.deployedVertices.wait(remaining);
+				} catch (InterruptedException e) {
+					// Ignore exception
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the vertices of the given job deployed so far.
+	 * 
+	 * @param jobID
+	 *        the ID of the job
+	 * @return the vertices of the job deployed so far
+	 */
+	public List<ExecutionVertex> getDeployedVertices(final JobID jobID) {
+
+		synchronized (this.deployedVertices) {
+
+			final List<ExecutionVertex> vertices = this.deployedVertices.get(jobID);
+			return (vertices == null) ? new ArrayList<ExecutionVertex>() : new ArrayList<ExecutionVertex>(vertices);
+		}
+	}
+
+	/**
+	 * Returns the slice the given vertex has last been deployed on.
+	 * 
+	 * @param vertex
+	 *        the vertex to return the slice for
+	 * @return the slice the vertex has last been deployed on or <code>null</code> if it has not been deployed
+	 */
+	public AbstractInstance getDeploymentTarget(final ExecutionVertex vertex) {
+
+		synchronized (this.deployedVertices) {
+			return this.deploymentTargets.get(vertex.getID());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public InstanceType getSuitableInstanceType(final int minNumComputeUnits, final int minNumCPUCores,
+			final int minMemorySize, final int minDiskCapacity, final int maxPricePerHour) {
+		throw new IllegalStateException("getSuitableInstanceType called on TestCluster");
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void reportHeartBeat(final InstanceConnectionInfo instanceConnectionInfo,
+			final HardwareDescription hardwareDescription) {
+		throw new IllegalStateException("reportHeartBeat called on TestCluster");
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public InstanceType getInstanceTypeByName(final String instanceTypeName) {
+
+		if (INSTANCE_TYPE.getIdentifier().equals(instanceTypeName)) {
+			return INSTANCE_TYPE;
+		}
+
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public InstanceType getDefaultInstanceType() {
+
+		return INSTANCE_TYPE;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NetworkTopology getNetworkTopology(final JobID jobID) {
+		throw new IllegalStateException("getNetworkTopology called on TestCluster");
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setInstanceListener(final InstanceListener instanceListener) {
+
+		this.instanceListener = instanceListener;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<InstanceType, InstanceTypeDescription> getMapOfAvailableInstanceTypes() {
+
+		return this.instanceMap;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public AbstractInstance getInstanceByName(final String name) {
+		throw new IllegalStateException("getInstanceByName called on TestCluster");
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void shutdown() {
+		throw new IllegalStateException("shutdown called on TestCluster");
+	}
+}
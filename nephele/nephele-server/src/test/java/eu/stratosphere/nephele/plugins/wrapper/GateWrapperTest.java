@@ -0,0 +1,207 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.plugins.wrapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import eu.stratosphere.nephele.io.InputGate;
+import eu.stratosphere.nephele.io.OutputGate;
+import eu.stratosphere.nephele.io.RecordAvailabilityListener;
+import eu.stratosphere.nephele.types.IntegerRecord;
+
+/**
+ * This class checks that the batch methods of the {@link AbstractInputGateWrapper} and the
+ * {@link AbstractOutputGateWrapper} route every record of a batch through the intercepted per-record methods.
+ * 
+ */
+public class GateWrapperTest {
+
+	/**
+	 * An input gate wrapper which counts the records read through it.
+	 * <p>
+	 * This class is not thread-safe.
+	 * 
+	 */
+	private static final class CountingInputGateWrapper extends AbstractInputGateWrapper<IntegerRecord> {
+
+		private int numberOfRecords = 0;
+
+		private CountingInputGateWrapper(final InputGate<IntegerRecord> wrappedInputGate) {
+			super(wrappedInputGate);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public IntegerRecord readRecord(final IntegerRecord target) throws IOException, InterruptedException {
+
+			final IntegerRecord record = super.readRecord(target);
+			if (record != null) {
+				++this.numberOfRecords;
+			}
+
+			return record;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean hasRecordAvailable() throws IOException, InterruptedException {
+
+			return getWrappedInputGate().hasRecordAvailable();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void notifyDataUnitConsumed(final int channelIndex) {
+
+			getWrappedInputGate().notifyDataUnitConsumed(channelIndex);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void registerRecordAvailabilityListener(final RecordAvailabilityListener<IntegerRecord> listener) {
+
+			getWrappedInputGate().registerRecordAvailabilityListener(listener);
+		}
+	}
+
+	/**
+	 * An output gate wrapper which counts the records written through it.
+	 * <p>
+	 * This class is not thread-safe.
+	 * 
+	 */
+	private static final class CountingOutputGateWrapper extends AbstractOutputGateWrapper<IntegerRecord> {
+
+		private int numberOfRecords = 0;
+
+		private CountingOutputGateWrapper(final OutputGate<IntegerRecord> wrappedOutputGate) {
+			super(wrappedOutputGate);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void writeRecord(final IntegerRecord record) throws IOException, InterruptedException {
+
+			++this.numberOfRecords;
+			super.writeRecord(record);
+		}
+	}
+
+	/**
+	 * Checks that a batch read through an input gate wrapper passes every record through its readRecord method and
+	 * ends as soon as the wrapped gate has no further record available.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testInputGateWrapperBatch() throws IOException, InterruptedException {
+
+		final Queue<IntegerRecord> records = new ArrayDeque<IntegerRecord>();
+		for (int i = 0; i < 4; ++i) {
+			records.add(new IntegerRecord(i));
+		}
+
+		final InputGate<IntegerRecord> inputGate = mock(InputGate.class);
+		when(inputGate.readRecord(any(IntegerRecord.class))).thenAnswer(new Answer<IntegerRecord>() {
+
+			@Override
+			public IntegerRecord answer(final InvocationOnMock invocation) {
+				return records.poll();
+			}
+		});
+		when(inputGate.hasRecordAvailable()).thenAnswer(new Answer<Boolean>() {
+
+			@Override
+			public Boolean answer(final InvocationOnMock invocation) {
+				return Boolean.valueOf(!records.isEmpty());
+			}
+		});
+
+		final CountingInputGateWrapper wrapper = new CountingInputGateWrapper(inputGate);
+		final IntegerRecord[] targets = new IntegerRecord[3];
+
+		assertEquals(3, wrapper.readRecords(targets));
+		assertEquals(2, targets[2].getValue());
+		assertEquals(1, wrapper.readRecords(targets));
+		assertEquals(3, targets[0].getValue());
+		assertEquals(4, wrapper.numberOfRecords);
+
+		// The first record of a batch is requested even if none is available, the gate decides whether to wait
+		assertEquals(0, wrapper.readRecords(targets));
+		assertEquals(0, wrapper.readRecords(new IntegerRecord[0]));
+	}
+
+	/**
+	 * Checks that a batch written through an output gate wrapper passes every record through its writeRecord method in
+	 * order and that the number of records is validated against the array.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testOutputGateWrapperBatch() throws IOException, InterruptedException {
+
+		final OutputGate<IntegerRecord> outputGate = mock(OutputGate.class);
+		final CountingOutputGateWrapper wrapper = new CountingOutputGateWrapper(outputGate);
+
+		final IntegerRecord[] records = new IntegerRecord[4];
+		for (int i = 0; i < records.length; ++i) {
+			records[i] = new IntegerRecord(i);
+		}
+
+		wrapper.writeRecords(records, 3);
+		assertEquals(3, wrapper.numberOfRecords);
+
+		final InOrder inOrder = inOrder(outputGate);
+		for (int i = 0; i < 3; ++i) {
+			inOrder.verify(outputGate).writeRecord(records[i]);
+		}
+		verify(outputGate, never()).writeRecord(records[3]);
+		verify(outputGate, never()).writeRecords(any(IntegerRecord[].class), anyInt());
+
+		try {
+			wrapper.writeRecords(records, records.length + 1);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+		assertEquals(3, wrapper.numberOfRecords);
+	}
+}
@@ -0,0 +1,149 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.services.iomanager;
+
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.stratosphere.nephele.services.memorymanager.DefaultMemoryManagerTest.DummyInvokable;
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+import eu.stratosphere.nephele.services.memorymanager.spi.DefaultMemoryManager;
+
+/**
+ * Tests the adaptive read-ahead of the {@link ChannelReaderInputView} and the write-behind of the
+ * {@link ChannelWriterOutputView}.
+ */
+public class ChannelViewsTest
+{
+	private static final int SEGMENT_SIZE = 4096;
+	
+	private static final int NUM_INTS = 200000;
+	
+	private IOManager ioManager;
+
+	private DefaultMemoryManager memoryManager;
+	
+	@Before
+	public void beforeTest()
+	{
+		this.memoryManager = new DefaultMemoryManager(1024 * 1024, SEGMENT_SIZE);
+		this.ioManager = new IOManager();
+	}
+
+	@After
+	public void afterTest()
+	{
+		this.ioManager.shutdown();
+		Assert.assertTrue("IO Manager has not properly shut down.", ioManager.isProperlyShutDown());
+		
+		Assert.assertTrue("Not all memory was returned to the memory manager in the test.", this.memoryManager.verifyEmpty());
+		this.memoryManager.shutdown();
+		this.memoryManager = null;
+	}
+
+	/**
+	 * Writes a sequence of integers and reads it back with different numbers of memory segments, checking that the
+	 * read-ahead starts with all segments, stays within the number of segments and that all segments are returned.
+	 */
+	@Test
+	public void testReadAheadAndWriteBehind()
+	{
+		try {
+			for (final int numReadSegments : new int[] { 1, 2, 3, 8 }) {
+				final Channel.ID channelID = this.ioManager.createChannel();
+				
+				List<MemorySegment> memory = this.memoryManager.allocatePages(new DummyInvokable(), 4);
+				final ChannelWriterOutputView outView = new ChannelWriterOutputView(
+					this.ioManager.createBlockChannelWriter(channelID), memory, SEGMENT_SIZE);
+				for (int i = 0; i < NUM_INTS; i++) {
+					outView.writeInt(i);
+				}
+				memory = outView.close();
+				Assert.assertEquals(4, memory.size());
+				Assert.assertTrue(outView.getNumberOfStalls() >= 0);
+				Assert.assertTrue(outView.getStallTime() >= 0);
+				this.memoryManager.release(memory);
+				
+				memory = this.memoryManager.allocatePages(new DummyInvokable(), numReadSegments);
+				final ChannelReaderInputView inView = new ChannelReaderInputView(
+					this.ioManager.createBlockChannelReader(channelID), memory, true);
+				Assert.assertEquals(numReadSegments, inView.getReadAhead());
+				for (int i = 0; i < NUM_INTS; i++) {
+					Assert.assertEquals(i, inView.readInt());
+					Assert.assertTrue(inView.getReadAhead() >= Math.min(ChannelReaderInputView.MINIMUM_READ_AHEAD, numReadSegments));
+					Assert.assertTrue(inView.getReadAhead() <= numReadSegments);
+				}
+				
+				memory = inView.close();
+				Assert.assertEquals(numReadSegments, memory.size());
+				this.memoryManager.release(memory);
+				this.ioManager.createBlockChannelReader(channelID).closeAndDelete();
+			}
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			Assert.fail("Test encountered an exception: " + ex.getMessage());
+		}
+	}
+	
+	/**
+	 * Reads a channel of known length with a headerless view, checking that segments kept back by the read-ahead
+	 * are returned when the view is closed.
+	 */
+	@Test
+	public void testHeaderlessReadAhead()
+	{
+		final int NUM_BLOCKS = 50;
+		
+		try {
+			final Channel.ID channelID = this.ioManager.createChannel();
+			final BlockChannelWriter writer = this.ioManager.createBlockChannelWriter(channelID);
+			final List<MemorySegment> memory = this.memoryManager.allocatePages(new DummyInvokable(), 6);
+			
+			MemorySegment seg = memory.remove(0);
+			for (int i = 0; i < NUM_BLOCKS; i++) {
+				for (int pos = 0; pos < SEGMENT_SIZE; pos += 4) {
+					seg.putIntBigEndian(pos, i);
+				}
+				writer.writeBlock(seg);
+				seg = writer.getNextReturnedSegment();
+			}
+			writer.close();
+			memory.add(seg);
+			
+			final HeaderlessChannelReaderInputView inView = new HeaderlessChannelReaderInputView(
+				this.ioManager.createBlockChannelReader(channelID), memory, NUM_BLOCKS, SEGMENT_SIZE, false);
+			for (int i = 0; i < NUM_BLOCKS; i++) {
+				for (int pos = 0; pos < SEGMENT_SIZE; pos += 4) {
+					Assert.assertEquals(i, inView.readInt());
+				}
+			}
+			
+			final List<MemorySegment> returned = inView.close();
+			Assert.assertEquals(6, returned.size());
+			this.memoryManager.release(returned);
+			this.ioManager.createBlockChannelReader(channelID).closeAndDelete();
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			Assert.fail("Test encountered an exception: " + ex.getMessage());
+		}
+	}
+}
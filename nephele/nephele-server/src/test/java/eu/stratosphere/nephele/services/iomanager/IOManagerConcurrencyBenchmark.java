@@ -0,0 +1,162 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.services.iomanager;
+
+import java.io.IOException;
+import java.util.List;
+
+import eu.stratosphere.nephele.services.memorymanager.DefaultMemoryManagerTest.DummyInvokable;
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+import eu.stratosphere.nephele.services.memorymanager.spi.DefaultMemoryManager;
+
+/**
+ * A benchmark comparing the throughput of the {@link IOManager} with a single reader and writer thread per path to
+ * its throughput with several threads per path, when several channels on the same path are written and read
+ * concurrently. The temp path can be passed as the first argument.
+ * 
+ */
+public class IOManagerConcurrencyBenchmark {
+
+	private static final int[] THREADS_PER_PATH = { 1, 2, 4, 8 };
+
+	private static final int NUM_CHANNELS = 8;
+
+	private static final int SEGMENTS_PER_CHANNEL = 4;
+
+	private static final int SEGMENT_SIZE = 64 * 1024;
+
+	private static final int BLOCKS_PER_CHANNEL = 2048;
+
+	public static void main(final String[] args) throws Exception {
+
+		final String path = args.length > 0 ? args[0] : System.getProperty("java.io.tmpdir");
+
+		final DefaultMemoryManager memoryManager = new DefaultMemoryManager(NUM_CHANNELS * SEGMENTS_PER_CHANNEL
+			* SEGMENT_SIZE, SEGMENT_SIZE);
+
+		try {
+			for (final int threadsPerPath : THREADS_PER_PATH) {
+
+				final IOManager ioManager = new IOManager(new String[] { path }, threadsPerPath);
+				try {
+					final Channel.ID[] channelIDs = new Channel.ID[NUM_CHANNELS];
+					for (int i = 0; i < NUM_CHANNELS; ++i) {
+						channelIDs[i] = ioManager.createChannel();
+					}
+
+					final long bytes = (long) NUM_CHANNELS * BLOCKS_PER_CHANNEL * SEGMENT_SIZE;
+
+					long start = System.nanoTime();
+					runConcurrently(ioManager, memoryManager, channelIDs, true);
+					final long writeNanos = System.nanoTime() - start;
+
+					start = System.nanoTime();
+					runConcurrently(ioManager, memoryManager, channelIDs, false);
+					final long readNanos = System.nanoTime() - start;
+
+					System.out.println(threadsPerPath + " thread(s) per path: write "
+						+ (bytes * 1000L / writeNanos) + " MB/s, read " + (bytes * 1000L / readNanos) + " MB/s");
+				} finally {
+					ioManager.shutdown();
+				}
+			}
+		} finally {
+			memoryManager.shutdown();
+		}
+	}
+
+	private static void runConcurrently(final IOManager ioManager, final DefaultMemoryManager memoryManager,
+			final Channel.ID[] channelIDs, final boolean write) throws Exception {
+
+		final Thread[] threads = new Thread[channelIDs.length];
+		final Exception[] errors = new Exception[channelIDs.length];
+
+		for (int i = 0; i < channelIDs.length; ++i) {
+			final int channel = i;
+			threads[i] = new Thread() {
+
+				@Override
+				public void run() {
+					try {
+						final List<MemorySegment> segments = memoryManager.allocatePages(new DummyInvokable(),
+							SEGMENTS_PER_CHANNEL);
+						try {
+							if (write) {
+								writeChannel(ioManager, channelIDs[channel], segments);
+							} else {
+								readChannel(ioManager, channelIDs[channel], segments);
+							}
+						} finally {
+							memoryManager.release(segments);
+						}
+					} catch (Exception e) {
+						errors[channel] = e;
+					}
+				}
+			};
+			threads[i].start();
+		}
+
+		for (int i = 0; i < threads.length; ++i) {
+			threads[i].join();
+			if (errors[i] != null) {
+				throw errors[i];
+			}
+		}
+	}
+
+	private static void writeChannel(final IOManager ioManager, final Channel.ID channelID,
+			final List<MemorySegment> segments) throws IOException {
+
+		final BlockChannelWriter writer = ioManager.createBlockChannelWriter(channelID);
+		final int numSegments = segments.size();
+		for (int i = 0; i < BLOCKS_PER_CHANNEL; ++i) {
+			writer.writeBlock(segments.isEmpty() ? writer.getNextReturnedSegment() : segments.remove(0));
+		}
+		writer.close();
+
+		while (segments.size() < numSegments) {
+			segments.add(writer.getNextReturnedSegment());
+		}
+	}
+
+	private static void readChannel(final IOManager ioManager, final Channel.ID channelID,
+			final List<MemorySegment> segments) throws IOException {
+
+		final BlockChannelReader reader = ioManager.createBlockChannelReader(channelID);
+		final int numSegments = segments.size();
+		int requested = 0;
+		while (!segments.isEmpty() && requested < BLOCKS_PER_CHANNEL) {
+			reader.readBlock(segments.remove(0));
+			++requested;
+		}
+		for (int i = 0; i < BLOCKS_PER_CHANNEL; ++i) {
+			final MemorySegment segment = reader.getNextReturnedSegment();
+			if (requested < BLOCKS_PER_CHANNEL) {
+				reader.readBlock(segment);
+				++requested;
+			} else {
+				segments.add(segment);
+			}
+		}
+		reader.closeAndDelete();
+
+		while (segments.size() < numSegments) {
+			segments.add(reader.getNextReturnedSegment());
+		}
+	}
+}
@@ -17,7 +17,9 @@ package eu.stratosphere.nephele.services.iomanager;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.List;
+import java.util.Random;
 
 import junit.framework.Assert;
 
@@ -25,6 +27,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import eu.stratosphere.nephele.io.compression.CompressionLevel;
 import eu.stratosphere.nephele.services.memorymanager.DefaultMemoryManagerTest.DummyInvokable;
 import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
 import eu.stratosphere.nephele.services.memorymanager.spi.DefaultMemoryManager;
@@ -190,6 +193,256 @@ public class IOManagerTest
 		}
 	}
 
+	/**
+	 * Tests that the blocks of several channels, written and read interleaved through an I/O manager with multiple
+	 * threads per path, are read back in the order in which they have been written.
+	 */
+	@Test
+	public void channelReadWriteMultipleThreadsPerPath()
+	{
+		final int NUM_IOS = 256;
+		final int NUM_CHANNELS = 6;
+		
+		final IOManager ioMan = new IOManager(new String[] { System.getProperty("java.io.tmpdir") }, 4);
+		try {
+			Assert.assertEquals(4, ioMan.getNumberOfThreadsPerPath());
+			
+			final List<MemorySegment> memSegs = this.memoryManager.allocatePages(new DummyInvokable(), NUM_CHANNELS);
+			final Channel.ID[] channelIDs = new Channel.ID[NUM_CHANNELS];
+			final BlockChannelWriter[] writers = new BlockChannelWriter[NUM_CHANNELS];
+			for (int c = 0; c < NUM_CHANNELS; c++) {
+				channelIDs[c] = ioMan.createChannel();
+				writers[c] = ioMan.createBlockChannelWriter(channelIDs[c]);
+				writers[c].getReturnQueue().add(memSegs.remove(0));
+			}
+			
+			for (int i = 0; i < NUM_IOS; i++) {
+				for (int c = 0; c < NUM_CHANNELS; c++) {
+					final MemorySegment memSeg = writers[c].getNextReturnedSegment();
+					for (int pos = 0; pos < memSeg.size(); pos += 4) {
+						memSeg.putInt(pos, i * NUM_CHANNELS + c);
+					}
+					writers[c].writeBlock(memSeg);
+				}
+			}
+			
+			final BlockChannelReader[] readers = new BlockChannelReader[NUM_CHANNELS];
+			for (int c = 0; c < NUM_CHANNELS; c++) {
+				writers[c].close();
+				readers[c] = ioMan.createBlockChannelReader(channelIDs[c]);
+				readers[c].readBlock(writers[c].getNextReturnedSegment());
+			}
+			
+			for (int i = 0; i < NUM_IOS; i++) {
+				for (int c = 0; c < NUM_CHANNELS; c++) {
+					final MemorySegment memSeg = readers[c].getNextReturnedSegment();
+					for (int pos = 0; pos < memSeg.size(); pos += 4) {
+						if (memSeg.getInt(pos) != i * NUM_CHANNELS + c) {
+							Assert.fail("Read memory segment contains invalid data.");
+						}
+					}
+					if (i < NUM_IOS - 1) {
+						readers[c].readBlock(memSeg);
+					} else {
+						memSegs.add(memSeg);
+					}
+				}
+			}
+			
+			for (int c = 0; c < NUM_CHANNELS; c++) {
+				readers[c].closeAndDelete();
+			}
+			
+			this.memoryManager.release(memSegs);
+			
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			Assert.fail("Test encountered an exception: " + ex.getMessage());
+		} finally {
+			ioMan.shutdown();
+		}
+		
+		Assert.assertTrue("IO Manager has not properly shut down.", ioMan.isProperlyShutDown());
+	}
+
+	/**
+	 * Tests that compressible and incompressible blocks written with compression and checksums are read back
+	 * correctly by block and bulk readers.
+	 */
+	@Test
+	public void channelReadWriteCompressedWithChecksums()
+	{
+		final int NUM_BLOCKS = 64;
+		
+		final IOManager ioMan = new IOManager(new String[] { System.getProperty("java.io.tmpdir") }, 1,
+			CompressionLevel.LIGHT_COMPRESSION, true);
+		try {
+			final Random rnd = new Random(42L);
+			final Channel.ID channelID = ioMan.createChannel();
+			final BlockChannelWriter writer = ioMan.createBlockChannelWriter(channelID);
+			final List<MemorySegment> memSegs = this.memoryManager.allocatePages(new DummyInvokable(), NUM_BLOCKS);
+			
+			MemorySegment memSeg = memSegs.remove(0);
+			for (int i = 0; i < NUM_BLOCKS; i++) {
+				// even blocks are compressible, odd blocks are random
+				for (int pos = 0; pos < memSeg.size(); pos += 4) {
+					memSeg.putInt(pos, i % 2 == 0 ? i : rnd.nextInt());
+				}
+				writer.writeBlock(memSeg);
+				memSeg = writer.getNextReturnedSegment();
+			}
+			writer.close();
+			Assert.assertTrue("Writer has not released its codec.", writer.codec.isClosed());
+			Assert.assertTrue("Compressible blocks have not been compressed.",
+				new File(channelID.getPath()).length() < (long) NUM_BLOCKS * memSeg.size());
+			
+			rnd.setSeed(42L);
+			final BlockChannelReader reader = ioMan.createBlockChannelReader(channelID);
+			for (int i = 0; i < NUM_BLOCKS; i++) {
+				reader.readBlock(memSeg);
+				memSeg = reader.getNextReturnedSegment();
+				for (int pos = 0; pos < memSeg.size(); pos += 4) {
+					Assert.assertEquals(i % 2 == 0 ? i : rnd.nextInt(), memSeg.getInt(pos));
+				}
+			}
+			reader.close();
+			Assert.assertTrue("Reader has not released its codec.", reader.codec.isClosed());
+			memSegs.add(memSeg);
+			
+			final BulkBlockChannelReader bulkReader = ioMan.createBulkBlockChannelReader(channelID, memSegs, NUM_BLOCKS);
+			bulkReader.closeAndDelete();
+			Assert.assertTrue("Bulk reader has not released its codec.", bulkReader.codec.isClosed());
+			final List<MemorySegment> full = bulkReader.getFullSegments();
+			Assert.assertEquals(NUM_BLOCKS, full.size());
+			for (int i = 0; i < NUM_BLOCKS; i += 2) {
+				Assert.assertEquals(i, full.get(i).getInt(0));
+			}
+			
+			this.memoryManager.release(full);
+			
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			Assert.fail("Test encountered an exception: " + ex.getMessage());
+		} finally {
+			ioMan.shutdown();
+		}
+	}
+	
+	/**
+	 * Tests that a corrupted block is detected by its checksum.
+	 */
+	@Test
+	public void channelChecksumDetectsCorruption()
+	{
+		final IOManager ioMan = new IOManager(new String[] { System.getProperty("java.io.tmpdir") }, 1,
+			CompressionLevel.NO_COMPRESSION, true);
+		MemorySegment memSeg = null;
+		try {
+			final Channel.ID channelID = ioMan.createChannel();
+			final BlockChannelWriter writer = ioMan.createBlockChannelWriter(channelID);
+			memSeg = this.memoryManager.allocatePages(new DummyInvokable(), 1).get(0);
+			for (int pos = 0; pos < memSeg.size(); pos += 4) {
+				memSeg.putInt(pos, pos);
+			}
+			writer.writeBlock(memSeg);
+			memSeg = writer.getNextReturnedSegment();
+			writer.close();
+			
+			// flip a byte in the middle of the block
+			final RandomAccessFile file = new RandomAccessFile(channelID.getPath(), "rw");
+			try {
+				final long position = file.length() / 2;
+				file.seek(position);
+				final int b = file.read();
+				file.seek(position);
+				file.write(~b);
+			} finally {
+				file.close();
+			}
+			
+			final BlockChannelReader reader = ioMan.createBlockChannelReader(channelID);
+			reader.readBlock(memSeg);
+			memSeg = reader.getNextReturnedSegment();
+			try {
+				reader.closeAndDelete();
+				reader.checkErroneous();
+				Assert.fail("Corrupted block has not been detected.");
+			} catch (IOException ioe) {
+				// expected
+			}
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			Assert.fail("Test encountered an exception: " + ex.getMessage());
+		} finally {
+			if (memSeg != null) {
+				this.memoryManager.release(memSeg);
+			}
+			ioMan.shutdown();
+		}
+	}
+
+	/**
+	 * Tests that the blocks of a memory-mapped channel contain the written data and cannot be read after the reader
+	 * has been closed.
+	 */
+	@Test
+	public void channelMappedBulkRead()
+	{
+		final int NUM_BLOCKS = 100;
+		
+		try {
+			final Channel.ID channelID = this.ioManager.createChannel();
+			final BlockChannelWriter writer = this.ioManager.createBlockChannelWriter(channelID);
+			
+			MemorySegment memSeg = this.memoryManager.allocatePages(new DummyInvokable(), 1).get(0);
+			final int blockSize = memSeg.size();
+			for (int i = 0; i < NUM_BLOCKS; i++) {
+				for (int pos = 0; pos < memSeg.size(); pos += 4) {
+					memSeg.putIntBigEndian(pos, i);
+				}
+				writer.writeBlock(memSeg);
+				memSeg = writer.getNextReturnedSegment();
+			}
+			writer.close();
+			
+			final MappedBulkBlockChannelReader reader = this.ioManager.createMappedBulkBlockChannelReader(channelID,
+				blockSize);
+			Assert.assertEquals(NUM_BLOCKS, reader.getNumberOfBlocks());
+			
+			// probe the blocks repeatedly and in reverse order
+			for (int round = 0; round < 2; round++) {
+				for (int i = NUM_BLOCKS - 1; i >= 0; i--) {
+					reader.readBlock(i, memSeg);
+					Assert.assertEquals(i, memSeg.getIntBigEndian(0));
+					Assert.assertEquals(i, memSeg.getIntBigEndian(blockSize - 4));
+				}
+			}
+			
+			reader.readBlock(NUM_BLOCKS / 2, memSeg);
+			for (int pos = 0; pos < memSeg.size(); pos += 4) {
+				Assert.assertEquals(NUM_BLOCKS / 2, memSeg.getIntBigEndian(pos));
+			}
+			
+			reader.closeAndDelete();
+			Assert.assertTrue(reader.isClosed());
+			Assert.assertFalse("Channel file has not been deleted.", new File(channelID.getPath()).exists());
+			
+			// the released mapping must not be accessible any more
+			try {
+				reader.readBlock(0, memSeg);
+				Assert.fail("Block of a closed reader has been read.");
+			} catch (IllegalStateException ise) {
+				// expected
+			}
+			
+			this.memoryManager.release(memSeg);
+			
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			Assert.fail("Test encountered an exception: " + ex.getMessage());
+		}
+	}
+
 	// ============================================================================================
 	
 	final class FailingSegmentReadRequest implements ReadRequest
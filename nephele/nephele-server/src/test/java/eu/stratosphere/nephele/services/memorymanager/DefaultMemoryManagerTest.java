@@ -15,6 +15,9 @@
 
 package eu.stratosphere.nephele.services.memorymanager;
 
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -25,6 +28,8 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import eu.stratosphere.nephele.execution.Environment;
+import eu.stratosphere.nephele.jobgraph.JobID;
 import eu.stratosphere.nephele.services.memorymanager.MemoryAllocationException;
 import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
 import eu.stratosphere.nephele.services.memorymanager.spi.DefaultMemoryManager;
@@ -161,6 +166,200 @@ public class DefaultMemoryManagerTest
 		}
 	}
 	
+	@Test
+	public void allocateAboveOwnerQuota()
+	{
+		try {
+			final AbstractInvokable mockInvoke = new DummyInvokable();
+			this.memoryManager.setOwnerQuota(NUM_PAGES / 2);
+			
+			final List<MemorySegment> segs = this.memoryManager.allocatePages(mockInvoke, NUM_PAGES / 2);
+			
+			try {
+				this.memoryManager.allocatePages(mockInvoke, 1);
+				Assert.fail("Expected MemoryAllocationException.");
+			} catch (MemoryAllocationException maex) {
+				// expected
+			}
+			
+			// another owner still gets its pages
+			final AbstractInvokable otherInvoke = new DummyInvokable();
+			this.memoryManager.allocatePages(otherInvoke, NUM_PAGES / 2);
+			
+			Assert.assertTrue("The previously allocated segments were not valid any more.",
+																	allMemorySegmentsValid(segs));
+			
+			this.memoryManager.releaseAll(mockInvoke);
+			this.memoryManager.releaseAll(otherInvoke);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail("Test encountered an exception: " + e.getMessage());
+		}
+	}
+	
+	@Test
+	public void jobQuotaCappedAtDefault()
+	{
+		try {
+			final JobID jobID = new JobID();
+			final Environment environment = mock(Environment.class);
+			when(environment.getJobID()).thenReturn(jobID);
+			final AbstractInvokable mockInvoke = new DummyInvokable();
+			mockInvoke.setEnvironment(environment);
+			
+			// the job asks for all of the memory, but the default job quota still applies
+			this.memoryManager.setDefaultJobQuota(NUM_PAGES / 4);
+			this.memoryManager.setJobQuota(jobID, NUM_PAGES);
+			
+			final List<MemorySegment> segs = this.memoryManager.allocatePages(mockInvoke, NUM_PAGES / 4);
+			
+			try {
+				this.memoryManager.allocatePages(mockInvoke, 1);
+				Assert.fail("Expected MemoryAllocationException.");
+			} catch (MemoryAllocationException maex) {
+				// expected
+			}
+			
+			Assert.assertTrue("The previously allocated segments were not valid any more.",
+																	allMemorySegmentsValid(segs));
+			
+			this.memoryManager.releaseAll(mockInvoke);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail("Test encountered an exception: " + e.getMessage());
+		}
+	}
+	
+	@Test
+	public void allocateBlockingTimeout()
+	{
+		try {
+			final AbstractInvokable mockInvoke = new DummyInvokable();
+			this.memoryManager.allocatePages(mockInvoke, NUM_PAGES);
+			
+			final long start = System.currentTimeMillis();
+			try {
+				this.memoryManager.allocatePages(new DummyInvokable(), new ArrayList<MemorySegment>(), 1, 100);
+				Assert.fail("Expected MemoryAllocationException.");
+			} catch (MemoryAllocationException maex) {
+				// expected
+			}
+			Assert.assertTrue("The allocation did not wait for the timeout.", System.currentTimeMillis() - start >= 100);
+			
+			this.memoryManager.releaseAll(mockInvoke);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail("Test encountered an exception: " + e.getMessage());
+		}
+	}
+	
+	@Test
+	public void allocateBlockingUnboundedTimeout()
+	{
+		try {
+			final AbstractInvokable mockInvoke = new DummyInvokable();
+			final List<MemorySegment> allSegs = this.memoryManager.allocatePages(mockInvoke, NUM_PAGES);
+			
+			// a timeout whose deadline exceeds the range of a long must wait rather than fail right away
+			final List<MemorySegment> toRelease = new ArrayList<MemorySegment>(allSegs.subList(0, 1));
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						Thread.sleep(100);
+					} catch (InterruptedException iex) {
+						// release right away
+					}
+					DefaultMemoryManagerTest.this.memoryManager.release(toRelease);
+				}
+			}.start();
+			
+			final AbstractInvokable otherInvoke = new DummyInvokable();
+			final List<MemorySegment> segs = new ArrayList<MemorySegment>();
+			this.memoryManager.allocatePages(otherInvoke, segs, 1, Long.MAX_VALUE);
+			Assert.assertEquals(1, segs.size());
+			
+			this.memoryManager.releaseAll(mockInvoke);
+			this.memoryManager.releaseAll(otherInvoke);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail("Test encountered an exception: " + e.getMessage());
+		}
+	}
+	
+	@Test
+	public void allocateBlockingInterrupted()
+	{
+		try {
+			final AbstractInvokable mockInvoke = new DummyInvokable();
+			this.memoryManager.allocatePages(mockInvoke, NUM_PAGES);
+			
+			// the reclaim request is issued first, the interrupt then hits the wait for the pages
+			Thread.currentThread().interrupt();
+			try {
+				this.memoryManager.allocatePages(new DummyInvokable(), new ArrayList<MemorySegment>(), 1, 10000);
+				Assert.fail("Expected MemoryAllocationException.");
+			} catch (MemoryAllocationException maex) {
+				// expected
+			}
+			Assert.assertTrue("The interrupt has not been preserved.", Thread.interrupted());
+			
+			this.memoryManager.releaseAll(mockInvoke);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail("Test encountered an exception: " + e.getMessage());
+		}
+	}
+	
+	@Test
+	public void allocateBlockingWithReclaimer()
+	{
+		try {
+			final AbstractInvokable greedyInvoke = new DummyInvokable();
+			final List<MemorySegment> greedySegs = this.memoryManager.allocatePages(greedyInvoke, NUM_PAGES);
+			final int[] requested = new int[1];
+			
+			// the reclaimer hands the pages back asynchronously, as a spilling task would
+			this.memoryManager.registerMemoryReclaimer(greedyInvoke, new MemoryReclaimer() {
+				@Override
+				public void reclaimMemory(final int numPages) {
+					requested[0] = numPages;
+					final List<MemorySegment> toRelease = new ArrayList<MemorySegment>(
+						greedySegs.subList(greedySegs.size() - numPages, greedySegs.size()));
+					greedySegs.removeAll(toRelease);
+					new Thread() {
+						@Override
+						public void run() {
+							DefaultMemoryManagerTest.this.memoryManager.release(toRelease);
+						}
+					}.start();
+				}
+			});
+			
+			final AbstractInvokable mockInvoke = new DummyInvokable();
+			final List<MemorySegment> segs = new ArrayList<MemorySegment>();
+			this.memoryManager.allocatePages(mockInvoke, segs, 4, 10000);
+			
+			Assert.assertEquals(4, segs.size());
+			Assert.assertEquals(4, requested[0]);
+			Assert.assertEquals(NUM_PAGES, this.memoryManager.getNumberOfAllocatedPages());
+			Assert.assertTrue(this.memoryManager.getNumberOfAllocations() >= 2);
+			
+			this.memoryManager.releaseAll(mockInvoke);
+			this.memoryManager.releaseAll(greedyInvoke);
+			Assert.assertEquals(0, this.memoryManager.getNumberOfAllocatedPages());
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail("Test encountered an exception: " + e.getMessage());
+		}
+	}
+	
 	private boolean allMemorySegmentsValid(List<MemorySegment> memSegs)
 	{
 		for (MemorySegment seg : memSegs) {
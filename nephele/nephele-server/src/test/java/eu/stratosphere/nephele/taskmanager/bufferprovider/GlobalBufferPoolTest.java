@@ -0,0 +1,82 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.bufferprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+
+/**
+ * This class contains tests covering the allocation of buffers by the {@link GlobalBufferPool}.
+ *
+ */
+public class GlobalBufferPoolTest {
+
+	private static final int NUMBER_OF_BUFFERS = 8;
+
+	private static final int BUFFER_SIZE = 1024;
+
+	/**
+	 * Checks that a pool with lazy allocation creates its buffers on demand, but never more than its total number of
+	 * buffers.
+	 */
+	@Test
+	public void testLazyBufferAllocation() {
+
+		final GlobalBufferPool pool = new GlobalBufferPool(NUMBER_OF_BUFFERS, BUFFER_SIZE, true);
+		assertEquals(NUMBER_OF_BUFFERS, pool.getCurrentNumberOfBuffers());
+
+		final List<MemorySegment> segments = new ArrayList<MemorySegment>();
+		for (int i = 0; i < NUMBER_OF_BUFFERS; ++i) {
+			final MemorySegment segment = pool.lockGlobalBuffer();
+			assertNotNull(segment);
+			assertEquals(BUFFER_SIZE, segment.size());
+			segments.add(segment);
+		}
+
+		assertNull(pool.lockGlobalBuffer());
+		assertEquals(0, pool.getCurrentNumberOfBuffers());
+
+		final MemorySegment released = segments.remove(0);
+		pool.releaseGlobalBuffer(released);
+		assertEquals(1, pool.getCurrentNumberOfBuffers());
+		assertSame(released, pool.lockGlobalBuffer());
+	}
+
+	/**
+	 * Checks that a pool without lazy allocation creates all buffers at construction time.
+	 */
+	@Test
+	public void testEagerBufferAllocation() {
+
+		final GlobalBufferPool pool = new GlobalBufferPool(NUMBER_OF_BUFFERS, BUFFER_SIZE, false);
+		assertEquals(NUMBER_OF_BUFFERS, pool.getCurrentNumberOfBuffers());
+
+		for (int i = 0; i < NUMBER_OF_BUFFERS; ++i) {
+			assertNotNull(pool.lockGlobalBuffer());
+		}
+
+		assertNull(pool.lockGlobalBuffer());
+	}
+}
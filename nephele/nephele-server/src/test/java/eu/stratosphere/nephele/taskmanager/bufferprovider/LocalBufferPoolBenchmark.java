@@ -0,0 +1,99 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.bufferprovider;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import eu.stratosphere.nephele.io.channels.Buffer;
+
+/**
+ * Measures the request/recycle throughput of a {@link LocalBufferPool}. One task thread requests buffers and hands them
+ * to 1..N recycler threads which play the role of the network I/O threads and recycle the buffers to the pool.
+ *
+ */
+public class LocalBufferPoolBenchmark {
+
+	private static final int MAX_NUMBER_OF_RECYCLERS = 4;
+
+	private static final int DESIGNATED_NUMBER_OF_BUFFERS = 64;
+
+	private static final int NUMBER_OF_BUFFERS = 2000000;
+
+	private static final int ROUNDS = 3;
+
+	public static void main(final String[] args) throws Exception {
+
+		for (int round = 0; round < ROUNDS; ++round) {
+			for (int recyclers = 1; recyclers <= MAX_NUMBER_OF_RECYCLERS; ++recyclers) {
+
+				final long elapsed = runBenchmark(recyclers);
+
+				System.out.println(String.format(
+					"Round %d, %d recycler threads: %,d buffers in %,d msecs (%,d buffers/sec).", round, recyclers,
+					NUMBER_OF_BUFFERS, elapsed, (NUMBER_OF_BUFFERS * 1000L) / Math.max(elapsed, 1L)));
+			}
+		}
+	}
+
+	private static long runBenchmark(final int numberOfRecyclers) throws Exception {
+
+		final LocalBufferPool pool = new LocalBufferPool(DESIGNATED_NUMBER_OF_BUFFERS, false);
+		final BlockingQueue<Buffer> handOver = new LinkedBlockingQueue<Buffer>();
+		final CountDownLatch finished = new CountDownLatch(numberOfRecyclers);
+		final Buffer poisonPill = pool.requestEmptyBuffer(1);
+
+		for (int i = 0; i < numberOfRecyclers; ++i) {
+			new Thread() {
+
+				@Override
+				public void run() {
+					try {
+						while (true) {
+							final Buffer buffer = handOver.take();
+							if (buffer == poisonPill) {
+								break;
+							}
+							buffer.recycleBuffer();
+						}
+					} catch (InterruptedException e) {
+						e.printStackTrace();
+					}
+					finished.countDown();
+				}
+			}.start();
+		}
+
+		final long start = System.currentTimeMillis();
+
+		for (int i = 0; i < NUMBER_OF_BUFFERS; ++i) {
+			handOver.add(pool.requestEmptyBufferBlocking(1024));
+		}
+
+		for (int i = 0; i < numberOfRecyclers; ++i) {
+			handOver.add(poisonPill);
+		}
+		finished.await();
+
+		final long elapsed = System.currentTimeMillis() - start;
+
+		poisonPill.recycleBuffer();
+		pool.destroy();
+
+		return elapsed;
+	}
+}
@@ -0,0 +1,171 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.bufferprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.io.channels.Buffer;
+import eu.stratosphere.nephele.util.StringUtils;
+
+/**
+ * This class contains tests covering the buffer accounting and the listener semantics of the {@link LocalBufferPool}.
+ *
+ */
+public class LocalBufferPoolTest {
+
+	/**
+	 * The designated number of buffers of the pools used during the tests.
+	 */
+	private static final int DESIGNATED_NUMBER_OF_BUFFERS = 4;
+
+	/**
+	 * Checks that a pool never hands out more than its designated number of buffers and returns excess buffers to the
+	 * global pool when the designated number is lowered.
+	 */
+	@Test
+	public void testDesignatedNumberOfBuffers() {
+
+		try {
+			final LocalBufferPool pool = new LocalBufferPool(DESIGNATED_NUMBER_OF_BUFFERS, false);
+			final List<Buffer> buffers = new ArrayList<Buffer>();
+			for (int i = 0; i < DESIGNATED_NUMBER_OF_BUFFERS; ++i) {
+				final Buffer buffer = pool.requestEmptyBuffer(128);
+				assertNotNull(buffer);
+				buffers.add(buffer);
+			}
+
+			assertNull(pool.requestEmptyBuffer(128));
+			assertEquals(DESIGNATED_NUMBER_OF_BUFFERS, pool.getRequestedNumberOfBuffers());
+
+			for (final Buffer buffer : buffers) {
+				buffer.recycleBuffer();
+			}
+			assertEquals(DESIGNATED_NUMBER_OF_BUFFERS, pool.getNumberOfAvailableBuffers());
+
+			pool.setDesignatedNumberOfBuffers(1);
+			assertEquals(1, pool.getRequestedNumberOfBuffers());
+			assertEquals(1, pool.getNumberOfAvailableBuffers());
+
+			pool.destroy();
+			assertEquals(0, pool.getRequestedNumberOfBuffers());
+
+		} catch (Exception e) {
+			fail(StringUtils.stringifyException(e));
+		}
+	}
+
+	/**
+	 * Checks that a registered {@link BufferAvailabilityListener} is notified exactly once when a buffer is recycled
+	 * and that registering fails while buffers are available.
+	 */
+	@Test
+	public void testBufferAvailabilityListener() {
+
+		try {
+			final LocalBufferPool pool = new LocalBufferPool(1, false);
+			final AtomicInteger notifications = new AtomicInteger(0);
+			final BufferAvailabilityListener listener = new BufferAvailabilityListener() {
+
+				@Override
+				public void bufferAvailable() {
+					notifications.incrementAndGet();
+				}
+			};
+
+			final Buffer buffer = pool.requestEmptyBuffer(128);
+			assertNotNull(buffer);
+			assertTrue(pool.registerBufferAvailabilityListener(listener));
+
+			buffer.recycleBuffer();
+			assertEquals(1, notifications.get());
+			assertFalse(pool.registerBufferAvailabilityListener(listener));
+
+			pool.requestEmptyBuffer(128).recycleBuffer();
+			assertEquals(1, notifications.get());
+
+			pool.destroy();
+			assertFalse(pool.registerBufferAvailabilityListener(listener));
+
+		} catch (Exception e) {
+			fail(StringUtils.stringifyException(e));
+		}
+	}
+
+	/**
+	 * Checks that concurrently requesting and recycling buffers neither loses buffers nor exceeds the designated
+	 * number of buffers.
+	 */
+	@Test
+	public void testConcurrentRequestAndRecycle() {
+
+		final int numberOfThreads = 4;
+		final int numberOfIterations = 20000;
+		final GlobalBufferPool globalBufferPool = GlobalBufferPool.getInstance();
+		final int globalBuffersBefore = globalBufferPool.getCurrentNumberOfBuffers();
+		final LocalBufferPool pool = new LocalBufferPool(DESIGNATED_NUMBER_OF_BUFFERS, false);
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+		final Thread[] threads = new Thread[numberOfThreads];
+		for (int i = 0; i < numberOfThreads; ++i) {
+			threads[i] = new Thread() {
+
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < numberOfIterations; ++j) {
+							final Buffer buffer = pool.requestEmptyBufferBlocking(128);
+							if (pool.getRequestedNumberOfBuffers() > DESIGNATED_NUMBER_OF_BUFFERS) {
+								throw new IllegalStateException("Designated number of buffers exceeded");
+							}
+							buffer.recycleBuffer();
+						}
+					} catch (Throwable t) {
+						error.compareAndSet(null, t);
+					}
+				}
+			};
+			threads[i].start();
+		}
+
+		try {
+			for (final Thread thread : threads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			fail(StringUtils.stringifyException(e));
+		}
+
+		if (error.get() != null) {
+			fail(StringUtils.stringifyException(error.get()));
+		}
+
+		assertEquals(pool.getRequestedNumberOfBuffers(), pool.getNumberOfAvailableBuffers());
+		pool.destroy();
+		assertEquals(globalBuffersBefore, globalBufferPool.getCurrentNumberOfBuffers());
+	}
+}
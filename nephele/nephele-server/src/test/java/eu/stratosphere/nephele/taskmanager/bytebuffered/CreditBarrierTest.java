@@ -0,0 +1,216 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.bytebuffered;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.io.channels.BufferFactory;
+import eu.stratosphere.nephele.io.channels.ChannelID;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+import eu.stratosphere.nephele.taskmanager.runtime.CreditBarrier;
+import eu.stratosphere.nephele.taskmanager.transferenvelope.TransferEnvelope;
+import eu.stratosphere.nephele.util.BufferPoolConnector;
+import eu.stratosphere.nephele.util.StringUtils;
+
+/**
+ * This class contains tests covering the credit-based flow control implemented by the {@link CreditBarrier}.
+ *
+ */
+public class CreditBarrierTest {
+
+	/**
+	 * The initial credit of the channel used during the tests.
+	 */
+	private static final int INITIAL_CREDIT = 2;
+
+	private final JobID jobID = new JobID();
+
+	private final ChannelID channelID = new ChannelID();
+
+	private final Queue<MemorySegment> bufferPool = new ArrayDeque<MemorySegment>();
+
+	private int sequenceNumber = 0;
+
+	/**
+	 * A forwarder which records the envelopes pushed to it.
+	 *
+	 */
+	private static final class RecordingForwarder extends AbstractOutputChannelForwarder {
+
+		private final List<TransferEnvelope> forwardedEnvelopes = Collections
+			.synchronizedList(new ArrayList<TransferEnvelope>());
+
+		private RecordingForwarder() {
+			super(null);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void push(final TransferEnvelope transferEnvelope) {
+
+			this.forwardedEnvelopes.add(transferEnvelope);
+		}
+	}
+
+	/**
+	 * Checks that the first envelope with a buffer requests the initial credit from the receiver and that no further
+	 * envelopes with buffers are forwarded until the receiver has announced it.
+	 */
+	@Test
+	public void testInitialCreditIsRequested() {
+
+		final RecordingForwarder recorder = new RecordingForwarder();
+		final CreditBarrier creditBarrier = new CreditBarrier(this.channelID, recorder);
+		final OutputChannelForwardingChain chain = new OutputChannelForwardingChain(creditBarrier, recorder);
+		creditBarrier.setForwardingChain(chain);
+
+		try {
+			chain.pushEnvelope(createEnvelope(true));
+			assertEquals(1, recorder.forwardedEnvelopes.size());
+			assertTrue(recorder.forwardedEnvelopes.get(0).getEventList().get(0) instanceof ChannelCreditRequestEvent);
+
+			final Thread taskThread = pushInBackground(chain, createEnvelope(true));
+			taskThread.join(300L);
+			assertEquals(1, recorder.forwardedEnvelopes.size());
+
+			chain.offerEvent(new ChannelCreditEvent(INITIAL_CREDIT));
+			taskThread.join();
+			assertEquals(2, recorder.forwardedEnvelopes.size());
+
+			// Only the first envelope carries the request
+			assertNull(recorder.forwardedEnvelopes.get(1).getEventList());
+
+		} catch (Exception e) {
+			fail(StringUtils.stringifyException(e));
+		}
+	}
+
+	/**
+	 * Checks that envelopes with buffers are only forwarded as long as credit is available, envelopes carrying only
+	 * events are always forwarded, and a blocked task thread resumes as soon as credit arrives.
+	 */
+	@Test
+	public void testCreditIsRespected() {
+
+		final RecordingForwarder recorder = new RecordingForwarder();
+		final CreditBarrier creditBarrier = new CreditBarrier(this.channelID, recorder);
+		final OutputChannelForwardingChain chain = new OutputChannelForwardingChain(creditBarrier, recorder);
+		creditBarrier.setForwardingChain(chain);
+
+		try {
+			// The receiver has consumed the first envelope and announces the initial credit
+			chain.pushEnvelope(createEnvelope(true));
+			chain.offerEvent(new ChannelCreditEvent(INITIAL_CREDIT));
+			chain.processQueuedEvents();
+
+			for (int i = 0; i < INITIAL_CREDIT; ++i) {
+				chain.pushEnvelope(createEnvelope(true));
+			}
+			chain.pushEnvelope(createEnvelope(false));
+			assertEquals(INITIAL_CREDIT + 2, recorder.forwardedEnvelopes.size());
+
+			final Thread taskThread = pushInBackground(chain, createEnvelope(true));
+			taskThread.join(300L);
+			assertEquals(INITIAL_CREDIT + 2, recorder.forwardedEnvelopes.size());
+
+			chain.offerEvent(new ChannelCreditEvent(1));
+			taskThread.join();
+			assertFalse(taskThread.isAlive());
+			assertEquals(INITIAL_CREDIT + 3, recorder.forwardedEnvelopes.size());
+
+		} catch (Exception e) {
+			fail(StringUtils.stringifyException(e));
+		}
+	}
+
+	/**
+	 * Checks that flow control is suspended once the receiver turns out to be unavailable, so the task thread does not
+	 * wait for credit which will never arrive.
+	 */
+	@Test
+	public void testReceiverNotFoundSuspendsFlowControl() {
+
+		final RecordingForwarder recorder = new RecordingForwarder();
+		final CreditBarrier creditBarrier = new CreditBarrier(this.channelID, recorder);
+		final OutputChannelForwardingChain chain = new OutputChannelForwardingChain(creditBarrier, recorder);
+		creditBarrier.setForwardingChain(chain);
+
+		try {
+			chain.pushEnvelope(createEnvelope(true));
+
+			final Thread taskThread = pushInBackground(chain, createEnvelope(true));
+			chain.offerEvent(new ReceiverNotFoundEvent(new ChannelID(), 0));
+			taskThread.join();
+
+			chain.pushEnvelope(createEnvelope(true));
+			assertEquals(3, recorder.forwardedEnvelopes.size());
+
+		} catch (Exception e) {
+			fail(StringUtils.stringifyException(e));
+		}
+	}
+
+	private Thread pushInBackground(final OutputChannelForwardingChain chain, final TransferEnvelope transferEnvelope)
+			throws InterruptedException {
+
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final Thread thread = new Thread() {
+
+			@Override
+			public void run() {
+				try {
+					chain.pushEnvelope(transferEnvelope);
+				} catch (Throwable t) {
+					error.set(t);
+				}
+			}
+		};
+
+		thread.start();
+		thread.join(50L);
+		assertNull(error.get());
+
+		return thread;
+	}
+
+	private TransferEnvelope createEnvelope(final boolean withBuffer) throws IOException {
+
+		final TransferEnvelope te = new TransferEnvelope(this.sequenceNumber++, this.jobID, this.channelID);
+		if (withBuffer) {
+			te.setBuffer(BufferFactory.createFromMemory(8, new MemorySegment(new byte[8]), new BufferPoolConnector(
+				this.bufferPool)));
+		}
+
+		return te;
+	}
+}
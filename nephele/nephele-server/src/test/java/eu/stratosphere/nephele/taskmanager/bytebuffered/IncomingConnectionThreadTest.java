@@ -0,0 +1,161 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.taskmanager.bytebuffered;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * This class contains tests for the distribution of incoming connections among several
+ * {@link IncomingConnectionThread} objects.
+ */
+public class IncomingConnectionThreadTest {
+
+	/**
+	 * The number of threads the incoming connections are distributed among.
+	 */
+	private static final int NUMBER_OF_READ_THREADS = 2;
+
+	/**
+	 * The number of connections opened from each remote address.
+	 */
+	private static final int CONNECTIONS_PER_ADDRESS = 3;
+
+	/**
+	 * The maximum time in milliseconds to wait for the threads to register the connections.
+	 */
+	private static final long TIMEOUT = 10000L;
+
+	/**
+	 * Checks that the thread selected for a remote host does not depend on the port of the connection.
+	 */
+	@Test
+	public void testReadThreadIndexIsStable() throws IOException {
+
+		final InetAddress address = InetAddress.getByName("127.0.0.1");
+		final int index = IncomingConnectionThread.getReadThreadIndex(address, NUMBER_OF_READ_THREADS);
+
+		for (int i = 0; i < 10; ++i) {
+			assertEquals(index, IncomingConnectionThread.getReadThreadIndex(InetAddress.getByName("127.0.0.1"),
+				NUMBER_OF_READ_THREADS));
+		}
+	}
+
+	/**
+	 * Opens several connections from different loopback addresses and checks that they are registered with more than
+	 * one thread, each according to the remote host's address.
+	 */
+	@Test
+	public void testConnectionsAreDistributedAmongThreads() throws Exception {
+
+		// Find loopback addresses which are mapped to each of the threads
+		final InetAddress[] remoteAddresses = new InetAddress[NUMBER_OF_READ_THREADS];
+		int found = 0;
+		for (int i = 1; i < 255 && found < NUMBER_OF_READ_THREADS; ++i) {
+			final InetAddress address = InetAddress.getByName("127.0.0." + i);
+			final int index = IncomingConnectionThread.getReadThreadIndex(address, NUMBER_OF_READ_THREADS);
+			if (remoteAddresses[index] == null) {
+				remoteAddresses[index] = address;
+				++found;
+			}
+		}
+		assertEquals(NUMBER_OF_READ_THREADS, found);
+
+		final InetSocketAddress listeningAddress = new InetSocketAddress(InetAddress.getByName("127.0.0.1"),
+			getAvailablePort());
+
+		final List<IncomingConnectionThread> readThreads = new ArrayList<IncomingConnectionThread>(
+			NUMBER_OF_READ_THREADS);
+		readThreads.add(new IncomingConnectionThread(null, true, listeningAddress, readThreads));
+		for (int i = 1; i < NUMBER_OF_READ_THREADS; ++i) {
+			readThreads.add(new IncomingConnectionThread(null, false, null));
+		}
+		for (final IncomingConnectionThread readThread : readThreads) {
+			readThread.start();
+		}
+
+		final List<Socket> sockets = new ArrayList<Socket>();
+		try {
+			for (int i = 0; i < NUMBER_OF_READ_THREADS; ++i) {
+				for (int j = 0; j < CONNECTIONS_PER_ADDRESS; ++j) {
+					final Socket socket = new Socket();
+					sockets.add(socket);
+					try {
+						socket.bind(new InetSocketAddress(remoteAddresses[i], 0));
+					} catch (IOException ioe) {
+						// Not every platform routes the entire loopback network
+						Assume.assumeNoException(ioe);
+					}
+					socket.connect(listeningAddress);
+				}
+			}
+
+			final long deadline = System.currentTimeMillis() + TIMEOUT;
+			for (final IncomingConnectionThread readThread : readThreads) {
+				while (readThread.getNumberOfRegisteredConnections() < CONNECTIONS_PER_ADDRESS) {
+					if (System.currentTimeMillis() > deadline) {
+						fail("Connections have not been registered with thread " + readThreads.indexOf(readThread));
+					}
+					Thread.sleep(10);
+				}
+			}
+
+			for (final IncomingConnectionThread readThread : readThreads) {
+				assertEquals(CONNECTIONS_PER_ADDRESS, readThread.getNumberOfRegisteredConnections());
+			}
+
+		} finally {
+			for (final Socket socket : sockets) {
+				socket.close();
+			}
+			for (final IncomingConnectionThread readThread : readThreads) {
+				readThread.interrupt();
+			}
+			for (final IncomingConnectionThread readThread : readThreads) {
+				readThread.join();
+			}
+		}
+	}
+
+	/**
+	 * Returns a port which is currently not in use.
+	 * 
+	 * @return a port which is currently not in use
+	 * @throws IOException
+	 *         thrown if no port could be determined
+	 */
+	private static int getAvailablePort() throws IOException {
+
+		final ServerSocket serverSocket = new ServerSocket(0);
+		try {
+			return serverSocket.getLocalPort();
+		} finally {
+			serverSocket.close();
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.runtime;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * This class contains tests covering the adaptation of the buffer size by the {@link AdaptiveBufferSizer}.
+ *
+ */
+public class AdaptiveBufferSizerTest {
+
+	private static final int MAXIMUM_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Checks that the buffer size shrinks for a channel which flushes small amounts of data and grows back to the
+	 * maximum once the channel fills its buffers.
+	 */
+	@Test
+	public void testShrinkAndGrow() {
+
+		final AdaptiveBufferSizer sizer = new AdaptiveBufferSizer(MAXIMUM_BUFFER_SIZE);
+		assertEquals(MAXIMUM_BUFFER_SIZE, sizer.getBufferSize());
+
+		// The buffer size is halved per window, but not below the average amount of data
+		reportWindow(sizer, 10000);
+		assertEquals(MAXIMUM_BUFFER_SIZE / 2, sizer.getBufferSize());
+		reportWindow(sizer, 10000);
+		assertEquals(MAXIMUM_BUFFER_SIZE / 4, sizer.getBufferSize());
+		reportWindow(sizer, 10000);
+		assertEquals(10000, sizer.getBufferSize());
+
+		// Never shrink below the minimum buffer size
+		for (int i = 0; i < 10; ++i) {
+			reportWindow(sizer, 10);
+		}
+		assertEquals(AdaptiveBufferSizer.MINIMUM_BUFFER_SIZE, sizer.getBufferSize());
+
+		// Full buffers double the buffer size up to the maximum
+		for (int i = 0; i < 10; ++i) {
+			reportWindow(sizer, sizer.getBufferSize());
+		}
+		assertEquals(MAXIMUM_BUFFER_SIZE, sizer.getBufferSize());
+	}
+
+	/**
+	 * Checks that a mixture of full and partially filled buffers leaves the buffer size unchanged.
+	 */
+	@Test
+	public void testStableForMixedFillLevels() {
+
+		final AdaptiveBufferSizer sizer = new AdaptiveBufferSizer(MAXIMUM_BUFFER_SIZE);
+		reportWindow(sizer, 100);
+		final int bufferSize = sizer.getBufferSize();
+
+		for (int i = 0; i < AdaptiveBufferSizer.OBSERVATION_WINDOW; ++i) {
+			sizer.reportReleasedBuffer(bufferSize, (i % 2 == 0) ? bufferSize : 100);
+		}
+
+		assertEquals(bufferSize, sizer.getBufferSize());
+	}
+
+	private static void reportWindow(final AdaptiveBufferSizer sizer, final int amountOfData) {
+
+		final int bufferSize = sizer.getBufferSize();
+		for (int i = 0; i < AdaptiveBufferSizer.OBSERVATION_WINDOW; ++i) {
+			sizer.reportReleasedBuffer(bufferSize, Math.min(bufferSize, amountOfData));
+		}
+	}
+}
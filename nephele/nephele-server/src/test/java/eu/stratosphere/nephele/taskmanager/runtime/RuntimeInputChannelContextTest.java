@@ -0,0 +1,227 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.taskmanager.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import eu.stratosphere.nephele.configuration.Configuration;
+import eu.stratosphere.nephele.configuration.GlobalConfiguration;
+import eu.stratosphere.nephele.io.InputGate;
+import eu.stratosphere.nephele.io.channels.Buffer;
+import eu.stratosphere.nephele.io.channels.BufferFactory;
+import eu.stratosphere.nephele.io.channels.ChannelID;
+import eu.stratosphere.nephele.io.channels.ChannelType;
+import eu.stratosphere.nephele.io.channels.bytebuffered.AbstractByteBufferedInputChannel;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+import eu.stratosphere.nephele.taskmanager.bytebuffered.AbstractOutputChannelForwarder;
+import eu.stratosphere.nephele.taskmanager.bytebuffered.OutputChannelForwardingChain;
+import eu.stratosphere.nephele.taskmanager.transferenvelope.TransferEnvelope;
+import eu.stratosphere.nephele.taskmanager.transferenvelope.TransferEnvelopeDispatcher;
+import eu.stratosphere.nephele.types.Record;
+import eu.stratosphere.nephele.util.BufferPoolConnector;
+import eu.stratosphere.nephele.util.StringUtils;
+
+/**
+ * This class contains tests covering the credit-based flow control between a {@link CreditBarrier} on the sending side
+ * and a {@link RuntimeInputChannelContext} on the receiving side.
+ */
+public class RuntimeInputChannelContextTest {
+
+	/**
+	 * The number of buffers the receiving gate is designated.
+	 */
+	private static final int DESIGNATED_NUMBER_OF_BUFFERS = 4;
+
+	/**
+	 * The number of input channels of the receiving gate.
+	 */
+	private static final int NUMBER_OF_CHANNELS = 2;
+
+	private final JobID jobID = new JobID();
+
+	private final ChannelID outputChannelID = new ChannelID();
+
+	private final ChannelID inputChannelID = new ChannelID();
+
+	private final Queue<MemorySegment> bufferPool = new ArrayDeque<MemorySegment>();
+
+	private int sequenceNumber = 0;
+
+	/**
+	 * A forwarder which records the envelopes pushed to it.
+	 */
+	private static final class RecordingForwarder extends AbstractOutputChannelForwarder {
+
+		private final List<TransferEnvelope> forwardedEnvelopes = Collections
+			.synchronizedList(new ArrayList<TransferEnvelope>());
+
+		private RecordingForwarder() {
+			super(null);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void push(final TransferEnvelope transferEnvelope) {
+
+			this.forwardedEnvelopes.add(transferEnvelope);
+		}
+	}
+
+	/**
+	 * Checks that a flow-controlled sender is granted the credit the receiving gate reserves per channel, although
+	 * credit-based flow control is disabled in the configuration of the receiving side.
+	 */
+	@Test
+	public void testReceiverAnnouncesInitialCredit() {
+
+		final Configuration receiverConfiguration = new Configuration();
+		receiverConfiguration.setBoolean("channel.network.creditBasedFlowControl", false);
+		GlobalConfiguration.includeConfiguration(receiverConfiguration);
+
+		final RecordingForwarder recorder = new RecordingForwarder();
+		final CreditBarrier creditBarrier = new CreditBarrier(this.outputChannelID, recorder);
+		final OutputChannelForwardingChain chain = new OutputChannelForwardingChain(creditBarrier, recorder);
+		creditBarrier.setForwardingChain(chain);
+
+		final RuntimeInputChannelContext inputChannelContext = createInputChannelContext(chain);
+		final int creditPerChannel = DESIGNATED_NUMBER_OF_BUFFERS / NUMBER_OF_CHANNELS;
+
+		try {
+			// The first envelope requests the initial credit
+			chain.pushEnvelope(createEnvelope());
+			assertEquals(1, recorder.forwardedEnvelopes.size());
+			deliverAndConsume(recorder.forwardedEnvelopes.get(0), inputChannelContext);
+
+			// The sender may now use the credit announced by the receiver, but no more
+			for (int i = 0; i < creditPerChannel; ++i) {
+				chain.pushEnvelope(createEnvelope());
+			}
+			assertEquals(1 + creditPerChannel, recorder.forwardedEnvelopes.size());
+
+			final Thread taskThread = pushInBackground(chain, createEnvelope());
+			taskThread.join(300L);
+			assertEquals(1 + creditPerChannel, recorder.forwardedEnvelopes.size());
+
+			// Consuming an envelope returns credit to the sender
+			deliverAndConsume(recorder.forwardedEnvelopes.get(1), inputChannelContext);
+			taskThread.join();
+			assertFalse(taskThread.isAlive());
+			assertEquals(2 + creditPerChannel, recorder.forwardedEnvelopes.size());
+
+		} catch (Exception e) {
+			fail(StringUtils.stringifyException(e));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private RuntimeInputChannelContext createInputChannelContext(final OutputChannelForwardingChain senderChain) {
+
+		final AbstractByteBufferedInputChannel<Record> inputChannel = mock(AbstractByteBufferedInputChannel.class);
+		when(inputChannel.getID()).thenReturn(this.inputChannelID);
+		when(inputChannel.getConnectedChannelID()).thenReturn(this.outputChannelID);
+		when(inputChannel.getJobID()).thenReturn(this.jobID);
+		when(inputChannel.getType()).thenReturn(ChannelType.NETWORK);
+		when(inputChannel.isInputChannel()).thenReturn(true);
+
+		final InputGate<Record> inputGate = mock(InputGate.class);
+		when(inputGate.getNumberOfInputChannels()).thenReturn(NUMBER_OF_CHANNELS);
+		when(inputGate.getInputChannel(0)).thenReturn(inputChannel);
+
+		// Events sent by the receiver are delivered to the sender's output channel context
+		final RuntimeOutputChannelContext outputChannelContext = new RuntimeOutputChannelContext(null, senderChain);
+		final TransferEnvelopeDispatcher dispatcher = mock(TransferEnvelopeDispatcher.class);
+		try {
+			doAnswer(new Answer<Void>() {
+
+				@Override
+				public Void answer(final InvocationOnMock invocation) {
+
+					outputChannelContext.queueTransferEnvelope((TransferEnvelope) invocation.getArguments()[0]);
+
+					return null;
+				}
+			}).when(dispatcher).processEnvelopeFromInputChannel(any(TransferEnvelope.class));
+		} catch (Exception e) {
+			fail(StringUtils.stringifyException(e));
+		}
+
+		final RuntimeInputGateContext inputGateContext = new RuntimeInputGateContext("Receiver", dispatcher, inputGate);
+		inputGateContext.setDesignatedNumberOfBuffers(DESIGNATED_NUMBER_OF_BUFFERS);
+
+		return (RuntimeInputChannelContext) inputGateContext.createInputChannelContext(this.inputChannelID, null);
+	}
+
+	private static void deliverAndConsume(final TransferEnvelope transferEnvelope,
+			final RuntimeInputChannelContext inputChannelContext) {
+
+		inputChannelContext.queueTransferEnvelope(transferEnvelope);
+
+		final Buffer buffer = inputChannelContext.getReadBufferToConsume();
+		assertNotNull(buffer);
+		inputChannelContext.releaseConsumedReadBuffer(buffer);
+	}
+
+	private Thread pushInBackground(final OutputChannelForwardingChain chain, final TransferEnvelope transferEnvelope)
+			throws InterruptedException {
+
+		final Thread thread = new Thread() {
+
+			@Override
+			public void run() {
+				try {
+					chain.pushEnvelope(transferEnvelope);
+				} catch (Exception e) {
+					fail(StringUtils.stringifyException(e));
+				}
+			}
+		};
+
+		thread.start();
+
+		return thread;
+	}
+
+	private TransferEnvelope createEnvelope() throws IOException {
+
+		final TransferEnvelope te = new TransferEnvelope(this.sequenceNumber++, this.jobID, this.outputChannelID);
+		te.setBuffer(BufferFactory.createFromMemory(8, new MemorySegment(new byte[8]), new BufferPoolConnector(
+			this.bufferPool)));
+
+		return te;
+	}
+}
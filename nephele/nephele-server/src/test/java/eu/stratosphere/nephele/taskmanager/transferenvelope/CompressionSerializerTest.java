@@ -0,0 +1,442 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.transferenvelope;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.io.channels.Buffer;
+import eu.stratosphere.nephele.io.channels.BufferFactory;
+import eu.stratosphere.nephele.io.channels.ChannelID;
+import eu.stratosphere.nephele.io.channels.MemoryBuffer;
+import eu.stratosphere.nephele.io.compression.CompressionLevel;
+import eu.stratosphere.nephele.io.compression.CompressionStatistics;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+import eu.stratosphere.nephele.taskmanager.bufferprovider.BufferAvailabilityListener;
+import eu.stratosphere.nephele.taskmanager.bufferprovider.BufferProvider;
+import eu.stratosphere.nephele.taskmanager.bufferprovider.BufferProviderBroker;
+import eu.stratosphere.nephele.util.BufferPoolConnector;
+import eu.stratosphere.nephele.util.InterruptibleByteChannel;
+import eu.stratosphere.nephele.util.StringUtils;
+
+/**
+ * This class contains tests covering the compression of buffers by the {@link DefaultSerializer}, the
+ * {@link GatheringSerializer} and the {@link EnvelopeBatchSerializer} and their decompression by the
+ * {@link DefaultDeserializer}.
+ *
+ */
+public class CompressionSerializerTest {
+
+	/**
+	 * The size of the test buffers in bytes.
+	 */
+	private static final int BUFFER_SIZE = 4096;
+
+	/**
+	 * The number of envelopes to transmit in each test.
+	 */
+	private static final int NUMBER_OF_ENVELOPES = 20;
+
+	/**
+	 * The serializers the envelopes can be written with.
+	 */
+	private static enum SerializationMode {
+		DEFAULT, GATHERING, BATCH
+	};
+
+	/**
+	 * The job ID used during the tests.
+	 */
+	private final JobID jobID = new JobID();
+
+	/**
+	 * The source channel ID used during the tests.
+	 */
+	private final ChannelID sourceChannelID = new ChannelID();
+
+	/**
+	 * The pool the buffers of the test envelopes are recycled to.
+	 */
+	private final Queue<MemorySegment> recycleQueue = new ArrayDeque<MemorySegment>();
+
+	/**
+	 * A {@link BufferProviderBroker} which hands out buffers from an unbounded pool.
+	 * <p>
+	 * This class is not thread-safe.
+	 *
+	 */
+	private static final class TestBufferProviderBroker implements BufferProviderBroker, BufferProvider {
+
+		private final Queue<MemorySegment> bufferPool = new ArrayDeque<MemorySegment>();
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public BufferProvider getBufferProvider(final JobID jobID, final ChannelID sourceChannelID) {
+
+			return this;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Buffer requestEmptyBuffer(final int minimumSizeOfBuffer) throws IOException {
+
+			MemorySegment segment = this.bufferPool.poll();
+			if (segment == null) {
+				segment = new MemorySegment(new byte[BUFFER_SIZE]);
+			}
+
+			return BufferFactory.createFromMemory(minimumSizeOfBuffer, segment, new BufferPoolConnector(
+				this.bufferPool));
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Buffer requestEmptyBufferBlocking(final int minimumSizeOfBuffer) throws IOException {
+
+			return requestEmptyBuffer(minimumSizeOfBuffer);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int getMaximumBufferSize() {
+
+			return BUFFER_SIZE;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isShared() {
+
+			return false;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void reportAsynchronousEvent() {
+
+			throw new IllegalStateException("reportAsynchronousEvent called");
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean registerBufferAvailabilityListener(final BufferAvailabilityListener bufferAvailabilityListener) {
+
+			throw new IllegalStateException("registerBufferAvailabilityListener called");
+		}
+	}
+
+	/**
+	 * Checks that compressible buffers are transmitted in compressed form with both compression levels and are
+	 * restored correctly, even if the stream is interrupted at arbitrary positions.
+	 */
+	@Test
+	public void testCompressibleBuffers() {
+
+		for (final CompressionLevel level : new CompressionLevel[] { CompressionLevel.LIGHT_COMPRESSION,
+			CompressionLevel.HEAVY_COMPRESSION }) {
+
+			final CompressionStatistics statistics = new CompressionStatistics();
+			final List<byte[]> payloads = new ArrayList<byte[]>();
+			for (int i = 0; i < NUMBER_OF_ENVELOPES; ++i) {
+				final byte[] payload = new byte[BUFFER_SIZE - i];
+				for (int j = 0; j < payload.length; ++j) {
+					payload[j] = (byte) ((i + j / 64) % 8);
+				}
+				payloads.add(payload);
+			}
+
+			transmit(payloads, level, statistics, SerializationMode.DEFAULT);
+
+			assertTrue(statistics.getCompressionRatio() > 1.0);
+			assertTrue(statistics.getCompressedBytes() < statistics.getUncompressedBytes());
+		}
+	}
+
+	/**
+	 * Checks that incompressible buffers are transmitted in uncompressed form.
+	 */
+	@Test
+	public void testIncompressibleBuffers() {
+
+		final CompressionStatistics statistics = new CompressionStatistics();
+		final Random random = new Random(42L);
+		final List<byte[]> payloads = new ArrayList<byte[]>();
+		int totalPayload = 0;
+		for (int i = 0; i < NUMBER_OF_ENVELOPES; ++i) {
+			final byte[] payload = new byte[BUFFER_SIZE - i];
+			random.nextBytes(payload);
+			payloads.add(payload);
+			totalPayload += payload.length;
+		}
+
+		transmit(payloads, CompressionLevel.HEAVY_COMPRESSION, statistics, SerializationMode.DEFAULT);
+
+		assertEquals(totalPayload, statistics.getUncompressedBytes());
+		assertEquals(totalPayload, statistics.getCompressedBytes());
+		assertEquals(1.0, statistics.getCompressionRatio(), 0.0);
+	}
+
+	/**
+	 * Checks that buffers are compressed if the envelopes are written with gathering writes and that compressed and
+	 * uncompressed buffers can be mixed within one batch.
+	 */
+	@Test
+	public void testCompressionWithGatheringWrites() {
+
+		checkMixedPayloads(SerializationMode.GATHERING);
+	}
+
+	/**
+	 * Checks that buffers are compressed if the envelopes are written in batch frames and that compressed and
+	 * uncompressed buffers can be mixed within one frame.
+	 */
+	@Test
+	public void testCompressionWithBatchFrames() {
+
+		checkMixedPayloads(SerializationMode.BATCH);
+	}
+
+	/**
+	 * Transmits alternating compressible and incompressible payloads with the given serializer and checks that only the
+	 * compressible ones have been compressed.
+	 *
+	 * @param mode
+	 *        the serializer to write the envelopes with
+	 */
+	private void checkMixedPayloads(final SerializationMode mode) {
+
+		final CompressionStatistics statistics = new CompressionStatistics();
+		final Random random = new Random(42L);
+		final List<byte[]> payloads = new ArrayList<byte[]>();
+		int incompressiblePayload = 0;
+		for (int i = 0; i < NUMBER_OF_ENVELOPES; ++i) {
+			final byte[] payload = new byte[BUFFER_SIZE - i];
+			if (i % 2 == 0) {
+				for (int j = 0; j < payload.length; ++j) {
+					payload[j] = (byte) ((i + j / 64) % 8);
+				}
+			} else {
+				random.nextBytes(payload);
+				incompressiblePayload += payload.length;
+			}
+			payloads.add(payload);
+		}
+
+		final int bytesOnWire = transmit(payloads, CompressionLevel.LIGHT_COMPRESSION, statistics, mode);
+
+		assertTrue(statistics.getCompressedBytes() < statistics.getUncompressedBytes());
+		assertTrue(statistics.getCompressedBytes() > incompressiblePayload);
+		assertTrue(bytesOnWire < statistics.getUncompressedBytes());
+	}
+
+	/**
+	 * Serializes one envelope per payload with the given compression level, deserializes the resulting byte stream and
+	 * checks that the original payloads are restored.
+	 *
+	 * @param payloads
+	 *        the payloads of the envelopes' buffers
+	 * @param level
+	 *        the compression level to apply to the envelopes
+	 * @param statistics
+	 *        the statistics to record the compression in
+	 * @param mode
+	 *        the serializer to write the envelopes with
+	 * @return the number of bytes written to the channel
+	 */
+	private int transmit(final List<byte[]> payloads, final CompressionLevel level,
+			final CompressionStatistics statistics, final SerializationMode mode) {
+
+		try {
+			final int[] readInterruptPositions = new int[100];
+			for (int i = 0; i < readInterruptPositions.length; ++i) {
+				readInterruptPositions[i] = 5 + i * 97;
+			}
+
+			final InterruptibleByteChannel ibc = new InterruptibleByteChannel(null, null);
+
+			final List<TransferEnvelope> envelopes = new ArrayList<TransferEnvelope>();
+			for (int i = 0; i < payloads.size(); ++i) {
+				final TransferEnvelope te = createEnvelope(i, payloads.get(i));
+				te.setCompressionLevel(level, statistics);
+				envelopes.add(te);
+			}
+
+			switch (mode) {
+			case GATHERING:
+				writeWithGatheringSerializer(envelopes, ibc);
+				break;
+			case BATCH:
+				writeWithBatchSerializer(envelopes, ibc);
+				break;
+			default:
+				writeWithDefaultSerializer(envelopes, ibc);
+			}
+
+			ibc.switchToReadPhase();
+
+			final ByteBuffer stream = ByteBuffer.allocate(payloads.size() * (BUFFER_SIZE + 256));
+			while (ibc.read(stream) != -1)
+				;
+			stream.flip();
+			final int bytesOnWire = stream.remaining();
+
+			// Replay the byte stream with interruptions at arbitrary positions
+			final InterruptibleByteChannel readChannel = new InterruptibleByteChannel(null, readInterruptPositions);
+			readChannel.write(stream);
+			readChannel.switchToReadPhase();
+
+			final DefaultDeserializer deserializer = new DefaultDeserializer(new TestBufferProviderBroker());
+			final List<TransferEnvelope> received = new ArrayList<TransferEnvelope>();
+			while (received.size() < payloads.size()) {
+				deserializer.read(readChannel);
+				final TransferEnvelope te = deserializer.getFullyDeserializedTransferEnvelope();
+				if (te != null) {
+					received.add(te);
+				}
+			}
+
+			assertFalse(deserializer.hasUnfinishedData());
+
+			for (int i = 0; i < payloads.size(); ++i) {
+				final TransferEnvelope te = received.get(i);
+				final byte[] payload = payloads.get(i);
+				assertEquals(i, te.getSequenceNumber());
+				final Buffer buffer = te.getBuffer();
+				assertNotNull(buffer);
+				assertEquals(payload.length, buffer.size());
+				final ByteBuffer dst = ByteBuffer.allocate(payload.length);
+				buffer.read(dst);
+				for (int j = 0; j < payload.length; ++j) {
+					assertEquals(payload[j], dst.get(j));
+				}
+				buffer.recycleBuffer();
+			}
+
+			return bytesOnWire;
+
+		} catch (Exception e) {
+			fail(StringUtils.stringifyException(e));
+		}
+
+		return -1;
+	}
+
+	private static void writeWithDefaultSerializer(final List<TransferEnvelope> envelopes,
+			final InterruptibleByteChannel ibc) throws IOException {
+
+		final DefaultSerializer serializer = new DefaultSerializer();
+		for (final TransferEnvelope te : envelopes) {
+			serializer.setTransferEnvelope(te);
+			while (serializer.write(ibc))
+				;
+			te.getBuffer().recycleBuffer();
+		}
+	}
+
+	private static void writeWithGatheringSerializer(final List<TransferEnvelope> envelopes,
+			final InterruptibleByteChannel ibc) throws IOException {
+
+		// Use a small header buffer, so batches are cut short and the buffer has to grow for compressed data
+		final GatheringSerializer serializer = new GatheringSerializer(256, 8);
+
+		int nextEnvelope = 0;
+		int nextExpected = 0;
+		while (nextExpected < envelopes.size()) {
+
+			if (serializer.isEmpty()) {
+				while (nextEnvelope < envelopes.size()) {
+					if (!serializer.addTransferEnvelope(envelopes.get(nextEnvelope))) {
+						break;
+					}
+					++nextEnvelope;
+				}
+			}
+
+			serializer.write(ibc);
+
+			TransferEnvelope te;
+			while ((te = serializer.pollFullyWrittenEnvelope()) != null) {
+				assertSame(envelopes.get(nextExpected++), te);
+				te.getBuffer().recycleBuffer();
+			}
+		}
+	}
+
+	private static void writeWithBatchSerializer(final List<TransferEnvelope> envelopes,
+			final InterruptibleByteChannel ibc) throws IOException {
+
+		final EnvelopeBatchSerializer serializer = new EnvelopeBatchSerializer();
+
+		for (int i = 0; i < envelopes.size(); i += 4) {
+			serializer.startFrame(envelopes.get(i).getJobID());
+			for (int j = i; j < Math.min(i + 4, envelopes.size()); ++j) {
+				final TransferEnvelope te = envelopes.get(j);
+				serializer.addTransferEnvelope(te);
+				te.getBuffer().recycleBuffer();
+			}
+			serializer.finishFrame();
+			while (serializer.write(ibc))
+				;
+		}
+	}
+
+	private TransferEnvelope createEnvelope(final int sequenceNumber, final byte[] payload) throws IOException {
+
+		final TransferEnvelope te = new TransferEnvelope(sequenceNumber, this.jobID, this.sourceChannelID);
+
+		MemorySegment segment = this.recycleQueue.poll();
+		if (segment == null) {
+			segment = new MemorySegment(new byte[BUFFER_SIZE]);
+		}
+
+		final MemoryBuffer buffer = BufferFactory.createFromMemory(payload.length, segment, new BufferPoolConnector(
+			this.recycleQueue));
+		buffer.write(ByteBuffer.wrap(payload));
+		buffer.flip();
+		te.setBuffer(buffer);
+
+		return te;
+	}
+}
@@ -0,0 +1,307 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.transferenvelope;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.event.task.StringTaskEvent;
+import eu.stratosphere.nephele.io.channels.Buffer;
+import eu.stratosphere.nephele.io.channels.BufferFactory;
+import eu.stratosphere.nephele.io.channels.ChannelID;
+import eu.stratosphere.nephele.io.channels.MemoryBuffer;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+import eu.stratosphere.nephele.taskmanager.bufferprovider.BufferAvailabilityListener;
+import eu.stratosphere.nephele.taskmanager.bufferprovider.BufferProvider;
+import eu.stratosphere.nephele.taskmanager.bufferprovider.BufferProviderBroker;
+import eu.stratosphere.nephele.util.BufferPoolConnector;
+import eu.stratosphere.nephele.util.InterruptibleByteChannel;
+import eu.stratosphere.nephele.util.StringUtils;
+
+/**
+ * This class contains tests covering the serialization of batch frames and their demultiplexing by the deserializer.
+ *
+ */
+public class EnvelopeBatchSerializerTest {
+
+	/**
+	 * The size of the test buffers in bytes.
+	 */
+	private static final int BUFFER_SIZE = 128;
+
+	/**
+	 * The job ID used during the tests.
+	 */
+	private final JobID jobID = new JobID();
+
+	/**
+	 * The source channel ID used during the tests.
+	 */
+	private final ChannelID sourceChannelID = new ChannelID();
+
+	/**
+	 * The pool the buffers of the test envelopes are recycled to.
+	 */
+	private final Queue<MemorySegment> recycleQueue = new ArrayDeque<MemorySegment>();
+
+	/**
+	 * A {@link BufferProviderBroker} which hands out buffers from an unbounded pool.
+	 * <p>
+	 * This class is not thread-safe.
+	 *
+	 */
+	private static final class TestBufferProviderBroker implements BufferProviderBroker, BufferProvider {
+
+		private final Queue<MemorySegment> bufferPool = new ArrayDeque<MemorySegment>();
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public BufferProvider getBufferProvider(final JobID jobID, final ChannelID sourceChannelID) {
+
+			return this;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Buffer requestEmptyBuffer(final int minimumSizeOfBuffer) throws IOException {
+
+			MemorySegment segment = this.bufferPool.poll();
+			if (segment == null) {
+				segment = new MemorySegment(new byte[BUFFER_SIZE]);
+			}
+
+			return BufferFactory.createFromMemory(minimumSizeOfBuffer, segment, new BufferPoolConnector(
+				this.bufferPool));
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Buffer requestEmptyBufferBlocking(final int minimumSizeOfBuffer) throws IOException {
+
+			return requestEmptyBuffer(minimumSizeOfBuffer);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int getMaximumBufferSize() {
+
+			return BUFFER_SIZE;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isShared() {
+
+			return false;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void reportAsynchronousEvent() {
+
+			throw new IllegalStateException("reportAsynchronousEvent called");
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean registerBufferAvailabilityListener(final BufferAvailabilityListener bufferAvailabilityListener) {
+
+			throw new IllegalStateException("registerBufferAvailabilityListener called");
+		}
+	}
+
+	/**
+	 * Checks that a byte stream mixing batch frames and regular envelopes is deserialized into the original sequence
+	 * of envelopes, even if the stream is interrupted at arbitrary positions.
+	 */
+	@Test
+	public void testMixedStreamWithInterruptions() {
+
+		try {
+			final int[] readInterruptPositions = new int[200];
+			for (int i = 0; i < readInterruptPositions.length; ++i) {
+				readInterruptPositions[i] = 3 + i * 31;
+			}
+
+			final InterruptibleByteChannel ibc = new InterruptibleByteChannel(null, readInterruptPositions);
+			final EnvelopeBatchSerializer batchSerializer = new EnvelopeBatchSerializer();
+			final DefaultSerializer defaultSerializer = new DefaultSerializer();
+
+			int sequenceNumber = 0;
+			for (int round = 0; round < 10; ++round) {
+
+				// A regular envelope, followed by a frame with round + 1 envelopes
+				final TransferEnvelope single = createEnvelope(sequenceNumber++, round * 10, round % 2 == 0);
+				defaultSerializer.setTransferEnvelope(single);
+				while (defaultSerializer.write(ibc))
+					;
+				if (single.getBuffer() != null) {
+					single.getBuffer().recycleBuffer();
+				}
+
+				batchSerializer.startFrame(this.jobID);
+				for (int i = 0; i <= round; ++i) {
+					final TransferEnvelope te = createEnvelope(sequenceNumber++, i * 11, i % 3 == 0);
+					batchSerializer.addTransferEnvelope(te);
+					if (te.getBuffer() != null) {
+						te.getBuffer().recycleBuffer();
+					}
+				}
+				assertEquals(round + 1, batchSerializer.getNumberOfEnvelopes());
+				batchSerializer.finishFrame();
+				assertTrue(batchSerializer.hasPendingFrame());
+				while (batchSerializer.write(ibc))
+					;
+				assertFalse(batchSerializer.hasPendingFrame());
+			}
+
+			ibc.switchToReadPhase();
+
+			final DefaultDeserializer deserializer = new DefaultDeserializer(new TestBufferProviderBroker());
+			final List<TransferEnvelope> received = new ArrayList<TransferEnvelope>();
+			while (received.size() < sequenceNumber) {
+				deserializer.read(ibc);
+				final TransferEnvelope te = deserializer.getFullyDeserializedTransferEnvelope();
+				if (te != null) {
+					received.add(te);
+				}
+			}
+
+			assertFalse(deserializer.hasUnfinishedData());
+
+			sequenceNumber = 0;
+			for (int round = 0; round < 10; ++round) {
+				checkEnvelope(received.get(sequenceNumber), sequenceNumber++, round * 10, round % 2 == 0);
+				for (int i = 0; i <= round; ++i) {
+					checkEnvelope(received.get(sequenceNumber), sequenceNumber++, i * 11, i % 3 == 0);
+				}
+			}
+
+		} catch (Exception e) {
+			fail(StringUtils.stringifyException(e));
+		}
+	}
+
+	/**
+	 * Checks that envelopes of a different job are rejected by a frame.
+	 */
+	@Test
+	public void testRejectEnvelopeOfOtherJob() {
+
+		try {
+			final EnvelopeBatchSerializer batchSerializer = new EnvelopeBatchSerializer();
+			batchSerializer.startFrame(new JobID());
+			batchSerializer.addTransferEnvelope(createEnvelope(0, 0, false));
+			fail("Expected IllegalArgumentException but has not been thrown");
+		} catch (IllegalArgumentException iae) {
+			// Expected exception was successfully caught
+		} catch (IOException ioe) {
+			fail(StringUtils.stringifyException(ioe));
+		}
+	}
+
+	private void checkEnvelope(final TransferEnvelope te, final int sequenceNumber, final int bufferSize,
+			final boolean withEvent) throws IOException {
+
+		assertEquals(sequenceNumber, te.getSequenceNumber());
+		assertEquals(this.jobID, te.getJobID());
+		assertEquals(this.sourceChannelID, te.getSource());
+
+		if (withEvent) {
+			assertNotNull(te.getEventList());
+			assertEquals(1, te.getEventList().size());
+			assertEquals("Event " + sequenceNumber,
+				((StringTaskEvent) te.getEventList().iterator().next()).getString());
+		} else {
+			assertNull(te.getEventList());
+		}
+
+		if (bufferSize == 0) {
+			assertNull(te.getBuffer());
+		} else {
+			final Buffer buffer = te.getBuffer();
+			assertNotNull(buffer);
+			assertEquals(bufferSize, buffer.size());
+			final ByteBuffer dst = ByteBuffer.allocate(bufferSize);
+			buffer.read(dst);
+			for (int i = 0; i < bufferSize; ++i) {
+				assertEquals((byte) (sequenceNumber + i), dst.get(i));
+			}
+			buffer.recycleBuffer();
+		}
+	}
+
+	private TransferEnvelope createEnvelope(final int sequenceNumber, final int bufferSize, final boolean withEvent) {
+
+		final TransferEnvelope te = new TransferEnvelope(sequenceNumber, this.jobID, this.sourceChannelID);
+		if (withEvent) {
+			te.addEvent(new StringTaskEvent("Event " + sequenceNumber));
+		}
+
+		if (bufferSize > 0) {
+
+			MemorySegment segment = this.recycleQueue.poll();
+			if (segment == null) {
+				segment = new MemorySegment(new byte[BUFFER_SIZE]);
+			}
+
+			final MemoryBuffer buffer = BufferFactory.createFromMemory(bufferSize, segment, new BufferPoolConnector(
+				this.recycleQueue));
+			final ByteBuffer src = ByteBuffer.allocate(bufferSize);
+			for (int i = 0; i < bufferSize; ++i) {
+				src.put((byte) (sequenceNumber + i));
+			}
+			src.flip();
+			try {
+				buffer.write(src);
+			} catch (IOException ioe) {
+				fail(ioe.getMessage());
+			}
+			buffer.flip();
+			te.setBuffer(buffer);
+		}
+
+		return te;
+	}
+}
@@ -0,0 +1,261 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.transferenvelope;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.event.task.StringTaskEvent;
+import eu.stratosphere.nephele.io.channels.BufferFactory;
+import eu.stratosphere.nephele.io.channels.ChannelID;
+import eu.stratosphere.nephele.io.channels.MemoryBuffer;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+import eu.stratosphere.nephele.util.BufferPoolConnector;
+import eu.stratosphere.nephele.util.InterruptibleByteChannel;
+
+/**
+ * This class contains tests covering the serialization of batches of transfer envelopes with gathering writes.
+ *
+ */
+public class GatheringSerializerTest {
+
+	/**
+	 * The number of envelopes to serialize during the tests.
+	 */
+	private static final int NUMBER_OF_ENVELOPES = 200;
+
+	/**
+	 * The maximum size of an envelope's buffer.
+	 */
+	private static final int BUFFER_SIZE = 1024;
+
+	/**
+	 * The job ID used during the serialization process.
+	 */
+	private final JobID jobID = new JobID();
+
+	/**
+	 * The source channel ID used during the serialization process.
+	 */
+	private final ChannelID sourceChannelID = new ChannelID();
+
+	/**
+	 * The pool the buffers of the test envelopes are recycled to.
+	 */
+	private final Queue<MemorySegment> recycleQueue = new ArrayDeque<MemorySegment>();
+
+	/**
+	 * Checks that the gathering serializer produces exactly the same byte stream as the default serializer.
+	 */
+	@Test
+	public void testByteStreamCompatibility() {
+
+		try {
+			final ByteBuffer expected = serializeWithDefaultSerializer(createEnvelopes());
+			final ByteBuffer actual = serializeWithGatheringSerializer(createEnvelopes(), null, 16);
+
+			assertEquals(expected, actual);
+
+		} catch (IOException ioe) {
+			fail(ioe.getMessage());
+		}
+	}
+
+	/**
+	 * Checks that the gathering serializer correctly resumes after partial writes and returns each envelope exactly
+	 * once after it has been fully written.
+	 */
+	@Test
+	public void testInterruptedWrites() {
+
+		try {
+			final ByteBuffer expected = serializeWithDefaultSerializer(createEnvelopes());
+
+			final int[] interruptPositions = new int[100];
+			for (int i = 0; i < interruptPositions.length; ++i) {
+				interruptPositions[i] = 7 + i * 997;
+			}
+
+			final ByteBuffer actual = serializeWithGatheringSerializer(createEnvelopes(), interruptPositions, 5);
+
+			assertEquals(expected, actual);
+
+		} catch (IOException ioe) {
+			fail(ioe.getMessage());
+		}
+	}
+
+	/**
+	 * Checks that an envelope whose header exceeds the header buffer is still serialized and that the buffers of
+	 * released envelopes are recycled.
+	 */
+	@Test
+	public void testHeaderBufferGrowthAndRelease() {
+
+		try {
+			final List<TransferEnvelope> expectedEnvelopes = new ArrayList<TransferEnvelope>();
+			expectedEnvelopes.add(createEnvelope(0, 10, true));
+			final ByteBuffer expected = serializeWithDefaultSerializer(expectedEnvelopes);
+
+			// The header of the envelope does not fit into the initial header buffer
+			final GatheringSerializer serializer = new GatheringSerializer(16, 4);
+			final TransferEnvelope first = createEnvelope(0, 10, true);
+			assertTrue(serializer.addTransferEnvelope(first));
+
+			final InterruptibleByteChannel ibc = new InterruptibleByteChannel(null, null);
+			while (serializer.write(ibc))
+				;
+			assertSame(first, serializer.pollFullyWrittenEnvelope());
+			assertTrue(serializer.isEmpty());
+			first.getBuffer().recycleBuffer();
+			assertEquals(expected, drain(ibc));
+
+			// Envelopes which are dropped from the batch must have their buffers recycled
+			final int numberOfSegments = this.recycleQueue.size();
+			assertTrue(serializer.addTransferEnvelope(createEnvelope(1, 10, false)));
+			assertEquals(numberOfSegments - 1, this.recycleQueue.size());
+			serializer.releaseAllEnvelopes();
+			assertTrue(serializer.isEmpty());
+			assertEquals(numberOfSegments, this.recycleQueue.size());
+			assertNull(serializer.pollFullyWrittenEnvelope());
+
+		} catch (IOException ioe) {
+			fail(ioe.getMessage());
+		}
+	}
+
+	private ByteBuffer serializeWithDefaultSerializer(final List<TransferEnvelope> envelopes) throws IOException {
+
+		final InterruptibleByteChannel ibc = new InterruptibleByteChannel(null, null);
+		final DefaultSerializer serializer = new DefaultSerializer();
+
+		for (final TransferEnvelope envelope : envelopes) {
+			serializer.setTransferEnvelope(envelope);
+			while (serializer.write(ibc))
+				;
+			if (envelope.getBuffer() != null) {
+				envelope.getBuffer().recycleBuffer();
+			}
+		}
+
+		return drain(ibc);
+	}
+
+	private ByteBuffer serializeWithGatheringSerializer(final List<TransferEnvelope> envelopes,
+			final int[] interruptPositions, final int batchSize) throws IOException {
+
+		final InterruptibleByteChannel ibc = new InterruptibleByteChannel(interruptPositions, null);
+		final GatheringSerializer serializer = new GatheringSerializer(256, batchSize);
+
+		int nextEnvelope = 0;
+		int nextExpected = 0;
+		while (nextExpected < envelopes.size()) {
+
+			if (serializer.isEmpty()) {
+				while (nextEnvelope < envelopes.size()) {
+					if (!serializer.addTransferEnvelope(envelopes.get(nextEnvelope))) {
+						break;
+					}
+					++nextEnvelope;
+				}
+			}
+
+			serializer.write(ibc);
+
+			TransferEnvelope te;
+			while ((te = serializer.pollFullyWrittenEnvelope()) != null) {
+				assertSame(envelopes.get(nextExpected++), te);
+				if (te.getBuffer() != null) {
+					te.getBuffer().recycleBuffer();
+				}
+			}
+		}
+
+		assertTrue(serializer.isEmpty());
+
+		return drain(ibc);
+	}
+
+	private static ByteBuffer drain(final InterruptibleByteChannel ibc) throws IOException {
+
+		ibc.switchToReadPhase();
+
+		final ByteBuffer tmp = ByteBuffer.allocate(NUMBER_OF_ENVELOPES * (BUFFER_SIZE + 256));
+		while (ibc.read(tmp) != -1)
+			;
+		tmp.flip();
+
+		return tmp;
+	}
+
+	private List<TransferEnvelope> createEnvelopes() {
+
+		final List<TransferEnvelope> envelopes = new ArrayList<TransferEnvelope>(NUMBER_OF_ENVELOPES);
+		for (int i = 0; i < NUMBER_OF_ENVELOPES; ++i) {
+			// Mix envelopes with and without buffers and events
+			final int bufferSize = (i % 3 == 0) ? 0 : (i * 37) % BUFFER_SIZE + 1;
+			envelopes.add(createEnvelope(i, bufferSize, (i % 4 == 0)));
+		}
+
+		return envelopes;
+	}
+
+	private TransferEnvelope createEnvelope(final int sequenceNumber, final int bufferSize, final boolean withEvent) {
+
+		final TransferEnvelope te = new TransferEnvelope(sequenceNumber, this.jobID, this.sourceChannelID);
+		if (withEvent) {
+			te.addEvent(new StringTaskEvent("Event " + sequenceNumber));
+		}
+
+		if (bufferSize > 0) {
+
+			MemorySegment segment = this.recycleQueue.poll();
+			if (segment == null) {
+				segment = new MemorySegment(new byte[BUFFER_SIZE]);
+			}
+
+			final MemoryBuffer buffer = BufferFactory.createFromMemory(bufferSize, segment, new BufferPoolConnector(
+				this.recycleQueue));
+			final ByteBuffer src = ByteBuffer.allocate(bufferSize);
+			for (int i = 0; i < bufferSize; ++i) {
+				src.put((byte) (sequenceNumber + i));
+			}
+			src.flip();
+			try {
+				buffer.write(src);
+			} catch (IOException ioe) {
+				fail(ioe.getMessage());
+			}
+			buffer.flip();
+			te.setBuffer(buffer);
+		}
+
+		return te;
+	}
+}
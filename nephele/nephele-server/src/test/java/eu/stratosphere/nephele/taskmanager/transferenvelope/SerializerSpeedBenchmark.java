@@ -0,0 +1,165 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.transferenvelope;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import eu.stratosphere.nephele.io.channels.BufferFactory;
+import eu.stratosphere.nephele.io.channels.ChannelID;
+import eu.stratosphere.nephele.io.channels.MemoryBuffer;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+import eu.stratosphere.nephele.util.BufferPoolConnector;
+
+/**
+ * Compares the throughput of the {@link DefaultSerializer} and the {@link GatheringSerializer} when transmitting
+ * transfer envelopes of different sizes through a loopback TCP connection.
+ *
+ */
+public class SerializerSpeedBenchmark {
+
+	private static final int[] BUFFER_SIZES = { 0, 128, 4096, 65536 };
+
+	private static final int NUMBER_OF_ENVELOPES = 200000;
+
+	private static final int ROUNDS = 3;
+
+	public static void main(final String[] args) throws Exception {
+
+		for (int round = 0; round < ROUNDS; ++round) {
+			for (final int bufferSize : BUFFER_SIZES) {
+
+				final long elapsedDefault = runBenchmark(bufferSize, false);
+				final long elapsedGathering = runBenchmark(bufferSize, true);
+
+				System.out.println(String.format(
+					"Round %d, %d envelopes with %d byte buffers: default=%,d msecs, gathering=%,d msecs.", round,
+					NUMBER_OF_ENVELOPES, bufferSize, elapsedDefault, elapsedGathering));
+			}
+		}
+	}
+
+	private static long runBenchmark(final int bufferSize, final boolean gathering) throws Exception {
+
+		final ServerSocketChannel server = ServerSocketChannel.open();
+		server.socket().bind(new InetSocketAddress(InetAddress.getByName("localhost"), 0));
+
+		final Thread drainThread = new Thread() {
+
+			@Override
+			public void run() {
+				try {
+					final SocketChannel sc = server.accept();
+					final ByteBuffer buf = ByteBuffer.allocateDirect(256 * 1024);
+					while (sc.read(buf) != -1) {
+						buf.clear();
+					}
+					sc.close();
+				} catch (IOException ioe) {
+					ioe.printStackTrace();
+				}
+			}
+		};
+		drainThread.start();
+
+		final SocketChannel socketChannel = SocketChannel.open(server.socket().getLocalSocketAddress());
+
+		final JobID jobID = new JobID();
+		final ChannelID channelID = new ChannelID();
+		final Queue<MemorySegment> pool = new ArrayDeque<MemorySegment>();
+		for (int i = 0; i < 128; ++i) {
+			pool.add(new MemorySegment(new byte[Math.max(bufferSize, 1)]));
+		}
+		final BufferPoolConnector connector = new BufferPoolConnector(pool);
+
+		final long start = System.currentTimeMillis();
+
+		if (gathering) {
+
+			final GatheringSerializer serializer = new GatheringSerializer();
+			TransferEnvelope pending = null;
+			int created = 0;
+			int written = 0;
+			while (written < NUMBER_OF_ENVELOPES) {
+
+				if (serializer.isEmpty()) {
+					while (pending != null || (created < NUMBER_OF_ENVELOPES && !pool.isEmpty())) {
+						if (pending == null) {
+							pending = createEnvelope(created++, jobID, channelID, bufferSize, pool, connector);
+						}
+						if (!serializer.addTransferEnvelope(pending)) {
+							break;
+						}
+						pending = null;
+					}
+				}
+
+				serializer.write(socketChannel);
+
+				TransferEnvelope te;
+				while ((te = serializer.pollFullyWrittenEnvelope()) != null) {
+					if (te.getBuffer() != null) {
+						te.getBuffer().recycleBuffer();
+					}
+					++written;
+				}
+			}
+
+		} else {
+
+			final DefaultSerializer serializer = new DefaultSerializer();
+			for (int i = 0; i < NUMBER_OF_ENVELOPES; ++i) {
+				final TransferEnvelope te = createEnvelope(i, jobID, channelID, bufferSize, pool, connector);
+				serializer.setTransferEnvelope(te);
+				while (serializer.write(socketChannel))
+					;
+				if (te.getBuffer() != null) {
+					te.getBuffer().recycleBuffer();
+				}
+			}
+		}
+
+		final long elapsed = System.currentTimeMillis() - start;
+
+		socketChannel.close();
+		drainThread.join();
+		server.close();
+
+		return elapsed;
+	}
+
+	private static TransferEnvelope createEnvelope(final int sequenceNumber, final JobID jobID,
+			final ChannelID channelID, final int bufferSize, final Queue<MemorySegment> pool,
+			final BufferPoolConnector connector) throws IOException {
+
+		final TransferEnvelope te = new TransferEnvelope(sequenceNumber, jobID, channelID);
+		if (bufferSize > 0) {
+			final MemoryBuffer buffer = BufferFactory.createFromMemory(bufferSize, pool.poll(), connector);
+			buffer.position(bufferSize);
+			buffer.flip();
+			te.setBuffer(buffer);
+		}
+
+		return te;
+	}
+}
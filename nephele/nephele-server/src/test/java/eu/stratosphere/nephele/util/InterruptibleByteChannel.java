@@ -18,13 +18,14 @@ package eu.stratosphere.nephele.util;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.util.ArrayDeque;
 import java.util.Queue;
 
 /**
- * This class is a special test implementation of a {@link ReadableByteChannel} and {@link WritableByteChannel}. Data is
+ * This class is a special test implementation of a {@link ReadableByteChannel} and {@link GatheringByteChannel}. Data is
  * first written into main memory through the {@link WritableByteChannel} interface. Afterwards, the data can be read
  * again through the {@link ReadableByteChannel} abstraction. The implementation is capable of simulating interruptions
  * in the byte stream.
@@ -33,7 +34,7 @@ import java.util.Queue;
  * 
  * @author warneke
  */
-public class InterruptibleByteChannel implements ReadableByteChannel, WritableByteChannel {
+public class InterruptibleByteChannel implements ReadableByteChannel, GatheringByteChannel {
 
 	/**
 	 * The initial size of the internal memory buffer in bytes.
@@ -136,18 +137,19 @@ public class InterruptibleByteChannel implements ReadableByteChannel, WritableBy
 			throw new IllegalStateException("Channel is not in write phase anymore");
 		}
 
-		if (src.remaining() > this.buffer.remaining()) {
+		while (src.remaining() > this.buffer.remaining()) {
 			increaseBufferSize();
 		}
 
 		int numberOfBytesToAccept = src.remaining();
 		if (!this.writeInterruptPositions.isEmpty()
-			&& (this.buffer.position() + numberOfBytesToAccept < this.writeInterruptPositions.peek().intValue())) {
+			&& (this.buffer.position() + numberOfBytesToAccept > this.writeInterruptPositions.peek().intValue())) {
 			numberOfBytesToAccept = this.writeInterruptPositions.poll().intValue() - this.buffer.position();
 
-			this.buffer.limit(this.buffer.position() + numberOfBytesToAccept);
+			final int oldLimit = src.limit();
+			src.limit(src.position() + numberOfBytesToAccept);
 			this.buffer.put(src);
-			this.buffer.limit(this.buffer.capacity());
+			src.limit(oldLimit);
 
 			return numberOfBytesToAccept;
 		}
@@ -157,6 +159,38 @@ public class InterruptibleByteChannel implements ReadableByteChannel, WritableBy
 		return numberOfBytesToAccept;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long write(final ByteBuffer[] srcs, final int offset, final int length) throws IOException {
+
+		long bytesWritten = 0;
+
+		for (int i = offset; i < offset + length; ++i) {
+
+			final int remaining = srcs[i].remaining();
+			final int written = write(srcs[i]);
+			bytesWritten += written;
+
+			// Stop at the first interruption of the byte stream
+			if (written < remaining) {
+				break;
+			}
+		}
+
+		return bytesWritten;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long write(final ByteBuffer[] srcs) throws IOException {
+
+		return write(srcs, 0, srcs.length);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */